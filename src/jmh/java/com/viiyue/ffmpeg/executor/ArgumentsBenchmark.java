@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.executor;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.viiyue.ffmpeg.common.Argument;
+
+/**
+ * Building a mosaic command with {@link Arguments} against the {@code LinkedList} with a linear lookup it
+ * replaced, every input is preceded by a unique option and followed by a unique output option.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ArgumentsBenchmark {
+
+	@Param( { "1000", "10000" } )
+	private int size;
+
+	@Benchmark
+	public Arguments arguments() {
+		Arguments commands = new Arguments();
+		for ( int i = 0, inputs = size / 3; i < inputs; i ++ ) {
+			if ( commands.inScope( "-itsoffset", false ) == null ) {
+				commands.add( argument( "-itsoffset", i ), false );
+			}
+			commands.add( argument( "-i", i ), false );
+		}
+		for ( int i = 0, options = size - commands.size(); i < options; i ++ ) {
+			String key = "-metadata:s:" + i;
+			if ( commands.inScope( key, false ) == null ) {
+				commands.add( argument( key, i ), false );
+			}
+		}
+		return commands;
+	}
+
+	@Benchmark
+	public List<Argument> linkedList() {
+		List<Argument> commands = new LinkedList<>();
+		for ( int i = 0, inputs = size / 3; i < inputs; i ++ ) {
+			if ( find( commands, "-itsoffset" ) == null ) {
+				commands.add( argument( "-itsoffset", i ) );
+			}
+			commands.add( argument( "-i", i ) );
+		}
+		for ( int i = 0, options = size - commands.size(); i < options; i ++ ) {
+			String key = "-metadata:s:" + i;
+			if ( find( commands, key ) == null ) {
+				commands.add( argument( key, i ) );
+			}
+		}
+		return commands;
+	}
+
+	private static Argument find( List<Argument> commands, String key ) {
+		for ( Argument argument : commands ) {
+			if ( argument.is( key ) ) {
+				return argument;
+			}
+		}
+		return null;
+	}
+
+	private static Argument argument( String key, Object value ) {
+		Argument argument = new Argument();
+		argument.setKey( key );
+		argument.setValue( value );
+		return argument;
+	}
+
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.viiyue.ffmpeg.annotation.Function;
+import com.viiyue.ffmpeg.filter.video.Scale;
+
+/**
+ * Rendering of every {@link Function} class of the video filters, each one built by its simplest static factory (or without any option
+ * when it has none), one by one, as a single chain and as one chain per filter through {@link Filters}.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class VideoFiltersBenchmark {
+
+	private static final String PACKAGE = Scale.class.getPackage().getName();
+
+	private AbstractResult<?> [] functions;
+
+	@Setup
+	public void setup() throws Exception {
+		List<AbstractResult<?>> results = new ArrayList<>( 300 );
+		for ( Class<?> type : classes() ) {
+			results.add( create( type ) );
+		}
+		functions = results.toArray( new AbstractResult<?>[ results.size() ] );
+	}
+
+	@Benchmark
+	public void render( Blackhole hole ) {
+		for ( AbstractResult<?> function : functions ) {
+			hole.consume( function.toString() );
+		}
+	}
+
+	@Benchmark
+	public String chain() {
+		return Filters.simple().add( functions ).over().toString();
+	}
+
+	@Benchmark
+	public String graph() {
+		Filters filters = Filters.complex();
+		int index = 0;
+		for ( AbstractResult<?> function : functions ) {
+			filters.stream( "0:v" ).add( function ).tag( "v" + index ++ );
+		}
+		return filters.toString();
+	}
+
+	private static List<Class<?>> classes() throws IOException, ClassNotFoundException {
+		URL url = Scale.class.getResource( "Scale.class" );
+		List<Class<?>> classes = new ArrayList<>( 300 );
+		try ( FileSystem jar = "jar".equals( url.getProtocol() ) ? FileSystems.newFileSystem( toURI( url ), Collections.emptyMap() ) : null ) {
+			Path directory = ( jar == null ? Paths.get( toURI( url ) ) : jar.provider().getPath( toURI( url ) ) ).getParent();
+			List<Path> files = new ArrayList<>( 300 );
+			try ( java.util.stream.Stream<Path> stream = Files.list( directory ) ) {
+				stream.filter( file -> file.toString().endsWith( ".class" ) ).forEach( files::add );
+			}
+			files.sort( Comparator.comparing( Path::toString ) );
+			for ( Path file : files ) {
+				String name = file.getFileName().toString();
+				Class<?> type = Class.forName( PACKAGE + "." + name.substring( 0, name.length() - 6 ) );
+				if ( AbstractResult.class.isAssignableFrom( type ) && type.isAnnotationPresent( Function.class ) ) {
+					classes.add( type );
+				}
+			}
+		}
+		return classes;
+	}
+
+	private static URI toURI( URL url ) throws IOException {
+		try {
+			return url.toURI();
+		} catch ( Exception e ) {
+			throw new IOException( e );
+		}
+	}
+
+	/**
+	 * Invoke the public static factory with the fewest parameters that are all numbers, booleans or strings,
+	 * or the private constructor when there is no such factory.
+	 */
+	private static AbstractResult<?> create( Class<?> type ) throws ReflectiveOperationException {
+		Method factory = null;
+		for ( Method method : type.getMethods() ) {
+			if ( Modifier.isStatic( method.getModifiers() ) && method.getReturnType() == type && isSimple( method.getParameterTypes() ) ) {
+				if ( factory == null || method.getParameterCount() < factory.getParameterCount() ) {
+					factory = method;
+				}
+			}
+		}
+		if ( factory == null ) {
+			return construct( type );
+		}
+		Class<?> [] types = factory.getParameterTypes();
+		Object [] arguments = new Object[ types.length ];
+		for ( int i = 0; i < types.length; i ++ ) {
+			arguments[ i ] = valueOf( types[ i ] );
+		}
+		try {
+			return ( AbstractResult<?> ) factory.invoke( null, arguments );
+		} catch ( ReflectiveOperationException | RuntimeException e ) {
+			return construct( type );
+		}
+	}
+
+	private static AbstractResult<?> construct( Class<?> type ) throws ReflectiveOperationException {
+		Constructor<?> constructor = type.getDeclaredConstructor();
+		constructor.setAccessible( true );
+		return ( AbstractResult<?> ) constructor.newInstance();
+	}
+
+	private static boolean isSimple( Class<?> [] types ) {
+		for ( Class<?> type : types ) {
+			if ( valueOf( type ) == null ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Object valueOf( Class<?> type ) {
+		if ( type == int.class || type == Integer.class ) {
+			return 2;
+		}
+		if ( type == long.class || type == Long.class ) {
+			return 2L;
+		}
+		if ( type == float.class || type == Float.class ) {
+			return 0.5F;
+		}
+		if ( type == double.class || type == Double.class ) {
+			return 0.5;
+		}
+		if ( type == boolean.class || type == Boolean.class ) {
+			return true;
+		}
+		if ( type == String.class ) {
+			return "1";
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.viiyue.ffmpeg.enums.PixelFormat;
+
+/**
+ * {@link FrameAnalyzer#analyze(RawFrame)} on alternating 4K frames, including the copy of the previous luma
+ * plane and the allocation of the histograms and the results, run with {@code -prof gc} to see the allocation
+ * rate.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class FrameAnalyzerBenchmark {
+
+	@Param( { "YUV420P", "NV12" } )
+	private PixelFormat format;
+
+	@Param( { "true", "false" } )
+	private boolean histograms;
+
+	private FrameAnalyzer analyzer;
+	private RawFrame [] frames;
+	private int next;
+
+	@Setup
+	public void setup() {
+		analyzer = histograms ? FrameAnalyzer.of() : FrameAnalyzer.of().withoutHistograms();
+		Random random = new Random( 42 );
+		frames = new RawFrame[ 2 ];
+		for ( int i = 0; i < frames.length; i ++ ) {
+			frames[ i ] = new RawFrame( 3840, 2160, format );
+			random.nextBytes( frames[ i ].getData() );
+		}
+	}
+
+	@Benchmark
+	public FrameStats analyze() {
+		next ^= 1;
+		return analyzer.analyze( frames[ next ] );
+	}
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.viiyue.ffmpeg.enums.PixelFormat;
+import com.viiyue.ffmpeg.executor.FFmpegExecutor;
+
+/**
+ * End-to-end frames per second of 4K RGB frames, converted by ffmpeg with {@code -pix_fmt rgb24} or read as
+ * {@code yuv420p} and converted by {@link YuvConverter}. The frames come from the {@code testsrc2} source of
+ * ffmpeg, which must be on the {@code PATH}.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( FrameConversionBenchmark.FRAMES )
+@Warmup( iterations = 1, time = 5 )
+@Measurement( iterations = 3, time = 10 )
+@Fork( 1 )
+public class FrameConversionBenchmark {
+
+	static final int FRAMES = 60;
+
+	private static final int WIDTH = 3840;
+	private static final int HEIGHT = 2160;
+	private static final String SOURCE = "testsrc2=size=" + WIDTH + "x" + HEIGHT + ":rate=30,format=yuv420p";
+
+	@Param( { "scalar", "vector" } )
+	private String impl;
+
+	private YuvConverter converter;
+	private byte [] rgb;
+
+	@Setup
+	public void setup() {
+		converter = "scalar".equals( impl ) ? YuvConverter.scalar() : YuvConverter.get();
+		if ( !converter.getName().equals( impl ) ) {
+			throw new IllegalStateException( "The " + impl + " converter is not available in this JVM" );
+		}
+		rgb = new byte[ WIDTH * HEIGHT * 3 ];
+	}
+
+	@Benchmark
+	public void ffmpegSide( Blackhole hole ) throws IOException {
+		try ( FrameReader reader = FrameReader.open( source(), WIDTH, HEIGHT, PixelFormat.RGB24 ) ) {
+			RawFrame frame = reader.newFrame();
+			while ( reader.read( frame ) ) {
+				hole.consume( frame.getData() );
+			}
+		}
+	}
+
+	@Benchmark
+	public void javaSide( Blackhole hole ) throws IOException {
+		try ( FrameReader reader = FrameReader.open( source(), WIDTH, HEIGHT, PixelFormat.YUV420P ) ) {
+			RawFrame frame = reader.newFrame();
+			while ( reader.read( frame ) ) {
+				converter.toRgb( frame, rgb );
+				hole.consume( rgb );
+			}
+		}
+	}
+
+	private static FFmpegExecutor source() {
+		return FFmpegExecutor.build().cmd( "f", "lavfi", false ).cmd( "i", SOURCE, false ).cmd( "frames:v", FRAMES, false );
+	}
+
+}
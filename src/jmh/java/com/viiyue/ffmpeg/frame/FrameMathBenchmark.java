@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scalar and vector {@link FrameMath} kernels on a 4K and a 1080p luma plane, and the four-way histogram against
+ * a single histogram on noise and on a flat plane. The vector kernels need the same setup as
+ * {@link YuvConverterBenchmark}, real-time 4K at 60 fps leaves about 16 ms per frame for all of them.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class FrameMathBenchmark {
+
+	@Param( { "scalar", "vector" } )
+	private String impl;
+
+	@Param( { "noise", "flat" } )
+	private String plane;
+
+	@Param( { "3840x2160", "1920x1080" } )
+	private String size;
+
+	private int pixels;
+	private FrameMath math;
+	private byte [] current;
+	private byte [] previous;
+	private int [] bins;
+
+	@Setup
+	public void setup() {
+		math = "scalar".equals( impl ) ? FrameMath.scalar() : FrameMath.get();
+		if ( !math.getName().equals( impl ) ) {
+			throw new IllegalStateException( "The " + impl + " kernels are not available in this JVM" );
+		}
+		String [] dimensions = size.split( "x" );
+		pixels = Integer.parseInt( dimensions[ 0 ] ) * Integer.parseInt( dimensions[ 1 ] );
+		Random random = new Random( 42 );
+		current = new byte[ pixels ];
+		previous = new byte[ pixels ];
+		random.nextBytes( previous );
+		if ( "flat".equals( plane ) ) {
+			Arrays.fill( current, ( byte ) 16 );
+		} else {
+			random.nextBytes( current );
+		}
+		bins = new int[ 256 ];
+	}
+
+	@Benchmark
+	public long [] sums() {
+		return math.sums( current, 0, pixels );
+	}
+
+	@Benchmark
+	public long sad() {
+		return math.sad( current, 0, previous, 0, pixels );
+	}
+
+	@Benchmark
+	public int [] histogram() {
+		math.histogram( current, 0, pixels, 1, bins );
+		return bins;
+	}
+
+	@Benchmark
+	public int [] histogramSingle() {
+		int [] single = new int[ 256 ];
+		for ( int i = 0; i < pixels; i ++ ) {
+			single[ current[ i ] & 0xff ] ++;
+		}
+		return single;
+	}
+
+}
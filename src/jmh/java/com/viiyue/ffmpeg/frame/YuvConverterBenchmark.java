@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.viiyue.ffmpeg.enums.PixelFormat;
+
+/**
+ * Scalar and vector {@link YuvConverter} on a 1080p frame. The vector implementation needs the {@code vector}
+ * profile and the {@code jdk.incubator.vector} module, otherwise run with {@code -p impl=scalar}.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class YuvConverterBenchmark {
+
+	@Param( { "scalar", "vector" } )
+	private String impl;
+
+	@Param( { "YUV420P", "NV12" } )
+	private PixelFormat format;
+
+	private YuvConverter converter;
+	private RawFrame frame;
+	private int [] argb;
+	private byte [] rgb;
+
+	@Setup
+	public void setup() {
+		converter = "scalar".equals( impl ) ? YuvConverter.scalar() : YuvConverter.get();
+		if ( !converter.getName().equals( impl ) ) {
+			throw new IllegalStateException( "The " + impl + " converter is not available in this JVM" );
+		}
+		frame = new RawFrame( 1920, 1080, format );
+		new Random( 42 ).nextBytes( frame.getData() );
+		argb = new int[ 1920 * 1080 ];
+		rgb = new byte[ 1920 * 1080 * 3 ];
+	}
+
+	@Benchmark
+	public int [] toArgb() {
+		converter.toArgb( frame, argb );
+		return argb;
+	}
+
+	@Benchmark
+	public byte [] toRgb() {
+		converter.toRgb( frame, rgb );
+		return rgb;
+	}
+
+}
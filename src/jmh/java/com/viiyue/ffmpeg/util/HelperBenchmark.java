@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link Helper#toDecimal(double)} and {@link Helper#escape(String, boolean)} against the
+ * {@code String.format} and regex replacement they replaced, on random filter values.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class HelperBenchmark {
+
+	private static final int SIZE = 1024;
+	private static final Pattern PATTERN = Pattern.compile( "([:=\\[\\]\\\\])" );
+
+	private double [] numbers;
+	private String [] texts;
+
+	@Setup
+	public void setup() {
+		Random random = new Random( 42 );
+		numbers = new double[ SIZE ];
+		texts = new String[ SIZE ];
+		for ( int i = 0; i < SIZE; i ++ ) {
+			numbers[ i ] = random.nextDouble() * 1920;
+			texts[ i ] = i % 4 == 0 ? "/data/video/in:" + i + ".mp4" : "/data/video/in" + i + ".mp4";
+		}
+	}
+
+	@Benchmark
+	public void toDecimal( Blackhole hole ) {
+		for ( double number : numbers ) {
+			hole.consume( Helper.toDecimal( number ) );
+		}
+	}
+
+	@Benchmark
+	public void format( Blackhole hole ) {
+		for ( double number : numbers ) {
+			hole.consume( String.format( "%.3f", number ) );
+		}
+	}
+
+	@Benchmark
+	public void escape( Blackhole hole ) {
+		for ( String text : texts ) {
+			hole.consume( Helper.escape( text, false ) );
+		}
+	}
+
+	@Benchmark
+	public void replaceAll( Blackhole hole ) {
+		for ( String text : texts ) {
+			hole.consume( PATTERN.matcher( text ).replaceAll( "\\\\$0" ) );
+		}
+	}
+
+}
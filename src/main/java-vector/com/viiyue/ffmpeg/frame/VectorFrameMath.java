@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation of {@link FrameMath}, only compiled with the {@code vector} profile.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+final class VectorFrameMath extends FrameMath {
+
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	private static final int PARTS = BYTES.length() / INTS.length();
+
+	// Flush the int lanes to longs before the sum of squares can overflow
+	private static final int BLOCK = 4096;
+
+	VectorFrameMath() {}
+
+	@Override
+	String getName() {
+		return "vector";
+	}
+
+	@Override
+	long [] sums( byte [] data, int offset, int length ) {
+		long sum = 0, squares = 0;
+		int step = BYTES.length();
+		int i = 0;
+		while ( i + step <= length ) {
+			IntVector sumLanes = IntVector.zero( INTS );
+			IntVector squareLanes = IntVector.zero( INTS );
+			for ( int end = Math.min( length, i + BLOCK ); i + step <= end; i += step ) {
+				ByteVector bytes = ByteVector.fromArray( BYTES, data, offset + i );
+				for ( int part = 0; part < PARTS; part ++ ) {
+					IntVector values = widen( bytes, part );
+					sumLanes = sumLanes.add( values );
+					squareLanes = squareLanes.add( values.mul( values ) );
+				}
+			}
+			sum += sumLanes.reduceLanesToLong( VectorOperators.ADD );
+			squares += squareLanes.reduceLanesToLong( VectorOperators.ADD );
+		}
+		long [] tail = super.sums( data, offset + i, length - i );
+		return new long [] { sum + tail[ 0 ], squares + tail[ 1 ] };
+	}
+
+	@Override
+	long sad( byte [] a, int aOffset, byte [] b, int bOffset, int length ) {
+		long sum = 0;
+		int step = BYTES.length();
+		int i = 0;
+		while ( i + step <= length ) {
+			IntVector lanes = IntVector.zero( INTS );
+			for ( int end = Math.min( length, i + BLOCK ); i + step <= end; i += step ) {
+				ByteVector x = ByteVector.fromArray( BYTES, a, aOffset + i );
+				ByteVector y = ByteVector.fromArray( BYTES, b, bOffset + i );
+				for ( int part = 0; part < PARTS; part ++ ) {
+					lanes = lanes.add( widen( x, part ).sub( widen( y, part ) ).abs() );
+				}
+			}
+			sum += lanes.reduceLanesToLong( VectorOperators.ADD );
+		}
+		return sum + super.sad( a, aOffset + i, b, bOffset + i, length - i );
+	}
+
+	private static IntVector widen( ByteVector bytes, int part ) {
+		return ( ( IntVector ) bytes.convertShape( VectorOperators.B2I, INTS, part ) ).and( 0xff );
+	}
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API implementation of {@link YuvConverter}, only compiled with the {@code vector} profile
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+final class VectorYuvConverter extends YuvConverter {
+
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Byte> BYTES = VectorSpecies.of( byte.class,
+			VectorShape.forBitSize( Math.max( 64, INTS.length() * 8 ) ) );
+
+	// Duplicate every chroma sample for two neighbouring pixels, for planar (1) and semi-planar (2) layouts
+	private static final VectorShuffle<Byte> PLANAR = VectorShuffle.fromOp( BYTES, i -> i >> 1 );
+	private static final VectorShuffle<Byte> SEMI_PLANAR = VectorShuffle.fromOp( BYTES, i -> ( i >> 1 ) * 2 );
+
+	VectorYuvConverter() {}
+
+	@Override
+	public String getName() {
+		return "vector";
+	}
+
+	@Override
+	void convertRow( byte [] data, int yOffset, int uOffset, int vOffset, int step, int width, int [] argb, int offset ) {
+		VectorShuffle<Byte> shuffle = step == 1 ? PLANAR : SEMI_PLANAR;
+		int lanes = INTS.length();
+		int window = BYTES.length();
+		int i = 0;
+		for ( ; i + lanes <= width; i += lanes ) {
+			int chroma = ( i >> 1 ) * step;
+			if ( Math.max( uOffset, vOffset ) + chroma + window > data.length || yOffset + i + window > data.length ) {
+				break;
+			}
+			IntVector y = widen( ByteVector.fromArray( BYTES, data, yOffset + i ) );
+			IntVector d = widen( ByteVector.fromArray( BYTES, data, uOffset + chroma ).rearrange( shuffle ) ).sub( 128 );
+			IntVector e = widen( ByteVector.fromArray( BYTES, data, vOffset + chroma ).rearrange( shuffle ) ).sub( 128 );
+			IntVector c = y.sub( 16 ).mul( 298 ).add( 128 );
+			IntVector r = clamp( c.add( e.mul( 409 ) ) );
+			IntVector g = clamp( c.sub( d.mul( 100 ) ).sub( e.mul( 208 ) ) );
+			IntVector b = clamp( c.add( d.mul( 516 ) ) );
+			r.lanewise( VectorOperators.LSHL, 16 ).or( g.lanewise( VectorOperators.LSHL, 8 ) ).or( b ).or( 0xff000000 )
+					.intoArray( argb, offset + i );
+		}
+		if ( i < width ) {
+			// The tail of the row (and the last bytes of the frame) are converted one by one
+			int chroma = ( i >> 1 ) * step;
+			super.convertRow( data, yOffset + i, uOffset + chroma, vOffset + chroma, step, width - i, argb, offset + i );
+		}
+	}
+
+	private static IntVector widen( ByteVector bytes ) {
+		return ( ( IntVector ) bytes.convertShape( VectorOperators.B2I, INTS, 0 ) ).and( 0xff );
+	}
+
+	private static IntVector clamp( IntVector value ) {
+		return value.lanewise( VectorOperators.ASHR, 8 ).max( 0 ).min( 255 );
+	}
+
+}
@@ -15,19 +15,21 @@
  */
 package com.viiyue.ffmpeg;
 
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 
+import com.viiyue.ffmpeg.enums.Library;
 import com.viiyue.ffmpeg.enums.LogLevel;
 import com.viiyue.ffmpeg.executor.FFmpegExecutor;
 import com.viiyue.ffmpeg.executor.FFplayExecutor;
 import com.viiyue.ffmpeg.executor.FFprobeExecutor;
 import com.viiyue.ffmpeg.executor.HelpExecutor;
+import com.viiyue.ffmpeg.frame.FrameImages;
+import com.viiyue.ffmpeg.metadata.CapabilityRegistry;
 import com.viiyue.ffmpeg.metadata.FFprobe;
 import com.viiyue.ffmpeg.metadata.Format;
 import com.viiyue.ffmpeg.metadata.SimpleColor;
@@ -42,8 +44,6 @@ import com.viiyue.ffmpeg.metadata.Stream;
  */
 public final class FFmpeger {
 
-	private static final Map<String, Object> caches = new ConcurrentHashMap<>( 16 );
-
 	// FFprobe
 	// For more method calls, please see FFprobeExecutor
 
@@ -90,6 +90,17 @@ public final class FFmpeger {
 		ffmepg().input( inputs ).to( output );
 	}
 
+	// Frames
+	// For more method calls, please see FrameImages and FrameReader
+
+	public static BufferedImage readThumbnail( String input, double second, int width, int height ) {
+		return FrameImages.read( input, width, height, second ).get( 0 );
+	}
+
+	public static List<BufferedImage> readThumbnails( String input, int width, int height, double ... seconds ) {
+		return FrameImages.read( input, width, height, seconds );
+	}
+
 	// FFplay
 
 	public static FFplayExecutor ffplay( String input ) {
@@ -107,53 +118,58 @@ public final class FFmpeger {
 		return HelpExecutor.ffmpeg().logLevel( LogLevel.QUIET );
 	}
 
+	/**
+	 * @return the formats of the binary bound to {@link Library#FFMPEG}, read once per binary by the
+	 *         {@link CapabilityRegistry}
+	 */
 	public static List<SimpleFormat> readSupportedFormats() {
-		return ( List<SimpleFormat> ) ( caches.computeIfAbsent( "info.formats", key -> {
-			String content = helpInfo().formats().getAndReturn( "query results will be cached ..." );
-			String [] lines = StringUtils.split( content, "\r\n" );
-			List<SimpleFormat> formats = new ArrayList<SimpleFormat>( lines.length );
-
-			boolean begin = false;
-			for ( int i = 0; i < lines.length; i ++ ) {
-				String line = StringUtils.strip( lines[ i ] );
-				if ( begin ) {
-					int spaceIndex = line.indexOf( " " );
-					String string = line.substring( spaceIndex ).trim();
-					spaceIndex = string.indexOf( " " );
-					if ( spaceIndex >= 0 ) {
-						String format = string.substring( 0, spaceIndex );
-						String description = string.substring( spaceIndex );
-						formats.add( new SimpleFormat( format, description.trim() ) );
-					} else {
-						formats.add( new SimpleFormat( string, null ) );
-					}
-
-				} else if ( line.startsWith( "--" ) ) {
-					begin = true;
+		String content = CapabilityRegistry.getDefault().list( Library.FFMPEG, "-formats" );
+		String [] lines = StringUtils.split( content, "\r\n" );
+		List<SimpleFormat> formats = new ArrayList<SimpleFormat>( lines.length );
+
+		boolean begin = false;
+		for ( int i = 0; i < lines.length; i ++ ) {
+			String line = StringUtils.strip( lines[ i ] );
+			if ( begin ) {
+				int spaceIndex = line.indexOf( " " );
+				String string = line.substring( spaceIndex ).trim();
+				spaceIndex = string.indexOf( " " );
+				if ( spaceIndex >= 0 ) {
+					String format = string.substring( 0, spaceIndex );
+					String description = string.substring( spaceIndex );
+					formats.add( new SimpleFormat( format, description.trim() ) );
+				} else {
+					formats.add( new SimpleFormat( string, null ) );
 				}
+
+			} else if ( line.startsWith( "--" ) ) {
+				begin = true;
 			}
-			return formats;
-		} ) );
+		}
+		return formats;
 	}
 
+	/**
+	 * @return the named colors of the binary bound to {@link Library#FFMPEG}, read once per binary by the
+	 *         {@link CapabilityRegistry}
+	 */
 	public static List<SimpleColor> readSupportedColors() {
-		return ( List<SimpleColor> ) ( caches.computeIfAbsent( "info.colors", key -> {
-			String content = helpInfo().colors().getAndReturn( "query results will be cached ..." );
-			String [] lines = StringUtils.split( content, "\r\n" );
+		String content = CapabilityRegistry.getDefault().list( Library.FFMPEG, "-colors" );
+		String [] lines = StringUtils.split( content, "\r\n" );
 
-			List<SimpleColor> scolors = new ArrayList<SimpleColor>( lines.length );
-			for ( int i = 1, s = lines.length; i < s; i ++ ) {
-				String line = lines[ i ];
+		List<SimpleColor> scolors = new ArrayList<SimpleColor>( lines.length );
+		for ( int i = 1, s = lines.length; i < s; i ++ ) {
+			String line = lines[ i ];
 
-				String colors = StringUtils.replace( line, " ", "" );
-				int hexIndex = colors.indexOf( "#" );
+			String colors = StringUtils.replace( line, " ", "" );
+			int hexIndex = colors.indexOf( "#" );
+			if ( hexIndex > 0 ) {
 				String color = colors.substring( 0, hexIndex );
 				String hexColor = colors.substring( hexIndex );
-
 				scolors.add( new SimpleColor( color, hexColor ) );
 			}
-			return scolors;
-		} ) );
+		}
+		return scolors;
 	}
 
 }
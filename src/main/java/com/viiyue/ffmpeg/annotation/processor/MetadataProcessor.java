@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.annotation.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generate {@code com.viiyue.ffmpeg.util.MetadataIndex} while the library is compiled, holding the filter names of
+ * the {@code @Function} classes and the {@code @Alias} names of the enumerations. It only uses
+ * {@code javax.lang.model}, and isn't registered as a service, so it never runs in the projects using the library.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class MetadataProcessor extends AbstractProcessor {
+
+	private static final String INDEX_PACKAGE = "com.viiyue.ffmpeg.util";
+	private static final String INDEX_NAME = "MetadataIndex";
+	private static final String FUNCTION = "com.viiyue.ffmpeg.annotation.Function";
+	private static final String ALIAS = "com.viiyue.ffmpeg.annotation.Alias";
+	private static final String ABSTRACT_ENUM = "com.viiyue.ffmpeg.common.AbstractEnum";
+
+	// Keep the generated methods far below the 64K bytecode limit
+	private static final int STATEMENTS_PER_METHOD = 400;
+
+	private final Map<String, String> functions = new TreeMap<>();
+	private final Set<String> enums = new TreeSet<>();
+	private final Map<String, String> aliases = new TreeMap<>();
+	private boolean generated;
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton( "*" );
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment round ) {
+		// Everything is in the first round, later rounds only contain the generated sources
+		if ( generated || round.getRootElements().isEmpty() ) {
+			return false;
+		}
+		for ( TypeElement type : ElementFilter.typesIn( round.getRootElements() ) ) {
+			index( type );
+		}
+		try {
+			generate();
+		} catch ( IOException e ) {
+			processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR, "Failed to generate " + INDEX_NAME + ": " + e.getMessage() );
+		}
+		generated = true;
+		return false;
+	}
+
+	private void index( TypeElement type ) {
+		String name = processingEnv.getElementUtils().getBinaryName( type ).toString();
+		if ( type.getKind() == ElementKind.CLASS ) {
+			String function = getFunction( type );
+			if ( function != null ) {
+				functions.put( name, function );
+			}
+		} else if ( type.getKind() == ElementKind.ENUM && implementsAbstractEnum( type ) ) {
+			enums.add( name );
+			for ( VariableElement field : ElementFilter.fieldsIn( type.getEnclosedElements() ) ) {
+				String alias = field.getKind() == ElementKind.ENUM_CONSTANT ? getValue( field, ALIAS ) : null;
+				if ( alias != null ) {
+					aliases.put( name + '#' + field.getSimpleName(), alias );
+				}
+			}
+		}
+		for ( TypeElement member : ElementFilter.typesIn( type.getEnclosedElements() ) ) {
+			index( member );
+		}
+	}
+
+	/**
+	 * @return the {@code @Function} of the type or of its closest super class, which is what {@code @Inherited}
+	 *         gives at run time
+	 */
+	private String getFunction( TypeElement type ) {
+		for ( TypeElement current = type; current != null; current = superclass( current ) ) {
+			String function = getValue( current, FUNCTION );
+			if ( function != null ) {
+				return function;
+			}
+		}
+		return null;
+	}
+
+	private boolean implementsAbstractEnum( TypeElement type ) {
+		for ( TypeMirror face : type.getInterfaces() ) {
+			if ( face.getKind() == TypeKind.DECLARED ) {
+				TypeElement element = ( TypeElement ) ( ( DeclaredType ) face ).asElement();
+				if ( element.getQualifiedName().contentEquals( ABSTRACT_ENUM ) || implementsAbstractEnum( element ) ) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private TypeElement superclass( TypeElement type ) {
+		TypeMirror superclass = type.getSuperclass();
+		return superclass.getKind() == TypeKind.DECLARED ? ( TypeElement ) ( ( DeclaredType ) superclass ).asElement() : null;
+	}
+
+	private String getValue( Element element, String annotation ) {
+		for ( AnnotationMirror mirror : element.getAnnotationMirrors() ) {
+			if ( ( ( TypeElement ) mirror.getAnnotationType().asElement() ).getQualifiedName().contentEquals( annotation ) ) {
+				for ( Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror.getElementValues().entrySet() ) {
+					if ( value.getKey().getSimpleName().contentEquals( "value" ) ) {
+						return String.valueOf( value.getValue().getValue() );
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	private void generate() throws IOException {
+		List<String> statements = new ArrayList<>( functions.size() + enums.size() + aliases.size() );
+		functions.forEach( ( type, function ) -> statements.add( "functions.put( " + literal( type ) + ", " + literal( function ) + " );" ) );
+		enums.forEach( type -> statements.add( "enums.add( " + literal( type ) + " );" ) );
+		aliases.forEach( ( key, alias ) -> statements.add( "aliases.put( " + literal( key ) + ", " + literal( alias ) + " );" ) );
+
+		String parameters = "Map<String, String> functions, Set<String> enums, Map<String, String> aliases";
+		try ( Writer writer = processingEnv.getFiler().createSourceFile( INDEX_PACKAGE + "." + INDEX_NAME ).openWriter() ) {
+			writer.write( "package " + INDEX_PACKAGE + ";\n\n" );
+			writer.write( "import java.util.Map;\nimport java.util.Set;\n\n" );
+			writer.write( "/**\n * Generated by " + MetadataProcessor.class.getName() + ", do not edit\n */\n" );
+			writer.write( "public final class " + INDEX_NAME + " implements Metadata.Index {\n\n" );
+			writer.write( "\t@Override\n\tpublic void load( " + parameters + " ) {\n" );
+			int methods = ( statements.size() + STATEMENTS_PER_METHOD - 1 ) / STATEMENTS_PER_METHOD;
+			for ( int i = 0; i < methods; i ++ ) {
+				writer.write( "\t\tload" + i + "( functions, enums, aliases );\n" );
+			}
+			writer.write( "\t}\n" );
+			for ( int i = 0; i < methods; i ++ ) {
+				writer.write( "\n\tprivate static void load" + i + "( " + parameters + " ) {\n" );
+				for ( String statement : statements.subList( i * STATEMENTS_PER_METHOD, Math.min( statements.size(), ( i + 1 ) * STATEMENTS_PER_METHOD ) ) ) {
+					writer.write( "\t\t" + statement + "\n" );
+				}
+				writer.write( "\t}\n" );
+			}
+			writer.write( "\n}\n" );
+		}
+	}
+
+	private static String literal( String value ) {
+		StringBuilder builder = new StringBuilder( value.length() + 2 ).append( '"' );
+		for ( int i = 0; i < value.length(); i ++ ) {
+			char c = value.charAt( i );
+			if ( c == '"' || c == '\\' ) {
+				builder.append( '\\' ).append( c );
+			} else if ( c < 0x20 || c > 0x7e ) {
+				builder.append( String.format( "\\u%04x", ( int ) c ) );
+			} else {
+				builder.append( c );
+			}
+		}
+		return builder.append( '"' ).toString();
+	}
+
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.cache;
+
+/**
+ * How the identity of a local input file is taken into the key of a cached job
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public enum InputIdentity {
+
+	/**
+	 * The absolute path, size and last modified time, cheap but trusts the file system timestamps
+	 */
+	METADATA,
+
+	/**
+	 * The size and a hash of a few blocks sampled at the start, middle and end of the file, it survives copies
+	 * and renames and still never reads more than a few hundred kilobytes
+	 */
+	SAMPLED,
+
+	/**
+	 * The size and a hash of the whole file, exact but reads every byte of every input
+	 */
+	CONTENT;
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Canonical job keys shared by the result cache and the in-flight deduplication
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+final class JobKeys {
+
+	private static final int SAMPLES = 3;
+	private static final int SAMPLE_SIZE = 1 << 16;
+	private static final String INPUT = "-i";
+
+	// Don't let anyone instantiate this class
+	private JobKeys() {}
+
+	/**
+	 * Compute the SHA-256 key of a job from the executable, the command line, the output and the identity of
+	 * every local file of the command line. The files take the place of their paths, so with an identity other
+	 * than {@link InputIdentity#METADATA} a key survives renames and copies of the inputs.
+	 *
+	 * @param identity   how local input files are identified
+	 * @param executable the executable path or name
+	 * @param commands   the command line without the executable and the output
+	 * @param output     the part of the output that matters to the caller
+	 * @param filesOnly  whether only local input files are accepted, other inputs are identified by their url
+	 * @return the job key, or {@code null} if an input cannot be identified
+	 */
+	static String of( InputIdentity identity, String executable, List<String> commands, String output, boolean filesOnly ) {
+		MessageDigest digest = sha256();
+		update( digest, "exe" );
+		update( digest, executable );
+		Path binary = Paths.get( executable );
+		if ( Files.isRegularFile( binary ) ) {
+			update( digest, binary.toFile().length() + "@" + binary.toFile().lastModified() );
+		}
+		update( digest, "args" );
+		for ( int i = 0, size = commands.size(); i < size; i ++ ) {
+			String command = commands.get( i );
+			Path file = fileOf( command );
+			if ( file == null ) {
+				if ( filesOnly && i > 0 && INPUT.equals( commands.get( i - 1 ) ) ) {
+					return null;
+				}
+				update( digest, command );
+				continue;
+			}
+			try {
+				identify( digest, identity, file );
+			} catch ( IOException e ) {
+				LoggerFactory.getLogger( JobKeys.class ).warn( "Failed to identify the input {}", file );
+				return null;
+			}
+		}
+		update( digest, "output" );
+		update( digest, output );
+		return hex( digest.digest() );
+	}
+
+	/**
+	 * @param command an argument of the command line
+	 * @return the local file named by the argument, or {@code null} if it isn't one
+	 */
+	private static Path fileOf( String command ) {
+		if ( command.isEmpty() || command.charAt( 0 ) == '-' ) {
+			return null;
+		}
+		try {
+			Path file = Paths.get( command );
+			return Files.isRegularFile( file ) ? file : null;
+		} catch ( InvalidPathException e ) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param file the file
+	 * @return the SHA-256 of the file content
+	 * @throws IOException if the file could not be read
+	 */
+	static String hash( Path file ) throws IOException {
+		MessageDigest digest = sha256();
+		byte [] buffer = new byte[ 1 << 16 ];
+		try ( InputStream input = Files.newInputStream( file ) ) {
+			for ( int read; ( read = input.read( buffer ) ) > 0; ) {
+				digest.update( buffer, 0, read );
+			}
+		}
+		return hex( digest.digest() );
+	}
+
+	private static void identify( MessageDigest digest, InputIdentity identity, Path input ) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes( input, BasicFileAttributes.class );
+		long size = attributes.size();
+		update( digest, "file" );
+		update( digest, String.valueOf( size ) );
+		switch ( identity ) {
+			case METADATA:
+				update( digest, input.toAbsolutePath().normalize().toString() );
+				update( digest, String.valueOf( attributes.lastModifiedTime().toMillis() ) );
+				break;
+			case SAMPLED:
+				try ( FileChannel channel = FileChannel.open( input, StandardOpenOption.READ ) ) {
+					ByteBuffer buffer = ByteBuffer.allocate( SAMPLE_SIZE );
+					for ( int i = 0; i < SAMPLES; i ++ ) {
+						long position = Math.max( 0, ( size - SAMPLE_SIZE ) * i / ( SAMPLES - 1 ) );
+						buffer.clear();
+						while ( buffer.hasRemaining() && channel.read( buffer, position + buffer.position() ) > 0 ) {
+							// Fill the sample
+						}
+						buffer.flip();
+						digest.update( buffer );
+					}
+				}
+				break;
+			default:
+				update( digest, hash( input ) );
+		}
+	}
+
+	private static void update( MessageDigest digest, String value ) {
+		digest.update( value.getBytes( StandardCharsets.UTF_8 ) );
+		digest.update( ( byte ) 0 );
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance( "SHA-256" );
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	private static String hex( byte [] bytes ) {
+		StringBuilder builder = new StringBuilder( bytes.length * 2 );
+		for ( byte b : bytes ) {
+			builder.append( Character.forDigit( ( b >> 4 ) & 0xf, 16 ) ).append( Character.forDigit( b & 0xf, 16 ) );
+		}
+		return builder.toString();
+	}
+
+}
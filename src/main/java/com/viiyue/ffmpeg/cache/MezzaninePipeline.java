@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.executor.FFmpegExecutor;
+import com.viiyue.ffmpeg.filter.AbstractResult;
+import com.viiyue.ffmpeg.filter.Filters;
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Several jobs on the same input whose filter chains share a prefix, the prefix is encoded once into a lossless
+ * FFV1 intermediate and every job only runs its own tail from it.
+ *
+ * <pre>
+ * MezzaninePipeline.of( "input.ts" )
+ *     .add( "1080p.mp4", e -&gt; e.vcodec( "libx264" ), Yadif.of(), Hqdn3d.of(), Scale.to( 1920, 1080 ) )
+ *     .add( "720p.mp4", e -&gt; e.vcodec( "libx264" ), Yadif.of(), Hqdn3d.of(), Scale.to( 1280, 720 ) )
+ *     .run();
+ * </pre>
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class MezzaninePipeline {
+
+	private static final Logger LOG = LoggerFactory.getLogger( MezzaninePipeline.class );
+
+	private static final String EXTENSION = ".mkv";
+
+	private final String input;
+	private final List<Job> jobs = new ArrayList<>( 4 );
+
+	private ResultCache cache;
+	private int minPrefix = 1;
+
+	private MezzaninePipeline( String input ) {
+		this.input = input;
+	}
+
+	/**
+	 * @param input the input file path or url shared by all jobs
+	 * @return the {@link MezzaninePipeline} instance
+	 */
+	public static final MezzaninePipeline of( String input ) {
+		Assert.notEmpty( input, "The input cannot be empty" );
+		return new MezzaninePipeline( input );
+	}
+
+	/**
+	 * Keep the intermediates in a bounded result cache, so that later runs on the same input reuse them
+	 *
+	 * @param cache the result cache
+	 * @return the {@link MezzaninePipeline} instance
+	 */
+	public MezzaninePipeline cache( ResultCache cache ) {
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * Set the minimum number of shared filters worth an intermediate, default is 1.
+	 *
+	 * @param minPrefix the minimum prefix length
+	 * @return the {@link MezzaninePipeline} instance
+	 */
+	public MezzaninePipeline minPrefix( int minPrefix ) {
+		Assert.isTrue( minPrefix > 0, "The minimum prefix must be greater than 0" );
+		this.minPrefix = minPrefix;
+		return this;
+	}
+
+	/**
+	 * Add a job without additional output options
+	 *
+	 * @see #add(String, Consumer, AbstractResult...)
+	 */
+	public MezzaninePipeline add( String output, AbstractResult<?> ... chain ) {
+		return add( output, null, chain );
+	}
+
+	/**
+	 * Add a job
+	 *
+	 * @param output  the output file path
+	 * @param options the output options such as codecs and bit rates, may be {@code null}
+	 * @param chain   the video filter chain of the job
+	 * @return the {@link MezzaninePipeline} instance
+	 */
+	public MezzaninePipeline add( String output, Consumer<FFmpegExecutor> options, AbstractResult<?> ... chain ) {
+		Assert.notEmpty( output, "The output cannot be empty" );
+		List<String> filters = new ArrayList<>( chain.length );
+		for ( AbstractResult<?> result : chain ) {
+			filters.add( result.toString() );
+		}
+		this.jobs.add( new Job( output, options, filters ) );
+		return this;
+	}
+
+	/**
+	 * Compute the shared prefixes and run all jobs
+	 *
+	 * @return the outputs in the order of the jobs
+	 */
+	public List<String> run() {
+		Assert.notEmpty( jobs, "At least one job must be added" );
+		Map<List<String>, List<Job>> groups = plan();
+		Path directory;
+		try {
+			directory = Files.createTempDirectory( "ffmpeg-mezzanine-" );
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( "Failed to create the mezzanine directory", e );
+		}
+		try {
+			int index = 0;
+			for ( Map.Entry<List<String>, List<Job>> group : groups.entrySet() ) {
+				List<String> prefix = group.getKey();
+				if ( prefix.isEmpty() ) {
+					for ( Job job : group.getValue() ) {
+						job.run( input, job.filters );
+					}
+					continue;
+				}
+				if ( LOG.isInfoEnabled() ) {
+					LOG.info( "Share the filter prefix {} between {} jobs", prefix, group.getValue().size() );
+				}
+				String mezzanine = directory.resolve( "prefix" + ( index ++ ) + EXTENSION ).toString();
+				FFmpegExecutor executor = FFmpegExecutor.build().cache( cache ).input( input );
+				executor.cmd( "map", "0:v:0", false ).cmd( "map", "0:a?", false );
+				executor.cmd( "vf", filtersOf( prefix ), false ).vcodec( "ffv1" ).cmd( "level", 3, false );
+				executor.acodec( "copy" ).to( mezzanine );
+				for ( Job job : group.getValue() ) {
+					job.run( mezzanine, job.filters.subList( prefix.size(), job.filters.size() ) );
+				}
+			}
+		} finally {
+			try ( Stream<Path> files = Files.list( directory ) ) {
+				for ( Path file : ( Iterable<Path> ) files::iterator ) {
+					Files.deleteIfExists( file );
+				}
+				Files.deleteIfExists( directory );
+			} catch ( IOException e ) {
+				LOG.warn( "Failed to delete the mezzanine directory {}", directory );
+			}
+		}
+		List<String> outputs = new ArrayList<>( jobs.size() );
+		for ( Job job : jobs ) {
+			outputs.add( job.output );
+		}
+		return outputs;
+	}
+
+	/**
+	 * Group the jobs by the longest filter prefix they share with any other job, jobs sharing less than
+	 * {@link #minPrefix(int)} filters, or whose prefix would serve no other job, are grouped under the empty
+	 * prefix and run directly.
+	 *
+	 * @return the jobs grouped by prefix, in the order of the first job of each group
+	 */
+	Map<List<String>, List<Job>> plan() {
+		Map<List<String>, List<Job>> groups = new LinkedHashMap<>();
+		for ( Job job : jobs ) {
+			int shared = 0;
+			for ( Job other : jobs ) {
+				if ( other != job ) {
+					shared = Math.max( shared, commonPrefix( job.filters, other.filters ) );
+				}
+			}
+			List<String> prefix = shared < minPrefix ? Collections.emptyList() : job.filters.subList( 0, shared );
+			groups.computeIfAbsent( prefix, key -> new ArrayList<>( 4 ) ).add( job );
+		}
+		List<Job> direct = new ArrayList<>( 4 );
+		groups.entrySet().removeIf( group -> {
+			if ( group.getKey().isEmpty() || group.getValue().size() == 1 ) {
+				direct.addAll( group.getValue() );
+				return true;
+			}
+			return false;
+		} );
+		if ( !direct.isEmpty() ) {
+			groups.put( Collections.emptyList(), direct );
+		}
+		return groups;
+	}
+
+	private static int commonPrefix( List<String> a, List<String> b ) {
+		int length = Math.min( a.size(), b.size() );
+		for ( int i = 0; i < length; i ++ ) {
+			if ( !a.get( i ).equals( b.get( i ) ) ) {
+				return i;
+			}
+		}
+		return length;
+	}
+
+	private static Filters filtersOf( List<String> chain ) {
+		Filters filters = Filters.simple();
+		filters.add( chain.toArray( new String[ chain.size() ] ) );
+		return filters;
+	}
+
+	private static final class Job {
+
+		private final String output;
+		private final Consumer<FFmpegExecutor> options;
+		private final List<String> filters;
+
+		private Job( String output, Consumer<FFmpegExecutor> options, List<String> filters ) {
+			this.output = output;
+			this.options = options;
+			this.filters = filters;
+		}
+
+		private void run( String source, List<String> tail ) {
+			FFmpegExecutor executor = FFmpegExecutor.build().input( source );
+			if ( !tail.isEmpty() ) {
+				executor.cmd( "vf", filtersOf( tail ), false );
+			}
+			if ( options != null ) {
+				options.accept( executor );
+			}
+			executor.to( output );
+		}
+
+	}
+
+}
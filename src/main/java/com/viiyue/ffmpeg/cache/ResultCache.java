@@ -0,0 +1,293 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Content addressed cache of job results, keyed by the command line and the identity of the local input files.
+ * A cached output is materialized as a copy of its own, a reflink where the file system supports it, so the
+ * outputs can be changed freely and never share their permissions or times with the store.
+ *
+ * <pre>
+ * ResultCache cache = ResultCache.of( Paths.get( "/var/cache/ffmpeg" ), 20L &lt;&lt; 30 );
+ * FFmpegExecutor.build().cache( cache ).input( "input.mp4" ).vcodec( "libx264" ).to( "output.mp4" );
+ * </pre>
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class ResultCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger( ResultCache.class );
+	// GNU cp shares the blocks on btrfs, xfs and other file systems with reflinks
+	private static final boolean REFLINKS = StringUtils.containsIgnoreCase( System.getProperty( "os.name" ), "linux" );
+
+	private final Path objects;
+	private final Path keys;
+	private final Path temp;
+	private final long capacity;
+	private final AtomicLong bytes = new AtomicLong();
+
+	private InputIdentity identity = InputIdentity.METADATA;
+
+	private ResultCache( Path root, long capacity ) throws IOException {
+		this.objects = Files.createDirectories( root.resolve( "objects" ) );
+		this.keys = Files.createDirectories( root.resolve( "keys" ) );
+		this.temp = Files.createDirectories( root.resolve( "tmp" ) );
+		this.capacity = capacity;
+		try ( Stream<Path> files = Files.walk( objects ) ) {
+			files.filter( Files::isRegularFile ).forEach( file -> bytes.addAndGet( file.toFile().length() ) );
+		}
+	}
+
+	/**
+	 * Open or create a cache
+	 *
+	 * @param root     the cache directory
+	 * @param capacity the maximum number of bytes of the stored outputs
+	 * @return the {@link ResultCache} instance
+	 */
+	public static final ResultCache of( Path root, long capacity ) {
+		Assert.notNull( root, "The cache directory cannot be null" );
+		Assert.isTrue( capacity > 0, "The cache capacity must be greater than 0" );
+		try {
+			return new ResultCache( root.toAbsolutePath(), capacity );
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( "Failed to open the result cache " + root, e );
+		}
+	}
+
+	/**
+	 * Set how input files are identified, default is {@link InputIdentity#METADATA}.
+	 *
+	 * @param identity the input identity
+	 * @return the {@link ResultCache} instance
+	 */
+	public ResultCache identity( InputIdentity identity ) {
+		Assert.notNull( identity, "The input identity cannot be null" );
+		this.identity = identity;
+		return this;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of bytes of the stored outputs
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * Compute the key of a job
+	 *
+	 * @param executable the executable path or name
+	 * @param commands   the command line without the executable and the output
+	 * @param output     the output path, only its extension is part of the key
+	 * @return the job key, or {@code null} if the job cannot be cached
+	 */
+	public String keyOf( String executable, List<String> commands, String output ) {
+		return JobKeys.of( identity, executable, commands, FilenameUtils.getExtension( output ), true );
+	}
+
+	/**
+	 * Materialize the cached output of a job
+	 *
+	 * @param key    the job key
+	 * @param target the output path
+	 * @return {@code false} if the job has not been cached
+	 */
+	public boolean materialize( String key, Path target ) {
+		Path object = lookup( key );
+		if ( object == null ) {
+			return false;
+		}
+		try {
+			copy( object, target );
+			// Only the stored object is touched, it's never the output itself
+			Files.setLastModifiedTime( object, FileTime.fromMillis( System.currentTimeMillis() ) );
+			return true;
+		} catch ( IOException e ) {
+			// Evicted in the meantime
+			LOG.debug( "Failed to materialize {}: {}", object, e.getMessage() );
+			return false;
+		}
+	}
+
+	/**
+	 * Create a path for the output of a running job, in the same file system as the stored outputs
+	 *
+	 * @param output the requested output path
+	 * @return the temporary output path with the same extension
+	 */
+	public Path newTempFile( String output ) {
+		String extension = FilenameUtils.getExtension( output );
+		return temp.resolve( UUID.randomUUID() + ( extension.isEmpty() ? "" : "." + extension ) );
+	}
+
+	/**
+	 * Move the output of a finished job into the store and materialize it
+	 *
+	 * @param key      the job key
+	 * @param produced the output written by the job, see {@link #newTempFile(String)}
+	 * @param target   the requested output path
+	 */
+	public void store( String key, Path produced, Path target ) {
+		try {
+			String hash = JobKeys.hash( produced );
+			Path object = objects.resolve( hash.substring( 0, 2 ) ).resolve( hash );
+			Files.createDirectories( object.getParent() );
+			long size = Files.size( produced );
+			try {
+				move( produced, object, false );
+				bytes.addAndGet( size );
+			} catch ( FileAlreadyExistsException e ) {
+				// The same content has been produced by another job
+				Files.deleteIfExists( produced );
+			}
+			Path ref = keys.resolve( key.substring( 0, 2 ) ).resolve( key );
+			Files.createDirectories( ref.getParent() );
+			Path refTemp = temp.resolve( UUID.randomUUID() + ".ref" );
+			Files.write( refTemp, hash.getBytes( StandardCharsets.US_ASCII ) );
+			move( refTemp, ref, true );
+			copy( object, target );
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( "Failed to store the result " + produced, e );
+		}
+		evict();
+	}
+
+	/**
+	 * Remove the least recently used outputs until the store fits its capacity
+	 */
+	public synchronized void evict() {
+		if ( bytes.get() <= capacity ) {
+			return;
+		}
+		List<Path> files = new ArrayList<>();
+		try ( Stream<Path> stream = Files.walk( objects ) ) {
+			stream.filter( Files::isRegularFile ).forEach( files::add );
+		} catch ( IOException e ) {
+			LOG.warn( "Failed to list the result cache: {}", e.getMessage() );
+			return;
+		}
+		files.sort( Comparator.comparingLong( file -> file.toFile().lastModified() ) );
+		for ( Path file : files ) {
+			if ( bytes.get() <= capacity ) {
+				break;
+			}
+			long size = file.toFile().length();
+			try {
+				if ( Files.deleteIfExists( file ) ) {
+					bytes.addAndGet( -size );
+				}
+			} catch ( IOException e ) {
+				LOG.warn( "Failed to evict {}: {}", file, e.getMessage() );
+			}
+		}
+		// The keys of evicted objects are dropped lazily by lookup()
+	}
+
+	private Path lookup( String key ) {
+		Path ref = keys.resolve( key.substring( 0, 2 ) ).resolve( key );
+		try {
+			String hash = new String( Files.readAllBytes( ref ), StandardCharsets.US_ASCII );
+			Path object = objects.resolve( hash.substring( 0, 2 ) ).resolve( hash );
+			if ( Files.isRegularFile( object ) ) {
+				return object;
+			}
+			Files.deleteIfExists( ref );
+		} catch ( IOException e ) {
+			// Not cached
+		}
+		return null;
+	}
+
+	/**
+	 * Replace the target with a reflink of the object when the file system can share its blocks, or a plain copy
+	 */
+	private static void copy( Path object, Path target ) throws IOException {
+		Path parent = target.toAbsolutePath().getParent();
+		if ( parent != null ) {
+			Files.createDirectories( parent );
+		}
+		// An output materialized before may still be a hard link into the store
+		Files.deleteIfExists( target );
+		if ( !reflink( object, target ) ) {
+			Files.copy( object, target, StandardCopyOption.REPLACE_EXISTING );
+		}
+	}
+
+	private static boolean reflink( Path object, Path target ) {
+		if ( !REFLINKS ) {
+			return false;
+		}
+		try {
+			ProcessBuilder builder = new ProcessBuilder( "cp", "--reflink=always", object.toString(), target.toString() );
+			Process process = builder.redirectErrorStream( true ).redirectOutput( new File( "/dev/null" ) ).start();
+			if ( process.waitFor() == 0 ) {
+				return true;
+			}
+		} catch ( IOException e ) {
+			// No cp with reflinks here
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			Files.deleteIfExists( target );
+		} catch ( IOException e ) {
+			// Overwritten by the copy
+		}
+		return false;
+	}
+
+	private static void move( Path source, Path target, boolean replace ) throws IOException {
+		if ( !replace && Files.exists( target ) ) {
+			throw new FileAlreadyExistsException( target.toString() );
+		}
+		try {
+			Files.move( source, target, StandardCopyOption.ATOMIC_MOVE );
+		} catch ( AtomicMoveNotSupportedException e ) {
+			Files.move( source, target, StandardCopyOption.REPLACE_EXISTING );
+		}
+	}
+
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.cache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.executor.FFmpegJob;
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * In-flight deduplication of identical jobs, callers arriving while a job runs attach to the same process.
+ * Every caller may cancel its own {@link Ticket}, the process is killed once nobody waits for it any more.
+ *
+ * <pre>
+ * Ticket ticket = FFmpegExecutor.build().input( "input.mp4" ).searchAt( 10, 1 ).submit( "thumb.jpg", flights );
+ * ticket.onProgress( progress -&gt; ... ).await();
+ * </pre>
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class SingleFlight {
+
+	private static final Logger LOG = LoggerFactory.getLogger( SingleFlight.class );
+
+	private final Map<String, Flight> flights = new HashMap<>();
+
+	private InputIdentity identity = InputIdentity.METADATA;
+
+	private SingleFlight() {}
+
+	/**
+	 * @return a new {@link SingleFlight} instance, usually one per application
+	 */
+	public static final SingleFlight create() {
+		return new SingleFlight();
+	}
+
+	/**
+	 * Set how input files are identified, default is {@link InputIdentity#METADATA}.
+	 *
+	 * @param identity the input identity
+	 * @return the {@link SingleFlight} instance
+	 */
+	public SingleFlight identity( InputIdentity identity ) {
+		Assert.notNull( identity, "The input identity cannot be null" );
+		this.identity = identity;
+		return this;
+	}
+
+	/**
+	 * Compute the key of a job, inputs other than local files are identified by their url
+	 *
+	 * @param executable the executable path or name
+	 * @param commands   the command line without the executable and the output
+	 * @param output     the output path
+	 * @return the job key, or {@code null} if an input could not be identified
+	 */
+	public String keyOf( String executable, List<String> commands, String output ) {
+		return JobKeys.of( identity, executable, commands, output, false );
+	}
+
+	/**
+	 * Attach to the running job of the key, or start it
+	 *
+	 * @param key      the job key
+	 * @param launcher starts the job if there is none running for the key
+	 * @return the ticket of this caller
+	 */
+	public synchronized Ticket join( String key, Supplier<FFmpegJob> launcher ) {
+		Assert.notNull( key, "The job key cannot be null" );
+		Flight flight = flights.get( key );
+		boolean shared = flight != null;
+		if ( shared ) {
+			if ( LOG.isInfoEnabled() ) {
+				LOG.info( "Attach to the running job {} ({} waiting)", flight.job.getOutput(), flight.waiters + 1 );
+			}
+		} else {
+			flight = new Flight( key, launcher.get() );
+			flights.put( key, flight );
+			Flight started = flight;
+			flight.job.getFuture().whenComplete( ( result, error ) -> finish( started ) );
+		}
+		flight.waiters ++;
+		return new Ticket( flight, shared );
+	}
+
+	/**
+	 * @return the number of jobs running
+	 */
+	public synchronized int size() {
+		return flights.size();
+	}
+
+	private synchronized void finish( Flight flight ) {
+		flights.remove( flight.key, flight );
+	}
+
+	private synchronized void leave( Flight flight ) {
+		if ( -- flight.waiters == 0 && !flight.job.isDone() ) {
+			flights.remove( flight.key, flight );
+			if ( LOG.isInfoEnabled() ) {
+				LOG.info( "Nobody waits for {} any more, cancel it", flight.job.getOutput() );
+			}
+			flight.job.cancel();
+		}
+	}
+
+	private static final class Flight {
+
+		private final String key;
+		private final FFmpegJob job;
+		private int waiters;
+
+		private Flight( String key, FFmpegJob job ) {
+			this.key = key;
+			this.job = job;
+		}
+
+	}
+
+	/**
+	 * The view of one caller on a shared job
+	 */
+	public final class Ticket {
+
+		private final Flight flight;
+		private final boolean shared;
+		private final CompletableFuture<String> future = new CompletableFuture<>();
+
+		private Ticket( Flight flight, boolean shared ) {
+			this.flight = flight;
+			this.shared = shared;
+			// Any way of completing the ticket early (cancel, complete...) releases its seat
+			future.whenComplete( ( result, error ) -> leave( flight ) );
+			flight.job.getFuture().whenComplete( ( result, error ) -> {
+				if ( error == null ) {
+					future.complete( result );
+				} else {
+					future.completeExceptionally( error instanceof CompletionException ? error.getCause() : error );
+				}
+			} );
+		}
+
+		/**
+		 * @return whether this caller attached to a job started by another caller
+		 */
+		public boolean isShared() {
+			return shared;
+		}
+
+		/**
+		 * @return the future of the output, cancelling it cancels this ticket
+		 */
+		public CompletableFuture<String> getFuture() {
+			return future;
+		}
+
+		/**
+		 * Listen to the progress reports of the shared job until this ticket is done
+		 *
+		 * @param listener the progress listener
+		 * @return the {@link Ticket} instance
+		 */
+		public Ticket onProgress( Consumer<Map<String, String>> listener ) {
+			Consumer<Map<String, String>> guarded = progress -> {
+				if ( !future.isDone() ) {
+					listener.accept( progress );
+				}
+			};
+			flight.job.onProgress( guarded );
+			future.whenComplete( ( result, error ) -> flight.job.removeProgress( guarded ) );
+			return this;
+		}
+
+		/**
+		 * Stop waiting for the job, the job itself is only cancelled when this was the last waiting ticket
+		 *
+		 * @return {@code false} if the ticket was already done
+		 */
+		public boolean cancel() {
+			return future.cancel( false );
+		}
+
+		/**
+		 * Wait for the job to finish
+		 *
+		 * @return the output
+		 */
+		public String await() {
+			try {
+				return future.join();
+			} catch ( CompletionException e ) {
+				throw e.getCause() instanceof RuntimeException ? ( RuntimeException ) e.getCause() : e;
+			}
+		}
+
+	}
+
+}
@@ -18,10 +18,10 @@ package com.viiyue.ffmpeg.enums;
 import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.io.FilenameUtils;
@@ -47,8 +47,8 @@ public enum Library {
 
 	private String outName;
 	private String description;
-	private static final Map<Library, String> targets = new HashMap<>( 3 );
-	private static final Map<String, Boolean> validated = new HashMap<>( 4 );
+	private static final Map<Library, String> targets = new ConcurrentHashMap<>( 4 );
+	private static final Set<String> validated = ConcurrentHashMap.newKeySet( 4 );
 	private static final AtomicReference<String> LOCATION_REF = new AtomicReference<>( Const.TEMP_PATH );
 	private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern( "YYYYMMddHHmmss" );
 
@@ -66,13 +66,27 @@ public enum Library {
 	}
 	
 	/**
-	 * Bind the target executable location
+	 * Bind the target executable location, the default one of the whole JVM. The binary bound to
+	 * {@link #FFMPEG} is also the {@code default} binary of every
+	 * {@link com.viiyue.ffmpeg.metadata.BinaryRegistry BinaryRegistry}, which reads it from here.
 	 * 
 	 * @param target the target executable location
 	 * @since 1.0.1
 	 */
 	public void bind( String target ) {
-		targets.put( this, target );
+		if ( target == null ) {
+			targets.remove( this );
+		} else {
+			targets.put( this, target );
+		}
+	}
+	
+	/**
+	 * @return whether an executable is bound to the library
+	 * @since 1.0.1
+	 */
+	public boolean isBound() {
+		return targets.containsKey( this );
 	}
 	
 	/**
@@ -120,7 +134,7 @@ public enum Library {
 	 * @since 1.0.1
 	 */
 	private String checkTarget( String target ) {
-		if ( Objects.equals( validated.get( target ), Boolean.TRUE ) ) {
+		if ( target != null && validated.contains( target ) ) {
 			return target;
 		}
 		Assert.notNull( target, "You must specify the library path for " + outName + "!" );
@@ -128,7 +142,7 @@ public enum Library {
 		if ( file.exists() ) {
 			Assert.isFalse( file.isDirectory(), "The specified " + target + " library cannot be a directory!" );
 		}
-		validated.put( target, Boolean.TRUE );
+		validated.add( target );
 		return target;
 	}
 
@@ -15,8 +15,8 @@
  */
 package com.viiyue.ffmpeg.executor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.commons.lang3.ArrayUtils;
@@ -24,6 +24,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import com.viiyue.ffmpeg.common.Argument;
 import com.viiyue.ffmpeg.common.Const;
+import com.viiyue.ffmpeg.util.Assert;
 import com.viiyue.ffmpeg.util.Helper;
 
 /**
@@ -35,12 +36,16 @@ import com.viiyue.ffmpeg.util.Helper;
  */
 abstract class AbstractCommander<T extends AbstractCommander<?>> {
 
-	private final List<Argument> commands = new LinkedList<>();
+	private final Arguments commands = new Arguments();
 
 	protected final T output( String output ) {
 		return cmd( Const.ARG_PREFIX, output, true );
 	}
 
+	protected final T output( String output, boolean isUnique ) {
+		return cmd( Const.ARG_PREFIX, output, isUnique );
+	}
+
 	/**
 	 * Set the command
 	 * 
@@ -112,7 +117,10 @@ abstract class AbstractCommander<T extends AbstractCommander<?>> {
 	}
 
 	/**
-	 * Set the command and value and specify whether the command is unique
+	 * Set the command and value and specify whether the command is unique. Options apply to the input or output
+	 * that follows them, so a unique command only replaces the same command of the input or output still being
+	 * described, or the same global option: {@code codec( "h264" ).input( a ).codec( "vp9" )} keeps both, the
+	 * decoder of {@code a} and the encoder of the output.
 	 * 
 	 * @param cmd      the command key
 	 * @param value    the command value
@@ -121,7 +129,7 @@ abstract class AbstractCommander<T extends AbstractCommander<?>> {
 	 */
 	public final T cmd( String cmd, Object value, boolean isUnique ) {
 		buildArg( cmd, value, isUnique );
-		return ( T ) this;
+		return self();
 	}
 	
 	/**
@@ -135,7 +143,39 @@ abstract class AbstractCommander<T extends AbstractCommander<?>> {
 	 */
 	public final T cmdWrap( String cmd, Object value, boolean isUnique ) {
 		buildArg( cmd, value, isUnique ).quotesWrap();
-		return ( T ) this;
+		return self();
+	}
+
+	/**
+	 * Set a global option, global options are always placed before the first input no matter when they are
+	 * set, and setting the same option again replaces its value.
+	 * 
+	 * @param cmd the command key
+	 * @return the current instance
+	 * @since 1.0.1
+	 */
+	protected final T global( String cmd ) {
+		return global( cmd, null );
+	}
+
+	/**
+	 * Set a global option with its value, global options are always placed before the first input no matter
+	 * when they are set, and setting the same option again replaces its value.
+	 * 
+	 * @param cmd   the command key
+	 * @param value the command value
+	 * @return the current instance
+	 * @since 1.0.1
+	 */
+	protected final T global( String cmd, Object value ) {
+		Assert.notNull( cmd, "The command input cannot be null" );
+		Argument argument = commands.inScope( cmd, true );
+		if ( argument == null ) {
+			argument = newArg( cmd );
+			commands.add( argument, true );
+		}
+		argument.setValue( Helper.toValue( value ) );
+		return self();
 	}
 	
 	/**
@@ -145,11 +185,8 @@ abstract class AbstractCommander<T extends AbstractCommander<?>> {
 	 * @return the current instance
 	 */
 	protected final T remove( String cmd ) {
-		Argument argument = find( cmd );
-		if ( argument != null ) {
-			this.commands.remove( argument.getIndex() );
-		}
-		return ( T ) this;
+		commands.remove( cmd );
+		return self();
 	}
 
 	/**
@@ -164,7 +201,7 @@ abstract class AbstractCommander<T extends AbstractCommander<?>> {
 		if ( argument != null ) {
 			argument.setValue( Helper.toValue( value ) );
 		}
-		return ( T ) this;
+		return self();
 	}
 
 	/**
@@ -178,15 +215,32 @@ abstract class AbstractCommander<T extends AbstractCommander<?>> {
 	}
 
 	/**
-	 * Expand all commands as a list string
+	 * Get the options of the inputs or of the outputs, each one belongs to the input or the output that
+	 * follows it
+	 * 
+	 * @param input whether to take the options of the inputs, or those of the outputs
+	 * @return the options in command order, with the inputs or the outputs themselves
+	 * @since 1.0.1
+	 */
+	final List<Argument> optionsOf( boolean input ) {
+		return commands.groupsOf( input );
+	}
+
+	/**
+	 * Expand all commands as the arguments of the process, the values are never wrapped in quotes since no
+	 * shell reads them
 	 * 
 	 * @param preCommands the prepending commands
 	 * @return the current instance
 	 */
 	protected final List<String> toCommands( String ... preCommands ) {
-		List<String> fullCommands = new LinkedList<String>();
+		return toCommands( false, preCommands );
+	}
+
+	private List<String> toCommands( boolean quotes, String ... preCommands ) {
+		List<String> fullCommands = new ArrayList<String>( commands.size() * 2 + ArrayUtils.getLength( preCommands ) );
 		if ( ArrayUtils.isNotEmpty( preCommands ) ) {
-			fullCommands.addAll( 0, Arrays.asList( preCommands ) );
+			fullCommands.addAll( Arrays.asList( preCommands ) );
 		}
 		commands.forEach( arg -> {
 			String cmd = arg.getKey();
@@ -195,7 +249,7 @@ abstract class AbstractCommander<T extends AbstractCommander<?>> {
 				fullCommands.add( cmd );
 			}
 			if ( value != null ) {
-				if ( arg.isQuotesWrap() ) {
+				if ( quotes && arg.isQuotesWrap() ) {
 					fullCommands.add( Helper.quotes( value.toString() ) );
 				} else {
 					fullCommands.add( value.toString() );
@@ -212,7 +266,7 @@ abstract class AbstractCommander<T extends AbstractCommander<?>> {
 	 * @since 1.0.1
 	 */
 	protected final String toCommandString() {
-		return StringUtils.join( toCommands(), ' ' );
+		return StringUtils.join( toCommands( true ), ' ' );
 	}
 	
 	/**
@@ -222,26 +276,23 @@ abstract class AbstractCommander<T extends AbstractCommander<?>> {
 	 * @since 1.0.1
 	 */
 	protected final String toCommandString( String ... preCommands ) {
-		return StringUtils.join( toCommands( preCommands ), ' ' );
+		return StringUtils.join( toCommands( true, preCommands ), ' ' );
 	}
 	
 	/**
-	 * Find the matched command argument
+	 * Find the first matched command argument of the whole command
 	 * 
 	 * @param cmd the searching command
 	 * @return the found command argument
 	 */
 	private Argument find( String cmd ) {
-		for ( Argument argument : commands ) {
-			if ( argument.is( cmd ) ) {
-				return argument;
-			}
-		}
-		return null;
+		return commands.first( cmd );
 	}
 	
 	/**
-	 * Build a command argument instance object
+	 * Build a command argument instance object. A unique command replaces the same global option wherever it
+	 * is set, otherwise only the same command of the input or output that is still being described, so every
+	 * input and output can have its own value. The output itself is unique in the whole command.
 	 * 
 	 * @param cmd      the command key string
 	 * @param value    the command value
@@ -254,18 +305,30 @@ abstract class AbstractCommander<T extends AbstractCommander<?>> {
 		}
 		Argument argument = null;
 		if ( isUnique ) {
-			argument = find( cmd );
+			if ( Const.ARG_PREFIX.equals( cmd ) ) {
+				argument = find( cmd );
+			} else if ( ( argument = commands.inScope( cmd, true ) ) == null ) {
+				argument = commands.inScope( cmd, false );
+			}
 		}
 		if ( argument == null ) {
-			argument = new Argument();
-			argument.setKey( cmd );
-			argument.setIndex( commands.size() );
-			commands.add( argument );
+			argument = newArg( cmd );
+			commands.add( argument, false );
 		}
 		argument.setValue( Helper.toValue( value ) );
 		return argument;
 	}
 
+	private T self() {
+		return ( T ) this;
+	}
+
+	private Argument newArg( String cmd ) {
+		Argument argument = new Argument();
+		argument.setKey( cmd );
+		return argument;
+	}
+
 	@Override
 	public String toString() {
 		return commands.isEmpty() ? "[]" : "[" + toCommandString() + "]";
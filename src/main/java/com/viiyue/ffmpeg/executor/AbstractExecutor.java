@@ -35,6 +35,7 @@ import com.viiyue.ffmpeg.common.NoArgUsage;
 import com.viiyue.ffmpeg.common.OneArgUsage;
 import com.viiyue.ffmpeg.common.TwoArgUsage;
 import com.viiyue.ffmpeg.enums.Library;
+import com.viiyue.ffmpeg.metadata.CapabilityRegistry;
 import com.viiyue.ffmpeg.metadata.Usage;
 import com.viiyue.ffmpeg.util.Helper;
 
@@ -49,7 +50,9 @@ public abstract class AbstractExecutor<T extends AbstractCommander<?>> extends A
 
 	private final Library library;
 	private List<Usage> usages;
+	private volatile String spawnedLog;
 	private static final String USAGE = "< USAGES >";;
+	private static final String SHELL_CHARS = " \t;|&<>()[]'\"*?$`";
 
 	public AbstractExecutor( Library library ) {
 		this.library = library;
@@ -76,22 +79,36 @@ public abstract class AbstractExecutor<T extends AbstractCommander<?>> extends A
 	 * @return the execution result
 	 */
 	protected final String execute( String message ) {
+		return execute( getExecutable(), message );
+	}
+
+	/**
+	 * Execute the final command with an executable resolved beforehand, so that a job resolving it for other
+	 * purposes, such as a cache key, runs the very same one
+	 * 
+	 * @param executable the executable, see {@link #getExecutable()}
+	 * @param message    the additional message to display
+	 * @return the execution result
+	 * @since 1.0.1
+	 */
+	protected final String execute( String executable, String message ) {
 		Logger logger = getLogger();
 		StopWatch monitor = StopWatch.createStarted();
 
-		String executable = library.getExecutable();
 		String logLocation = library.getLogLocation();
 		String libraryName = FilenameUtils.getBaseName( executable );
 		String commander = StringUtils.capitalize( libraryName );
 
 		List<String> commands = super.toCommands( executable );
+		this.verify( commands );
+		Runnable release = this.prepare( commands );
 
 		if ( logger != null && logger.isInfoEnabled() ) {
 			logger.info( "------------------------------------------------------------------------" );
 			if ( !Objects.equals( executable, libraryName ) ) {
 				logger.info( "{} library: {}", commander, executable );
 			}
-			logger.info( "{} command: {}", commander, super.toCommandString( libraryName ) );
+			logger.info( "{} command: {}", commander, toCommandString( libraryName, commands ) );
 		}
 
 		File output = new File( logLocation );
@@ -144,6 +161,9 @@ public abstract class AbstractExecutor<T extends AbstractCommander<?>> extends A
 			throw new RuntimeException( e.getMessage() );
 		} finally {
 			monitor.stop();
+			if ( release != null ) {
+				release.run();
+			}
 			if ( exception ) {
 				if ( logger != null && logger.isErrorEnabled() ) {
 					if ( !printed ) {
@@ -152,7 +172,7 @@ public abstract class AbstractExecutor<T extends AbstractCommander<?>> extends A
 						if ( output.length() > 0 ) {
 							logger.error( "* Please check: \"{}\"", logLocation );
 						}
-						if ( !Helper.cmdCheck( executable, "--help" ) ) {
+						if ( !CapabilityRegistry.exists( executable ) ) {
 							logger.error( "* Maybe the \"{}\" library doesn't seem to exist", executable );
 						}
 					}
@@ -170,6 +190,158 @@ public abstract class AbstractExecutor<T extends AbstractCommander<?>> extends A
 		}
 	}
 	
+	/**
+	 * Launch the final command without waiting for it to finish. The standard input and output of the process
+	 * are left open as pipes for the caller, and the error output is still written to the log file.
+	 * 
+	 * @return the running process
+	 * @since 1.0.1
+	 */
+	protected final Process spawn() {
+		return spawn( getExecutable() );
+	}
+
+	/**
+	 * Launch the final command with an executable resolved beforehand without waiting for it to finish
+	 * 
+	 * @param executable the executable, see {@link #getExecutable()}
+	 * @return the running process
+	 * @since 1.0.1
+	 */
+	protected final Process spawn( String executable ) {
+		Logger logger = getLogger();
+
+		String logLocation = library.getLogLocation();
+		String libraryName = FilenameUtils.getBaseName( executable );
+		String commander = StringUtils.capitalize( libraryName );
+
+		List<String> commands = super.toCommands( executable );
+		this.verify( commands );
+		Runnable release = this.prepare( commands );
+
+		if ( logger != null && logger.isInfoEnabled() ) {
+			logger.info( "------------------------------------------------------------------------" );
+			logger.info( "{} command: {}", commander, toCommandString( libraryName, commands ) );
+			logger.info( "{} log file: {}", commander, logLocation );
+		}
+
+		Helper.createDirectoryIfNecessary( logLocation );
+		try {
+			ProcessBuilder builder = new ProcessBuilder( commands );
+			builder.redirectError( new File( logLocation ) );
+			this.spawnedLog = logLocation;
+			Process process = builder.start();
+			if ( release != null ) {
+				releaseOnExit( process, release );
+			}
+			return process;
+		} catch ( IOException e ) {
+			if ( release != null ) {
+				release.run();
+			}
+			if ( logger != null && logger.isErrorEnabled() ) {
+				logger.error( "* An exception occurred in the execution of \"{}\"", executable );
+			}
+			throw new RuntimeException( libraryName + " command execution error", e );
+		}
+	}
+
+	/**
+	 * Release the files prepared for a process on a daemon thread once the process has ended
+	 * 
+	 * @param process the running process
+	 * @param release the action releasing the prepared files
+	 */
+	private static void releaseOnExit( Process process, Runnable release ) {
+		Thread waiter = new Thread( () -> {
+			try {
+				process.waitFor();
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			} finally {
+				release.run();
+			}
+		}, "ffmpeg-release" );
+		waiter.setDaemon( true );
+		waiter.start();
+	}
+
+	/**
+	 * Render the final command as it is launched, after {@link #verify(List)} has checked it. The arguments a
+	 * shell would split or expand are wrapped in quotes, so the logged command can be pasted as it is.
+	 * 
+	 * @param libraryName the name shown in place of the executable
+	 * @param commands    the final command, the executable first
+	 * @return the command string
+	 */
+	private static String toCommandString( String libraryName, List<String> commands ) {
+		StringBuilder builder = new StringBuilder( libraryName );
+		for ( int i = 1, s = commands.size(); i < s; i ++ ) {
+			String command = commands.get( i );
+			builder.append( ' ' ).append( StringUtils.containsAny( command, SHELL_CHARS ) ? Helper.quotes( command ) : command );
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Get the executable running the final command, the one bound to the library by default. It's resolved once
+	 * per run, a job needing it twice passes it to {@link #execute(String, String)} or {@link #spawn(String)}.
+	 * 
+	 * @return the executable path
+	 * @since 1.0.1
+	 */
+	protected String getExecutable() {
+		return library.getExecutable();
+	}
+
+	/**
+	 * Get the log file receiving the error output of the last process launched without waiting
+	 * 
+	 * @return the log file location, or {@code null} if no process has been launched that way
+	 * @since 1.0.1
+	 */
+	public final String getSpawnedLog() {
+		return spawnedLog;
+	}
+
+	/**
+	 * Check the final command before the process is launched, an invalid command should be rejected here
+	 * rather than by the process. The command may be changed in place, it's logged afterwards. Nothing is
+	 * checked by default.
+	 * 
+	 * @param commands the final command, the executable first
+	 * @since 1.0.1
+	 */
+	protected void verify( List<String> commands ) {}
+
+	/**
+	 * Prepare the files the final command needs once it has been verified, such as filter scripts. The
+	 * returned action releases them when the process has ended. Nothing is prepared by default.
+	 * 
+	 * @param commands the final command, the executable first, the arguments may be changed in place
+	 * @return the action releasing the prepared files, or {@code null} if there is nothing to release
+	 * @since 1.0.1
+	 */
+	protected Runnable prepare( List<String> commands ) {
+		return null;
+	}
+
+	/**
+	 * Compile the current command into an immutable template, the values set with
+	 * {@link CommandTemplate#slot(String)} are left to be filled in for every run. The command is checked by
+	 * {@link #verify(List)} first, like a command that is launched. The files {@link #prepare(List)} creates
+	 * for it are kept as long as the JVM runs, since the template may run any time.
+	 * 
+	 * @return the compiled template
+	 * @since 1.0.1
+	 */
+	public final CommandTemplate compile() {
+		List<String> commands = super.toCommands( getExecutable() );
+		this.verify( commands );
+		this.prepare( commands );
+		return CommandTemplate.compile( library, commands );
+	}
+
 	/**
 	 * 
 	 */
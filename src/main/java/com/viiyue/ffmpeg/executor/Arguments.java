@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.executor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.viiyue.ffmpeg.common.Argument;
+import com.viiyue.ffmpeg.common.Const;
+import com.viiyue.ffmpeg.util.Helper;
+
+/**
+ * Ordered argument list of a command, indexed by key. The global options come first, then every group of
+ * options ends with the input ({@code -i}) or the output it applies to, and a lookup in scope only sees the
+ * global options or the group that is still open.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+final class Arguments implements Iterable<Argument> {
+
+	private static final String INPUT = Helper.command( "i" );
+	private static final String OUTPUT = Const.ARG_PREFIX;
+
+	private final Scope global = new Scope();
+	private final Map<String, Chain> chains = new HashMap<>( 32 );
+
+	private Scope current = new Scope();
+	private Node head;
+	private Node tail;
+	private Node lastGlobal;
+	private int size;
+	private int sequence;
+
+	/**
+	 * @return the number of arguments
+	 */
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param key the command key
+	 * @return the first argument of the key in the whole command, or {@code null}
+	 */
+	Argument first( String key ) {
+		Chain chain = chains.get( Helper.command( key ) );
+		return chain == null ? null : chain.first.argument;
+	}
+
+	/**
+	 * @param key    the command key
+	 * @param global whether to look in the global options or in the group that is still open
+	 * @return the first argument of the key in the scope, or {@code null}
+	 */
+	Argument inScope( String key, boolean global ) {
+		Node node = ( global ? this.global : current ).index.get( Helper.command( key ) );
+		return node == null ? null : node.argument;
+	}
+
+	/**
+	 * Append an argument to the global options or to the open group, an input or an output closes the group.
+	 *
+	 * @param argument the argument with its key
+	 * @param global   whether it's a global option
+	 */
+	void add( Argument argument, boolean global ) {
+		String key = argument.getKey();
+		Node node = new Node( argument, global ? this.global : current );
+		argument.setIndex( sequence ++ );
+		if ( global ) {
+			insertAfter( lastGlobal, node );
+			this.lastGlobal = node;
+		} else {
+			insertAfter( tail, node );
+		}
+		node.scope.index.putIfAbsent( key, node );
+
+		Chain chain = chains.get( key );
+		if ( chain == null ) {
+			chains.put( key, new Chain( node ) );
+		} else if ( global ) {
+			// Global options are rendered before everything else, keep the chain in command order
+			Node after = chain.first;
+			if ( after.scope != this.global ) {
+				node.nextSame = after;
+				after.prevSame = node;
+				chain.first = node;
+			} else {
+				while ( after.nextSame != null && after.nextSame.scope == this.global ) {
+					after = after.nextSame;
+				}
+				linkSame( chain, after, node );
+			}
+		} else {
+			linkSame( chain, chain.last, node );
+		}
+
+		if ( !global && ( INPUT.equals( key ) || OUTPUT.equals( key ) ) ) {
+			current.input = INPUT.equals( key );
+			this.current = new Scope();
+		}
+		size ++;
+	}
+
+	/**
+	 * Remove the first argument of the key in the whole command
+	 *
+	 * @param key the command key
+	 * @return the removed argument, or {@code null}
+	 */
+	Argument remove( String key ) {
+		Chain chain = chains.get( Helper.command( key ) );
+		if ( chain == null ) {
+			return null;
+		}
+		Node node = chain.first;
+		String normalized = node.argument.getKey();
+
+		// Unlink from the command
+		if ( node.prev == null ) {
+			this.head = node.next;
+		} else {
+			node.prev.next = node.next;
+		}
+		if ( node.next == null ) {
+			this.tail = node.prev;
+		} else {
+			node.next.prev = node.prev;
+		}
+		if ( node == lastGlobal ) {
+			this.lastGlobal = node.prev;
+		}
+
+		// Unlink from the same key chain, and let the scope index point to the next one of the same scope
+		if ( node.nextSame == null ) {
+			chains.remove( normalized );
+		} else {
+			chain.first = node.nextSame;
+			node.nextSame.prevSame = null;
+		}
+		if ( node.scope.index.get( normalized ) == node ) {
+			Node next = node.nextSame;
+			if ( next != null && next.scope == node.scope ) {
+				node.scope.index.put( normalized, next );
+			} else {
+				node.scope.index.remove( normalized );
+			}
+		}
+		size --;
+		return node.argument;
+	}
+
+	/**
+	 * @param input whether to take the groups closed by an input, or the ones closed by an output
+	 * @return the arguments of these groups in command order, the group that is still open is an output one,
+	 *         the global options are never returned
+	 */
+	List<Argument> groupsOf( boolean input ) {
+		List<Argument> arguments = new ArrayList<>( size );
+		for ( Node node = head; node != null; node = node.next ) {
+			if ( node.scope != global && node.scope.input == input ) {
+				arguments.add( node.argument );
+			}
+		}
+		return arguments;
+	}
+
+	@Override
+	public Iterator<Argument> iterator() {
+		return new Iterator<Argument>() {
+
+			private Node next = head;
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Argument next() {
+				if ( next == null ) {
+					throw new NoSuchElementException();
+				}
+				Argument argument = next.argument;
+				next = next.next;
+				return argument;
+			}
+
+		};
+	}
+
+	private void insertAfter( Node previous, Node node ) {
+		Node next = previous == null ? head : previous.next;
+		node.prev = previous;
+		node.next = next;
+		if ( previous == null ) {
+			this.head = node;
+		} else {
+			previous.next = node;
+		}
+		if ( next == null ) {
+			this.tail = node;
+		} else {
+			next.prev = node;
+		}
+	}
+
+	private static void linkSame( Chain chain, Node previous, Node node ) {
+		Node next = previous.nextSame;
+		node.prevSame = previous;
+		node.nextSame = next;
+		previous.nextSame = node;
+		if ( next == null ) {
+			chain.last = node;
+		} else {
+			next.prevSame = node;
+		}
+	}
+
+	private static final class Node {
+
+		private final Argument argument;
+		private final Scope scope;
+		private Node prev;
+		private Node next;
+		private Node prevSame;
+		private Node nextSame;
+
+		private Node( Argument argument, Scope scope ) {
+			this.argument = argument;
+			this.scope = scope;
+		}
+
+	}
+
+	/**
+	 * All arguments of the same key, in command order
+	 */
+	private static final class Chain {
+
+		private Node first;
+		private Node last;
+
+		private Chain( Node node ) {
+			this.first = node;
+			this.last = node;
+		}
+
+	}
+
+	/**
+	 * The global options, or a group of options that ends with its input or output
+	 */
+	private static final class Scope {
+
+		private final Map<String, Node> index = new HashMap<>( 8 );
+		private boolean input;
+
+	}
+
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.executor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.enums.Library;
+import com.viiyue.ffmpeg.util.Assert;
+import com.viiyue.ffmpeg.util.Helper;
+
+/**
+ * An immutable command compiled by {@link AbstractExecutor#compile()}, the values set with {@link #slot(String)}
+ * are filled in for every run and the rest is rendered once. It can be shared by any number of threads.
+ *
+ * <pre>
+ * CommandTemplate template = FFmpegExecutor.build()
+ *     .cmd( "ss", CommandTemplate.slot( "start" ) )
+ *     .cmd( "i", CommandTemplate.slot( "input" ), false )
+ *     .frames( 1 )
+ *     .cmd( "-", CommandTemplate.slot( "output" ) )
+ *     .compile();
+ * </pre>
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class CommandTemplate {
+
+	private static final Logger LOG = LoggerFactory.getLogger( CommandTemplate.class );
+
+	// Never appears in a real argument, the operating system cannot pass it
+	private static final char MARK = '\0';
+
+	private final Library library;
+	private final String [] statics;
+	private final int [] positions;
+	private final Object [][] fragments;
+	private final Set<String> names;
+
+	private CommandTemplate( Library library, String [] statics, int [] positions, Object [][] fragments, Set<String> names ) {
+		this.library = library;
+		this.statics = statics;
+		this.positions = positions;
+		this.fragments = fragments;
+		this.names = names;
+	}
+
+	/**
+	 * Create a placeholder to be used as a command value, or concatenated into one.
+	 *
+	 * @param name the slot name
+	 * @return the placeholder
+	 */
+	public static final Object slot( String name ) {
+		Assert.notEmpty( name, "The slot name cannot be empty" );
+		Assert.isTrue( name.indexOf( MARK ) < 0, "Illegal slot name: " + name );
+		return new Slot( name );
+	}
+
+	/**
+	 * @param argument a rendered argument
+	 * @return whether the argument has a slot, its value is only known when the template runs
+	 */
+	static boolean hasSlot( String argument ) {
+		return argument.indexOf( MARK ) >= 0;
+	}
+
+	/**
+	 * Compile rendered arguments, placeholders are recognized by their marks.
+	 *
+	 * @param library   the library to run
+	 * @param arguments the rendered arguments, the executable first
+	 * @return the {@link CommandTemplate} instance
+	 */
+	static final CommandTemplate compile( Library library, List<String> arguments ) {
+		String [] statics = arguments.toArray( new String[ arguments.size() ] );
+		List<Integer> positions = new ArrayList<>();
+		List<Object []> fragments = new ArrayList<>();
+		Set<String> names = new LinkedHashSet<>();
+		for ( int i = 0; i < statics.length; i ++ ) {
+			String argument = statics[ i ];
+			if ( argument.indexOf( MARK ) >= 0 ) {
+				Object [] parts = split( argument );
+				for ( Object part : parts ) {
+					if ( part instanceof Slot ) {
+						names.add( ( ( Slot ) part ).name );
+					}
+				}
+				positions.add( i );
+				fragments.add( parts );
+				statics[ i ] = null;
+			}
+		}
+		int [] slots = new int[ positions.size() ];
+		for ( int i = 0; i < slots.length; i ++ ) {
+			slots[ i ] = positions.get( i );
+		}
+		return new CommandTemplate( library, statics, slots, fragments.toArray( new Object[ 0 ][] ), Collections.unmodifiableSet( names ) );
+	}
+
+	/**
+	 * @return the names of all slots in the order they appear
+	 */
+	public Set<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * Fill the slots and return the full command, the executable first.
+	 *
+	 * @param values the slot values by name, formatted the same way as the executor formats command values
+	 * @return a new command list owned by the caller
+	 */
+	public List<String> render( Map<String, ?> values ) {
+		String [] command = statics.clone();
+		for ( int i = 0; i < positions.length; i ++ ) {
+			Object [] parts = fragments[ i ];
+			if ( parts.length == 1 ) {
+				command[ positions[ i ] ] = valueOf( ( Slot ) parts[ 0 ], values );
+				continue;
+			}
+			StringBuilder builder = new StringBuilder( 64 );
+			for ( Object part : parts ) {
+				builder.append( part instanceof Slot ? valueOf( ( Slot ) part, values ) : ( String ) part );
+			}
+			command[ positions[ i ] ] = builder.toString();
+		}
+		return Arrays.asList( command );
+	}
+
+	/**
+	 * Launch the command without waiting for it, all output is written to the log file.
+	 *
+	 * @param values the slot values by name
+	 * @return the running process
+	 */
+	public Process start( Map<String, ?> values ) {
+		List<String> command = render( values );
+		if ( LOG.isDebugEnabled() ) {
+			LOG.debug( "Template command: {}", StringUtils.join( command, ' ' ) );
+		}
+		String logLocation = library.getLogLocation();
+		Helper.createDirectoryIfNecessary( logLocation );
+		try {
+			ProcessBuilder builder = new ProcessBuilder( command );
+			builder.redirectErrorStream( true );
+			builder.redirectOutput( new File( logLocation ) );
+			return builder.start();
+		} catch ( IOException e ) {
+			throw new RuntimeException( library.getName() + " command execution error", e );
+		}
+	}
+
+	/**
+	 * Run the command and wait for it to finish
+	 *
+	 * @param values the slot values by name
+	 */
+	public void run( Map<String, ?> values ) {
+		Process process = start( values );
+		try {
+			int exitValue = process.waitFor();
+			if ( exitValue != 0 ) {
+				throw new RuntimeException( library.getName() + " exited with " + exitValue + ", see \"" + library.getLogLocation() + "\"" );
+			}
+		} catch ( InterruptedException e ) {
+			process.destroy();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( library.getName() + " command was interrupted" );
+		}
+	}
+
+	@Override
+	public String toString() {
+		List<String> command = new ArrayList<>( Arrays.asList( statics ) );
+		for ( int i = 0; i < positions.length; i ++ ) {
+			StringBuilder builder = new StringBuilder();
+			for ( Object part : fragments[ i ] ) {
+				builder.append( part instanceof Slot ? "${" + ( ( Slot ) part ).name + "}" : part );
+			}
+			command.set( positions[ i ], builder.toString() );
+		}
+		return StringUtils.join( command, ' ' );
+	}
+
+	private static String valueOf( Slot slot, Map<String, ?> values ) {
+		Object value = Helper.toValue( values.get( slot.name ) );
+		Assert.notNull( value, "Missing the value of slot \"" + slot.name + "\"" );
+		return value.toString();
+	}
+
+	private static Object [] split( String argument ) {
+		List<Object> parts = new ArrayList<>( 3 );
+		int from = 0;
+		while ( from < argument.length() ) {
+			int start = argument.indexOf( MARK, from );
+			if ( start < 0 ) {
+				parts.add( argument.substring( from ) );
+				break;
+			}
+			int end = argument.indexOf( MARK, start + 1 );
+			Assert.isTrue( end > start, "Broken slot in argument: " + argument );
+			if ( start > from ) {
+				parts.add( argument.substring( from, start ) );
+			}
+			parts.add( new Slot( argument.substring( start + 1, end ) ) );
+			from = end + 1;
+		}
+		return parts.toArray();
+	}
+
+	/**
+	 * A named placeholder, rendered as its name between two marks
+	 */
+	private static final class Slot {
+
+		private final String name;
+
+		private Slot( String name ) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return MARK + name + MARK;
+		}
+
+	}
+
+}
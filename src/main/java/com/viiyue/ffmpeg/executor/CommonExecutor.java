@@ -18,6 +18,7 @@ package com.viiyue.ffmpeg.executor;
 import java.io.File;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -35,6 +36,9 @@ import com.viiyue.ffmpeg.enums.Preset;
  */
 public abstract class CommonExecutor<T extends GlobalExecutor<?>> extends GlobalExecutor<T> {
 
+	// A protocol name has at least two characters, which tells it apart from a windows drive letter
+	private static final Pattern URL_PATTERN = Pattern.compile( "^[a-zA-Z][a-zA-Z0-9+.-]+:" );
+
 	protected int inputs;
 
 	public CommonExecutor( Library library ) {
@@ -245,7 +249,7 @@ public abstract class CommonExecutor<T extends GlobalExecutor<?>> extends Global
 	}
 
 	/**
-	 * Do a simple file check
+	 * Do a simple file check, urls such as {@code pipe:0} or {@code http://...} are passed through as they are
 	 * 
 	 * @param <E> the input file type
 	 * @param input the input file
@@ -257,6 +261,9 @@ public abstract class CommonExecutor<T extends GlobalExecutor<?>> extends Global
 		}
 		File inputFile = null;
 		if ( input instanceof String ) {
+			if ( URL_PATTERN.matcher( input.toString() ).find() ) {
+				return input; // pipe:0, http://... or any other protocol
+			}
 			inputFile = new File( input.toString() );
 		} else if ( input instanceof File ) {
 			inputFile = ( File ) input;
@@ -15,13 +15,39 @@
  */
 package com.viiyue.ffmpeg.executor;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.viiyue.ffmpeg.cache.ResultCache;
+import com.viiyue.ffmpeg.cache.SingleFlight;
+import com.viiyue.ffmpeg.common.Argument;
+import com.viiyue.ffmpeg.common.Const;
 import com.viiyue.ffmpeg.enums.Library;
 import com.viiyue.ffmpeg.enums.VideoSize;
 import com.viiyue.ffmpeg.filter.AbstractResult;
+import com.viiyue.ffmpeg.filter.FilterGraph;
 import com.viiyue.ffmpeg.filter.Filters;
+import com.viiyue.ffmpeg.metadata.BinaryRegistry;
+import com.viiyue.ffmpeg.metadata.Capabilities;
+import com.viiyue.ffmpeg.metadata.Capabilities.Kind;
+import com.viiyue.ffmpeg.metadata.CapabilityRegistry;
+import com.viiyue.ffmpeg.util.Assert;
+import com.viiyue.ffmpeg.util.Helper;
 
 /**
  * FFmpeg command executor
@@ -32,6 +58,19 @@ import com.viiyue.ffmpeg.filter.Filters;
 public class FFmpegExecutor extends CommonExecutor<FFmpegExecutor> {
 
 	private static final Logger LOG = LoggerFactory.getLogger( FFmpegExecutor.class );
+	private static final String INPUT = Helper.command( "i" );
+	private static final String MAP = Helper.command( "map" );
+	private static final String PIX_FMT = Helper.command( "pix_fmt" );
+	private static final String COPY = "copy";
+
+	private ResultCache cache;
+	private int addedOutputs;
+	private int scriptThreshold = FilterScripts.DEFAULT_THRESHOLD;
+	private FilterGraph graph;
+	private CapabilityRegistry registry;
+	private BinaryRegistry binaries;
+	private final Map<String, FilterGraph> filterGraphs = new LinkedHashMap<>( 2 );
+	private final Map<String, String> fallbacks = new HashMap<>( 4 );
 
 	public static final FFmpegExecutor build() {
 		return new FFmpegExecutor( true );
@@ -311,13 +350,116 @@ public class FFmpegExecutor extends CommonExecutor<FFmpegExecutor> {
 	}
 	
 	/**
-	 * Set video filter
+	 * Set video filter, a graph longer than {@link #filterScript(int)} is written to a script file and passed
+	 * with {@code -filter_script} or {@code -filter_complex_script} instead.
 	 * 
 	 * @param filters the video filter
 	 * @return the {@link FFmpegExecutor} instance
 	 */
 	public FFmpegExecutor filters( Filters filters ) {
-		return super.cmdWrap( filters.getFilter(), filters );
+		FilterGraph model = filters.graph();
+		String graph = model.toString();
+		String script = FilterScripts.scriptOf( filters.getFilter() );
+		if ( FilterScripts.isComplex( filters.getFilter() ) ) {
+			// Validated against the inputs and maps of the final command before it runs
+			this.graph = model;
+		}
+		String option = Helper.command( filters.getFilter() );
+		if ( script != null ) {
+			filterGraphs.remove( Helper.command( script ) );
+		}
+		filterGraphs.remove( option );
+		if ( script == null || graph.length() <= scriptThreshold ) {
+			filterGraphs.put( option, model );
+			return super.cmdWrap( filters.getFilter(), graph );
+		}
+		filterGraphs.put( Helper.command( script ), model );
+		// Written to the script file when the command is launched, see prepare(List)
+		return super.cmd( script, graph );
+	}
+
+	/**
+	 * Set the graph length above which {@link #filters(Filters)} passes the graph in a script file, it must
+	 * be set before the filters. Default is 16K characters.
+	 * 
+	 * @param threshold the graph length in characters, zero to always use a script file
+	 * @return the {@link FFmpegExecutor} instance
+	 * @since 1.0.1
+	 */
+	public FFmpegExecutor filterScript( int threshold ) {
+		Assert.isTrue( threshold >= 0, "The filter script threshold cannot be negative" );
+		this.scriptThreshold = threshold;
+		return this;
+	}
+
+	/**
+	 * Check the filters, the codecs and the pixel formats of the command against the capabilities of the
+	 * executable before it is launched, see {@link #preflight(CapabilityRegistry)}.
+	 * 
+	 * @return the {@link FFmpegExecutor} instance
+	 * @since 1.0.1
+	 */
+	public FFmpegExecutor preflight() {
+		return preflight( CapabilityRegistry.getDefault() );
+	}
+
+	/**
+	 * Check the filters, the codecs and the pixel formats of the command against the capabilities of the
+	 * executable before it is launched. A filter the executable was built without is replaced by its
+	 * {@link #fallback(String, String)} when there is one, anything else missing fails the job right away,
+	 * instead of failing in ffmpeg after the inputs have been opened.
+	 * 
+	 * @param registry the registry of the capabilities
+	 * @return the {@link FFmpegExecutor} instance
+	 * @since 1.0.1
+	 */
+	public FFmpegExecutor preflight( CapabilityRegistry registry ) {
+		Assert.notNull( registry, "The capability registry cannot be null" );
+		this.registry = registry;
+		return this;
+	}
+
+	/**
+	 * Run the command with the leanest binary of the registry providing all its filters, codecs and pixel
+	 * formats, the one bound to {@link Library#FFMPEG} being one of them, see
+	 * {@link BinaryRegistry#route(Capabilities)}. The binary is chosen once per run.
+	 * 
+	 * @param binaries the registered binaries, or {@code null} to use the bound one
+	 * @return the {@link FFmpegExecutor} instance
+	 * @since 1.0.1
+	 */
+	public FFmpegExecutor route( BinaryRegistry binaries ) {
+		this.binaries = binaries;
+		return this;
+	}
+
+	/**
+	 * Declare the filter used in place of an optional filter when the executable was built without it, such as
+	 * {@code fallback( "lensfun", "null" )}. Only used with {@link #preflight()}.
+	 * 
+	 * @param filter      the name of the optional filter
+	 * @param replacement the rendered replacement filter
+	 * @return the {@link FFmpegExecutor} instance
+	 * @since 1.0.1
+	 */
+	public FFmpegExecutor fallback( String filter, String replacement ) {
+		Assert.notEmpty( filter, "The filter name cannot be empty" );
+		Assert.notEmpty( replacement, "The replacement filter cannot be empty" );
+		this.fallbacks.put( filter, replacement );
+		return this;
+	}
+
+	/**
+	 * Declare the filter used in place of an optional filter when the executable was built without it.
+	 * 
+	 * @param filter      the name of the optional filter
+	 * @param replacement the replacement filter
+	 * @return the {@link FFmpegExecutor} instance
+	 * @since 1.0.1
+	 */
+	public FFmpegExecutor fallback( String filter, AbstractResult<?> replacement ) {
+		Assert.notNull( replacement, "The replacement filter cannot be null" );
+		return fallback( filter, replacement.toString() );
 	}
 
 	/**
@@ -331,16 +473,339 @@ public class FFmpegExecutor extends CommonExecutor<FFmpegExecutor> {
 	}
 
 	/**
-	 * Output video to a file
+	 * Output video to a file, the last output after the ones added by {@link #addOutput(String)}
 	 * 
 	 * @param output the output file path
 	 * @return the {@link FFmpegExecutor} instance
 	 */
 	public String to( String output ) {
-		super.output( output ).execute();
+		if ( addedOutputs > 0 ) {
+			// The other outputs are not cached, so the command always runs to produce them
+			super.output( output, false ).execute();
+			return output;
+		}
+		if ( cache == null ) {
+			super.output( output ).execute();
+			return output;
+		}
+		String executable = getExecutable();
+		String key = cache.keyOf( executable, super.toCommands(), output );
+		if ( key == null ) {
+			super.output( output ).execute( executable, null );
+			return output;
+		}
+		Path target = Paths.get( output );
+		if ( cache.materialize( key, target ) ) {
+			if ( LOG.isInfoEnabled() ) {
+				LOG.info( "Reuse the cached result {} for {}", key, output );
+			}
+			return output;
+		}
+		Path produced = cache.newTempFile( output );
+		try {
+			super.output( produced.toString() ).execute( executable, null );
+			cache.store( key, produced, target );
+		} finally {
+			try {
+				Files.deleteIfExists( produced );
+			} catch ( IOException e ) {
+				// Ignore it
+			}
+		}
 		return output;
 	}
-	
+
+	/**
+	 * Output to a file in the background, the progress is read from {@code -progress pipe:1}.
+	 *
+	 * @param output the output file path
+	 * @return the running job
+	 * @since 1.0.1
+	 */
+	public FFmpegJob submit( String output ) {
+		return watch( output, getExecutable() );
+	}
+
+	private FFmpegJob watch( String output, String executable ) {
+		Assert.notEmpty( output, "The output cannot be empty" );
+		super.progress( "pipe:1" ).noStats();
+		return FFmpegJob.watch( super.output( output ).spawn( executable ), output );
+	}
+
+	/**
+	 * Output to a file in the background, or attach to the identical job that is already running.
+	 *
+	 * @param output  the output file path
+	 * @param flights the running jobs to deduplicate against
+	 * @return the ticket of this caller
+	 * @since 1.0.1
+	 */
+	public SingleFlight.Ticket submit( String output, SingleFlight flights ) {
+		Assert.notNull( flights, "The single flight cannot be null" );
+		String executable = getExecutable();
+		String key = addedOutputs > 0 ? null : flights.keyOf( executable, super.toCommands(), output );
+		if ( key == null ) {
+			// The input could not be identified or the job has other outputs, never share it
+			key = UUID.randomUUID().toString();
+		}
+		return flights.join( key, () -> watch( output, executable ) );
+	}
+
+	/**
+	 * Reuse the results of identical jobs, {@link #to(String)} then skips the command whenever the same
+	 * command has already been run on the same input files, see {@link ResultCache}. A command with outputs
+	 * added by {@link #addOutput(String)} or {@link #addTee(TeeOutput...)} is never cached.
+	 *
+	 * @param cache the result cache, or {@code null} to disable it
+	 * @return the {@link FFmpegExecutor} instance
+	 * @since 1.0.1
+	 */
+	public FFmpegExecutor cache( ResultCache cache ) {
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * Output to the standard output of the process ({@code pipe:1}) and return the running process without
+	 * waiting for it, the caller is responsible for consuming the output and destroying the process.
+	 *
+	 * @return the running ffmpeg process
+	 * @since 1.0.1
+	 */
+	public Process toPipe() {
+		return super.output( "pipe:1" ).spawn();
+	}
+
+	/**
+	 * Add one more output, the options added before it and after the previous output apply to this output.
+	 * Use {@link #start()} to run a command whose outputs have all been added this way.
+	 *
+	 * @param output the output file path or url
+	 * @return the {@link FFmpegExecutor} instance
+	 * @since 1.0.1
+	 */
+	public FFmpegExecutor addOutput( String output ) {
+		this.addedOutputs ++;
+		return super.output( output, false );
+	}
+
+	/**
+	 * Add one more output with its own stream mapping, the options added before it and after the previous
+	 * output apply to this output.
+	 *
+	 * @param output the output file path or url
+	 * @param maps   the streams mapped to this output, e.g. {@code 0:v:0} or a filter graph label
+	 * @return the {@link FFmpegExecutor} instance
+	 * @since 1.0.1
+	 */
+	public FFmpegExecutor addOutput( String output, String ... maps ) {
+		for ( String map : maps ) {
+			super.cmd( "map", map, false );
+		}
+		this.addedOutputs ++;
+		return super.output( output, false );
+	}
+
+	/**
+	 * Encode once and mux the result into several outputs with the {@code tee} muxer, and wait for the
+	 * command to finish. Outputs marked with {@link TeeOutput#ignoreFailure()} may fail without aborting the
+	 * others.
+	 *
+	 * @param outputs the tee outputs
+	 * @return the tee output specification
+	 * @since 1.0.1
+	 */
+	public String tee( TeeOutput ... outputs ) {
+		addTee( outputs ).execute();
+		return teeOf( outputs );
+	}
+
+	/**
+	 * Add a {@code tee} output without running the command, see {@link #tee(TeeOutput...)}.
+	 *
+	 * @param outputs the tee outputs
+	 * @return the {@link FFmpegExecutor} instance
+	 * @since 1.0.1
+	 */
+	public FFmpegExecutor addTee( TeeOutput ... outputs ) {
+		this.addedOutputs ++;
+		return super.cmd( "f", "tee", false ).output( teeOf( outputs ), false );
+	}
+
+	private static String teeOf( TeeOutput ... outputs ) {
+		Assert.notEmpty( outputs, "At least one tee output is required" );
+		return StringUtils.join( outputs, '|' );
+	}
+
+	/**
+	 * Launch the command as it is and return the running process without waiting for it
+	 *
+	 * @return the running ffmpeg process
+	 * @since 1.0.1
+	 */
+	public Process start() {
+		return super.spawn();
+	}
+
+	/**
+	 * Reject a complex filter graph that doesn't fit the inputs and maps of the command before ffmpeg is
+	 * launched.
+	 */
+	@Override
+	protected void verify( List<String> commands ) {
+		FilterGraph checked = registry == null ? graph : preflight( commands );
+		if ( checked == null ) {
+			return;
+		}
+		int inputs = 0;
+		List<String> mapped = new ArrayList<>( 4 );
+		for ( int i = 1, s = commands.size() - 1; i < s; i ++ ) {
+			String command = commands.get( i );
+			if ( INPUT.equals( command ) ) {
+				inputs ++;
+				i ++;
+			} else if ( MAP.equals( command ) ) {
+				String map = commands.get( ++ i );
+				if ( map.startsWith( Const.INPUT_TOKEN_START ) && map.endsWith( Const.INPUT_TOKEN_END ) ) {
+					mapped.add( map.substring( 1, map.length() - 1 ) );
+				}
+			}
+		}
+		checked.validate( inputs, mapped );
+	}
+
+	/**
+	 * Write the graphs passed with a script option to their script files, they are deleted when the process has
+	 * ended.
+	 */
+	@Override
+	protected Runnable prepare( List<String> commands ) {
+		List<Path> scripts = new ArrayList<>( 2 );
+		try {
+			for ( int i = 1, s = commands.size() - 1; i < s; i ++ ) {
+				String option = commands.get( i );
+				if ( option.startsWith( Const.ARG_PREFIX ) && FilterScripts.isScript( option ) ) {
+					Path script = FilterScripts.acquire( commands.get( ++ i ) );
+					commands.set( i, script.toString() );
+					scripts.add( script );
+				}
+			}
+		} catch ( RuntimeException e ) {
+			scripts.forEach( FilterScripts::release );
+			throw e;
+		}
+		return scripts.isEmpty() ? null : () -> scripts.forEach( FilterScripts::release );
+	}
+
+	@Override
+	protected String getExecutable() {
+		if ( binaries == null ) {
+			return super.getExecutable();
+		}
+		Map<Kind, Set<String>> required = requirements();
+		Set<String> filters = new LinkedHashSet<>( 8 );
+		for ( FilterGraph model : filterGraphs.values() ) {
+			filters.addAll( model.getFilterNames() );
+		}
+		required.put( Kind.FILTER, filters );
+		return binaries.route( Capabilities.of( null, null, required ) );
+	}
+
+	/**
+	 * Check the command against the capabilities of its executable, the filters with a fallback are only
+	 * replaced in the command being launched, the executor keeps its own graphs so that every run starts from
+	 * them.
+	 * 
+	 * @param commands the final command, the executable first
+	 * @return the complex graph as it is launched, or {@code null} if there is none
+	 * @throws IllegalArgumentException if the executable lacks a filter, a codec or a pixel format
+	 */
+	private FilterGraph preflight( List<String> commands ) {
+		Capabilities capabilities = registry.get( commands.get( 0 ) );
+		FilterGraph launched = graph;
+		List<String> missing = new ArrayList<>( 2 );
+		for ( Map.Entry<String, FilterGraph> entry : filterGraphs.entrySet() ) {
+			FilterGraph model = entry.getValue(), checked = model;
+			for ( String name : model.getFilterNames() ) {
+				if ( capabilities.hasFilter( name ) ) {
+					continue;
+				}
+				String replacement = fallbacks.get( name );
+				if ( replacement != null && capabilities.hasFilter( StringUtils.substringBefore( StringUtils.substringBefore( replacement, Const.VALUE_SEPARATOR ), "@" ) ) ) {
+					if ( LOG.isWarnEnabled() ) {
+						LOG.warn( "The executable has no \"{}\" filter: \"{}\" -> \"{}\"", name, name, replacement );
+					}
+					checked = checked.replace( name, replacement );
+				} else {
+					missing.add( "filter " + name );
+				}
+			}
+			if ( checked != model ) {
+				int index = commands.indexOf( entry.getKey() );
+				commands.set( index + 1, checked.toString() );
+				if ( model == graph ) {
+					launched = checked;
+				}
+			}
+		}
+		Map<Kind, Set<String>> required = requirements();
+		for ( Kind kind : new Kind [] { Kind.DECODER, Kind.ENCODER, Kind.PIXEL_FORMAT } ) {
+			for ( String name : required.get( kind ) ) {
+				if ( !capabilities.has( kind, name ) ) {
+					missing.add( kind.getName().replace( '_', ' ' ) + " " + name );
+				}
+			}
+		}
+		if ( !missing.isEmpty() ) {
+			throw new IllegalArgumentException( "The " + commands.get( 0 ) + " " + capabilities.getVersion() + " executable has no " + String.join( ", ", missing ) );
+		}
+		return launched;
+	}
+
+	/**
+	 * Collect the codecs and the pixel formats set in the command, a codec is a decoder among the options of an
+	 * input and an encoder among those of an output. The filters are read from the graphs.
+	 * 
+	 * @return the decoders, the encoders and the pixel formats
+	 */
+	private Map<Kind, Set<String>> requirements() {
+		Map<Kind, Set<String>> required = new EnumMap<>( Kind.class );
+		required.put( Kind.DECODER, new LinkedHashSet<>( 2 ) );
+		required.put( Kind.ENCODER, new LinkedHashSet<>( 2 ) );
+		required.put( Kind.PIXEL_FORMAT, new LinkedHashSet<>( 2 ) );
+		collect( required, super.optionsOf( true ), Kind.DECODER );
+		collect( required, super.optionsOf( false ), Kind.ENCODER );
+		return required;
+	}
+
+	private static void collect( Map<Kind, Set<String>> required, List<Argument> options, Kind codecs ) {
+		for ( Argument option : options ) {
+			String key = option.getKey();
+			String value = option.getValue() == null ? null : option.getValue().toString();
+			if ( value == null || CommandTemplate.hasSlot( value ) ) {
+				// Filled in when a compiled template runs, there is nothing to check yet
+				continue;
+			}
+			if ( isCodec( key ) ) {
+				if ( !COPY.equals( value ) ) {
+					required.get( codecs ).add( value );
+				}
+			} else if ( PIX_FMT.equals( key ) || key.startsWith( PIX_FMT + ":" ) ) {
+				required.get( Kind.PIXEL_FORMAT ).add( value );
+			}
+		}
+	}
+
+	/**
+	 * @param option the command option
+	 * @return whether it is {@code -c}, {@code -codec}, {@code -vcodec}, {@code -acodec} or {@code -scodec},
+	 *         with or without a stream specifier
+	 */
+	private static boolean isCodec( String option ) {
+		String name = StringUtils.substringBefore( option, ":" );
+		return name.equals( "-c" ) || name.equals( "-codec" ) || name.equals( "-vcodec" ) || name.equals( "-acodec" ) || name.equals( "-scodec" );
+	}
+
 	@Override
 	protected void usages() {
 		super.usages();
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.executor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An ffmpeg command running in the background, reporting its {@code -progress}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ * @see FFmpegExecutor#submit(String)
+ */
+public final class FFmpegJob {
+
+	private static final Logger LOG = LoggerFactory.getLogger( FFmpegJob.class );
+	private static final AtomicInteger THREADS = new AtomicInteger();
+
+	private final Process process;
+	private final String output;
+	private final CompletableFuture<String> future = new CompletableFuture<>();
+	private final List<Consumer<Map<String, String>>> listeners = new CopyOnWriteArrayList<>();
+
+	private volatile Map<String, String> progress = Collections.emptyMap();
+	private volatile boolean cancelled;
+
+	private FFmpegJob( Process process, String output ) {
+		this.process = process;
+		this.output = output;
+	}
+
+	/**
+	 * Watch a process started with {@code -progress pipe:1}
+	 */
+	static FFmpegJob watch( Process process, String output ) {
+		FFmpegJob job = new FFmpegJob( process, output );
+		Thread thread = new Thread( job::run, "ffmpeg-job-" + THREADS.incrementAndGet() );
+		thread.setDaemon( true );
+		thread.start();
+		return job;
+	}
+
+	public String getOutput() {
+		return output;
+	}
+
+	/**
+	 * @return the future of the output, completing it has no effect on the job
+	 */
+	public CompletableFuture<String> getFuture() {
+		return future.thenApply( result -> result );
+	}
+
+	/**
+	 * @return the latest progress report, empty before the first one
+	 */
+	public Map<String, String> getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Listen to the progress reports, a listener added late receives the latest report at once.
+	 *
+	 * @param listener the progress listener, called on the job thread
+	 * @return the {@link FFmpegJob} instance
+	 */
+	public FFmpegJob onProgress( Consumer<Map<String, String>> listener ) {
+		listeners.add( listener );
+		Map<String, String> latest = progress;
+		if ( !latest.isEmpty() ) {
+			listener.accept( latest );
+		}
+		return this;
+	}
+
+	/**
+	 * Remove a progress listener
+	 *
+	 * @param listener the progress listener
+	 * @return the {@link FFmpegJob} instance
+	 */
+	public FFmpegJob removeProgress( Consumer<Map<String, String>> listener ) {
+		listeners.remove( listener );
+		return this;
+	}
+
+	public boolean isDone() {
+		return future.isDone();
+	}
+
+	/**
+	 * Kill the process, the future completes with a {@link CancellationException}.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+		process.destroy();
+	}
+
+	/**
+	 * Wait for the job to finish
+	 *
+	 * @return the output
+	 */
+	public String await() {
+		try {
+			return future.join();
+		} catch ( CompletionException e ) {
+			throw e.getCause() instanceof RuntimeException ? ( RuntimeException ) e.getCause() : e;
+		}
+	}
+
+	private void run() {
+		try ( BufferedReader reader = new BufferedReader( new InputStreamReader( process.getInputStream(), StandardCharsets.UTF_8 ) ) ) {
+			Map<String, String> report = new LinkedHashMap<>();
+			for ( String line; ( line = reader.readLine() ) != null; ) {
+				int index = line.indexOf( '=' );
+				if ( index > 0 ) {
+					String key = line.substring( 0, index ).trim();
+					report.put( key, line.substring( index + 1 ).trim() );
+					if ( "progress".equals( key ) ) {
+						publish( Collections.unmodifiableMap( report ) );
+						report = new LinkedHashMap<>();
+					}
+				}
+			}
+		} catch ( IOException e ) {
+			LOG.debug( "Progress stream closed: {}", e.getMessage() );
+		}
+		try {
+			int exitCode = process.waitFor();
+			if ( cancelled ) {
+				future.completeExceptionally( new CancellationException( "ffmpeg job was cancelled: " + output ) );
+			} else if ( exitCode != 0 ) {
+				future.completeExceptionally( new RuntimeException( "ffmpeg command exited with code " + exitCode ) );
+			} else {
+				future.complete( output );
+			}
+		} catch ( InterruptedException e ) {
+			process.destroy();
+			future.completeExceptionally( new CancellationException( "ffmpeg job was interrupted" ) );
+		}
+	}
+
+	private void publish( Map<String, String> report ) {
+		this.progress = report;
+		for ( Consumer<Map<String, String>> listener : listeners ) {
+			try {
+				listener.accept( report );
+			} catch ( RuntimeException e ) {
+				LOG.warn( "Progress listener failed", e );
+			}
+		}
+	}
+
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.executor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.common.Const;
+
+/**
+ * Filter graphs too large for the command line, written to script files named by the SHA-256 of the graph and
+ * passed with {@code -filter_script} or {@code -filter_complex_script}. The scripts live in a temporary
+ * directory private to the process, a script is shared by the jobs running the same graph and deleted when the
+ * last of them ends, what is left (the scripts of compiled templates) is deleted when the JVM exits.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+final class FilterScripts {
+
+	private static final Logger LOG = LoggerFactory.getLogger( FilterScripts.class );
+
+	/**
+	 * Graphs longer than this are written to a script file by default, in characters
+	 */
+	static final int DEFAULT_THRESHOLD = 16 * 1024;
+
+	/**
+	 * The number of running jobs using each script
+	 */
+	private static final Map<Path, Integer> USERS = new ConcurrentHashMap<>( 8 );
+
+	// Don't let anyone instantiate this class
+	private FilterScripts() {}
+
+	/**
+	 * @param filter the filter option, such as {@code vf} or {@code filter_complex}
+	 * @return the script option taking the same graph from a file, or {@code null} if there is none
+	 */
+	static String scriptOf( String filter ) {
+		switch ( filter ) {
+			case "vf":
+			case "filter:v":
+				return "filter_script:v";
+			case "af":
+			case "filter:a":
+				return "filter_script:a";
+			case "filter":
+				return "filter_script";
+			case "filter_complex":
+			case "lavfi":
+				return "filter_complex_script";
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @param filter the filter option
+	 * @return whether the option takes a complex filter graph
+	 */
+	static boolean isComplex( String filter ) {
+		return "filter_complex".equals( filter ) || "lavfi".equals( filter );
+	}
+
+	/**
+	 * @param option the command option, such as {@code -filter_complex_script}
+	 * @return whether the option takes a script file
+	 */
+	static boolean isScript( String option ) {
+		return option.endsWith( "_script" ) || option.contains( "_script:" );
+	}
+
+	/**
+	 * Write the graph to its script file unless it's already there, the script is kept until it's released by
+	 * every job that acquired it.
+	 *
+	 * @param graph the rendered filter graph
+	 * @return the script file
+	 */
+	static Path acquire( String graph ) {
+		byte [] content = graph.getBytes( StandardCharsets.UTF_8 );
+		String hash = hash( content );
+		Path script = Directory.PATH.resolve( hash + ".txt" );
+		USERS.compute( script, ( path, users ) -> {
+			try {
+				if ( users != null && Files.isRegularFile( script ) && hash.equals( hash( Files.readAllBytes( script ) ) ) ) {
+					if ( LOG.isDebugEnabled() ) {
+						LOG.debug( "Reuse the filter script {} for a graph of {} chars", hash, graph.length() );
+					}
+					return users + 1;
+				}
+				Path temp = Files.createTempFile( Directory.PATH, hash, ".tmp" );
+				try {
+					Files.write( temp, content );
+					try {
+						Files.move( temp, script, StandardCopyOption.ATOMIC_MOVE );
+					} catch ( AtomicMoveNotSupportedException e ) {
+						Files.move( temp, script, StandardCopyOption.REPLACE_EXISTING );
+					}
+				} finally {
+					Files.deleteIfExists( temp );
+				}
+				if ( LOG.isInfoEnabled() ) {
+					LOG.info( "Write the filter script {} for a graph of {} chars", hash, graph.length() );
+				}
+				return users == null ? 1 : users + 1;
+			} catch ( IOException e ) {
+				throw new UncheckedIOException( "Failed to write the filter script " + hash, e );
+			}
+		} );
+		return script;
+	}
+
+	/**
+	 * Release a script acquired by a job that has ended, it's deleted when no other job uses it.
+	 *
+	 * @param script the script file
+	 */
+	static void release( Path script ) {
+		USERS.computeIfPresent( script, ( path, users ) -> {
+			if ( users > 1 ) {
+				return users - 1;
+			}
+			delete( script );
+			return null;
+		} );
+	}
+
+	private static void delete( Path file ) {
+		try {
+			Files.deleteIfExists( file );
+		} catch ( IOException e ) {
+			if ( LOG.isWarnEnabled() ) {
+				LOG.warn( "Failed to delete the filter script {}", file, e );
+			}
+		}
+	}
+
+	private static String hash( byte [] content ) {
+		try {
+			byte [] bytes = MessageDigest.getInstance( "SHA-256" ).digest( content );
+			StringBuilder builder = new StringBuilder( bytes.length * 2 );
+			for ( byte b : bytes ) {
+				builder.append( Character.forDigit( ( b >> 4 ) & 0xf, 16 ) ).append( Character.forDigit( b & 0xf, 16 ) );
+			}
+			return builder.toString();
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	/**
+	 * The script directory, only readable by the current user, created on first use and deleted with its
+	 * scripts when the JVM exits
+	 */
+	private static final class Directory {
+
+		static final Path PATH = create();
+
+		private static Path create() {
+			try {
+				Path temp = Paths.get( Const.TEMP_PATH );
+				Path directory = FileSystems.getDefault().supportedFileAttributeViews().contains( "posix" )
+						? Files.createTempDirectory( temp, "ffmpeg-filters", PosixFilePermissions.asFileAttribute( PosixFilePermissions.fromString( "rwx------" ) ) )
+						: Files.createTempDirectory( temp, "ffmpeg-filters" );
+				Runtime.getRuntime().addShutdownHook( new Thread( () -> {
+					try ( Stream<Path> scripts = Files.list( directory ) ) {
+						scripts.forEach( FilterScripts::delete );
+					} catch ( IOException e ) {
+						// Ignore it
+					}
+					delete( directory );
+				}, "ffmpeg-filter-scripts" ) );
+				return directory;
+			} catch ( IOException e ) {
+				throw new UncheckedIOException( "Failed to create the filter script directory", e );
+			}
+		}
+
+	}
+
+}
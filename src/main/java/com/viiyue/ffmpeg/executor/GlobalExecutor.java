@@ -42,7 +42,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @return the current subclass instance
 	 */
 	public T logLevel( LogLevel level ) {
-		return super.cmd( "v", level.getName() );
+		return super.global( "v", level.getName() );
 	}
 
 	/**
@@ -62,7 +62,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @return the current subclass instance
 	 */
 	public T report() {
-		return super.cmd( "report" );
+		return super.global( "report" );
 	}
 	
 	/**
@@ -85,7 +85,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T maxAllo( int value ) {
-		return super.cmd( "max_allo", value );
+		return super.global( "max_allo", value );
 	}
 	
 	/**
@@ -105,7 +105,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T override( boolean value ) {
-		return super.cmd( value ? "y" : "n" );
+		return super.global( value ? "y" : "n" );
 	}
 	
 	/**
@@ -167,7 +167,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @return the current subclass instance
 	 */
 	public T filterThreads( int value ) {
-		return super.cmd( "filter_threads", value );
+		return super.global( "filter_threads", value );
 	}
 
 	/**
@@ -178,7 +178,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T filterComplexThreads( int value ) {
-		return super.cmd( "filter_complex_threads", value );
+		return super.global( "filter_complex_threads", value );
 	}
 
 	/**
@@ -187,7 +187,28 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @return the current subclass instance
 	 */
 	public T stats() {
-		return super.cmd( "stats" );
+		return super.global( "stats" );
+	}
+
+	/**
+	 * Disable the progress report during encoding
+	 * 
+	 * @return the current subclass instance
+	 * @since 1.0.1
+	 */
+	public T noStats() {
+		return super.global( "nostats" );
+	}
+
+	/**
+	 * Send program-friendly progress information to the url, such as {@code pipe:1}
+	 * 
+	 * @param url the progress url
+	 * @return the current subclass instance
+	 * @since 1.0.1
+	 */
+	public T progress( String url ) {
+		return super.global( "progress", url );
 	}
 
 	/**
@@ -198,7 +219,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @return the current subclass instance
 	 */
 	public T maxErrorRate( double value ) {
-		return super.cmd( "max_error_rate", value );
+		return super.global( "max_error_rate", value );
 	}
 
 	/**
@@ -233,7 +254,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T cpuFlags( CpuFlag ... flags ) {
-		return super.cmd( "cpuflags", Helper.expandFlags( flags ) );
+		return super.global( "cpuflags", Helper.expandFlags( flags ) );
 	}
 	
 	/**
@@ -243,7 +264,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T hideBanner() {
-		return super.cmd( "hide_banner" );
+		return super.global( "hide_banner" );
 	}
 	
 	/**
@@ -271,7 +292,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T standardInput() {
-		return super.cmd( "stdin" );
+		return super.global( "stdin" );
 	}
 	
 	/**
@@ -288,7 +309,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T noStandardInput() {
-		return super.cmd( "nostdin" );
+		return super.global( "nostdin" );
 	}
 	
 	/**
@@ -299,7 +320,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T timeLimit( double value ) {
-		return super.cmd( "timelimit", value );
+		return super.global( "timelimit", value );
 	}
 	
 	/**
@@ -309,7 +330,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T dump() {
-		return super.cmd( "dump" );
+		return super.global( "dump" );
 	}
 	
 	/**
@@ -319,7 +340,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T hex() {
-		return super.cmd( "hex" );
+		return super.global( "hex" );
 	}
 	
 	/**
@@ -330,7 +351,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T vsync( double value ) {
-		return super.cmd( "vsync", value );
+		return super.global( "vsync", value );
 	}
 	
 	/**
@@ -341,7 +362,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T async( double value ) {
-		return super.cmd( "async", value );
+		return super.global( "async", value );
 	}
 	
 	/**
@@ -354,7 +375,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T frameDropThreshold( double value ) {
-		return super.cmd( "frame_drop_threshold", value );
+		return super.global( "frame_drop_threshold", value );
 	}
 	
 	/**
@@ -367,7 +388,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T adriftThresholdThreshold( double value ) {
-		return super.cmd( "adrift_threshold threshold", value );
+		return super.global( "adrift_threshold threshold", value );
 	}
 	
 	/**
@@ -385,7 +406,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T copyts( double value ) {
-		return super.cmd( "copyts", value );
+		return super.global( "copyts", value );
 	}
 	
 	/**
@@ -401,7 +422,7 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 	 * @since 1.0.1
 	 */
 	public T startAtZero() {
-		return super.cmd( "start_at_zero" );
+		return super.global( "start_at_zero" );
 	}
 
 	@Override
@@ -416,6 +437,8 @@ public abstract class GlobalExecutor<T extends AbstractExecutor<?>> extends Abst
 		super.usage( "filter_threads", this::filterThreads, "Number of non-complex filter threads" );
 		super.usage( "filter_complex_threads", this::filterComplexThreads, "Number of threads for -filter_complex" );
 		super.usage( "stats", this::stats, "Print progress report during encoding" );
+		super.usage( "nostats", this::noStats, "Do not print progress report during encoding" );
+		super.usage( "progress", this::progress, "Write program-readable progress information" );
 		super.usage( "max_error_rate", this::maxErrorRate, "Set fraction of decoding frame failures across all inputs" );
 		super.usage( "bits_per_raw_sample", this::bitPreRawSampe, "Set the number of bits per raw sample" );
 		super.usage( "vol", this::volume, "Change audio volume (256=normal)" );
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.executor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * One output of the {@code tee} muxer, the streams are encoded once and muxed into every output.
+ *
+ * <pre>
+ * FFmpegExecutor.build().input( "input.mp4" ).map( "0" ).vcodec( "libx264" ).tee(
+ *     TeeOutput.to( "archive.mp4" ),
+ *     TeeOutput.to( "hls/index.m3u8" ).format( "hls" ).option( "hls_time", 4 )
+ * );
+ * </pre>
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class TeeOutput {
+
+	private final String url;
+	private final Map<String, Object> options = new LinkedHashMap<>( 8 );
+
+	private TeeOutput( String url ) {
+		this.url = url;
+	}
+
+	/**
+	 * @param url the output file path or url
+	 * @return the {@link TeeOutput} instance
+	 */
+	public static final TeeOutput to( String url ) {
+		Assert.notEmpty( url, "The tee output cannot be empty" );
+		return new TeeOutput( url );
+	}
+
+	/**
+	 * Set the output format, it is guessed from the file extension by default.
+	 *
+	 * @param format the format name
+	 * @return the {@link TeeOutput} instance
+	 */
+	public TeeOutput format( String format ) {
+		return option( "f", format );
+	}
+
+	/**
+	 * Only mux the streams matching the specifier into this output
+	 *
+	 * @param specifier the stream specifier, e.g. {@code v} or {@code 0:a:0}
+	 * @return the {@link TeeOutput} instance
+	 */
+	public TeeOutput select( String specifier ) {
+		return option( "select", specifier );
+	}
+
+	/**
+	 * Apply bitstream filters to the streams of this output
+	 *
+	 * @param specifier the stream specifier, or {@code null} for all streams
+	 * @param filters   the bitstream filters, separated by commas
+	 * @return the {@link TeeOutput} instance
+	 */
+	public TeeOutput bsfs( String specifier, String filters ) {
+		return option( specifier == null ? "bsfs" : "bsfs/" + specifier, filters );
+	}
+
+	/**
+	 * Keep the other outputs running when this one fails ({@code onfail=ignore})
+	 *
+	 * @return the {@link TeeOutput} instance
+	 */
+	public TeeOutput ignoreFailure() {
+		return option( "onfail", "ignore" );
+	}
+
+	/**
+	 * Mux this output on its own thread behind a queue ({@code use_fifo=1}), so that a slow sink does not
+	 * stall the encoder and the other outputs.
+	 *
+	 * @return the {@link TeeOutput} instance
+	 */
+	public TeeOutput useFifo() {
+		return option( "use_fifo", 1 );
+	}
+
+	/**
+	 * Set a muxer option of this output, such as {@code hls_time} or {@code movflags}
+	 *
+	 * @param key   the option name
+	 * @param value the option value
+	 * @return the {@link TeeOutput} instance
+	 */
+	public TeeOutput option( String key, Object value ) {
+		Assert.notEmpty( key, "The tee option name cannot be empty" );
+		Assert.notNull( value, "The tee option value cannot be null" );
+		this.options.put( key, value );
+		return this;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * The options are parsed by ffmpeg twice (once to split the outputs, once to split the options), so their
+	 * special characters are escaped twice, and the url once.
+	 */
+	@Override
+	public String toString() {
+		String output = escape( url, "\\'|[" );
+		if ( options.isEmpty() ) {
+			return output;
+		}
+		StringJoiner joiner = new StringJoiner( ":", "[", "]" );
+		options.forEach( ( key, value ) -> {
+			joiner.add( key + "=" + escape( escape( String.valueOf( value ), "\\':=]" ), "\\'|[]" ) );
+		} );
+		return joiner.toString() + output;
+	}
+
+	private static String escape( String value, String specials ) {
+		StringBuilder builder = null;
+		for ( int i = 0, length = value.length(); i < length; i ++ ) {
+			char c = value.charAt( i );
+			if ( specials.indexOf( c ) >= 0 ) {
+				if ( builder == null ) {
+					builder = new StringBuilder( length + 8 ).append( value, 0, i );
+				}
+				builder.append( '\\' );
+			}
+			if ( builder != null ) {
+				builder.append( c );
+			}
+		}
+		return builder == null ? value : builder.toString();
+	}
+
+}
@@ -23,12 +23,13 @@ import java.util.StringJoiner;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.StringUtils;
 
 import com.viiyue.ffmpeg.annotation.Function;
 import com.viiyue.ffmpeg.common.AbstractEnum;
 import com.viiyue.ffmpeg.common.Const;
+import com.viiyue.ffmpeg.util.Assert;
 import com.viiyue.ffmpeg.util.Helper;
+import com.viiyue.ffmpeg.util.Metadata;
 
 /**
  * Abstract filter function
@@ -43,6 +44,7 @@ public abstract class AbstractFunction<T extends AbstractFunction<?>> extends Ab
 
 	private boolean basicOnly = true;
 	private Map<String, Object> basically;
+	private volatile String frozen;
 
 	private final String separator;
 	private final HashMap<String, Object> args = new LinkedHashMap<String, Object>( 8 ) {
@@ -98,6 +100,10 @@ public abstract class AbstractFunction<T extends AbstractFunction<?>> extends Ab
 	protected String getFunName() {
 		Class<? extends AbstractFunction<?>> clazz = ( Class<? extends AbstractFunction<?>> ) getClass();
 		return funNames.computeIfAbsent( clazz, key -> {
+			String name = Metadata.getFunction( clazz );
+			if ( name != null ) {
+				return name;
+			}
 			Function function = clazz.getAnnotation( Function.class );
 			return function == null ? null : function.value();
 		} );
@@ -177,6 +183,7 @@ public abstract class AbstractFunction<T extends AbstractFunction<?>> extends Ab
 	 * @return the current instance reference
 	 */
 	protected T addArg2( String argName, String separator, Object ... values ) {
+		Assert.isFalse( isFrozen(), "The frozen filter cannot be changed" );
 		if ( basicOnly ) {
 			this.basicOnly = false;
 			if ( this.basically != null ) {
@@ -188,9 +195,9 @@ public abstract class AbstractFunction<T extends AbstractFunction<?>> extends Ab
 		} else if ( values.length == 1 ) {
 			this.args.put( argName, values[ 0 ] );
 		} else {
-			this.args.put( argName, Helper.expandAll( separator, Helper::toValue, values ) );
+			this.args.put( argName, Helper.join( separator, values ) );
 		}
-		return ( T ) this;
+		return self();
 	}
 
 	/**
@@ -202,11 +209,12 @@ public abstract class AbstractFunction<T extends AbstractFunction<?>> extends Ab
 	 * @return the current instance reference
 	 */
 	protected T addBaseArg( String argName, Object value ) {
+		Assert.isFalse( isFrozen(), "The frozen filter cannot be changed" );
 		if ( this.basically == null ) {
 			this.basically = new LinkedHashMap<String, Object>( 4 );
 		}
 		this.basically.put( argName, value );
-		return ( T ) this;
+		return self();
 	}
 
 	/**
@@ -233,30 +241,131 @@ public abstract class AbstractFunction<T extends AbstractFunction<?>> extends Ab
 		return joiner;
 	}
 
+	/**
+	 * Let the subclass provide the values that follow the arguments without parameter names, {@code null}
+	 * values are skipped. They are read on every rendering, so the subclass can keep them in its own fields.
+	 * 
+	 * @return the trailing values, or {@code null} if there are none
+	 * @since 1.0.1
+	 */
+	protected Object [] getValues() {
+		return null;
+	}
+
+	/**
+	 * <p>
+	 * Render the filter once and keep the result, every later rendering returns the cached string, so a
+	 * constant filter can be kept in a static field and shared by any number of threads and jobs.
+	 * 
+	 * <p>
+	 * The arguments of a frozen filter cannot be changed anymore, values kept by the subclass itself are
+	 * ignored once it is frozen.
+	 * 
+	 * <pre>
+	 * private static final Scale HD = Scale.to( 1280, 720 ).freeze();
+	 * </pre>
+	 * 
+	 * @return the current instance reference
+	 * @since 1.0.1
+	 */
+	public T freeze() {
+		if ( this.frozen == null ) {
+			this.frozen = Renderer.render( this::render );
+		}
+		return self();
+	}
+
+	/**
+	 * @return whether the filter has been frozen by {@link #freeze()}
+	 * @since 1.0.1
+	 */
+	public boolean isFrozen() {
+		return this.frozen != null;
+	}
+
+	/**
+	 * Rendering has no side effect on the instance, so the same filter can be rendered any number of times
+	 * and from several threads as long as nobody changes it at the same time.
+	 */
 	@Override
 	protected String getResult() {
-		if ( basicOnly ) {
-			this.basicOnly = false;
-			if ( this.basically != null ) {
-				this.addValues( this.basically.values().toArray() );
-			}
-		}
+		String result = this.frozen;
+		return result == null ? Renderer.render( this::render ) : result;
+	}
 
+	/**
+	 * Write the function and its arguments without any intermediate string, the basic arguments are written
+	 * as plain values when there are no other arguments, otherwise with their names.
+	 * 
+	 * <pre>
+	 * function
+	 * arg1=value1:arg2=value2...
+	 * function=arg1=value1:arg2=value2...
+	 * </pre>
+	 * 
+	 * @param builder the target builder
+	 */
+	private void render( StringBuilder builder ) {
 		String funName = getFunName();
+		int start = builder.length();
+		if ( funName != null ) {
+			builder.append( funName ).append( Const.VALUE_SEPARATOR );
+		}
+		String [] wrapper = getArgWrapper();
+		builder.append( wrapper[ 0 ] );
+
+		Object [] values = getValues();
+		boolean first = true;
+		if ( this.basicOnly && this.basically != null ) {
+			boolean named = ArrayUtils.isNotEmpty( values );
+			for ( Map.Entry<String, Object> arg : this.basically.entrySet() ) {
+				first = appendArg( builder, named ? arg.getKey() : null, Helper.toValue( arg.getValue() ), first );
+			}
+		}
+		for ( Map.Entry<String, Object> arg : this.args.entrySet() ) {
+			String argName = arg.getKey();
+			first = appendArg( builder, Helper.isNullKey( argName ) ? null : argName, arg.getValue(), first );
+		}
+		if ( values != null ) {
+			for ( Object value : values ) {
+				first = appendArg( builder, null, Helper.toValue( value ), first );
+			}
+		}
 
 		// output -> function
-		if ( this.args.isEmpty() ) {
-			return StringUtils.defaultString( funName );
+		if ( first ) {
+			builder.setLength( funName == null ? start : start + funName.length() );
+			return;
 		}
+		builder.append( wrapper[ 1 ] );
+	}
 
-		// output -> arg1=value1:arg2=value2...
-		StringJoiner arguments = getArguments();
-		if ( funName == null ) {
-			return arguments.toString();
+	/**
+	 * @param argName the parameter name, or {@code null} for a plain value
+	 * @param value   the converted value, a named parameter without value is written as a flag
+	 * @param first   whether nothing has been written yet
+	 * @return whether nothing has been written yet
+	 */
+	private boolean appendArg( StringBuilder builder, String argName, Object value, boolean first ) {
+		if ( argName == null && value == null ) {
+			return first;
 		}
+		if ( !first ) {
+			builder.append( separator );
+		}
+		if ( argName != null ) {
+			builder.append( argName );
+			if ( value == null ) {
+				return false;
+			}
+			builder.append( Const.VALUE_SEPARATOR );
+		}
+		builder.append( value );
+		return false;
+	}
 
-		// output -> function=arg1=value1:arg2=value2...
-		return funName + Const.VALUE_SEPARATOR + arguments;
+	private T self() {
+		return ( T ) this;
 	}
 
 }
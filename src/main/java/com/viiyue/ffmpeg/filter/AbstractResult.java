@@ -24,6 +24,16 @@ public abstract class AbstractResult<T extends AbstractResult<?>> {
 
 	protected abstract String getResult();
 
+	/**
+	 * Append the rendered result to the builder, such as the chain or the graph being rendered
+	 * 
+	 * @param builder the target builder
+	 * @since 1.0.1
+	 */
+	public void appendTo( StringBuilder builder ) {
+		builder.append( getResult() );
+	}
+
 	@Override
 	public final String toString() {
 		return getResult();
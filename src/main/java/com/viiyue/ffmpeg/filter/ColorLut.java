@@ -0,0 +1,696 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.common.Const;
+import com.viiyue.ffmpeg.enums.PixelFormat;
+import com.viiyue.ffmpeg.executor.FFmpegExecutor;
+import com.viiyue.ffmpeg.filter.video.Lut3d;
+import com.viiyue.ffmpeg.frame.FrameReader;
+import com.viiyue.ffmpeg.frame.RawFrame;
+import com.viiyue.ffmpeg.util.Assert;
+import com.viiyue.ffmpeg.util.Helper;
+
+/**
+ * Collapse runs of colour filters such as {@code eq,colorbalance,hue} into a single {@link Lut3d}, evaluated
+ * once in Java over a lattice of colours, so that ffmpeg runs one lookup instead of one pass per filter. Every
+ * lookup is checked by ffmpeg itself: sample frames are rendered through the original filters and through the
+ * lookup, and the lookup is only used when their pixels differ by no more than {@link #maxError(double)}.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class ColorLut {
+
+	private static final Logger LOG = LoggerFactory.getLogger( ColorLut.class );
+
+	// Every 8 bit colour once, in a single 4096x4096 frame
+	private static final String ALL_COLORS = "allrgb";
+	private static final int ALL_COLORS_SIZE = 4096;
+
+	private final int size;
+	private double maxError = 2;
+	private String sample;
+	private int sampleWidth = ALL_COLORS_SIZE;
+	private int sampleHeight = ALL_COLORS_SIZE;
+	private int sampleFrames = 1;
+	private Path directory = Paths.get( Helper.fixPath( Const.TEMP_PATH ), "ffmpeg-luts" );
+
+	private ColorLut( int size ) {
+		this.size = size;
+	}
+
+	/**
+	 * Create a collapser with the given lattice size, 33 is accurate for most grading chains and 65 for
+	 * strong curves.
+	 *
+	 * @param size the number of points on each axis of the lattice
+	 * @return the {@link ColorLut} instance
+	 */
+	public static final ColorLut of( int size ) {
+		Assert.rangeCheck( size, 2, 256 );
+		return new ColorLut( size );
+	}
+
+	/**
+	 * Set the directory of the cube files, default is {@code ffmpeg-luts} in the temp directory
+	 *
+	 * @param directory the cube directory
+	 * @return the {@link ColorLut} instance
+	 */
+	public ColorLut directory( Path directory ) {
+		Assert.notNull( directory, "The cube directory cannot be null" );
+		this.directory = directory;
+		return this;
+	}
+
+	/**
+	 * Set the largest difference allowed between a lookup and the filters it replaces, default is 2 levels
+	 *
+	 * @param levels the maximum error in 8 bit levels
+	 * @return the {@link ColorLut} instance
+	 */
+	public ColorLut maxError( double levels ) {
+		Assert.isTrue( levels >= 0, "The maximum error cannot be negative" );
+		this.maxError = levels;
+		return this;
+	}
+
+	/**
+	 * Set the source of the frames the lookups are checked on, default is one frame of the {@code allrgb} test
+	 * source, which has every 8 bit colour once
+	 *
+	 * @param input  the sample input, such as the source the filters are meant for
+	 * @param width  the width the frames are compared at
+	 * @param height the height the frames are compared at
+	 * @param frames the number of frames compared
+	 * @return the {@link ColorLut} instance
+	 */
+	public ColorLut sample( String input, int width, int height, int frames ) {
+		Assert.notEmpty( input, "The sample input cannot be empty" );
+		Assert.isTrue( width > 0 && height > 0, "The sample size must be greater than 0" );
+		Assert.isTrue( frames > 0, "The number of sample frames must be greater than 0" );
+		this.sample = input;
+		this.sampleWidth = width;
+		this.sampleHeight = height;
+		this.sampleFrames = frames;
+		return this;
+	}
+
+	/**
+	 * Replace every run of at least two colour filters in the chains of the filters with a {@link Lut3d}, a run
+	 * whose lookup differs from it by more than {@link #maxError(double)} when ffmpeg renders the samples is kept
+	 * as it is. The {@code ffmpeg} library must be bound, see {@link #sample(String, int, int, int)}.
+	 *
+	 * @param filters the filters to rewrite in place
+	 * @return the collapsed runs
+	 * @throws UncheckedIOException if ffmpeg failed to render the samples
+	 */
+	public List<Collapse> collapse( Filters filters ) {
+		Assert.notNull( filters, "The filters cannot be null" );
+		List<Collapse> collapses = new ArrayList<>();
+		for ( Stream stream : filters.getStreams() ) {
+			String body = stream.body();
+			if ( body.indexOf( Const.INPUT_TOKEN_START ) >= 0 ) {
+				continue;
+			}
+			List<FilterNode> chain = FilterNode.parse( body );
+			List<String> result = new ArrayList<>( chain.size() );
+			boolean changed = false;
+			for ( int i = 0; i < chain.size(); ) {
+				List<Transform> run = new ArrayList<>( 4 );
+				int end = i;
+				for ( Transform transform; end < chain.size() && ( transform = transformOf( chain.get( end ) ) ) != null; end ++ ) {
+					run.add( transform );
+				}
+				if ( run.size() < 2 ) {
+					result.add( chain.get( i ).text );
+					i ++;
+					continue;
+				}
+				Collapse collapse = build( FilterNode.render( chain.subList( i, end ) ), run );
+				if ( collapse == null ) {
+					for ( ; i < end; i ++ ) {
+						result.add( chain.get( i ).text );
+					}
+					continue;
+				}
+				result.add( collapse.lookup );
+				collapses.add( collapse );
+				changed = true;
+				i = end;
+			}
+			if ( changed ) {
+				stream.rewrite( result );
+			}
+		}
+		return collapses;
+	}
+
+	private Collapse build( String chain, List<Transform> transforms ) {
+		float [] lattice = new float[ size * size * size * 3 ];
+		double [] rgb = new double[ 3 ];
+		double step = 1.0 / ( size - 1 );
+		for ( int b = 0, i = 0; b < size; b ++ ) {
+			for ( int g = 0; g < size; g ++ ) {
+				for ( int r = 0; r < size; r ++ ) {
+					rgb[ 0 ] = r * step;
+					rgb[ 1 ] = g * step;
+					rgb[ 2 ] = b * step;
+					apply( transforms, rgb );
+					lattice[ i ++ ] = ( float ) rgb[ 0 ];
+					lattice[ i ++ ] = ( float ) rgb[ 1 ];
+					lattice[ i ++ ] = ( float ) rgb[ 2 ];
+				}
+			}
+		}
+		Path cube = write( chain, lattice );
+		String lookup = Lut3d.file( Helper.escape( cube.toString(), false ) ).interp( Lut3d.Interpolation.TRILINEAR ).toString();
+		double error = measure( chain, lookup );
+		if ( error > maxError ) {
+			if ( LOG.isWarnEnabled() ) {
+				LOG.warn( "Keep \"{}\", the lookup differs by up to {} levels", chain, String.format( Locale.ENGLISH, "%.0f", error ) );
+			}
+			try {
+				Files.deleteIfExists( cube );
+			} catch ( IOException e ) {
+				// Ignore it
+			}
+			return null;
+		}
+		if ( LOG.isInfoEnabled() ) {
+			LOG.info( "Collapse \"{}\" into {} with a max error of {} levels", chain, cube.getFileName(), String.format( Locale.ENGLISH, "%.0f", error ) );
+		}
+		return new Collapse( chain, cube, lookup, error );
+	}
+
+	/**
+	 * Render the samples through the filters and through their lookup with ffmpeg
+	 *
+	 * @param chain  the filters
+	 * @param lookup the lut3d filter replacing them
+	 * @return the largest difference between the pixels of the two renderings, in 8 bit levels
+	 */
+	private double measure( String chain, String lookup ) {
+		try ( FrameReader expected = render( chain ); FrameReader actual = render( lookup ) ) {
+			RawFrame left = expected.newFrame(), right = actual.newFrame();
+			int error = 0;
+			while ( expected.read( left ) ) {
+				if ( !actual.read( right ) ) {
+					throw new IOException( "The lookup rendered " + actual.getCount() + " frames, the filters " + expected.getCount() );
+				}
+				byte [] a = left.getData(), b = right.getData();
+				for ( int i = 0, s = left.getSize(); i < s; i ++ ) {
+					error = Math.max( error, Math.abs( ( a[ i ] & 0xff ) - ( b[ i ] & 0xff ) ) );
+				}
+			}
+			if ( actual.read( right ) ) {
+				throw new IOException( "The lookup rendered more frames than the filters" );
+			}
+			return error;
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( "Failed to render the samples of \"" + chain + "\"", e );
+		}
+	}
+
+	private FrameReader render( String chain ) {
+		FFmpegExecutor executor = FFmpegExecutor.build();
+		if ( sample == null ) {
+			executor.cmd( "f", "lavfi", false ).cmd( "i", ALL_COLORS, false );
+		} else {
+			executor.input( sample );
+		}
+		executor.filters( Filters.simple().add( "format=rgb24", chain ).over() ).cmd( "frames:v", sampleFrames, false );
+		return FrameReader.open( executor, sampleWidth, sampleHeight, PixelFormat.RGB24 );
+	}
+
+	private Path write( String chain, float [] lattice ) {
+		String hash = hash( chain + "\n" + size );
+		Path cube = directory.resolve( hash + ".cube" );
+		if ( Files.isRegularFile( cube ) ) {
+			return cube;
+		}
+		try {
+			Files.createDirectories( directory );
+			Path temp = Files.createTempFile( directory, hash, ".tmp" );
+			try {
+				try ( BufferedWriter writer = Files.newBufferedWriter( temp, StandardCharsets.US_ASCII ) ) {
+					writer.write( "TITLE \"" + hash.substring( 0, 12 ) + "\"\n" );
+					writer.write( "LUT_3D_SIZE " + size + "\n" );
+					StringBuilder line = new StringBuilder( 32 );
+					for ( int i = 0; i < lattice.length; i += 3 ) {
+						line.setLength( 0 );
+						fixed( line, lattice[ i ] ).append( ' ' );
+						fixed( line, lattice[ i + 1 ] ).append( ' ' );
+						fixed( line, lattice[ i + 2 ] ).append( '\n' );
+						writer.append( line );
+					}
+				}
+				try {
+					Files.move( temp, cube, StandardCopyOption.ATOMIC_MOVE );
+				} catch ( AtomicMoveNotSupportedException e ) {
+					Files.move( temp, cube, StandardCopyOption.REPLACE_EXISTING );
+				}
+			} finally {
+				Files.deleteIfExists( temp );
+			}
+			return cube;
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( "Failed to write the cube file " + cube, e );
+		}
+	}
+
+	/**
+	 * Append a value of [0, 1] with six decimals, much cheaper than formatting hundreds of thousands of lines
+	 */
+	private static StringBuilder fixed( StringBuilder builder, float value ) {
+		long micros = Math.round( value * 1e6 );
+		builder.append( micros / 1000000 ).append( '.' );
+		String fraction = Long.toString( micros % 1000000 );
+		for ( int i = fraction.length(); i < 6; i ++ ) {
+			builder.append( '0' );
+		}
+		return builder.append( fraction );
+	}
+
+	private static void apply( List<Transform> transforms, double [] rgb ) {
+		for ( Transform transform : transforms ) {
+			transform.apply( rgb );
+			rgb[ 0 ] = clip( rgb[ 0 ] );
+			rgb[ 1 ] = clip( rgb[ 1 ] );
+			rgb[ 2 ] = clip( rgb[ 2 ] );
+		}
+	}
+
+	private static String hash( String value ) {
+		try {
+			byte [] bytes = MessageDigest.getInstance( "SHA-256" ).digest( value.getBytes( StandardCharsets.UTF_8 ) );
+			StringBuilder builder = new StringBuilder( bytes.length * 2 );
+			for ( byte b : bytes ) {
+				builder.append( Character.forDigit( ( b >> 4 ) & 0xf, 16 ) ).append( Character.forDigit( b & 0xf, 16 ) );
+			}
+			return builder.toString();
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	/**
+	 * @param node a filter of a chain
+	 * @return the colour transform of the filter, or {@code null} if it's not a function of the pixel colour
+	 */
+	static Transform transformOf( FilterNode node ) {
+		Map<String, String> options = node.options();
+		switch ( node.name ) {
+			case "eq":
+				return eq( node, options );
+			case "hue":
+				return hue( node, options );
+			case "colorbalance":
+				return only( options, "rs", "gs", "bs", "rm", "gm", "bm", "rh", "gh", "bh", "pl" ) && node.number( "pl", 0 ) == 0
+						? colorBalance( node ) : null;
+			case "vibrance":
+				return only( options, "intensity", "rbal", "gbal", "bbal", "rlum", "glum", "blum", "alternate" ) ? vibrance( node ) : null;
+			case "colorchannelmixer":
+				return channelMixer( node, options );
+			case "exposure":
+				return only( options, "exposure", "black" ) ? exposure( node ) : null;
+			case "curves":
+				return curves( options );
+			default:
+				return null;
+		}
+	}
+
+	private static Transform eq( FilterNode node, Map<String, String> options ) {
+		if ( !only( options, "contrast", "brightness", "saturation", "gamma", "gamma_r", "gamma_g", "gamma_b", "gamma_weight", "eval" ) ) {
+			return null;
+		}
+		String eval = options.get( "eval" );
+		if ( eval != null && !"init".equals( eval ) && !"0".equals( eval ) ) {
+			return null;
+		}
+		if ( node.number( "gamma_r", 1 ) != 1 || node.number( "gamma_g", 1 ) != 1 || node.number( "gamma_b", 1 ) != 1 ) {
+			return null;
+		}
+		double contrast = node.number( "contrast", 1 ), brightness = node.number( "brightness", 0 );
+		double saturation = node.number( "saturation", 1 ), gamma = node.number( "gamma", 1 );
+		double weight = node.number( "gamma_weight", 1 );
+		if ( !finite( contrast, brightness, saturation, gamma, weight ) ) {
+			return null;
+		}
+		return rgb -> {
+			double [] yuv = toYuv( rgb );
+			double v = contrast * ( yuv[ 0 ] / 255 - 0.5 ) + 0.5 + brightness;
+			if ( v <= 0 ) {
+				yuv[ 0 ] = 0;
+			} else {
+				v = v * ( 1 - weight ) + Math.pow( v, 1 / gamma ) * weight;
+				yuv[ 0 ] = Math.min( 256 * v, 255 );
+			}
+			yuv[ 1 ] = ( yuv[ 1 ] - 128 ) * saturation + 128;
+			yuv[ 2 ] = ( yuv[ 2 ] - 128 ) * saturation + 128;
+			toRgb( yuv, rgb );
+		};
+	}
+
+	private static Transform hue( FilterNode node, Map<String, String> options ) {
+		if ( !only( options, "h", "s", "H", "b" ) ) {
+			return null;
+		}
+		double angle = options.containsKey( "H" ) ? node.number( "H", 0 ) : Math.toRadians( node.number( "h", 0 ) );
+		double saturation = node.number( "s", 1 ), brightness = node.number( "b", 0 );
+		if ( !finite( angle, saturation, brightness ) ) {
+			return null;
+		}
+		double sin = Math.sin( angle ) * saturation, cos = Math.cos( angle ) * saturation;
+		return rgb -> {
+			double [] yuv = toYuv( rgb );
+			double u = yuv[ 1 ] - 128, v = yuv[ 2 ] - 128;
+			yuv[ 0 ] = clip255( yuv[ 0 ] + brightness * 25.5 );
+			yuv[ 1 ] = clip255( u * cos - v * sin + 128 );
+			yuv[ 2 ] = clip255( u * sin + v * cos + 128 );
+			toRgb( yuv, rgb );
+		};
+	}
+
+	private static Transform colorBalance( FilterNode node ) {
+		double [] s = { node.number( "rs", 0 ), node.number( "gs", 0 ), node.number( "bs", 0 ) };
+		double [] m = { node.number( "rm", 0 ), node.number( "gm", 0 ), node.number( "bm", 0 ) };
+		double [] h = { node.number( "rh", 0 ), node.number( "gh", 0 ), node.number( "bh", 0 ) };
+		if ( !finite( s ) || !finite( m ) || !finite( h ) ) {
+			return null;
+		}
+		return rgb -> {
+			double l = max( rgb ) + min( rgb );
+			for ( int c = 0; c < 3; c ++ ) {
+				double shadows = s[ c ] * clip( ( 0.333 - l ) * 4 + 0.5 ) * 0.7;
+				double midtones = m[ c ] * clip( ( l - 0.333 ) * 4 + 0.5 ) * clip( ( 1 - l - 0.333 ) * 4 + 0.5 ) * 0.7;
+				double highlights = h[ c ] * clip( ( l + 0.333 - 1 ) * 4 + 0.5 ) * 0.7;
+				rgb[ c ] = clip( rgb[ c ] + shadows + midtones + highlights );
+			}
+		};
+	}
+
+	private static Transform vibrance( FilterNode node ) {
+		double intensity = node.number( "intensity", 0 );
+		double [] balance = { node.number( "rbal", 1 ), node.number( "gbal", 1 ), node.number( "bbal", 1 ) };
+		double [] luma = { node.number( "rlum", 0.072186 ), node.number( "glum", 0.715158 ), node.number( "blum", 0.212656 ) };
+		double alternate = node.number( "alternate", 0 ) != 0 ? 1 : -1;
+		if ( !finite( intensity ) || !finite( balance ) || !finite( luma ) ) {
+			return null;
+		}
+		return rgb -> {
+			double saturation = max( rgb ) - min( rgb );
+			double l = rgb[ 0 ] * luma[ 0 ] + rgb[ 1 ] * luma[ 1 ] + rgb[ 2 ] * luma[ 2 ];
+			for ( int c = 0; c < 3; c ++ ) {
+				double strength = intensity * balance[ c ];
+				double factor = 1 + strength * ( 1 - alternate * Math.signum( strength ) * saturation );
+				rgb[ c ] = l + ( rgb[ c ] - l ) * factor;
+			}
+		};
+	}
+
+	private static Transform channelMixer( FilterNode node, Map<String, String> options ) {
+		if ( !only( options, "rr", "rg", "rb", "ra", "gr", "gg", "gb", "ga", "br", "bg", "bb", "ba", "ar", "ag", "ab", "aa", "pc", "pa" ) ) {
+			return null;
+		}
+		String mode = options.get( "pc" );
+		if ( mode != null && !"none".equals( mode ) && !"0".equals( mode ) ) {
+			return null;
+		}
+		String [] names = { "rr", "rg", "rb", "gr", "gg", "gb", "br", "bg", "bb" };
+		double [] matrix = new double[ 9 ];
+		for ( int i = 0; i < 9; i ++ ) {
+			matrix[ i ] = node.number( names[ i ], i % 4 == 0 ? 1 : 0 );
+		}
+		if ( !finite( matrix ) ) {
+			return null;
+		}
+		return rgb -> {
+			double r = rgb[ 0 ], g = rgb[ 1 ], b = rgb[ 2 ];
+			rgb[ 0 ] = matrix[ 0 ] * r + matrix[ 1 ] * g + matrix[ 2 ] * b;
+			rgb[ 1 ] = matrix[ 3 ] * r + matrix[ 4 ] * g + matrix[ 5 ] * b;
+			rgb[ 2 ] = matrix[ 6 ] * r + matrix[ 7 ] * g + matrix[ 8 ] * b;
+		};
+	}
+
+	private static Transform exposure( FilterNode node ) {
+		double exposure = node.number( "exposure", 0 ), black = node.number( "black", 0 );
+		if ( !finite( exposure, black ) ) {
+			return null;
+		}
+		double scale = 1 / ( Math.pow( 2, -exposure ) - black );
+		return rgb -> {
+			for ( int c = 0; c < 3; c ++ ) {
+				rgb[ c ] = ( rgb[ c ] - black ) * scale;
+			}
+		};
+	}
+
+	private static Transform curves( Map<String, String> options ) {
+		if ( !only( options, "preset", "master", "m", "red", "r", "green", "g", "blue", "b", "all", "interp" ) ) {
+			return null;
+		}
+		String preset = options.get( "preset" ), interp = options.get( "interp" );
+		if ( ( preset != null && !"none".equals( preset ) ) || ( interp != null && !"natural".equals( interp ) ) ) {
+			return null;
+		}
+		String all = options.get( "all" );
+		Spline master = Spline.of( first( options, "master", "m" ) );
+		Spline [] components = {
+			Spline.of( first( options, "red", "r", all ) ),
+			Spline.of( first( options, "green", "g", all ) ),
+			Spline.of( first( options, "blue", "b", all ) ) };
+		if ( master == null || components[ 0 ] == null || components[ 1 ] == null || components[ 2 ] == null ) {
+			return null;
+		}
+		return rgb -> {
+			for ( int c = 0; c < 3; c ++ ) {
+				rgb[ c ] = master.value( components[ c ].value( rgb[ c ] ) );
+			}
+		};
+	}
+
+	private static String first( Map<String, String> options, String name, String alias ) {
+		return first( options, name, alias, null );
+	}
+
+	private static String first( Map<String, String> options, String name, String alias, String defaultValue ) {
+		String value = options.get( name );
+		if ( value == null ) {
+			value = options.get( alias );
+		}
+		return value == null ? defaultValue : value;
+	}
+
+	private static boolean only( Map<String, String> options, String ... names ) {
+		List<String> allowed = Arrays.asList( names );
+		for ( Map.Entry<String, String> option : options.entrySet() ) {
+			if ( option.getValue() == null || !allowed.contains( option.getKey() ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean finite( double ... values ) {
+		for ( double value : values ) {
+			if ( Double.isNaN( value ) || Double.isInfinite( value ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the BT.601 limited range YUV code values of the colour
+	 */
+	private static double [] toYuv( double [] rgb ) {
+		double r = rgb[ 0 ], g = rgb[ 1 ], b = rgb[ 2 ];
+		return new double [] {
+			16 + 65.481 * r + 128.553 * g + 24.966 * b,
+			128 - 37.797 * r - 74.203 * g + 112.0 * b,
+			128 + 112.0 * r - 93.786 * g - 18.214 * b };
+	}
+
+	private static void toRgb( double [] yuv, double [] rgb ) {
+		double y = 1.164383 * ( yuv[ 0 ] - 16 ), u = yuv[ 1 ] - 128, v = yuv[ 2 ] - 128;
+		rgb[ 0 ] = ( y + 1.596027 * v ) / 255;
+		rgb[ 1 ] = ( y - 0.391762 * u - 0.812968 * v ) / 255;
+		rgb[ 2 ] = ( y + 2.017232 * u ) / 255;
+	}
+
+	private static double max( double [] rgb ) {
+		return Math.max( rgb[ 0 ], Math.max( rgb[ 1 ], rgb[ 2 ] ) );
+	}
+
+	private static double min( double [] rgb ) {
+		return Math.min( rgb[ 0 ], Math.min( rgb[ 1 ], rgb[ 2 ] ) );
+	}
+
+	private static double clip( double value ) {
+		return value < 0 ? 0 : value > 1 ? 1 : value;
+	}
+
+	private static double clip255( double value ) {
+		return value < 0 ? 0 : value > 255 ? 255 : value;
+	}
+
+	/**
+	 * The colour transform of a filter on normalized RGB
+	 */
+	interface Transform {
+
+		void apply( double [] rgb );
+
+	}
+
+	/**
+	 * The natural cubic spline through the key points of {@code curves}, flat before the first point and
+	 * after the last one
+	 */
+	private static final class Spline {
+
+		private final double [] x;
+		private final double [] y;
+		private final double [] m;
+
+		private Spline( double [] x, double [] y, double [] m ) {
+			this.x = x;
+			this.y = y;
+			this.m = m;
+		}
+
+		private static Spline of( String points ) {
+			if ( points == null ) {
+				points = "0/0 1/1";
+			}
+			String [] pairs = points.trim().split( "\\s+" );
+			double [] x = new double[ pairs.length ], y = new double[ pairs.length ];
+			for ( int i = 0; i < pairs.length; i ++ ) {
+				int slash = pairs[ i ].indexOf( '/' );
+				if ( slash < 0 ) {
+					return null;
+				}
+				x[ i ] = FilterNode.toNumber( pairs[ i ].substring( 0, slash ) );
+				y[ i ] = FilterNode.toNumber( pairs[ i ].substring( slash + 1 ) );
+				if ( !finite( x[ i ], y[ i ] ) || ( i > 0 && x[ i ] <= x[ i - 1 ] ) ) {
+					return null;
+				}
+			}
+			int n = x.length;
+			double [] m = new double[ n ];
+			if ( n > 2 ) {
+				// Second derivatives with natural ends, solved with the Thomas algorithm
+				double [] c = new double[ n ], d = new double[ n ];
+				for ( int i = 1; i < n - 1; i ++ ) {
+					double h0 = x[ i ] - x[ i - 1 ], h1 = x[ i + 1 ] - x[ i ];
+					double a = h0 / 6, b = ( h0 + h1 ) / 3, r = ( y[ i + 1 ] - y[ i ] ) / h1 - ( y[ i ] - y[ i - 1 ] ) / h0;
+					double denominator = b - a * c[ i - 1 ];
+					c[ i ] = h1 / 6 / denominator;
+					d[ i ] = ( r - a * d[ i - 1 ] ) / denominator;
+				}
+				for ( int i = n - 2; i > 0; i -- ) {
+					m[ i ] = d[ i ] - c[ i ] * m[ i + 1 ];
+				}
+			}
+			return new Spline( x, y, m );
+		}
+
+		private double value( double v ) {
+			int n = x.length;
+			if ( n == 1 || v <= x[ 0 ] ) {
+				return clip( y[ 0 ] );
+			}
+			if ( v >= x[ n - 1 ] ) {
+				return clip( y[ n - 1 ] );
+			}
+			int i = 1;
+			while ( x[ i ] < v ) {
+				i ++;
+			}
+			double h = x[ i ] - x[ i - 1 ], a = ( x[ i ] - v ) / h, b = ( v - x[ i - 1 ] ) / h;
+			double value = a * y[ i - 1 ] + b * y[ i ] + ( ( a * a * a - a ) * m[ i - 1 ] + ( b * b * b - b ) * m[ i ] ) * h * h / 6;
+			return clip( value );
+		}
+
+	}
+
+	/**
+	 * A run of colour filters collapsed into a cube file
+	 */
+	public static final class Collapse {
+
+		private final String chain;
+		private final Path cube;
+		private final String lookup;
+		private final double error;
+
+		private Collapse( String chain, Path cube, String lookup, double error ) {
+			this.chain = chain;
+			this.cube = cube;
+			this.lookup = lookup;
+			this.error = error;
+		}
+
+		/**
+		 * @return the filters replaced by the lookup
+		 */
+		public String getChain() {
+			return chain;
+		}
+
+		public Path getCube() {
+			return cube;
+		}
+
+		/**
+		 * @return the largest difference between the pixels of the samples rendered by ffmpeg through the lookup
+		 *         and through the filters, in 8 bit levels
+		 */
+		public double getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return chain + " -> " + cube.getFileName();
+		}
+
+	}
+
+}
@@ -0,0 +1,1093 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
+
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * An immutable ffmpeg expression with constant folding, parsed with the grammar of {@code libavutil/eval.c} and
+ * rendered with only the required parentheses.
+ *
+ * <pre>
+ * Expr x = Expr.var( "main_w" ).minus( Expr.var( "overlay_w" ) ).div( 2 );
+ * Overlay.at( x, Expr.parse( "main_h-overlay_h-(2*5)" ) ); // main_h-overlay_h-10
+ * </pre>
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class Expr {
+
+	enum Kind {
+		NUMBER, VARIABLE, CALL, NEGATE, ADD, SUBTRACT, MULTIPLY, DIVIDE, POWER, SEQUENCE
+	}
+
+	private static final int REGISTERS = 10;
+	private static final double PHI = 1.61803398874989484820;
+	private static final double QP2LAMBDA = 118;
+
+	private static final Set<String> CONSTANTS = new HashSet<>( Arrays.asList( "E", "PI", "PHI", "QP2LAMBDA" ) );
+	private static final Map<String, Set<Integer>> FUNCTIONS = new HashMap<>( 64 );
+	private static final Set<String> IMPURE = new HashSet<>( Arrays.asList( "time", "st", "ld", "while", "print", "random", "randomi", "taylor", "root" ) );
+	private static final int [] SI_PREFIXES = new int[ 'z' - 'E' + 1 ];
+
+	static {
+		for ( String name : new String [] { "sinh", "cosh", "tanh", "sin", "cos", "tan", "atan", "asin", "acos", "exp", "log", "abs", "time", "squish", "gauss", "isnan",
+				"isinf", "floor", "ceil", "trunc", "round", "sqrt", "not", "random", "ld", "sgn" } ) {
+			FUNCTIONS.put( name, new HashSet<>( Arrays.asList( 1 ) ) );
+		}
+		for ( String name : new String [] { "mod", "max", "min", "eq", "gte", "gt", "lte", "lt", "st", "while", "pow", "hypot", "gcd", "bitand", "bitor", "atan2" } ) {
+			FUNCTIONS.put( name, new HashSet<>( Arrays.asList( 2 ) ) );
+		}
+		for ( String name : new String [] { "randomi", "between", "clip", "lerp" } ) {
+			FUNCTIONS.put( name, new HashSet<>( Arrays.asList( 3 ) ) );
+		}
+		for ( String name : new String [] { "if", "ifnot", "taylor", "root" } ) {
+			FUNCTIONS.put( name, new HashSet<>( Arrays.asList( 2, 3 ) ) );
+		}
+		FUNCTIONS.put( "print", new HashSet<>( Arrays.asList( 1, 2 ) ) );
+
+		String prefixes = "yzafpnumcdhkKMGTPEZY";
+		int [] exponents = { -24, -21, -18, -15, -12, -9, -6, -3, -2, -1, 2, 3, 3, 6, 9, 12, 15, 18, 21, 24 };
+		for ( int i = 0; i < exponents.length; i ++ ) {
+			SI_PREFIXES[ prefixes.charAt( i ) - 'E' ] = exponents[ i ];
+		}
+	}
+
+	private final Kind kind;
+	private final double value;
+	private final String name;
+	private final Expr [] args;
+	private String text;
+
+	private Expr( Kind kind, double value, String name, Expr ... args ) {
+		this.kind = kind;
+		this.value = value;
+		this.name = name;
+		this.args = args;
+	}
+
+	/**
+	 * @param value the number
+	 * @return a constant expression
+	 */
+	public static Expr of( double value ) {
+		return new Expr( Kind.NUMBER, value, null );
+	}
+
+	/**
+	 * @param name the variable or constant name, such as {@code iw}, {@code t} or {@code PI}
+	 * @return a variable expression
+	 */
+	public static Expr var( String name ) {
+		Assert.isTrue( isName( name ), "Invalid expression variable name: " + name );
+		return new Expr( Kind.VARIABLE, 0, name );
+	}
+
+	/**
+	 * Call a built-in function or a function provided by the filter, such as {@code p(x,y)} of {@code geq}
+	 *
+	 * @param name the function name
+	 * @param args the arguments
+	 * @return the function call, or its value when it's pure and all the arguments are constant
+	 */
+	public static Expr call( String name, Expr ... args ) {
+		Assert.isTrue( isName( name ), "Invalid expression function name: " + name );
+		Assert.notEmpty( args, "The function \"" + name + "\" requires at least one argument" );
+		for ( Expr arg : args ) {
+			Assert.notNull( arg, "The function arguments cannot be null" );
+		}
+		return fold( new Expr( Kind.CALL, 0, name, args.clone() ) );
+	}
+
+	/**
+	 * Parse an expression string with the grammar of ffmpeg, white spaces are ignored
+	 *
+	 * @param expression the expression
+	 * @return the folded expression
+	 * @throws IllegalArgumentException if the expression is not valid
+	 */
+	public static Expr parse( String expression ) {
+		Assert.notEmpty( expression, "The expression cannot be empty" );
+		return new Parser( expression ).parse();
+	}
+
+	public static Expr min( Expr a, Expr b ) {
+		return call( "min", a, b );
+	}
+
+	public static Expr max( Expr a, Expr b ) {
+		return call( "max", a, b );
+	}
+
+	/**
+	 * @return {@code clip(x,min,max)}
+	 */
+	public static Expr clip( Expr x, Expr min, Expr max ) {
+		return call( "clip", x, min, max );
+	}
+
+	/**
+	 * @return {@code if(condition,then,otherwise)}
+	 */
+	public static Expr when( Expr condition, Expr then, Expr otherwise ) {
+		return call( "if", condition, then, otherwise );
+	}
+
+	/**
+	 * @return {@code between(x,min,max)}
+	 */
+	public static Expr between( Expr x, Expr min, Expr max ) {
+		return call( "between", x, min, max );
+	}
+
+	public static Expr eq( Expr a, Expr b ) {
+		return call( "eq", a, b );
+	}
+
+	public static Expr gt( Expr a, Expr b ) {
+		return call( "gt", a, b );
+	}
+
+	public static Expr gte( Expr a, Expr b ) {
+		return call( "gte", a, b );
+	}
+
+	public static Expr lt( Expr a, Expr b ) {
+		return call( "lt", a, b );
+	}
+
+	public static Expr lte( Expr a, Expr b ) {
+		return call( "lte", a, b );
+	}
+
+	public static Expr mod( Expr a, Expr b ) {
+		return call( "mod", a, b );
+	}
+
+	public static Expr abs( Expr x ) {
+		return call( "abs", x );
+	}
+
+	public static Expr floor( Expr x ) {
+		return call( "floor", x );
+	}
+
+	public static Expr ceil( Expr x ) {
+		return call( "ceil", x );
+	}
+
+	public static Expr round( Expr x ) {
+		return call( "round", x );
+	}
+
+	public static Expr trunc( Expr x ) {
+		return call( "trunc", x );
+	}
+
+	public Expr plus( Expr other ) {
+		return binary( Kind.ADD, this, other );
+	}
+
+	public Expr plus( double other ) {
+		return plus( of( other ) );
+	}
+
+	public Expr minus( Expr other ) {
+		return binary( Kind.SUBTRACT, this, other );
+	}
+
+	public Expr minus( double other ) {
+		return minus( of( other ) );
+	}
+
+	public Expr times( Expr other ) {
+		return binary( Kind.MULTIPLY, this, other );
+	}
+
+	public Expr times( double other ) {
+		return times( of( other ) );
+	}
+
+	public Expr div( Expr other ) {
+		return binary( Kind.DIVIDE, this, other );
+	}
+
+	public Expr div( double other ) {
+		return div( of( other ) );
+	}
+
+	public Expr pow( Expr other ) {
+		return binary( Kind.POWER, this, other );
+	}
+
+	public Expr pow( double other ) {
+		return pow( of( other ) );
+	}
+
+	public Expr negate() {
+		return negate( this );
+	}
+
+	/**
+	 * @return whether the expression is a constant, which doesn't depend on any variable or function
+	 */
+	public boolean isConstant() {
+		return kind == Kind.NUMBER;
+	}
+
+	/**
+	 * @return the value of a constant expression
+	 * @throws IllegalStateException if the expression is not constant
+	 */
+	public double getValue() {
+		if ( kind != Kind.NUMBER ) {
+			throw new IllegalStateException( "Not a constant expression: " + this );
+		}
+		return value;
+	}
+
+	/**
+	 * @return the names of the variables used by the expression, without the constants
+	 */
+	public Set<String> getVariables() {
+		Set<String> variables = new LinkedHashSet<>( 4 );
+		visit( this, node -> {
+			if ( node.kind == Kind.VARIABLE && !CONSTANTS.contains( node.name ) ) {
+				variables.add( node.name );
+			}
+		} );
+		return variables;
+	}
+
+	/**
+	 * Make sure every variable and function of the expression is known to the filter
+	 *
+	 * @param scope the filter option the expression is meant for
+	 * @return this expression
+	 * @throws IllegalArgumentException if a variable or a function is unknown
+	 */
+	public Expr check( ExprScope scope ) {
+		Assert.notNull( scope, "The expression scope cannot be null" );
+		List<String> errors = new ArrayList<>( 2 );
+		visit( this, node -> {
+			if ( node.kind == Kind.VARIABLE ) {
+				if ( !CONSTANTS.contains( node.name ) && !scope.getVariables().contains( node.name ) ) {
+					errors.add( "unknown variable \"" + node.name + "\"" );
+				}
+			} else if ( node.kind == Kind.CALL ) {
+				Set<Integer> arities = FUNCTIONS.get( node.name );
+				if ( !( arities != null && arities.contains( node.args.length ) ) && !scope.hasFunction( node.name, node.args.length ) ) {
+					errors.add( "unknown function \"" + node.name + "\" with " + node.args.length + " arguments" );
+				}
+			}
+		} );
+		if ( !errors.isEmpty() ) {
+			throw new IllegalArgumentException( "Invalid " + scope.getFilter() + " expression \"" + this + "\": " + String.join( ", ", errors )
+					+ ", the variables are " + scope.getVariables() );
+		}
+		return this;
+	}
+
+	/**
+	 * Check the expression and render it as a filter option value, quoted when it contains a separator of
+	 * the filter graph
+	 *
+	 * @param scope the filter option the expression is meant for
+	 * @return the option value
+	 * @throws IllegalArgumentException if a variable or a function is unknown
+	 */
+	public String render( ExprScope scope ) {
+		String expression = check( scope ).toString();
+		return expression.indexOf( ',' ) >= 0 || expression.indexOf( ';' ) >= 0 ? "'" + expression + "'" : expression;
+	}
+
+	/**
+	 * Evaluate the expression like ffmpeg does
+	 *
+	 * @param variables the values of the variables
+	 * @return the value
+	 * @throws IllegalArgumentException if a variable is missing, or a function depends on state
+	 */
+	public double evaluate( Map<String, ? extends Number> variables ) {
+		Assert.notNull( variables, "The variables cannot be null" );
+		return eval( name -> {
+			Number number = variables.get( name );
+			if ( number == null ) {
+				throw new IllegalArgumentException( "Missing expression variable: " + name );
+			}
+			return number.doubleValue();
+		} );
+	}
+
+	double eval( ToDoubleFunction<String> variables ) {
+		switch ( kind ) {
+			case NUMBER:
+				return value;
+			case VARIABLE:
+				switch ( name ) {
+					case "E":
+						return Math.E;
+					case "PI":
+						return Math.PI;
+					case "PHI":
+						return PHI;
+					case "QP2LAMBDA":
+						return QP2LAMBDA;
+					default:
+						return variables.applyAsDouble( name );
+				}
+			case NEGATE:
+				return -args[ 0 ].eval( variables );
+			case ADD:
+				return args[ 0 ].eval( variables ) + args[ 1 ].eval( variables );
+			case SUBTRACT:
+				return args[ 0 ].eval( variables ) - args[ 1 ].eval( variables );
+			case MULTIPLY:
+				return args[ 0 ].eval( variables ) * args[ 1 ].eval( variables );
+			case DIVIDE:
+				return divide( args[ 0 ].eval( variables ), args[ 1 ].eval( variables ) );
+			case POWER:
+				return Math.pow( args[ 0 ].eval( variables ), args[ 1 ].eval( variables ) );
+			case SEQUENCE:
+				args[ 0 ].eval( variables );
+				return args[ 1 ].eval( variables );
+			default:
+				return function( variables );
+		}
+	}
+
+	private double function( ToDoubleFunction<String> variables ) {
+		String signature = name + "/" + args.length;
+		switch ( signature ) {
+			case "if/2":
+				return arg( 0, variables ) != 0 ? arg( 1, variables ) : 0;
+			case "if/3":
+				return arg( 0, variables ) != 0 ? arg( 1, variables ) : arg( 2, variables );
+			case "ifnot/2":
+				return arg( 0, variables ) == 0 ? arg( 1, variables ) : 0;
+			case "ifnot/3":
+				return arg( 0, variables ) == 0 ? arg( 1, variables ) : arg( 2, variables );
+			default:
+				break;
+		}
+		double x = arg( 0, variables );
+		double y = args.length > 1 ? arg( 1, variables ) : 0;
+		double z = args.length > 2 ? arg( 2, variables ) : 0;
+		switch ( signature ) {
+			case "abs/1":
+				return Math.abs( x );
+			case "acos/1":
+				return Math.acos( x );
+			case "asin/1":
+				return Math.asin( x );
+			case "atan/1":
+				return Math.atan( x );
+			case "ceil/1":
+				return Math.ceil( x );
+			case "cos/1":
+				return Math.cos( x );
+			case "cosh/1":
+				return Math.cosh( x );
+			case "exp/1":
+				return Math.exp( x );
+			case "floor/1":
+				return Math.floor( x );
+			case "gauss/1":
+				return Math.exp( -x * x / 2 ) / Math.sqrt( 2 * Math.PI );
+			case "isinf/1":
+				return Double.isInfinite( x ) ? 1 : 0;
+			case "isnan/1":
+				return Double.isNaN( x ) ? 1 : 0;
+			case "log/1":
+				return Math.log( x );
+			case "not/1":
+				return x == 0 ? 1 : 0;
+			case "round/1":
+				return x < 0 ? -Math.floor( -x + 0.5 ) : Math.floor( x + 0.5 ); // Halfway cases away from zero
+			case "sgn/1":
+				return x > 0 ? 1 : x < 0 ? -1 : 0;
+			case "sin/1":
+				return Math.sin( x );
+			case "sinh/1":
+				return Math.sinh( x );
+			case "sqrt/1":
+				return Math.sqrt( x );
+			case "squish/1":
+				return 1 / ( 1 + Math.exp( 4 * x ) );
+			case "tan/1":
+				return Math.tan( x );
+			case "tanh/1":
+				return Math.tanh( x );
+			case "trunc/1":
+				return x < 0 ? Math.ceil( x ) : Math.floor( x );
+			case "atan2/2":
+				return Math.atan2( x, y );
+			case "bitand/2":
+				return Double.isNaN( x ) || Double.isNaN( y ) ? Double.NaN : ( ( long ) x & ( long ) y );
+			case "bitor/2":
+				return Double.isNaN( x ) || Double.isNaN( y ) ? Double.NaN : ( ( long ) x | ( long ) y );
+			case "eq/2":
+				return x == y ? 1 : 0;
+			case "gcd/2":
+				return Double.isNaN( x ) || Double.isNaN( y ) ? Double.NaN : gcd( ( long ) x, ( long ) y );
+			case "gt/2":
+				return x > y ? 1 : 0;
+			case "gte/2":
+				return x >= y ? 1 : 0;
+			case "hypot/2":
+				return Math.hypot( x, y );
+			case "lt/2":
+				return x < y ? 1 : 0;
+			case "lte/2":
+				return x <= y ? 1 : 0;
+			case "max/2":
+				return x > y ? x : y;
+			case "min/2":
+				return x < y ? x : y;
+			case "mod/2":
+				return x - Math.floor( divide( x, y ) ) * y;
+			case "pow/2":
+				return Math.pow( x, y );
+			case "between/3":
+				return x >= y && x <= z ? 1 : 0;
+			case "clip/3":
+				if ( Double.isNaN( x ) || Double.isNaN( y ) || Double.isNaN( z ) || y > z ) {
+					return Double.NaN;
+				}
+				return x < y ? y : x > z ? z : x;
+			case "lerp/3":
+				return x + ( y - x ) * z;
+			default:
+				throw new IllegalArgumentException( "Cannot evaluate " + name + "() with " + args.length + " arguments" );
+		}
+	}
+
+	private double arg( int index, ToDoubleFunction<String> variables ) {
+		return args[ index ].eval( variables );
+	}
+
+	private static double divide( double a, double b ) {
+		return b != 0 ? a / b : a * Double.POSITIVE_INFINITY;
+	}
+
+	private static long gcd( long a, long b ) {
+		a = Math.abs( a );
+		b = Math.abs( b );
+		while ( b != 0 ) {
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	/**
+	 * Rebuild the expression from the leaves up, the result of the operator replaces every node and is folded
+	 * again
+	 *
+	 * @param operator the node replacement
+	 * @return the new expression
+	 */
+	Expr replace( UnaryOperator<Expr> operator ) {
+		Expr node = this;
+		if ( args.length > 0 ) {
+			Expr [] replaced = new Expr[ args.length ];
+			boolean changed = false;
+			for ( int i = 0; i < args.length; i ++ ) {
+				replaced[ i ] = args[ i ].replace( operator );
+				changed |= replaced[ i ] != args[ i ];
+			}
+			if ( changed ) {
+				node = rebuild( replaced );
+			}
+		}
+		return operator.apply( node );
+	}
+
+	boolean isCall( String name, int arity ) {
+		return kind == Kind.CALL && this.name.equals( name ) && args.length == arity;
+	}
+
+	boolean isVariable( String name ) {
+		return kind == Kind.VARIABLE && this.name.equals( name );
+	}
+
+	Expr getArg( int index ) {
+		return args[ index ];
+	}
+
+	private Expr rebuild( Expr [] replaced ) {
+		switch ( kind ) {
+			case NEGATE:
+				return negate( replaced[ 0 ] );
+			case CALL:
+				return fold( new Expr( Kind.CALL, 0, name, replaced ) );
+			default:
+				return binary( kind, replaced[ 0 ], replaced[ 1 ] );
+		}
+	}
+
+	private static Expr negate( Expr x ) {
+		Assert.notNull( x, "The expression cannot be null" );
+		if ( x.kind == Kind.NUMBER ) {
+			return of( -x.value );
+		}
+		if ( x.kind == Kind.NEGATE ) {
+			return x.args[ 0 ];
+		}
+		return new Expr( Kind.NEGATE, 0, null, x );
+	}
+
+	private static Expr binary( Kind kind, Expr a, Expr b ) {
+		Assert.notNull( a, "The expression cannot be null" );
+		Assert.notNull( b, "The expression cannot be null" );
+		if ( kind == Kind.SEQUENCE ) {
+			return new Expr( kind, 0, null, a, b );
+		}
+		Expr node = new Expr( kind, 0, null, a, b );
+		if ( a.kind == Kind.NUMBER && b.kind == Kind.NUMBER ) {
+			double folded = node.eval( name -> Double.NaN );
+			if ( Double.isFinite( folded ) ) {
+				return of( folded );
+			}
+			return node;
+		}
+		switch ( kind ) {
+			case ADD:
+				if ( a.is( 0 ) ) {
+					return b;
+				}
+				if ( b.is( 0 ) ) {
+					return a;
+				}
+				if ( b.kind == Kind.NEGATE || b.kind == Kind.NUMBER && b.value < 0 ) {
+					return binary( Kind.SUBTRACT, a, negate( b ) );
+				}
+				break;
+			case SUBTRACT:
+				if ( b.is( 0 ) ) {
+					return a;
+				}
+				if ( a.is( 0 ) ) {
+					return negate( b );
+				}
+				if ( b.kind == Kind.NEGATE || b.kind == Kind.NUMBER && b.value < 0 ) {
+					return binary( Kind.ADD, a, negate( b ) );
+				}
+				break;
+			case MULTIPLY:
+				if ( a.is( 1 ) ) {
+					return b;
+				}
+				if ( b.is( 1 ) ) {
+					return a;
+				}
+				if ( a.is( -1 ) ) {
+					return negate( b );
+				}
+				if ( b.is( -1 ) ) {
+					return negate( a );
+				}
+				break;
+			case DIVIDE:
+				if ( b.is( 1 ) ) {
+					return a;
+				}
+				if ( b.is( -1 ) ) {
+					return negate( a );
+				}
+				break;
+			case POWER:
+				if ( b.is( 1 ) ) {
+					return a;
+				}
+				if ( b.is( 0 ) ) {
+					return of( 1 );
+				}
+				break;
+			default:
+				break;
+		}
+		return node;
+	}
+
+	private static Expr fold( Expr call ) {
+		if ( IMPURE.contains( call.name ) || !isKnown( call.name, call.args.length ) ) {
+			return call;
+		}
+		Expr condition = call.args[ 0 ];
+		if ( ( call.name.equals( "if" ) || call.name.equals( "ifnot" ) ) && condition.kind == Kind.NUMBER ) {
+			boolean first = ( condition.value != 0 ) == call.name.equals( "if" );
+			return first ? call.args[ 1 ] : call.args.length > 2 ? call.args[ 2 ] : of( 0 );
+		}
+		for ( Expr arg : call.args ) {
+			if ( arg.kind != Kind.NUMBER ) {
+				return call;
+			}
+		}
+		double folded = call.eval( name -> Double.NaN );
+		return Double.isFinite( folded ) ? of( folded ) : call;
+	}
+
+	private static boolean isKnown( String name, int arity ) {
+		Set<Integer> arities = FUNCTIONS.get( name );
+		return arities != null && arities.contains( arity );
+	}
+
+	private boolean is( double number ) {
+		return kind == Kind.NUMBER && value == number;
+	}
+
+	private static boolean isName( String name ) {
+		if ( name == null || name.isEmpty() || !( Character.isLetter( name.charAt( 0 ) ) || name.charAt( 0 ) == '_' ) ) {
+			return false;
+		}
+		for ( int i = 1; i < name.length(); i ++ ) {
+			char c = name.charAt( i );
+			if ( !Character.isLetterOrDigit( c ) && c != '_' ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void visit( Expr node, Consumer<Expr> visitor ) {
+		visitor.accept( node );
+		for ( Expr arg : node.args ) {
+			visit( arg, visitor );
+		}
+	}
+
+	private int size() {
+		int size = 1;
+		for ( Expr arg : args ) {
+			size += arg.size();
+		}
+		return size;
+	}
+
+	private boolean isPure() {
+		if ( kind == Kind.CALL && IMPURE.contains( name ) ) {
+			return false;
+		}
+		for ( Expr arg : args ) {
+			if ( !arg.isPure() ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Expr substitute( Expr target, Expr replacement ) {
+		if ( this.equals( target ) ) {
+			return replacement;
+		}
+		if ( args.length == 0 ) {
+			return this;
+		}
+		Expr [] replaced = new Expr[ args.length ];
+		for ( int i = 0; i < args.length; i ++ ) {
+			replaced[ i ] = args[ i ].substitute( target, replacement );
+		}
+		return new Expr( kind, value, name, replaced );
+	}
+
+	/**
+	 * @return the shortest rendering of the expression
+	 */
+	@Override
+	public String toString() {
+		if ( text == null ) {
+			String plain = render( this, new StringBuilder( 32 ) ).toString();
+			this.text = isPure() ? shorten( plain ) : plain;
+		}
+		return text;
+	}
+
+	/**
+	 * Store the repeated sub-expressions in registers with {@code st(n,expr)} and load them with
+	 * {@code ld(n)}, as long as every store makes the expression both cheaper and not longer
+	 */
+	private String shorten( String plain ) {
+		List<Expr> stores = new ArrayList<>( 2 );
+		Expr body = this;
+		String best = plain;
+		for ( int register = 0; register < REGISTERS; register ++ ) {
+			Map<Expr, Integer> counts = new LinkedHashMap<>();
+			for ( Expr store : stores ) {
+				count( store.args[ 1 ], counts );
+			}
+			count( body, counts );
+			Expr candidate = null;
+			int saving = 0;
+			for ( Map.Entry<Expr, Integer> entry : counts.entrySet() ) {
+				int count = entry.getValue();
+				int gain = ( count - 1 ) * entry.getKey().size() - 2 * count - 3;
+				if ( count > 1 && gain > saving ) {
+					candidate = entry.getKey();
+					saving = gain;
+				}
+			}
+			if ( candidate == null ) {
+				break;
+			}
+			Expr load = new Expr( Kind.CALL, 0, "ld", of( register ) );
+			List<Expr> next = new ArrayList<>( stores.size() + 1 );
+			next.add( new Expr( Kind.CALL, 0, "st", of( register ), candidate ) );
+			for ( Expr store : stores ) {
+				next.add( store.substitute( candidate, load ) );
+			}
+			Expr nextBody = body.substitute( candidate, load );
+			StringBuilder builder = new StringBuilder( best.length() );
+			for ( Expr store : next ) {
+				render( store, builder ).append( ';' );
+			}
+			String shorter = render( nextBody, builder ).toString();
+			if ( shorter.length() > best.length() ) {
+				break;
+			}
+			stores = next;
+			body = nextBody;
+			best = shorter;
+		}
+		return best;
+	}
+
+	/**
+	 * Count the sub-expressions that don't load a register, so every new store only depends on itself
+	 *
+	 * @return whether the node loads a register
+	 */
+	private static boolean count( Expr node, Map<Expr, Integer> counts ) {
+		if ( node.isCall( "ld", 1 ) ) {
+			return true;
+		}
+		boolean loads = false;
+		for ( Expr arg : node.args ) {
+			loads |= count( arg, counts );
+		}
+		if ( !loads && node.args.length > 0 ) {
+			counts.merge( node, 1, Integer::sum );
+		}
+		return loads;
+	}
+
+	private static int level( Expr node ) {
+		switch ( node.kind ) {
+			case SEQUENCE:
+				return 0;
+			case ADD:
+			case SUBTRACT:
+				return 1;
+			case MULTIPLY:
+			case DIVIDE:
+				return 2;
+			case NEGATE:
+				return 3;
+			case POWER:
+				return 4;
+			case NUMBER:
+				return node.value < 0 || node.value == Double.NEGATIVE_INFINITY ? 3 : 5;
+			default:
+				return 5;
+		}
+	}
+
+	private static StringBuilder render( Expr node, StringBuilder builder ) {
+		switch ( node.kind ) {
+			case NUMBER:
+				return number( node.value, builder );
+			case VARIABLE:
+				return builder.append( node.name );
+			case CALL:
+				builder.append( node.name ).append( '(' );
+				for ( int i = 0; i < node.args.length; i ++ ) {
+					render( node.args[ i ], i == 0 ? builder : builder.append( ',' ) );
+				}
+				return builder.append( ')' );
+			case NEGATE:
+				return operand( node.args[ 0 ], 4, builder.append( '-' ) );
+			case ADD:
+				return operand( node.args[ 1 ], 2, operand( node.args[ 0 ], 1, builder ).append( '+' ) );
+			case SUBTRACT:
+				return operand( node.args[ 1 ], 2, operand( node.args[ 0 ], 1, builder ).append( '-' ) );
+			case MULTIPLY:
+				return operand( node.args[ 1 ], 3, operand( node.args[ 0 ], 2, builder ).append( '*' ) );
+			case DIVIDE:
+				return operand( node.args[ 1 ], 3, operand( node.args[ 0 ], 2, builder ).append( '/' ) );
+			case POWER:
+				// The exponent is a signed primary, "a^b^c" is "(a^b)^c" and "-a^b" is "-(a^b)"
+				Expr exponent = node.args[ 1 ];
+				operand( node.args[ 0 ], 4, builder ).append( '^' );
+				boolean signed = exponent.kind == Kind.NEGATE && level( exponent.args[ 0 ] ) == 5 || exponent.kind == Kind.NUMBER;
+				return operand( exponent, signed ? 0 : 5, builder );
+			default:
+				return operand( node.args[ 1 ], 1, operand( node.args[ 0 ], 0, builder ).append( ';' ) );
+		}
+	}
+
+	private static StringBuilder operand( Expr node, int level, StringBuilder builder ) {
+		if ( level( node ) >= level ) {
+			return render( node, builder );
+		}
+		return render( node, builder.append( '(' ) ).append( ')' );
+	}
+
+	private static StringBuilder number( double value, StringBuilder builder ) {
+		if ( Double.isNaN( value ) ) {
+			return builder.append( "nan" );
+		}
+		if ( Double.isInfinite( value ) ) {
+			return builder.append( value > 0 ? "inf" : "-inf" );
+		}
+		if ( value == Math.rint( value ) && Math.abs( value ) < 1e15 ) {
+			return builder.append( ( long ) value );
+		}
+		String text = Double.toString( value );
+		if ( text.startsWith( "0." ) ) {
+			return builder.append( text, 1, text.length() );
+		}
+		if ( text.startsWith( "-0." ) ) {
+			return builder.append( '-' ).append( text, 2, text.length() );
+		}
+		return builder.append( text );
+	}
+
+	@Override
+	public boolean equals( Object obj ) {
+		if ( this == obj ) {
+			return true;
+		}
+		if ( !( obj instanceof Expr ) ) {
+			return false;
+		}
+		Expr other = ( Expr ) obj;
+		return kind == other.kind && Double.compare( value, other.value ) == 0 && Objects.equals( name, other.name ) && Arrays.equals( args, other.args );
+	}
+
+	@Override
+	public int hashCode() {
+		return ( ( kind.hashCode() * 31 + Double.hashCode( value ) ) * 31 + Objects.hashCode( name ) ) * 31 + Arrays.hashCode( args );
+	}
+
+	/**
+	 * Recursive descent parser with the precedence of {@code libavutil/eval.c}
+	 */
+	private static final class Parser {
+
+		private final String source;
+		private final String text;
+		private int index;
+
+		private Parser( String expression ) {
+			StringBuilder builder = new StringBuilder( expression.length() );
+			for ( int i = 0; i < expression.length(); i ++ ) {
+				char c = expression.charAt( i );
+				if ( !Character.isWhitespace( c ) ) {
+					builder.append( c );
+				}
+			}
+			this.source = expression;
+			this.text = builder.toString();
+		}
+
+		private Expr parse() {
+			Expr expression = sequence();
+			if ( index < text.length() ) {
+				throw error( "unexpected \"" + text.substring( index ) + "\"" );
+			}
+			return expression;
+		}
+
+		private Expr sequence() {
+			Expr expression = sum();
+			while ( eat( ';' ) ) {
+				expression = binary( Kind.SEQUENCE, expression, sum() );
+			}
+			return expression;
+		}
+
+		private Expr sum() {
+			// "a-b*c" is "a+(-b)*c" for ffmpeg, which is exactly "a-b*c"
+			Expr left = term();
+			while ( true ) {
+				if ( eat( '+' ) ) {
+					left = binary( Kind.ADD, left, term() );
+				} else if ( eat( '-' ) ) {
+					left = binary( Kind.SUBTRACT, left, term() );
+				} else {
+					return left;
+				}
+			}
+		}
+
+		private Expr term() {
+			Expr left = factor();
+			while ( true ) {
+				if ( eat( '*' ) ) {
+					left = binary( Kind.MULTIPLY, left, factor() );
+				} else if ( eat( '/' ) ) {
+					left = binary( Kind.DIVIDE, left, factor() );
+				} else {
+					return left;
+				}
+			}
+		}
+
+		private Expr factor() {
+			boolean negative = sign();
+			Expr left = primary();
+			while ( eat( '^' ) ) {
+				boolean negativeExponent = sign();
+				Expr exponent = primary();
+				left = binary( Kind.POWER, left, negativeExponent ? negate( exponent ) : exponent );
+			}
+			return negative ? negate( left ) : left;
+		}
+
+		private boolean sign() {
+			if ( eat( '-' ) ) {
+				return true;
+			}
+			eat( '+' );
+			return false;
+		}
+
+		private Expr primary() {
+			if ( eat( '(' ) ) {
+				Expr expression = sequence();
+				expect( ')' );
+				return expression;
+			}
+			int start = index;
+			char c = index < text.length() ? text.charAt( index ) : 0;
+			if ( Character.isDigit( c ) || c == '.' ) {
+				return number();
+			}
+			for ( String special : new String [] { "infinity", "inf", "nan" } ) {
+				if ( text.regionMatches( true, index, special, 0, special.length() ) ) {
+					index += special.length();
+					return of( special.equals( "nan" ) ? Double.NaN : Double.POSITIVE_INFINITY );
+				}
+			}
+			while ( index < text.length() && ( Character.isLetterOrDigit( text.charAt( index ) ) || text.charAt( index ) == '_' ) ) {
+				index ++;
+			}
+			if ( start == index ) {
+				throw error( "missing operand" );
+			}
+			String name = text.substring( start, index );
+			if ( !eat( '(' ) ) {
+				return var( name );
+			}
+			List<Expr> args = new ArrayList<>( 3 );
+			do {
+				args.add( sequence() );
+			} while ( eat( ',' ) );
+			expect( ')' );
+			return call( name, args.toArray( new Expr[ args.size() ] ) );
+		}
+
+		/**
+		 * Numbers as parsed by {@code av_strtod}, with the optional {@code dB}, SI prefix, binary
+		 * {@code i} and byte {@code B} suffixes
+		 */
+		private Expr number() {
+			int start = index;
+			double value;
+			if ( text.startsWith( "0x", index ) || text.startsWith( "0X", index ) ) {
+				index += 2;
+				while ( index < text.length() && Character.digit( text.charAt( index ), 16 ) >= 0 ) {
+					index ++;
+				}
+				value = Long.parseLong( text.substring( start + 2, index ), 16 );
+			} else {
+				while ( index < text.length() && ( Character.isDigit( text.charAt( index ) ) || text.charAt( index ) == '.' ) ) {
+					index ++;
+				}
+				if ( index < text.length() && ( text.charAt( index ) == 'e' || text.charAt( index ) == 'E' ) ) {
+					int exponent = index + 1;
+					if ( exponent < text.length() && ( text.charAt( exponent ) == '+' || text.charAt( exponent ) == '-' ) ) {
+						exponent ++;
+					}
+					if ( exponent < text.length() && Character.isDigit( text.charAt( exponent ) ) ) {
+						index = exponent;
+						while ( index < text.length() && Character.isDigit( text.charAt( index ) ) ) {
+							index ++;
+						}
+					}
+				}
+				try {
+					value = Double.parseDouble( text.substring( start, index ) );
+				} catch ( NumberFormatException e ) {
+					throw error( "invalid number \"" + text.substring( start, index ) + "\"" );
+				}
+			}
+			if ( text.startsWith( "dB", index ) ) {
+				value = Math.pow( 10, value / 20 );
+				index += 2;
+			} else if ( index < text.length() && text.charAt( index ) >= 'E' && text.charAt( index ) <= 'z' && SI_PREFIXES[ text.charAt( index ) - 'E' ] != 0 ) {
+				int exponent = SI_PREFIXES[ text.charAt( index ) - 'E' ];
+				if ( index + 1 < text.length() && text.charAt( index + 1 ) == 'i' ) {
+					value *= Math.pow( 2, exponent / 0.3 );
+					index += 2;
+				} else {
+					value *= Math.pow( 10, exponent );
+					index ++;
+				}
+			}
+			if ( eat( 'B' ) ) {
+				value *= 8;
+			}
+			return of( value );
+		}
+
+		private boolean eat( char c ) {
+			if ( index < text.length() && text.charAt( index ) == c ) {
+				index ++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect( char c ) {
+			if ( !eat( c ) ) {
+				throw error( "missing '" + c + "'" );
+			}
+		}
+
+		private IllegalArgumentException error( String message ) {
+			return new IllegalArgumentException( "Invalid expression \"" + source + "\" at " + index + ": " + message );
+		}
+
+	}
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The variables and extra functions an {@link Expr} can use in the options of a filter.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public enum ExprScope {
+
+	/**
+	 * {@code overlay} x and y
+	 */
+	OVERLAY( "overlay", new String [] { "main_w", "W", "main_h", "H", "overlay_w", "w", "overlay_h", "h", "x", "y", "hsub", "vsub", "n", "pos", "t" } ),
+
+	/**
+	 * {@code crop} w, h, x and y
+	 */
+	CROP( "crop", new String [] { "in_w", "iw", "in_h", "ih", "out_w", "ow", "out_h", "oh", "a", "sar", "dar", "hsub", "vsub", "x", "y", "n", "pos", "t" } ),
+
+	/**
+	 * {@code scale} w and h
+	 */
+	SCALE( "scale", new String [] { "in_w", "iw", "in_h", "ih", "out_w", "ow", "out_h", "oh", "a", "sar", "dar", "hsub", "vsub", "ohsub", "ovsub", "n", "t", "pos",
+			"main_w", "main_h", "main_a", "main_sar", "main_dar", "mdar", "main_hsub", "main_vsub", "main_n", "main_t", "main_pos" } ),
+
+	/**
+	 * {@code zoompan} z, x, y and d
+	 */
+	ZOOMPAN( "zoompan", new String [] { "in_w", "iw", "in_h", "ih", "out_w", "ow", "out_h", "oh", "in", "on", "in_time", "it", "out_time", "time", "ot", "x", "px", "y", "py",
+			"zoom", "pzoom", "duration", "pduration", "a", "sar", "dar", "hsub", "vsub" } ),
+
+	/**
+	 * {@code drawtext} x and y
+	 */
+	DRAWTEXT( "drawtext", new String [] { "dar", "sar", "hsub", "vsub", "line_h", "lh", "main_h", "h", "H", "main_w", "w", "W", "max_glyph_a", "ascent", "max_glyph_d", "descent",
+			"max_glyph_h", "max_glyph_w", "font_a", "font_d", "top_a", "bottom_d", "n", "t", "text_h", "th", "text_w", "tw", "x", "y", "pict_type", "pkt_pos", "duration",
+			"pkt_duration", "pkt_size" }, "rand/2" ),
+
+	/**
+	 * {@code geq} plane expressions
+	 */
+	GEQ( "geq", new String [] { "X", "Y", "W", "H", "N", "SW", "SH", "T" }, "p/2", "lum/2", "cb/2", "cr/2", "r/2", "g/2", "b/2", "alpha/2", "psum/2", "lumsum/2", "cbsum/2",
+			"crsum/2", "rsum/2", "gsum/2", "bsum/2", "alphasum/2" ),
+
+	/**
+	 * {@code lut}, {@code lutyuv} and {@code lutrgb} component expressions
+	 */
+	LUT( "lut", new String [] { "w", "h", "val", "clipval", "maxval", "minval", "negval" }, "clip/1", "gammaval/1" ),
+
+	/**
+	 * {@code lut2} and {@code tlut2} component expressions
+	 */
+	LUT2( "lut2", new String [] { "w", "h", "x", "y", "bdx", "bdy" } );
+
+	private final String filter;
+	private final Set<String> variables;
+	private final Map<String, Set<Integer>> functions;
+
+	private ExprScope( String filter, String [] variables, String ... functions ) {
+		this.filter = filter;
+		this.variables = Collections.unmodifiableSet( new LinkedHashSet<>( Arrays.asList( variables ) ) );
+		this.functions = new HashMap<>( functions.length * 2 );
+		for ( String function : functions ) {
+			int index = function.indexOf( '/' );
+			this.functions.computeIfAbsent( function.substring( 0, index ), key -> new LinkedHashSet<>( 2 ) ).add( Integer.valueOf( function.substring( index + 1 ) ) );
+		}
+	}
+
+	/**
+	 * @return the filter name used in error messages
+	 */
+	public String getFilter() {
+		return filter;
+	}
+
+	/**
+	 * @return the variable names, in addition to the constants {@code E}, {@code PI}, {@code PHI} and
+	 *         {@code QP2LAMBDA}
+	 */
+	public Set<String> getVariables() {
+		return variables;
+	}
+
+	/**
+	 * @param name  the function name
+	 * @param arity the number of arguments
+	 * @return whether the filter provides this function in addition to the built-in ones
+	 */
+	public boolean hasFunction( String name, int arity ) {
+		Set<Integer> arities = functions.get( name );
+		return arities != null && arities.contains( arity );
+	}
+
+}
@@ -0,0 +1,548 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.viiyue.ffmpeg.common.Const;
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * The graph behind {@link Filters}, every chain is a node and every labelled pad an edge. Labels consumed more
+ * than once are split when {@link Filters#autoSplit()} is on, and {@link #validate(int, Collection)} rejects
+ * what ffmpeg would reject.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class FilterGraph {
+
+	/**
+	 * The filters whose output is not of the media of their input: the sources and the audio visualizations.
+	 * The media of any other filter is the media of the stream entering it.
+	 */
+	private static final Map<String, Media> PRODUCERS = new HashMap<>( 64 );
+
+	static {
+		for ( String name : new String [] { "buffer", "nullsrc", "color", "testsrc", "testsrc2", "smptebars",
+				"smptehdbars", "rgbtestsrc", "yuvtestsrc", "pal75bars", "pal100bars", "allrgb", "allyuv",
+				"haldclutsrc", "mandelbrot", "life", "cellauto", "gradients", "sierpinski", "showwaves",
+				"showwavespic", "showspectrum", "showspectrumpic", "showfreqs", "showvolume", "showcqt", "showcwt",
+				"avectorscope", "ahistogram", "abitscope", "aphasemeter" } ) {
+			PRODUCERS.put( name, Media.VIDEO );
+		}
+		for ( String name : new String [] { "abuffer", "anullsrc", "aevalsrc", "anoisesrc", "afirsrc", "sine",
+				"flite", "hilbert", "sinc" } ) {
+			PRODUCERS.put( name, Media.AUDIO );
+		}
+	}
+
+	private final List<Chain> chains;
+	private final Media media;
+	private final List<String> untyped;
+
+	private FilterGraph( List<Chain> chains, Media media, List<String> untyped ) {
+		this.chains = chains;
+		this.media = media;
+		this.untyped = untyped;
+	}
+
+	/**
+	 * Build the graph of the chains
+	 *
+	 * @param filter    the filter option, such as {@code vf} or {@code filter_complex}
+	 * @param splits    the split chains
+	 * @param streams   the filter chains
+	 * @param autoSplit whether to split the labels that fan out
+	 * @return the {@link FilterGraph} instance
+	 */
+	static FilterGraph of( String filter, List<Split> splits, List<Stream> streams, boolean autoSplit ) {
+		List<Chain> chains = new ArrayList<>( splits.size() + streams.size() );
+		for ( Split split : splits ) {
+			String source = split.getSource();
+			List<String> inputs = source == null ? Collections.emptyList() : Collections.singletonList( source );
+			chains.add( new Chain( inputs, split.getTargets(), "split", true ) );
+		}
+		for ( Stream stream : streams ) {
+			String label = stream.getLabel();
+			List<String> outputs = label == null ? Collections.emptyList() : Collections.singletonList( label );
+			chains.add( new Chain( stream.getLabels(), outputs, stream ) );
+		}
+		Media media = Media.of( filter );
+		List<String> untyped = new ArrayList<>( 0 );
+		return new FilterGraph( autoSplit ? fanOut( chains, media, untyped ) : chains, media, untyped );
+	}
+
+	/**
+	 * @return the number of chains, including the inserted splits
+	 */
+	public int size() {
+		return chains.size();
+	}
+
+	/**
+	 * @return the names of the filters of every chain, without their {@code @instance} suffix
+	 */
+	public Set<String> getFilterNames() {
+		Set<String> names = new LinkedHashSet<>( chains.size() * 2 );
+		for ( Chain chain : chains ) {
+			for ( FilterNode node : FilterNode.parse( chain.body() ) ) {
+				names.add( nameOf( node ) );
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Replace every filter of the name, such as an optional filter the binary was built without
+	 *
+	 * @param filter      the name of the filters to replace
+	 * @param replacement the rendered filter taking their place, {@code null} as a pass-through
+	 * @return a new {@link FilterGraph} instance, or this one if no filter has the name
+	 * @throws IllegalArgumentException if a pass-through is asked for a source or a visualization, or for a
+	 *                                  stream that is neither known to be audio nor video
+	 */
+	public FilterGraph replace( String filter, String replacement ) {
+		Assert.notNull( filter, "The replaced filter name cannot be null" );
+		Map<String, Integer> producers = producersOf( chains );
+		List<Chain> replaced = new ArrayList<>( chains.size() );
+		boolean changed = false;
+		for ( Chain chain : chains ) {
+			List<FilterNode> nodes = FilterNode.parse( chain.body() );
+			boolean matched = false;
+			for ( int i = 0; i < nodes.size(); i ++ ) {
+				if ( filter.equals( nameOf( nodes.get( i ) ) ) ) {
+					String pass = null;
+					if ( replacement == null ) {
+						if ( PRODUCERS.containsKey( filter ) ) {
+							throw new IllegalArgumentException( "The \"" + filter + "\" filter changes the media of its stream, give it a replacement" );
+						}
+						Media entering = mediaOf( chains, producers, chain, i, media, 0 );
+						if ( entering == null ) {
+							throw new IllegalArgumentException( "Cannot tell whether the \"" + filter + "\" filter is audio or video, give it a replacement" );
+						}
+						pass = entering == Media.AUDIO ? "anull" : "null";
+					}
+					nodes.set( i, new FilterNode( replacement == null ? pass : replacement ) );
+					matched = true;
+				}
+			}
+			replaced.add( matched ? new Chain( chain.inputs, chain.outputs, FilterNode.render( nodes ), chain.split ) : chain );
+			changed |= matched;
+		}
+		return changed ? new FilterGraph( replaced, media, untyped ) : this;
+	}
+
+	private static String nameOf( FilterNode node ) {
+		int index = node.name.indexOf( '@' );
+		return index < 0 ? node.name : node.name.substring( 0, index );
+	}
+
+	/**
+	 * Check the graph against the command that will run it
+	 *
+	 * @param inputs the number of inputs of the command
+	 * @param mapped the labels mapped to the outputs, or {@code null} to skip checking unused outputs
+	 * @return the {@link FilterGraph} instance
+	 * @throws IllegalArgumentException if ffmpeg would reject the graph, or if a label consumed more than once
+	 *                                  is neither known to be audio nor video
+	 */
+	public FilterGraph validate( int inputs, Collection<String> mapped ) {
+		if ( !untyped.isEmpty() ) {
+			throw new IllegalArgumentException( "Cannot tell whether filter label [" + untyped.get( 0 ) + "] is audio or video to split it, "
+					+ "consume a stream specifier such as 0:v or 0:a in its chain" );
+		}
+		Map<String, Integer> producers = new HashMap<>( chains.size() * 2 );
+		for ( int i = 0, s = chains.size(); i < s; i ++ ) {
+			Chain chain = chains.get( i );
+			if ( chain.body().isEmpty() ) {
+				throw new IllegalArgumentException( "Filter chain #" + i + " has no filter" );
+			}
+			for ( String output : chain.outputs ) {
+				if ( producers.put( output, i ) != null ) {
+					throw new IllegalArgumentException( "Filter label [" + output + "] is produced more than once" );
+				}
+			}
+		}
+
+		// Link every input pad to its producer and count the edges of each chain
+		int [] degrees = new int[ chains.size() ];
+		List<List<Integer>> edges = new ArrayList<>( chains.size() );
+		Set<String> consumed = new HashSet<>( producers.size() * 2 );
+		for ( int i = 0, s = chains.size(); i < s; i ++ ) {
+			edges.add( new ArrayList<>( 2 ) );
+		}
+		for ( int i = 0, s = chains.size(); i < s; i ++ ) {
+			for ( String input : chains.get( i ).inputs ) {
+				Integer producer = producers.get( input );
+				if ( producer == null ) {
+					int index = inputIndex( input );
+					if ( index < 0 ) {
+						throw new IllegalArgumentException( "Filter label [" + input + "] is consumed but never produced" );
+					}
+					if ( index >= inputs ) {
+						throw new IllegalArgumentException( "Filter label [" + input + "] refers to input #" + index + ", but there are only " + inputs + " inputs" );
+					}
+					continue;
+				}
+				if ( !consumed.add( input ) ) {
+					throw new IllegalArgumentException( "Filter label [" + input + "] is consumed more than once, split it or turn on Filters#autoSplit()" );
+				}
+				edges.get( producer ).add( i );
+				degrees[ i ] ++;
+			}
+		}
+
+		if ( mapped != null ) {
+			Set<String> outputs = new HashSet<>( mapped.size() * 2 );
+			for ( String label : mapped ) {
+				if ( !producers.containsKey( label ) ) {
+					throw new IllegalArgumentException( "Filter label [" + label + "] is mapped but never produced" );
+				}
+				if ( consumed.contains( label ) ) {
+					throw new IllegalArgumentException( "Filter label [" + label + "] is both mapped and consumed by a filter" );
+				}
+				outputs.add( label );
+			}
+			for ( String label : producers.keySet() ) {
+				if ( !consumed.contains( label ) && !outputs.contains( label ) ) {
+					throw new IllegalArgumentException( "Filter label [" + label + "] is neither consumed nor mapped" );
+				}
+			}
+		}
+
+		// Kahn's algorithm, whatever is left unvisited is on a cycle
+		Deque<Integer> ready = new ArrayDeque<>();
+		for ( int i = 0; i < degrees.length; i ++ ) {
+			if ( degrees[ i ] == 0 ) {
+				ready.add( i );
+			}
+		}
+		int visited = 0;
+		while ( !ready.isEmpty() ) {
+			visited ++;
+			for ( int next : edges.get( ready.poll() ) ) {
+				if ( -- degrees[ next ] == 0 ) {
+					ready.add( next );
+				}
+			}
+		}
+		if ( visited < chains.size() ) {
+			for ( int i = 0; i < degrees.length; i ++ ) {
+				if ( degrees[ i ] > 0 ) {
+					throw new IllegalArgumentException( "Filter graph has a cycle through chain #" + i + ": " + chains.get( i ) );
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Append the graph to the builder
+	 * 
+	 * @param builder the target builder
+	 */
+	public void appendTo( StringBuilder builder ) {
+		for ( int i = 0; i < chains.size(); i ++ ) {
+			if ( i > 0 ) {
+				builder.append( Const.GROUP_SEPARATOR );
+			}
+			chains.get( i ).appendTo( builder );
+		}
+	}
+
+	@Override
+	public String toString() {
+		return Renderer.render( this::appendTo );
+	}
+
+	/**
+	 * Insert a split after the producer of every label consumed more than once, and give each consumer its
+	 * own copy of the label. The labels that are neither known to be audio nor video are added to the untyped
+	 * ones and split as video.
+	 */
+	private static List<Chain> fanOut( List<Chain> chains, Media media, List<String> untyped ) {
+		Map<String, Integer> producers = new HashMap<>( chains.size() * 2 );
+		Map<String, Integer> uses = new HashMap<>( chains.size() * 2 );
+		Set<String> labels = new HashSet<>( chains.size() * 2 );
+		for ( int i = 0, s = chains.size(); i < s; i ++ ) {
+			Chain chain = chains.get( i );
+			for ( String output : chain.outputs ) {
+				producers.putIfAbsent( output, i );
+				labels.add( output );
+			}
+			for ( String input : chain.inputs ) {
+				uses.merge( input, 1, Integer::sum );
+				labels.add( input );
+			}
+		}
+
+		Map<String, List<String>> copies = null;
+		Map<Integer, List<Chain>> inserts = null;
+		for ( Map.Entry<String, Integer> use : uses.entrySet() ) {
+			String label = use.getKey();
+			Integer producer = producers.get( label );
+			if ( use.getValue() < 2 || producer == null ) {
+				continue; // Input streams can be consumed any number of times
+			}
+			if ( copies == null ) {
+				copies = new HashMap<>();
+				inserts = new HashMap<>();
+			}
+			List<String> targets = new ArrayList<>( use.getValue() );
+			for ( int i = 0, n = 0; i < use.getValue(); n ++ ) {
+				String copy = label + "_" + n;
+				if ( labels.add( copy ) ) {
+					targets.add( copy );
+					i ++;
+				}
+			}
+			copies.put( label, targets );
+			Chain chain = chains.get( producer );
+			Media type = mediaOf( chains, producers, chain, Integer.MAX_VALUE, media, 0 );
+			if ( type == null ) {
+				untyped.add( label );
+			}
+			String split = type == Media.AUDIO ? "asplit=" : "split=";
+			inserts.computeIfAbsent( producer, key -> new ArrayList<>( 1 ) )
+					.add( new Chain( Collections.singletonList( label ), targets, split + targets.size(), true ) );
+		}
+		if ( copies == null ) {
+			return chains;
+		}
+
+		List<Chain> result = new ArrayList<>( chains.size() + inserts.size() );
+		Map<String, Integer> taken = new HashMap<>( copies.size() * 2 );
+		for ( int i = 0, s = chains.size(); i < s; i ++ ) {
+			Chain chain = chains.get( i );
+			List<String> inputs = chain.inputs;
+			for ( int p = 0; p < inputs.size(); p ++ ) {
+				List<String> targets = copies.get( inputs.get( p ) );
+				if ( targets != null ) {
+					if ( inputs == chain.inputs ) {
+						inputs = new ArrayList<>( chain.inputs );
+					}
+					inputs.set( p, targets.get( taken.merge( chain.inputs.get( p ), 1, Integer::sum ) - 1 ) );
+				}
+			}
+			result.add( inputs == chain.inputs ? chain : chain.withInputs( inputs ) );
+			List<Chain> inserted = inserts.get( i );
+			if ( inserted != null ) {
+				result.addAll( inserted );
+			}
+		}
+		return result;
+	}
+
+	private static Map<String, Integer> producersOf( List<Chain> chains ) {
+		Map<String, Integer> producers = new HashMap<>( chains.size() * 2 );
+		for ( int i = 0, s = chains.size(); i < s; i ++ ) {
+			for ( String output : chains.get( i ).outputs ) {
+				producers.putIfAbsent( output, i );
+			}
+		}
+		return producers;
+	}
+
+	/**
+	 * Find the media of the stream entering a filter of a chain. It's derived from the stream specifiers and the
+	 * producers, no filter is assumed to be audio or video by its name: the filters keep the media of their
+	 * input, up to the input pads of the chain and the chains producing them, a stream specifier such as
+	 * {@code 0:a} gives the media of an input stream, and only the sources and visualizations before the filter
+	 * give a media of their own. The filter option of a simple graph, such as {@code -af}, gives the media of the
+	 * whole graph.
+	 *
+	 * @param chains    the chains of the graph
+	 * @param producers the index of the chain producing every label
+	 * @param chain     the chain
+	 * @param filter    the index of the filter in the chain, the number of filters for the output of the chain
+	 * @param media     the media of the filter option, or {@code null} for a complex graph
+	 * @param depth     the number of chains already followed, to stop on a cycle
+	 * @return the media, or {@code null} if it is unknown
+	 */
+	private static Media mediaOf( List<Chain> chains, Map<String, Integer> producers, Chain chain, int filter, Media media, int depth ) {
+		if ( media != null ) {
+			return media;
+		}
+		if ( chain.split ) {
+			return chain.body().startsWith( "asplit" ) ? Media.AUDIO : Media.VIDEO;
+		}
+		List<FilterNode> nodes = FilterNode.parse( chain.body() );
+		for ( int i = Math.min( filter, nodes.size() ) - 1; i >= 0; i -- ) {
+			Media type = PRODUCERS.get( nameOf( nodes.get( i ) ) );
+			if ( type != null ) {
+				return type;
+			}
+		}
+		for ( String input : chain.inputs ) {
+			Integer producer = producers.get( input );
+			Media type = null;
+			if ( producer == null ) {
+				type = Media.ofSpecifier( input );
+			} else if ( depth < chains.size() ) {
+				Chain source = chains.get( producer );
+				type = mediaOf( chains, producers, source, Integer.MAX_VALUE, null, depth + 1 );
+			}
+			if ( type != null ) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param label the pad label
+	 * @return the input index of a stream specifier like {@code 0:v:0}, or {@code -1}
+	 */
+	private static int inputIndex( String label ) {
+		int end = label.indexOf( Const.PARAMETER_SEPARATOR );
+		String index = end < 0 ? label : label.substring( 0, end );
+		if ( index.isEmpty() || index.length() > 9 ) {
+			return -1;
+		}
+		for ( int i = 0; i < index.length(); i ++ ) {
+			if ( !Character.isDigit( index.charAt( i ) ) ) {
+				return -1;
+			}
+		}
+		return Integer.parseInt( index );
+	}
+
+	/**
+	 * The media of a stream
+	 */
+	private enum Media {
+
+		VIDEO, AUDIO;
+
+		/**
+		 * @param filter the filter option, such as {@code vf} or {@code filter:a}
+		 * @return the media of the option, or {@code null} for a complex graph
+		 */
+		private static Media of( String filter ) {
+			if ( "vf".equals( filter ) || "filter:v".equals( filter ) ) {
+				return VIDEO;
+			}
+			if ( "af".equals( filter ) || "filter:a".equals( filter ) ) {
+				return AUDIO;
+			}
+			return null;
+		}
+
+		/**
+		 * @param label the pad label
+		 * @return the media of a stream specifier such as {@code 0:v:0} or {@code 1:a}, or {@code null}
+		 */
+		private static Media ofSpecifier( String label ) {
+			if ( inputIndex( label ) < 0 ) {
+				return null;
+			}
+			int start = label.indexOf( Const.PARAMETER_SEPARATOR ) + 1;
+			int end = label.indexOf( Const.PARAMETER_SEPARATOR, start );
+			String type = start == 0 ? "" : label.substring( start, end < 0 ? label.length() : end );
+			if ( "v".equals( type ) || "V".equals( type ) ) {
+				return VIDEO;
+			}
+			return "a".equals( type ) ? AUDIO : null;
+		}
+
+	}
+
+	/**
+	 * A filter chain with its labelled input and output pads, the filters of a chain from {@link Filters} are
+	 * only rendered on their own when they are parsed, and appended straight from the stream otherwise
+	 */
+	private static final class Chain {
+
+		private final List<String> inputs;
+		private final List<String> outputs;
+		private final Stream stream;
+		private final boolean split;
+		private String body;
+
+		private Chain( List<String> inputs, List<String> outputs, String body, boolean split ) {
+			this.inputs = inputs;
+			this.outputs = outputs;
+			this.stream = null;
+			this.body = body;
+			this.split = split;
+		}
+
+		private Chain( List<String> inputs, List<String> outputs, Stream stream ) {
+			this.inputs = inputs;
+			this.outputs = outputs;
+			this.stream = stream;
+			this.split = false;
+		}
+
+		private Chain( List<String> inputs, Chain chain ) {
+			this.inputs = inputs;
+			this.outputs = chain.outputs;
+			this.stream = chain.stream;
+			this.body = chain.body;
+			this.split = chain.split;
+		}
+
+		/**
+		 * @param inputs the new input pads
+		 * @return the same chain reading other pads
+		 */
+		private Chain withInputs( List<String> inputs ) {
+			return new Chain( inputs, this );
+		}
+
+		/**
+		 * @return the filters of the chain without any pad label
+		 */
+		private String body() {
+			if ( body == null ) {
+				this.body = stream.body();
+			}
+			return body;
+		}
+
+		private void appendTo( StringBuilder builder ) {
+			for ( String input : inputs ) {
+				builder.append( Const.INPUT_TOKEN_START ).append( input ).append( Const.INPUT_TOKEN_END );
+			}
+			if ( body == null ) {
+				stream.appendBody( builder );
+			} else {
+				builder.append( body );
+			}
+			for ( String output : outputs ) {
+				builder.append( Const.INPUT_TOKEN_START ).append( output ).append( Const.INPUT_TOKEN_END );
+			}
+		}
+
+		@Override
+		public String toString() {
+			return Renderer.render( this::appendTo );
+		}
+
+	}
+
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.viiyue.ffmpeg.common.Const;
+
+/**
+ * A rendered filter of a chain, parsed back into its name and options the way ffmpeg reads them.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+final class FilterNode {
+
+	private static final Map<String, String []> POSITIONS = new HashMap<>( 16 );
+
+	static {
+		POSITIONS.put( "scale", new String [] { "w", "h" } );
+		POSITIONS.put( "crop", new String [] { "w", "h", "x", "y" } );
+		POSITIONS.put( "fps", new String [] { "fps" } );
+		POSITIONS.put( "framestep", new String [] { "step" } );
+		POSITIONS.put( "trim", new String [] { "start", "end" } );
+		POSITIONS.put( "eq", new String [] { "contrast", "brightness", "saturation", "gamma", "gamma_r", "gamma_g", "gamma_b", "gamma_weight", "eval" } );
+		POSITIONS.put( "hue", new String [] { "h", "s", "H", "b" } );
+		POSITIONS.put( "colorbalance", new String [] { "rs", "gs", "bs", "rm", "gm", "bm", "rh", "gh", "bh", "pl" } );
+		POSITIONS.put( "vibrance", new String [] { "intensity", "rbal", "gbal", "bbal", "rlum", "glum", "blum", "alternate" } );
+		POSITIONS.put( "colorchannelmixer", new String [] { "rr", "rg", "rb", "ra", "gr", "gg", "gb", "ga", "br", "bg", "bb", "ba", "ar", "ag", "ab", "aa", "pc", "pa" } );
+		POSITIONS.put( "exposure", new String [] { "exposure", "black" } );
+		POSITIONS.put( "geq", new String [] { "lum", "cb", "cr", "a", "r", "g", "b", "i" } );
+		POSITIONS.put( "curves", new String [] { "preset", "master", "red", "green", "blue", "all", "psfile", "plot", "interp" } );
+	}
+
+	final String text;
+	final String name;
+	final String args;
+	private Map<String, String> options;
+
+	FilterNode( String text ) {
+		int index = text.indexOf( Const.VALUE_SEPARATOR );
+		this.text = text;
+		this.name = ( index < 0 ? text : text.substring( 0, index ) ).trim();
+		this.args = index < 0 ? null : text.substring( index + 1 );
+	}
+
+	/**
+	 * Split a chain on the commas that are not quoted or escaped
+	 *
+	 * @param body the rendered chain
+	 * @return the filters of the chain
+	 */
+	static List<FilterNode> parse( String body ) {
+		List<FilterNode> chain = new ArrayList<>( 4 );
+		for ( String text : split( body, ',' ) ) {
+			if ( !text.isEmpty() ) {
+				chain.add( new FilterNode( text ) );
+			}
+		}
+		return chain;
+	}
+
+	/**
+	 * @param chain the filters
+	 * @return the rendered chain
+	 */
+	static String render( List<FilterNode> chain ) {
+		StringBuilder builder = new StringBuilder( 64 );
+		for ( FilterNode node : chain ) {
+			if ( builder.length() > 0 ) {
+				builder.append( Const.PART_SEPARATOR );
+			}
+			builder.append( node.text );
+		}
+		return builder.toString();
+	}
+
+	boolean is( String name ) {
+		return this.name.equals( name );
+	}
+
+	/**
+	 * @return the options by name in their order, positional options named after their position
+	 */
+	Map<String, String> options() {
+		if ( options == null ) {
+			this.options = new LinkedHashMap<>( 8 );
+			if ( args != null ) {
+				String [] positions = POSITIONS.get( name );
+				int position = 0;
+				for ( String part : split( args, ':' ) ) {
+					int index = indexOfName( part );
+					if ( index > 0 ) {
+						options.put( part.substring( 0, index ), unquote( part.substring( index + 1 ) ) );
+					} else if ( positions != null && position < positions.length ) {
+						options.put( positions[ position ++ ], unquote( part ) );
+					} else {
+						options.put( part, null );
+					}
+				}
+			}
+		}
+		return options;
+	}
+
+	/**
+	 * @param variables the names of expression variables, such as {@code t} or {@code iw}
+	 * @return whether a value refers to one of the variables, unnamed values of unknown filters included
+	 */
+	boolean refersTo( Set<String> variables ) {
+		for ( Map.Entry<String, String> option : options().entrySet() ) {
+			String value = option.getValue() == null ? option.getKey() : option.getValue();
+			for ( int i = 0, start = -1; i <= value.length(); i ++ ) {
+				boolean part = i < value.length() && ( Character.isLetterOrDigit( value.charAt( i ) ) || value.charAt( i ) == '_' );
+				if ( part && start < 0 ) {
+					start = i;
+				} else if ( !part && start >= 0 ) {
+					if ( variables.contains( value.substring( start, i ) ) ) {
+						return true;
+					}
+					start = -1;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param option         the option name
+	 * @param defaultValue   the value when the option is absent
+	 * @return the numeric value, or {@code NaN} if it's an expression
+	 */
+	double number( String option, double defaultValue ) {
+		Map<String, String> options = options();
+		return options.containsKey( option ) ? toNumber( options.get( option ) ) : defaultValue;
+	}
+
+	/**
+	 * @return the output size of a scale or crop, unknown dimensions are kept or derived from the aspect
+	 */
+	double [] size( double w, double h ) {
+		Map<String, String> options = options();
+		String size = options.containsKey( "s" ) ? options.get( "s" ) : options.get( "size" );
+		int x = size == null ? -1 : size.indexOf( 'x' );
+		double ow, oh;
+		if ( x > 0 ) {
+			ow = toNumber( size.substring( 0, x ) );
+			oh = toNumber( size.substring( x + 1 ) );
+		} else {
+			ow = toNumber( options.containsKey( "w" ) ? options.get( "w" ) : options.get( "width" ) );
+			oh = toNumber( options.containsKey( "h" ) ? options.get( "h" ) : options.get( "height" ) );
+		}
+		if ( Double.isNaN( ow ) || Double.isNaN( oh ) ) {
+			return new double [] { w, h }; // Expressions are evaluated by ffmpeg only
+		}
+		if ( ow <= 0 && oh > 0 && w > 0 ) {
+			ow = oh * w / h;
+		} else if ( oh <= 0 && ow > 0 && h > 0 ) {
+			oh = ow * h / w;
+		}
+		return new double [] { ow, oh };
+	}
+
+	static double toNumber( String value ) {
+		if ( value == null ) {
+			return Double.NaN;
+		}
+		try {
+			return Double.parseDouble( value.trim() );
+		} catch ( NumberFormatException e ) {
+			return Double.NaN;
+		}
+	}
+
+	static List<String> split( String text, char separator ) {
+		List<String> parts = new ArrayList<>( 4 );
+		boolean quoted = false;
+		int start = 0;
+		for ( int i = 0; i < text.length(); i ++ ) {
+			char c = text.charAt( i );
+			if ( c == '\\' && !quoted ) {
+				i ++;
+			} else if ( c == '\'' ) {
+				quoted = !quoted;
+			} else if ( c == separator && !quoted ) {
+				parts.add( text.substring( start, i ) );
+				start = i + 1;
+			}
+		}
+		parts.add( text.substring( start ) );
+		return parts;
+	}
+
+	private static int indexOfName( String part ) {
+		for ( int i = 0; i < part.length(); i ++ ) {
+			char c = part.charAt( i );
+			if ( c == '=' ) {
+				return i;
+			}
+			if ( c == '\'' || c == '\\' ) {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	private static String unquote( String value ) {
+		StringBuilder builder = new StringBuilder( value.length() );
+		boolean quoted = false;
+		for ( int i = 0; i < value.length(); i ++ ) {
+			char c = value.charAt( i );
+			if ( c == '\'' ) {
+				quoted = !quoted;
+			} else if ( c == '\\' && !quoted && i + 1 < value.length() ) {
+				builder.append( value.charAt( ++ i ) );
+			} else {
+				builder.append( c );
+			}
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
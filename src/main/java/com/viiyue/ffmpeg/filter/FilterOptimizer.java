@@ -0,0 +1,387 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.common.Const;
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * An optional pass that rewrites the chains of {@link Filters} so that ffmpeg processes fewer pixels for the
+ * same result: no-op filters are dropped, frame and pixel reducing filters move ahead of the filters that don't
+ * depend on what they remove, and consecutive scales or formats are merged. A move is only kept when the cost
+ * estimated from {@link #of(int, int, double, double)} doesn't grow: the pixels processed over the duration of
+ * the source, where a {@code trim} shortens the duration seen by the filters after it.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class FilterOptimizer {
+
+	private static final Logger LOG = LoggerFactory.getLogger( FilterOptimizer.class );
+
+	private static final Set<String> NOOPS = set( "null", "copy", "anull", "acopy" );
+	private static final Set<String> FRAME_REDUCERS = set( "trim", "fps", "framestep" );
+
+	// Each output pixel only depends on the input pixel at the same position
+	private static final Set<String> PIXEL_WISE = set( "eq", "hue", "negate", "lut", "lutyuv", "lutrgb", "lut1d",
+			"lut3d", "haldclut", "curves", "colorbalance", "colorchannelmixer", "colorlevels", "colorcontrast",
+			"colorcorrect", "colortemperature", "colorize", "exposure", "vibrance", "selectivecolor", "huesaturation",
+			"monochrome" );
+
+	// Each output frame only depends on the input frame with the same timestamp
+	private static final Set<String> FRAME_WISE = set( "scale", "crop", "format", "hflip", "vflip", "transpose",
+			"pad", "setsar", "setdar", "boxblur", "gblur", "avgblur", "unsharp", "drawbox", "drawgrid", "edgedetect",
+			"sobel", "median", "convolution", "vignette", "colorspace", "colormatrix" );
+
+	private static final Set<String> SIZE_OPTIONS = set( "w", "h", "width", "height", "s", "size", "flags" );
+
+	// Expression variables that change when frames are dropped ahead of the filter
+	private static final Set<String> TIME_VARIABLES = set( "n", "t", "pos", "N", "T" );
+
+	// Expression variables that change when the frame is cropped or scaled ahead of the filter
+	private static final Set<String> SIZE_VARIABLES = set( "w", "h", "W", "H", "iw", "ih", "in_w", "in_h" );
+
+	private final double width;
+	private final double height;
+	private final double rate;
+	private final double duration;
+
+	private FilterOptimizer( int width, int height, double rate, double duration ) {
+		this.width = width;
+		this.height = height;
+		this.rate = rate;
+		this.duration = duration;
+	}
+
+	/**
+	 * Create an optimizer that estimates the savings for a source of the given size and frame rate, whose
+	 * duration is unknown, see {@link #of(int, int, double, double)}
+	 *
+	 * @param width  the source width
+	 * @param height the source height
+	 * @param rate   the source frame rate
+	 * @return the {@link FilterOptimizer} instance
+	 */
+	public static final FilterOptimizer of( int width, int height, double rate ) {
+		return of( width, height, rate, 0 );
+	}
+
+	/**
+	 * Create an optimizer that estimates the savings for a source of the given size, frame rate and duration.
+	 * When the duration is unknown, the source is assumed to last until the furthest end of the trims of the
+	 * chain, and a trim without an end doesn't shorten it.
+	 *
+	 * @param width    the source width
+	 * @param height   the source height
+	 * @param rate     the source frame rate
+	 * @param duration the source duration in seconds, {@code 0} if it is unknown
+	 * @return the {@link FilterOptimizer} instance
+	 */
+	public static final FilterOptimizer of( int width, int height, double rate, double duration ) {
+		Assert.isTrue( width > 0 && height > 0, "The source size must be greater than 0" );
+		Assert.isTrue( rate > 0, "The source frame rate must be greater than 0" );
+		Assert.isTrue( duration >= 0, "The source duration cannot be negative" );
+		return new FilterOptimizer( width, height, rate, duration );
+	}
+
+	/**
+	 * Rewrite every chain of the filters in place
+	 *
+	 * @param filters the filters to optimize
+	 * @return the rewrites in the order they were applied
+	 */
+	public List<Rewrite> optimize( Filters filters ) {
+		Assert.notNull( filters, "The filters cannot be null" );
+		List<Rewrite> rewrites = new ArrayList<>();
+		for ( Stream stream : filters.getStreams() ) {
+			String body = stream.body();
+			if ( body.indexOf( Const.INPUT_TOKEN_START ) >= 0 ) {
+				continue; // Labels inside the expressions, the chain is not a plain list of filters
+			}
+			List<FilterNode> chain = FilterNode.parse( body );
+			if ( chain.size() > 1 && optimize( chain, rewrites ) ) {
+				List<String> result = new ArrayList<>( chain.size() );
+				for ( FilterNode node : chain ) {
+					result.add( node.text );
+				}
+				stream.rewrite( result );
+			}
+		}
+		if ( LOG.isDebugEnabled() ) {
+			for ( Rewrite rewrite : rewrites ) {
+				LOG.debug( "Filter rewrite: {}", rewrite );
+			}
+		}
+		return rewrites;
+	}
+
+	/**
+	 * @param chain the filters of a chain
+	 * @return the estimated pixels processed by the chain over the source duration, dropping frames costs
+	 *         nothing and a trim shortens the duration of the filters after it
+	 */
+	private double cost( List<FilterNode> chain ) {
+		double w = width, h = height, r = rate, d = duration > 0 ? duration : lengthOf( chain ), cost = 0;
+		for ( FilterNode node : chain ) {
+			if ( !FRAME_REDUCERS.contains( node.name ) ) {
+				cost += w * h * r * d;
+			}
+			if ( node.is( "scale" ) || node.is( "crop" ) ) {
+				double [] size = node.size( w, h );
+				w = size[ 0 ];
+				h = size[ 1 ];
+			} else if ( node.is( "fps" ) ) {
+				double fps = node.number( "fps", 0 );
+				r = fps > 0 ? fps : r;
+			} else if ( node.is( "framestep" ) ) {
+				double step = node.number( "step", 0 );
+				r = step >= 1 ? r / step : r;
+			} else if ( node.is( "trim" ) ) {
+				double [] window = windowOf( node, r );
+				double end = Double.isNaN( window[ 1 ] ) ? d : Math.min( window[ 1 ], d );
+				d = Double.isNaN( window[ 0 ] ) ? d : Math.max( 0, end - Math.max( 0, window[ 0 ] ) );
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * @param chain the filters of a chain
+	 * @return the assumed duration of a source of unknown duration: the furthest end of its trims, one second
+	 *         if none of them has an end, the costs then only compare the rates
+	 */
+	private double lengthOf( List<FilterNode> chain ) {
+		double length = 0, r = rate;
+		for ( FilterNode node : chain ) {
+			if ( node.is( "trim" ) ) {
+				double end = windowOf( node, r )[ 1 ];
+				length = Double.isNaN( end ) ? length : Math.max( length, end );
+			} else if ( node.is( "fps" ) ) {
+				double fps = node.number( "fps", 0 );
+				r = fps > 0 ? fps : r;
+			}
+		}
+		return length > 0 ? length : 1;
+	}
+
+	/**
+	 * @param trim the trim filter
+	 * @param rate the frame rate of its input, for the frame numbers
+	 * @return the start and the end of the frames kept in seconds, the end is {@code NaN} if the trim has no
+	 *         end and both are {@code NaN} if they are expressions or timestamps ffmpeg only knows
+	 */
+	private static double [] windowOf( FilterNode trim, double rate ) {
+		Map<String, String> options = trim.options();
+		if ( options.containsKey( "start_pts" ) || options.containsKey( "end_pts" ) ) {
+			return new double [] { Double.NaN, Double.NaN };
+		}
+		double start = options.containsKey( "start_frame" ) ? FilterNode.toNumber( options.get( "start_frame" ) ) / rate
+				: options.containsKey( "start" ) ? seconds( options.get( "start" ) ) : 0;
+		double end = options.containsKey( "end_frame" ) ? FilterNode.toNumber( options.get( "end_frame" ) ) / rate
+				: options.containsKey( "end" ) ? seconds( options.get( "end" ) ) : Double.NaN;
+		if ( options.containsKey( "duration" ) ) {
+			double length = start + seconds( options.get( "duration" ) );
+			end = Double.isNaN( end ) ? length : Math.min( end, length );
+		}
+		if ( Double.isNaN( start ) ) {
+			return new double [] { Double.NaN, Double.NaN };
+		}
+		return new double [] { start, end };
+	}
+
+	/**
+	 * @param time a duration such as {@code 90}, {@code 1.5} or {@code 00:01:30}
+	 * @return the seconds, {@code NaN} if it is not a number
+	 */
+	private static double seconds( String time ) {
+		double seconds = 0;
+		for ( String part : time.split( ":", 3 ) ) {
+			seconds = seconds * 60 + FilterNode.toNumber( part );
+		}
+		return seconds;
+	}
+
+	private boolean optimize( List<FilterNode> chain, List<Rewrite> rewrites ) {
+		boolean changed = false;
+		for ( int round = 0, limit = chain.size() * chain.size(); round < limit; round ++ ) {
+			boolean applied = false;
+			for ( int i = 0; i < chain.size() && chain.size() > 1; i ++ ) {
+				FilterNode node = chain.get( i );
+				FilterNode previous = i > 0 ? chain.get( i - 1 ) : null;
+				if ( NOOPS.contains( node.name ) && node.args == null ) {
+					applied |= apply( chain, rewrites, Rule.DROP_NOOP, node, remove( chain, i ), true );
+				} else if ( previous != null && isMergeable( previous, node ) ) {
+					applied |= apply( chain, rewrites, Rule.MERGE, node, remove( chain, i - 1 ), true );
+				} else if ( previous != null && canMoveAhead( previous, node ) ) {
+					Rule rule = node.is( "scale" ) ? Rule.PUSH_DOWNSCALE : Rule.MOVE_EARLY;
+					applied |= apply( chain, rewrites, rule, node, swap( chain, i ), rule == Rule.MOVE_EARLY );
+				}
+				if ( applied ) {
+					break;
+				}
+			}
+			if ( !applied ) {
+				break;
+			}
+			changed = true;
+		}
+		return changed;
+	}
+
+	/**
+	 * Keep the candidate if it doesn't cost more, a downscale has to cost less
+	 */
+	private boolean apply( List<FilterNode> chain, List<Rewrite> rewrites, Rule rule, FilterNode node, List<FilterNode> candidate, boolean keepEven ) {
+		double saving = cost( chain ) - cost( candidate );
+		if ( saving < 0 || ( saving == 0 && !keepEven ) ) {
+			return false;
+		}
+		rewrites.add( new Rewrite( rule, node.text, FilterNode.render( chain ), FilterNode.render( candidate ), saving ) );
+		chain.clear();
+		chain.addAll( candidate );
+		return true;
+	}
+
+	private boolean isMergeable( FilterNode previous, FilterNode node ) {
+		if ( previous.is( "format" ) && node.is( "format" ) ) {
+			return true;
+		}
+		if ( previous.is( "scale" ) && node.is( "scale" ) && SIZE_OPTIONS.containsAll( previous.options().keySet() )
+				&& SIZE_OPTIONS.containsAll( node.options().keySet() ) ) {
+			// Only two absolute sizes can be compared, a relative one such as iw/2 is left alone, and the first
+			// scale is only irrelevant if the second one doesn't enlarge its result
+			double [] first = previous.size( -1, -1 ), second = node.size( -1, -1 );
+			return first[ 0 ] > 0 && first[ 1 ] > 0 && second[ 0 ] > 0 && second[ 1 ] > 0 && second[ 0 ] <= first[ 0 ] && second[ 1 ] <= first[ 1 ];
+		}
+		return false;
+	}
+
+	private boolean canMoveAhead( FilterNode previous, FilterNode node ) {
+		if ( FRAME_REDUCERS.contains( node.name ) ) {
+			return ( FRAME_WISE.contains( previous.name ) || PIXEL_WISE.contains( previous.name ) )
+					&& !"frame".equals( previous.options().get( "eval" ) ) && !previous.refersTo( TIME_VARIABLES );
+		}
+		if ( node.is( "crop" ) ) {
+			return PIXEL_WISE.contains( previous.name ) && !previous.refersTo( SIZE_VARIABLES );
+		}
+		if ( node.is( "scale" ) ) {
+			return PIXEL_WISE.contains( previous.name ) && SIZE_OPTIONS.containsAll( node.options().keySet() )
+					&& !previous.refersTo( SIZE_VARIABLES );
+		}
+		return false;
+	}
+
+	private static List<FilterNode> remove( List<FilterNode> chain, int index ) {
+		List<FilterNode> result = new ArrayList<>( chain );
+		result.remove( index );
+		return result;
+	}
+
+	private static List<FilterNode> swap( List<FilterNode> chain, int index ) {
+		List<FilterNode> result = new ArrayList<>( chain );
+		Collections.swap( result, index - 1, index );
+		return result;
+	}
+
+	private static Set<String> set( String ... values ) {
+		return Collections.unmodifiableSet( new HashSet<>( Arrays.asList( values ) ) );
+	}
+
+	/**
+	 * The kinds of rewrites
+	 */
+	public enum Rule {
+
+		/** A filter that passes the frames through unchanged was dropped */
+		DROP_NOOP,
+
+		/** A frame or pixel reducing filter was moved ahead of a filter */
+		MOVE_EARLY,
+
+		/** Two consecutive filters were merged into the last one */
+		MERGE,
+
+		/** A downscale was moved ahead of a pixel-wise filter */
+		PUSH_DOWNSCALE;
+
+	}
+
+	/**
+	 * A rewrite of a chain with its estimated saving
+	 */
+	public static final class Rewrite {
+
+		private final Rule rule;
+		private final String filter;
+		private final String before;
+		private final String after;
+		private final double saving;
+
+		private Rewrite( Rule rule, String filter, String before, String after, double saving ) {
+			this.rule = rule;
+			this.filter = filter;
+			this.before = before;
+			this.after = after;
+			this.saving = saving;
+		}
+
+		public Rule getRule() {
+			return rule;
+		}
+
+		/**
+		 * @return the filter that was dropped, merged or moved
+		 */
+		public String getFilter() {
+			return filter;
+		}
+
+		public String getBefore() {
+			return before;
+		}
+
+		public String getAfter() {
+			return after;
+		}
+
+		/**
+		 * @return the estimated number of pixels no longer processed over the source duration, see
+		 *         {@link FilterOptimizer#of(int, int, double, double)}
+		 */
+		public double getSaving() {
+			return saving;
+		}
+
+		@Override
+		public String toString() {
+			return rule + " " + filter + ": " + before + " -> " + after + " (" + String.format( Locale.ROOT, "%.0f", saving ) + " px)";
+		}
+
+	}
+
+}
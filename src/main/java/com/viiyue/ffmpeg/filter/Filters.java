@@ -17,7 +17,6 @@ package com.viiyue.ffmpeg.filter;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.StringJoiner;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -31,6 +30,7 @@ import com.viiyue.ffmpeg.util.Assert;
 public final class Filters {
 
 	private final String filter;
+	private boolean autoSplit;
 
 	private List<Split> spliters = new LinkedList<Split>();
 	private List<Stream> streams = new LinkedList<Stream>();
@@ -51,6 +51,20 @@ public final class Filters {
 		return new Filters( type );
 	}
 	
+	/**
+	 * Split the labels consumed by more than one chain automatically: a {@code split} or {@code asplit} is
+	 * inserted after the producer of the label, and each consumer gets its own copy named
+	 * {@code <label>_<n>}. Off by default, the graph is rendered as it is written and such a label is rejected
+	 * by {@link FilterGraph#validate(int, java.util.Collection)}.
+	 * 
+	 * @return the {@link Filters} instance
+	 * @since 1.0.1
+	 */
+	public Filters autoSplit() {
+		this.autoSplit = true;
+		return this;
+	}
+
 	public Split split() {
 		Split split = new Split( this );
 		this.spliters.add( split );
@@ -122,19 +136,63 @@ public final class Filters {
 		return this.filter;
 	}
 
-	@Override
-	public String toString() {
+	/**
+	 * @return the filter chains
+	 * @since 1.0.1
+	 */
+	List<Stream> getStreams() {
+		return streams;
+	}
+
+	/**
+	 * Build the graph model of the filters, labels consumed by more than one chain are only split when
+	 * {@link #autoSplit()} is on.
+	 * 
+	 * @return the filter graph
+	 * @since 1.0.1
+	 */
+	public FilterGraph graph() {
+		return FilterGraph.of( filter, spliters, streams, autoSplit );
+	}
+
+	/**
+	 * Append the whole filter graph to the builder
+	 * 
+	 * @param builder the target builder
+	 * @since 1.0.1
+	 */
+	public void appendTo( StringBuilder builder ) {
 		if ( streams.isEmpty() ) {
-			return StringUtils.EMPTY;
+			return;
+		}
+		if ( autoSplit ) {
+			graph().appendTo( builder );
+			return;
 		}
-		StringJoiner joiner = new StringJoiner( Const.GROUP_SEPARATOR );
+		// Rendered as it is written, there is no need to build the graph
+		boolean first = true;
 		for ( Split split : spliters ) {
-			joiner.add( split.getResult() );
+			if ( !first ) {
+				builder.append( Const.GROUP_SEPARATOR );
+			}
+			builder.append( split.getResult() );
+			first = false;
+		}
+		for ( Stream stream : streams ) {
+			if ( !first ) {
+				builder.append( Const.GROUP_SEPARATOR );
+			}
+			stream.appendTo( builder );
+			first = false;
 		}
-		for ( int i = 0, s = streams.size(); i < s; i ++ ) {
-			joiner.add( streams.get( i ).output() );
+	}
+
+	@Override
+	public String toString() {
+		if ( streams.isEmpty() ) {
+			return StringUtils.EMPTY;
 		}
-		return joiner.toString();
+		return Renderer.render( this::appendTo );
 	}
 
 }
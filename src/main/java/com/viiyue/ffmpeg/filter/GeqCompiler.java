@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.common.Const;
+import com.viiyue.ffmpeg.filter.video.Geq;
+import com.viiyue.ffmpeg.filter.video.LutRgb;
+import com.viiyue.ffmpeg.filter.video.LutYuv;
+import com.viiyue.ffmpeg.util.Assert;
+import com.viiyue.ffmpeg.util.Helper;
+
+/**
+ * Compile {@link Geq} filters whose expressions only depend on the current sample of their own plane into
+ * {@link LutYuv} or {@link LutRgb}, keeping any filter whose results the lookup would clip differently.
+ *
+ * <pre>
+ * geq=lum='p(X,Y)*0.5+64':cb=128:cr=128 -&gt; lutyuv=y='val*0.5+64':u='128':v='128':a=maxval
+ * </pre>
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class GeqCompiler {
+
+	private static final Logger LOG = LoggerFactory.getLogger( GeqCompiler.class );
+
+	private static final Map<String, String> OPTIONS = new HashMap<>( 16 );
+	private static final String VALUE_NAME = "val";
+	private static final Expr VALUE = Expr.var( VALUE_NAME );
+
+	static {
+		OPTIONS.put( "lum_expr", "lum" );
+		OPTIONS.put( "cb_expr", "cb" );
+		OPTIONS.put( "cr_expr", "cr" );
+		OPTIONS.put( "alpha_expr", "a" );
+		OPTIONS.put( "red_expr", "r" );
+		OPTIONS.put( "green_expr", "g" );
+		OPTIONS.put( "blue_expr", "b" );
+		OPTIONS.put( "interpolation", "i" );
+		for ( String name : new String [] { "lum", "cb", "cr", "a", "r", "g", "b", "i" } ) {
+			OPTIONS.put( name, name );
+		}
+	}
+
+	private GeqCompiler() {}
+
+	/**
+	 * @return a new {@link GeqCompiler} instance
+	 */
+	public static final GeqCompiler of() {
+		return new GeqCompiler();
+	}
+
+	/**
+	 * Replace every {@code geq} that only depends on the sample values in the chains of the filters with a
+	 * lookup table
+	 *
+	 * @param filters the filters to rewrite in place
+	 * @return the compiled filters
+	 */
+	public List<Compilation> compile( Filters filters ) {
+		Assert.notNull( filters, "The filters cannot be null" );
+		List<Compilation> compilations = new ArrayList<>();
+		for ( Stream stream : filters.getStreams() ) {
+			String body = stream.body();
+			if ( body.indexOf( Const.INPUT_TOKEN_START ) >= 0 ) {
+				continue;
+			}
+			List<FilterNode> chain = FilterNode.parse( body );
+			List<String> result = new ArrayList<>( chain.size() );
+			boolean changed = false;
+			for ( FilterNode node : chain ) {
+				String lut = node.is( "geq" ) ? compile( node ) : null;
+				if ( lut == null ) {
+					result.add( node.text );
+					continue;
+				}
+				result.add( lut );
+				compilations.add( new Compilation( node.text, lut ) );
+				changed = true;
+			}
+			if ( changed ) {
+				stream.rewrite( result );
+			}
+		}
+		return compilations;
+	}
+
+	/**
+	 * Compile a single {@code geq}, the missing expressions are filled in the same way as ffmpeg does
+	 *
+	 * @param node the geq filter
+	 * @return the lookup filter, or {@code null} if the filter cannot be compiled
+	 */
+	private String compile( FilterNode node ) {
+		Map<String, String> options = new HashMap<>( 8 );
+		for ( Map.Entry<String, String> option : node.options().entrySet() ) {
+			String name = OPTIONS.get( option.getKey() );
+			if ( name == null || option.getValue() == null ) {
+				return null;
+			}
+			options.put( name, option.getValue() );
+		}
+		String lum = options.get( "lum" ), alpha = options.get( "a" );
+		try {
+			if ( lum != null ) {
+				String cb = options.get( "cb" ), cr = options.get( "cr" );
+				if ( cb == null && cr == null ) {
+					cb = cr = lum;
+				} else if ( cb == null ) {
+					cb = cr;
+				} else if ( cr == null ) {
+					cr = cb;
+				}
+				LutYuv lut = LutYuv.of();
+				lut.y( plane( lum, "lum", 16, 235 ) );
+				lut.u( plane( cb, "cb", 16, 240 ) );
+				lut.v( plane( cr, "cr", 16, 240 ) );
+				return lut.alpha( alpha == null ? "maxval" : plane( alpha, "alpha", 0, 255 ) ).toString();
+			}
+			String red = options.get( "r" ), green = options.get( "g" ), blue = options.get( "b" );
+			if ( red == null && green == null && blue == null ) {
+				return null;
+			}
+			LutRgb lut = LutRgb.of();
+			if ( red != null ) {
+				lut.red( plane( red, "r", 0, 255 ) );
+			}
+			if ( green != null ) {
+				lut.green( plane( green, "g", 0, 255 ) );
+			}
+			if ( blue != null ) {
+				lut.blue( plane( blue, "b", 0, 255 ) );
+			}
+			return lut.alpha( alpha == null ? "maxval" : plane( alpha, "alpha", 0, 255 ) ).toString();
+		} catch ( IllegalArgumentException e ) {
+			if ( LOG.isDebugEnabled() ) {
+				LOG.debug( "Keep \"{}\": {}", node.text, e.getMessage() );
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Translate the expression of a plane and make sure the lookup produces the same samples
+	 *
+	 * @param expression the geq expression
+	 * @param own        the function that reads the plane
+	 * @param min        the smallest result the lookup keeps
+	 * @param max        the largest result the lookup keeps
+	 * @return the lookup expression
+	 * @throws IllegalArgumentException if the expression cannot be compiled
+	 */
+	private static String plane( String expression, String own, int min, int max ) {
+		Expr compiled = Expr.parse( expression ).replace( node -> isSample( node, own ) ? VALUE : node );
+		double [] sample = new double[ 1 ];
+		ToDoubleFunction<String> variables = name -> {
+			if ( name.equals( VALUE_NAME ) ) {
+				return sample[ 0 ];
+			}
+			throw new IllegalArgumentException( "depends on " + name );
+		};
+		for ( int value = 0; value < 256; value ++ ) {
+			sample[ 0 ] = value;
+			double result = compiled.eval( variables );
+			if ( Double.isNaN( result ) || ( int ) result < min || ( int ) result > max ) {
+				throw new IllegalArgumentException( "\"" + expression + "\" gives " + result + " for " + value + ", out of " + min + "-" + max );
+			}
+		}
+		return Helper.escape( compiled.toString(), true );
+	}
+
+	/**
+	 * @return whether the node reads the current sample of the plane, {@code p(X,Y)} or {@code own(X,Y)}
+	 */
+	private static boolean isSample( Expr node, String own ) {
+		return ( node.isCall( "p", 2 ) || node.isCall( own, 2 ) ) && node.getArg( 0 ).isVariable( "X" ) && node.getArg( 1 ).isVariable( "Y" );
+	}
+
+	/**
+	 * A {@code geq} replaced with a lookup table
+	 */
+	public static final class Compilation {
+
+		private final String filter;
+		private final String lut;
+
+		private Compilation( String filter, String lut ) {
+			this.filter = filter;
+			this.lut = lut;
+		}
+
+		/**
+		 * @return the original {@code geq}
+		 */
+		public String getFilter() {
+			return filter;
+		}
+
+		/**
+		 * @return the lookup filter that replaced it
+		 */
+		public String getLut() {
+			return lut;
+		}
+
+		@Override
+		public String toString() {
+			return filter + " -> " + lut;
+		}
+
+	}
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import java.util.function.Consumer;
+
+/**
+ * Render filters, chains and graphs into a {@link StringBuilder} reused by each thread, nested renderings get a
+ * builder of their own.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+final class Renderer {
+
+	private static final int INITIAL_CAPACITY = 256;
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+	private static final ThreadLocal<Renderer> LOCAL = ThreadLocal.withInitial( Renderer::new );
+
+	private StringBuilder builder = new StringBuilder( INITIAL_CAPACITY );
+	private boolean busy;
+
+	private Renderer() {}
+
+	/**
+	 * @param writer the code appending to the builder
+	 * @return the rendered string
+	 */
+	static String render( Consumer<StringBuilder> writer ) {
+		Renderer renderer = LOCAL.get();
+		if ( renderer.busy ) {
+			StringBuilder builder = new StringBuilder( INITIAL_CAPACITY );
+			writer.accept( builder );
+			return builder.toString();
+		}
+		renderer.busy = true;
+		StringBuilder builder = renderer.builder;
+		try {
+			builder.setLength( 0 );
+			writer.accept( builder );
+			return builder.toString();
+		} finally {
+			renderer.busy = false;
+			if ( builder.capacity() > MAX_RETAINED_CAPACITY ) {
+				// Don't keep the buffer of a huge graph alive for the lifetime of the thread
+				renderer.builder = new StringBuilder( INITIAL_CAPACITY );
+			}
+		}
+	}
+
+}
@@ -15,14 +15,20 @@
  */
 package com.viiyue.ffmpeg.filter;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import com.viiyue.ffmpeg.util.Helper;
 
 public final class Split extends AbstractResult<Split> {
 
 	private final Filters filters;
 	private final String stream;
+	private final String source;
 	
 	private String to;
+	private List<String> targets = Collections.emptyList();
 
 	protected Split( Filters filters ) {
 		this( filters, null );
@@ -31,13 +37,31 @@ public final class Split extends AbstractResult<Split> {
 	protected Split( Filters filters, String stream ) {
 		this.filters = filters;
 		this.stream = Helper.wrap( stream );
+		this.source = stream;
 	}
 
 	public Split to( String ... streams ) {
 		this.to = "split" + Helper.expandAll( "", Helper::wrap, streams ).toString();
+		this.targets = streams == null ? Collections.emptyList() : Arrays.asList( streams );
 		return this;
 	}
 
+	/**
+	 * @return the input pad label without brackets, or {@code null}
+	 * @since 1.0.1
+	 */
+	String getSource() {
+		return source;
+	}
+
+	/**
+	 * @return the output pad labels without brackets
+	 * @since 1.0.1
+	 */
+	List<String> getTargets() {
+		return targets;
+	}
+
 	public Filters and() {
 		return this.filters;
 	}
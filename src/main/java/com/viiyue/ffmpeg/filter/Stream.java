@@ -15,10 +15,11 @@
  */
 package com.viiyue.ffmpeg.filter;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.StringJoiner;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.ArrayUtils;
@@ -27,43 +28,66 @@ import org.apache.commons.lang3.StringUtils;
 import com.viiyue.ffmpeg.annotation.Function;
 import com.viiyue.ffmpeg.common.Const;
 import com.viiyue.ffmpeg.util.Helper;
+import com.viiyue.ffmpeg.util.Metadata;
 
 public final class Stream {
 
 	private static final Map<Class<?>, String> caches = new ConcurrentHashMap<>( 128 );
 	private static final java.util.function.Function<Class<?>, String> provider = type -> {
+		String name = Metadata.getFunction( type );
+		if ( name != null ) {
+			return name;
+		}
 		Function fun = type.getAnnotation( Function.class );
 		return fun == null ? null : fun.value();
 	};
 
 	private final Filters filters;
 	private final String input;
+	private final List<String> labels;
 	private final List<String> chains = new LinkedList<>();
 	private String tag;
+	private String label;
 
 	protected Stream( Filters filters ) {
 		this.input = null;
+		this.labels = Collections.emptyList();
 		this.filters = filters;
 	}
 	
 	protected Stream( Filters filters, Integer ... streams ) {
 		this.filters = filters;
 		this.input = input( streams );
+		this.labels = labels( ( Object [] ) streams );
 	}
 	
 	protected Stream( Filters filters,  String ... streams ) {
 		this.filters = filters;
 		this.input = input( streams );
+		this.labels = labels( ( Object [] ) streams );
 	}
 	
 	protected Stream( Filters filters, List<?> streams ) {
 		this.filters = filters;
 		this.input = input( streams.toArray( new Object [ streams.size() ] ) );
+		this.labels = labels( streams.toArray() );
 	}
 
 	private String input( Object ... streams ) {
 		return Helper.expandAll( "", Helper::wrap, streams ).toString(); // "[a][b]..."
 	}
+
+	private List<String> labels( Object ... streams ) {
+		List<String> labels = new ArrayList<>( streams == null ? 0 : streams.length );
+		if ( streams != null ) {
+			for ( Object stream : streams ) {
+				if ( stream != null ) {
+					labels.add( stream.toString() );
+				}
+			}
+		}
+		return labels;
+	}
 	
 	public Stream add( String expression ) {
 		if ( StringUtils.isNotEmpty( expression ) ) {
@@ -123,6 +147,7 @@ public final class Stream {
 	public Stream tag( String tag ) {
 		if ( StringUtils.isNotEmpty( tag ) ) {
 			this.tag = Helper.wrap( tag );
+			this.label = tag;
 		}
 		return this;
 	}
@@ -135,11 +160,76 @@ public final class Stream {
 		return StringUtils.defaultString( tag );
 	}
 
+	/**
+	 * @return the input pad labels without brackets
+	 * @since 1.0.1
+	 */
+	List<String> getLabels() {
+		return labels;
+	}
+
+	/**
+	 * @return the output pad label without brackets, or {@code null}
+	 * @since 1.0.1
+	 */
+	String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return the filters of this chain without any pad label
+	 * @since 1.0.1
+	 */
+	String body() {
+		return Renderer.render( this::appendBody );
+	}
+
+	/**
+	 * Replace the filters of this chain, used by {@link FilterOptimizer}, {@link ColorLut} and {@link GeqCompiler}
+	 * 
+	 * @param filters the new filters
+	 * @since 1.0.1
+	 */
+	void rewrite( List<String> filters ) {
+		this.chains.clear();
+		this.chains.addAll( filters );
+	}
+
 	public String output() {
-		Object [] allFuntions = chains.toArray();
-		StringJoiner filters = Helper.expandAll( Const.PART_SEPARATOR, allFuntions );
-		String output = StringUtils.isEmpty( input ) ? filters.toString() : input + filters;
-		return output + getTag();
+		return Renderer.render( this::appendTo );
+	}
+
+	/**
+	 * Append the labelled chain to the builder
+	 * 
+	 * @param builder the target builder
+	 * @since 1.0.1
+	 */
+	public void appendTo( StringBuilder builder ) {
+		if ( input != null ) {
+			builder.append( input );
+		}
+		appendBody( builder );
+		if ( tag != null ) {
+			builder.append( tag );
+		}
+	}
+
+	/**
+	 * Append the filters of this chain without any pad label
+	 * 
+	 * @param builder the target builder
+	 * @since 1.0.1
+	 */
+	void appendBody( StringBuilder builder ) {
+		boolean first = true;
+		for ( String chain : chains ) {
+			if ( !first ) {
+				builder.append( Const.PART_SEPARATOR );
+			}
+			builder.append( chain );
+			first = false;
+		}
 	}
 
 }
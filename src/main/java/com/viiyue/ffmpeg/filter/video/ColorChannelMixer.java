@@ -15,7 +15,9 @@
  */
 package com.viiyue.ffmpeg.filter.video;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.viiyue.ffmpeg.annotation.Function;
@@ -165,15 +167,11 @@ public class ColorChannelMixer extends AbstractFunction<ColorChannelMixer> {
 	}
 
 	@Override
-	protected String getResult() {
-		super.addValues( this.values.values().toArray() );
-		if ( mode != null ) {
-			super.addValue( mode );
-		}
-		if ( amount >= 0 ) {
-			super.addValue( amount );
-		}
-		return super.getResult();
+	protected Object [] getValues() {
+		List<Object> result = new ArrayList<>( this.values.values() );
+		result.add( mode );
+		result.add( amount >= 0 ? amount : null );
+		return result.toArray();
 	}
 
 }
@@ -40,9 +40,8 @@ public class ColorHold extends AbstractFunction<ColorHold> {
 	}
 
 	@Override
-	protected String getResult() {
-		super.addValues( color, similarity, blend );
-		return super.getResult();
+	protected Object [] getValues() {
+		return new Object [] { color, similarity, blend };
 	}
 
 	/**
@@ -48,9 +48,8 @@ public class ColorKey extends AbstractFunction<ColorKey> {
 	}
 
 	@Override
-	protected String getResult() {
-		super.addValues( color, similarity, blend );
-		return super.getResult();
+	protected Object [] getValues() {
+		return new Object [] { color, similarity, blend };
 	}
 
 	/**
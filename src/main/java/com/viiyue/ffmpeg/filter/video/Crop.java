@@ -17,6 +17,8 @@ package com.viiyue.ffmpeg.filter.video;
 
 import com.viiyue.ffmpeg.annotation.Function;
 import com.viiyue.ffmpeg.filter.AbstractFunction;
+import com.viiyue.ffmpeg.filter.Expr;
+import com.viiyue.ffmpeg.filter.ExprScope;
 
 /**
  * Crop the input video to given dimensions.
@@ -75,6 +77,21 @@ public class Crop extends AbstractFunction<Crop> {
 		return new Crop().dimensions( w, h, x, y );
 	}
 
+	/**
+	 * Quickly create an instances of {@link Crop}, the expressions are checked against the variables of
+	 * {@code crop}
+	 * 
+	 * @param w the width expression
+	 * @param h the height expression
+	 * @param x the x expression
+	 * @param y the y expression
+	 * @return the {@link Crop} instance
+	 * @since 1.0.1
+	 */
+	public static final Crop the( Expr w, Expr h, Expr x, Expr y ) {
+		return new Crop().dimensions( w.render( ExprScope.CROP ), h.render( ExprScope.CROP ), x.render( ExprScope.CROP ), y.render( ExprScope.CROP ) );
+	}
+
 	/**
 	 * If set to true will force the output display aspect ratio to be the same of the input, by changing the
 	 * output sample aspect ratio. It defaults to false.
@@ -19,6 +19,8 @@ import com.viiyue.ffmpeg.annotation.Function;
 import com.viiyue.ffmpeg.common.AbstractEnum;
 import com.viiyue.ffmpeg.enums.Color;
 import com.viiyue.ffmpeg.filter.AbstractFunction;
+import com.viiyue.ffmpeg.filter.Expr;
+import com.viiyue.ffmpeg.filter.ExprScope;
 import com.viiyue.ffmpeg.util.Helper;
 
 /**
@@ -210,6 +212,18 @@ public class DrawText extends AbstractFunction<DrawText> {
 		return super.addArg( "x", x ).addArg( "y", y );
 	}
 
+	/**
+	 * Set the text position expressions, checked against the variables of {@code drawtext}
+	 * 
+	 * @param x the x expression
+	 * @param y the y expression
+	 * @return the {@link DrawText} instance
+	 * @since 1.0.1
+	 */
+	public DrawText position( Expr x, Expr y ) {
+		return super.addArg( "x", x.render( ExprScope.DRAWTEXT ) ).addArg( "y", y.render( ExprScope.DRAWTEXT ) );
+	}
+
 	/**
 	 * Draw the text applying alpha blending. The value can be a number between 0.0 and 1.0. The expression
 	 * accepts the same variables x, y as well. The default value is <b>1</b>. Please see fontcolor_expr.
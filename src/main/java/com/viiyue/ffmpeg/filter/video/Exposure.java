@@ -44,7 +44,7 @@ public class Exposure extends AbstractFunction<Exposure> {
 	 */
 	public static final Exposure of( double value ) {
 		Assert.rangeCheck( value, -3.0, 3.0 );
-		return new Exposure().addArg( "black", value );
+		return new Exposure().addArg( "exposure", value );
 	}
 
 	/**
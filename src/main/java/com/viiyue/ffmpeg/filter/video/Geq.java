@@ -18,6 +18,8 @@ package com.viiyue.ffmpeg.filter.video;
 import com.viiyue.ffmpeg.annotation.Function;
 import com.viiyue.ffmpeg.enums.Interpolation;
 import com.viiyue.ffmpeg.filter.AbstractFunction;
+import com.viiyue.ffmpeg.filter.Expr;
+import com.viiyue.ffmpeg.filter.ExprScope;
 import com.viiyue.ffmpeg.util.Helper;
 
 /**
@@ -88,6 +90,17 @@ public class Geq extends AbstractFunction<Geq> {
 		return super.addArg( "lum", Helper.escape( expression, true ) ); // lum_expr, lum
 	}
 
+	/**
+	 * Set the luminance expression, checked against the variables and functions of {@code geq}
+	 * 
+	 * @param expression the luminance expression
+	 * @return the {@link Geq} instance
+	 * @since 1.0.1
+	 */
+	public Geq lumExpression( Expr expression ) {
+		return super.addArg( "lum", expression.render( ExprScope.GEQ ) );
+	}
+
 	/**
 	 * Set the chrominance blue expression
 	 * 
@@ -124,6 +137,17 @@ public class Geq extends AbstractFunction<Geq> {
 		return super.addArg( "cb", Helper.escape( expression, true ) ); // cb_expr, cb
 	}
 
+	/**
+	 * Set the blue-difference chroma expression, checked against the variables and functions of {@code geq}
+	 * 
+	 * @param expression the blue-difference chroma expression
+	 * @return the {@link Geq} instance
+	 * @since 1.0.1
+	 */
+	public Geq chromBlueExpression( Expr expression ) {
+		return super.addArg( "cb", expression.render( ExprScope.GEQ ) );
+	}
+
 	/**
 	 * Set the chrominance red expression
 	 * 
@@ -157,7 +181,18 @@ public class Geq extends AbstractFunction<Geq> {
 	 * @return the {@link Geq} instance
 	 */
 	public Geq chromRedExpression( String expression ) {
-		return super.addArg( "cb", Helper.escape( expression, true ) ); // cr_expr, cr
+		return super.addArg( "cr", Helper.escape( expression, true ) ); // cr_expr, cr
+	}
+
+	/**
+	 * Set the red-difference chroma expression, checked against the variables and functions of {@code geq}
+	 * 
+	 * @param expression the red-difference chroma expression
+	 * @return the {@link Geq} instance
+	 * @since 1.0.1
+	 */
+	public Geq chromRedExpression( Expr expression ) {
+		return super.addArg( "cr", expression.render( ExprScope.GEQ ) );
 	}
 
 	/**
@@ -196,6 +231,17 @@ public class Geq extends AbstractFunction<Geq> {
 		return super.addArg( "a", Helper.escape( expression, true ) ); // alpha_expr, a
 	}
 
+	/**
+	 * Set the alpha expression, checked against the variables and functions of {@code geq}
+	 * 
+	 * @param expression the alpha expression
+	 * @return the {@link Geq} instance
+	 * @since 1.0.1
+	 */
+	public Geq alphaExpression( Expr expression ) {
+		return super.addArg( "a", expression.render( ExprScope.GEQ ) );
+	}
+
 	/**
 	 * Set the red expression
 	 * 
@@ -232,6 +278,17 @@ public class Geq extends AbstractFunction<Geq> {
 		return super.addArg( "r", Helper.escape( expression, true ) ); // red_expr, r
 	}
 
+	/**
+	 * Set the red expression, checked against the variables and functions of {@code geq}
+	 * 
+	 * @param expression the red expression
+	 * @return the {@link Geq} instance
+	 * @since 1.0.1
+	 */
+	public Geq redExpression( Expr expression ) {
+		return super.addArg( "r", expression.render( ExprScope.GEQ ) );
+	}
+
 	/**
 	 * Set the green expression
 	 * 
@@ -268,6 +325,17 @@ public class Geq extends AbstractFunction<Geq> {
 		return super.addArg( "g", Helper.escape( expression, true ) ); // green_expr, g
 	}
 
+	/**
+	 * Set the green expression, checked against the variables and functions of {@code geq}
+	 * 
+	 * @param expression the green expression
+	 * @return the {@link Geq} instance
+	 * @since 1.0.1
+	 */
+	public Geq greenExpression( Expr expression ) {
+		return super.addArg( "g", expression.render( ExprScope.GEQ ) );
+	}
+
 	/**
 	 * Set the blue expression
 	 * 
@@ -304,6 +372,17 @@ public class Geq extends AbstractFunction<Geq> {
 		return super.addArg( "b", Helper.escape( expression, true ) ); // blue_expr, b
 	}
 
+	/**
+	 * Set the blue expression, checked against the variables and functions of {@code geq}
+	 * 
+	 * @param expression the blue expression
+	 * @return the {@link Geq} instance
+	 * @since 1.0.1
+	 */
+	public Geq blueExpression( Expr expression ) {
+		return super.addArg( "b", expression.render( ExprScope.GEQ ) );
+	}
+
 	/**
 	 * Set one of interpolation methods
 	 * 
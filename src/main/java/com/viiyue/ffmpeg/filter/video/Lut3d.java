@@ -25,16 +25,16 @@ import com.viiyue.ffmpeg.filter.AbstractFunction;
  * 
  * @author tangxbai
  * @since 2022/07/13
- * @see <a href="https://ffmpeg.org/ffmpeg-filters.html#lut1d">ffmpeg-filters#lut1d</a>
+ * @see <a href="https://ffmpeg.org/ffmpeg-filters.html#lut3d">ffmpeg-filters#lut3d</a>
  */
-@Function( "lut1d" )
+@Function( "lut3d" )
 public class Lut3d extends AbstractFunction<Lut3d> {
 
 	// Don't let anyone instantiate this class
 	private Lut3d() {}
 
 	/**
-	 * Quickly create an instances of {@link Lut3d} and set the 1D LUT file name
+	 * Quickly create an instances of {@link Lut3d} and set the 3D LUT file name
 	 * 
 	 * @apiNote (string) file
 	 * @param value the file name
@@ -45,7 +45,7 @@ public class Lut3d extends AbstractFunction<Lut3d> {
 	}
 
 	/**
-	 * Quickly create an instances of {@link Lut3d} and set the 1D LUT file name
+	 * Quickly create an instances of {@link Lut3d} and set the 3D LUT file name
 	 * 
 	 * @apiNote (string) file
 	 * @param value the file name enum constants
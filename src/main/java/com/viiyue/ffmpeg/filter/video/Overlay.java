@@ -21,6 +21,8 @@ import com.viiyue.ffmpeg.enums.EofAction;
 import com.viiyue.ffmpeg.enums.Overlays;
 import com.viiyue.ffmpeg.enums.When;
 import com.viiyue.ffmpeg.filter.AbstractFunction;
+import com.viiyue.ffmpeg.filter.Expr;
+import com.viiyue.ffmpeg.filter.ExprScope;
 
 /**
  * <p>
@@ -79,6 +81,19 @@ public class Overlay extends AbstractFunction<Overlay> {
 		return new Overlay().position( x, y );
 	}
 
+	/**
+	 * Quickly create an instances of {@link Overlay}, the expressions are checked against the variables of
+	 * {@code overlay}
+	 * 
+	 * @param x the x coordinate expression
+	 * @param y the y coordinate expression
+	 * @return the {@link Overlay} instance
+	 * @since 1.0.1
+	 */
+	public static final Overlay at( Expr x, Expr y ) {
+		return new Overlay().position( x.render( ExprScope.OVERLAY ), y.render( ExprScope.OVERLAY ) );
+	}
+
 	/**
 	 * Quickly create an instances of {@link Overlay}
 	 * 
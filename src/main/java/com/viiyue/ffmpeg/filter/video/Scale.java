@@ -21,6 +21,8 @@ import com.viiyue.ffmpeg.enums.AspectRatio;
 import com.viiyue.ffmpeg.enums.VideoSize;
 import com.viiyue.ffmpeg.enums.When;
 import com.viiyue.ffmpeg.filter.AbstractFunction;
+import com.viiyue.ffmpeg.filter.Expr;
+import com.viiyue.ffmpeg.filter.ExprScope;
 import com.viiyue.ffmpeg.util.Assert;
 
 /**
@@ -99,6 +101,19 @@ public class Scale extends AbstractFunction<Scale> {
 		return new Scale().addBaseArg( "w", width ).addBaseArg( "h", height );
 	}
 
+	/**
+	 * Quickly create an instances of {@link Scale}, the expressions are checked against the variables of
+	 * {@code scale}
+	 * 
+	 * @param width  the output video width expression
+	 * @param height the output video height expression
+	 * @return the {@link Scale} instance
+	 * @since 1.0.1
+	 */
+	public static final Scale to( Expr width, Expr height ) {
+		return to( width.render( ExprScope.SCALE ), height.render( ExprScope.SCALE ) );
+	}
+
 	/**
 	 * Quickly create an instances of {@link Scale} and set the width and height of the output video by the
 	 * way
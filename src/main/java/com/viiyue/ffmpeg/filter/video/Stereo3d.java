@@ -36,9 +36,8 @@ public class Stereo3d extends AbstractFunction<Stereo3d> {
 	private Stereo3d() {}
 
 	@Override
-	protected String getResult() {
-		super.addValues( in, out );
-		return super.getResult();
+	protected Object [] getValues() {
+		return new Object [] { in, out };
 	}
 
 	/**
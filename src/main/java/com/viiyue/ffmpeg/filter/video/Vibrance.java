@@ -123,7 +123,7 @@ public class Vibrance extends AbstractFunction<Vibrance> {
 	 */
 	public Vibrance bLuma( double value ) {
 		Assert.rangeCheck( value, -10, 10 );
-		return super.addArg( "blue", value );
+		return super.addArg( "blum", value );
 	}
 
 	/**
@@ -18,6 +18,8 @@ package com.viiyue.ffmpeg.filter.video;
 import com.viiyue.ffmpeg.annotation.Function;
 import com.viiyue.ffmpeg.enums.VideoSize;
 import com.viiyue.ffmpeg.filter.AbstractFunction;
+import com.viiyue.ffmpeg.filter.Expr;
+import com.viiyue.ffmpeg.filter.ExprScope;
 
 /**
  * Apply Zoom & Pan effect
@@ -78,6 +80,17 @@ public class ZoomPan extends AbstractFunction<ZoomPan> {
 		return super.addArg( "z", expression ); // zoom, z
 	}
 
+	/**
+	 * Set the zoom expression, checked against the variables of {@code zoompan}
+	 * 
+	 * @param expression the zoom expression
+	 * @return the {@link ZoomPan} instance
+	 * @since 1.0.1
+	 */
+	public ZoomPan zoom( Expr expression ) {
+		return zoom( expression.render( ExprScope.ZOOMPAN ) );
+	}
+
 	/**
 	 * Set the x coordinate
 	 * 
@@ -126,6 +139,17 @@ public class ZoomPan extends AbstractFunction<ZoomPan> {
 		return super.addArg( "x", expression );
 	}
 
+	/**
+	 * Set the x coordinate expression, checked against the variables of {@code zoompan}
+	 * 
+	 * @param expression the x coordinate expression
+	 * @return the {@link ZoomPan} instance
+	 * @since 1.0.1
+	 */
+	public ZoomPan x( Expr expression ) {
+		return x( expression.render( ExprScope.ZOOMPAN ) );
+	}
+
 	/**
 	 * Set the y coordinate
 	 * 
@@ -174,6 +198,17 @@ public class ZoomPan extends AbstractFunction<ZoomPan> {
 		return super.addArg( "y", expression );
 	}
 
+	/**
+	 * Set the y coordinate expression, checked against the variables of {@code zoompan}
+	 * 
+	 * @param expression the y coordinate expression
+	 * @return the {@link ZoomPan} instance
+	 * @since 1.0.1
+	 */
+	public ZoomPan y( Expr expression ) {
+		return y( expression.render( ExprScope.ZOOMPAN ) );
+	}
+
 	/**
 	 * Set the duration in number of frames. This sets for how many number of frames effect will last for
 	 * single input image.
@@ -224,6 +259,17 @@ public class ZoomPan extends AbstractFunction<ZoomPan> {
 		return super.addArg( "d", expression );
 	}
 
+	/**
+	 * Set the duration expression, checked against the variables of {@code zoompan}
+	 * 
+	 * @param expression the duration expression
+	 * @return the {@link ZoomPan} instance
+	 * @since 1.0.1
+	 */
+	public ZoomPan duration( Expr expression ) {
+		return duration( expression.render( ExprScope.ZOOMPAN ) );
+	}
+
 	/**
 	 * Set the output image size
 	 * 
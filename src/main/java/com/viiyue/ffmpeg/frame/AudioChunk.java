@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+/**
+ * A block of decoded {@code s16le} interleaved samples, the buffer is reused like {@link RawFrame}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class AudioChunk {
+
+	/** Bytes per sample of the {@code s16le} format */
+	public static final int SAMPLE_SIZE = 2;
+
+	private final int sampleRate;
+	private final int channels;
+	private final byte [] data;
+
+	private int length;
+	private long position;
+
+	AudioChunk( int sampleRate, int channels, int samples ) {
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.data = new byte[ samples * channels * SAMPLE_SIZE ];
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	/**
+	 * @return the interleaved little-endian samples, only the first {@link #getLength()} bytes are valid
+	 */
+	public byte [] getData() {
+		return data;
+	}
+
+	/**
+	 * @return the number of valid bytes
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the number of samples per channel in this chunk
+	 */
+	public int getSamples() {
+		return length / ( channels * SAMPLE_SIZE );
+	}
+
+	/**
+	 * @return the index of the first sample of this chunk since the beginning of the stream
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return the timestamp of the first sample in seconds, on the same clock as {@link RawFrame#getTimestamp()}
+	 */
+	public double getTimestamp() {
+		return ( double ) position / sampleRate;
+	}
+
+	/**
+	 * @param channel the channel index
+	 * @param sample  the sample index within this chunk
+	 * @return the signed 16 bit sample value
+	 */
+	public short getSample( int channel, int sample ) {
+		int offset = ( sample * channels + channel ) * SAMPLE_SIZE;
+		return ( short ) ( ( data[ offset ] & 0xff ) | ( data[ offset + 1 ] << 8 ) );
+	}
+
+	void mark( long position, int length ) {
+		this.position = position;
+		this.length = length;
+	}
+
+	@Override
+	public String toString() {
+		return "@" + position + "(" + getSamples() + " samples, " + getTimestamp() + "s)";
+	}
+
+}
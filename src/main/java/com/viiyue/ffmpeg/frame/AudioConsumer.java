@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+/**
+ * Consumer of decoded audio chunks
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+@FunctionalInterface
+public interface AudioConsumer {
+
+	/**
+	 * Handle a chunk of samples, the chunk is reused for the next block.
+	 *
+	 * @param chunk the audio chunk
+	 * @throws Exception any exception will cancel the job
+	 */
+	void accept( AudioChunk chunk ) throws Exception;
+
+}
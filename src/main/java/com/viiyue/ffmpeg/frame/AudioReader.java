@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Raw {@code s16le} audio reader, every chunk carries the timestamp of its first sample
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class AudioReader implements Closeable {
+
+	private final InputStream input;
+	private final int sampleRate;
+	private final int channels;
+
+	private long position;
+
+	private AudioReader( InputStream input, int sampleRate, int channels ) {
+		this.input = input;
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+	}
+
+	/**
+	 * Read raw audio samples from a stream that is fed by ffmpeg
+	 *
+	 * @param input      the raw audio stream
+	 * @param sampleRate the sample rate of the stream
+	 * @param channels   the channel count of the stream
+	 * @return the {@link AudioReader} instance
+	 */
+	public static final AudioReader wrap( InputStream input, int sampleRate, int channels ) {
+		Assert.notNull( input, "The input stream cannot be null" );
+		Assert.isTrue( sampleRate > 0 && channels > 0, "The sample rate and channels must be greater than 0" );
+		return new AudioReader( input, sampleRate, channels );
+	}
+
+	/**
+	 * @param samples the number of samples per channel
+	 * @return a new chunk buffer matching the output of this reader
+	 */
+	public AudioChunk newChunk( int samples ) {
+		Assert.isTrue( samples > 0, "The chunk samples must be greater than 0" );
+		return new AudioChunk( sampleRate, channels, samples );
+	}
+
+	/**
+	 * Read the next chunk into the given buffer, the last chunk of the stream may be shorter.
+	 *
+	 * @param chunk the chunk buffer created by {@link #newChunk(int)}
+	 * @return {@code false} if the end of the stream has been reached
+	 * @throws IOException if the stream could not be read
+	 */
+	public boolean read( AudioChunk chunk ) throws IOException {
+		Assert.isTrue( chunk.getChannels() == channels, "The chunk buffer does not match the reader output" );
+		byte [] data = chunk.getData();
+		int offset = 0;
+		while ( offset < data.length ) {
+			int read = input.read( data, offset, data.length - offset );
+			if ( read < 0 ) {
+				break;
+			}
+			offset += read;
+		}
+		int frameSize = channels * AudioChunk.SAMPLE_SIZE;
+		offset -= offset % frameSize; // drop a trailing partial sample
+		if ( offset == 0 ) {
+			return false;
+		}
+		chunk.mark( position, offset );
+		position += offset / frameSize;
+		return true;
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getChannels() {
+		return channels;
+	}
+
+	/**
+	 * @return the number of samples per channel read so far
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	@Override
+	public void close() {
+		try {
+			input.close();
+		} catch ( IOException e ) {
+			// Ignore it
+		}
+	}
+
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import java.util.function.Consumer;
+
+import com.viiyue.ffmpeg.enums.PixelFormat;
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Per-frame luma and chroma histograms, luma mean and variance, and the mean absolute difference to the
+ * previous frame, read directly from {@code gray}, {@code yuv420p}, {@code nv12} and {@code nv21} frames. An
+ * analyzer keeps the previous luma plane and must only be used by one thread.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class FrameAnalyzer implements FrameConsumer {
+
+	private final FrameMath math = FrameMath.get();
+	private final Consumer<FrameStats> listener;
+
+	private boolean histograms = true;
+	private byte [] previous;
+	private boolean hasPrevious;
+
+	private FrameAnalyzer( Consumer<FrameStats> listener ) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return a new {@link FrameAnalyzer} without listener, use {@link #analyze(RawFrame)} to get the results
+	 */
+	public static final FrameAnalyzer of() {
+		return new FrameAnalyzer( null );
+	}
+
+	/**
+	 * @param listener the listener that receives the results of every frame
+	 * @return a new {@link FrameAnalyzer} instance
+	 */
+	public static final FrameAnalyzer of( Consumer<FrameStats> listener ) {
+		return new FrameAnalyzer( listener );
+	}
+
+	/**
+	 * Skip the histograms when only the mean, variance and difference are needed
+	 *
+	 * @return the {@link FrameAnalyzer} instance
+	 */
+	public FrameAnalyzer withoutHistograms() {
+		this.histograms = false;
+		return this;
+	}
+
+	/**
+	 * Forget the previous frame, the next difference will be {@code NaN}
+	 *
+	 * @return the {@link FrameAnalyzer} instance
+	 */
+	public FrameAnalyzer reset() {
+		this.hasPrevious = false;
+		return this;
+	}
+
+	/**
+	 * @return the kernel implementation name, {@code scalar} or {@code vector}
+	 */
+	public String getImplementation() {
+		return math.getName();
+	}
+
+	@Override
+	public void accept( RawFrame frame ) {
+		FrameStats stats = analyze( frame );
+		if ( listener != null ) {
+			listener.accept( stats );
+		}
+	}
+
+	/**
+	 * Analyze the next frame of the stream
+	 *
+	 * @param frame the raw frame
+	 * @return the frame statistics
+	 */
+	public FrameStats analyze( RawFrame frame ) {
+		PixelFormat format = frame.getFormat();
+		Assert.isTrue( isSupported( format ), "Unsupported pixel format for analysis: " + format.command() );
+
+		byte [] data = frame.getData();
+		int pixels = frame.getWidth() * frame.getHeight();
+
+		long [] sums = math.sums( data, 0, pixels );
+		double mean = ( double ) sums[ 0 ] / pixels;
+		double variance = ( double ) sums[ 1 ] / pixels - mean * mean;
+
+		double difference = Double.NaN;
+		if ( previous == null || previous.length != pixels ) {
+			this.previous = new byte[ pixels ];
+			this.hasPrevious = false;
+		}
+		if ( hasPrevious ) {
+			difference = ( double ) math.sad( data, 0, previous, 0, pixels ) / pixels;
+		}
+		System.arraycopy( data, 0, previous, 0, pixels );
+		this.hasPrevious = true;
+
+		int [] luma = null, cb = null, cr = null;
+		if ( histograms ) {
+			luma = new int[ 256 ];
+			math.histogram( data, 0, pixels, 1, luma );
+			if ( format != PixelFormat.GRAY ) {
+				int chroma = ( ( frame.getWidth() + 1 ) / 2 ) * ( ( frame.getHeight() + 1 ) / 2 );
+				cb = new int[ 256 ];
+				cr = new int[ 256 ];
+				if ( format == PixelFormat.YUV420P ) {
+					math.histogram( data, pixels, chroma, 1, cb );
+					math.histogram( data, pixels + chroma, chroma, 1, cr );
+				} else {
+					boolean nv12 = format == PixelFormat.NV12;
+					math.histogram( data, pixels + ( nv12 ? 0 : 1 ), chroma, 2, cb );
+					math.histogram( data, pixels + ( nv12 ? 1 : 0 ), chroma, 2, cr );
+				}
+			}
+		}
+		return new FrameStats( frame.getIndex(), frame.getTimestamp(), mean, variance, difference, luma, cb, cr );
+	}
+
+	private static boolean isSupported( PixelFormat format ) {
+		return format == PixelFormat.GRAY || YuvConverter.isSupported( format );
+	}
+
+}
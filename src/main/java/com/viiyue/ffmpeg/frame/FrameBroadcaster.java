@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Fan out the frames of one {@link FrameReader} to several consumers, each reading a preallocated ring
+ * buffer on its own thread. A slot is never overwritten before every consumer has read it, so the whole
+ * pipeline runs at the speed of the slowest consumer.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class FrameBroadcaster {
+
+	private static final Logger LOG = LoggerFactory.getLogger( FrameBroadcaster.class );
+
+	private final FrameReader reader;
+	private final RawFrame [] ring;
+	private final int mask;
+	private final AtomicLong published = new AtomicLong( -1 );
+	private final List<Subscriber> subscribers = new ArrayList<>( 4 );
+
+	private WaitStrategy strategy = WaitStrategy.YIELDING;
+	private Thread publisher;
+	private volatile boolean finished;
+	private volatile boolean stopped;
+
+	private FrameBroadcaster( FrameReader reader, int capacity ) {
+		this.reader = reader;
+		this.ring = new RawFrame[ capacity ];
+		this.mask = capacity - 1;
+		for ( int i = 0; i < capacity; i ++ ) {
+			this.ring[ i ] = reader.newFrame();
+		}
+	}
+
+	/**
+	 * Create a broadcaster on top of the frame reader
+	 *
+	 * @param reader   the opened frame reader
+	 * @param capacity the ring buffer capacity, rounded up to a power of two
+	 * @return the {@link FrameBroadcaster} instance
+	 */
+	public static final FrameBroadcaster of( FrameReader reader, int capacity ) {
+		Assert.notNull( reader, "The frame reader cannot be null" );
+		Assert.rangeCheck( capacity, 1, 1 << 16 );
+		int size = Integer.highestOneBit( capacity );
+		return new FrameBroadcaster( reader, size < capacity ? size << 1 : size );
+	}
+
+	/**
+	 * Set how the publisher and the consumers wait for each other, default is {@link WaitStrategy#YIELDING}.
+	 *
+	 * @param strategy the wait strategy
+	 * @return the {@link FrameBroadcaster} instance
+	 */
+	public FrameBroadcaster waitStrategy( WaitStrategy strategy ) {
+		Assert.notNull( strategy, "The wait strategy cannot be null" );
+		this.strategy = strategy;
+		return this;
+	}
+
+	/**
+	 * Register a consumer, it must be called before {@link #run()}.
+	 *
+	 * @param name     the consumer name, also used to name its thread
+	 * @param consumer the frame consumer
+	 * @return the {@link FrameBroadcaster} instance
+	 */
+	public FrameBroadcaster subscribe( String name, FrameConsumer consumer ) {
+		Assert.notNull( consumer, "The frame consumer cannot be null" );
+		Assert.isTrue( publisher == null, "Cannot subscribe after the broadcaster has been started" );
+		this.subscribers.add( new Subscriber( name, consumer ) );
+		return this;
+	}
+
+	/**
+	 * Decode and publish all frames on the calling thread, and wait until every consumer has finished.
+	 *
+	 * @return the number of published frames
+	 * @throws IOException if the frames could not be read
+	 */
+	public long run() throws IOException {
+		Assert.notEmpty( subscribers, "At least one frame consumer must be subscribed" );
+		Assert.isTrue( publisher == null, "The broadcaster can only be run once" );
+		this.publisher = Thread.currentThread();
+		for ( Subscriber subscriber : subscribers ) {
+			subscriber.start();
+		}
+		long next = 0;
+		try {
+			while ( !stopped ) {
+				long wrapPoint = next - ring.length;
+				for ( int attempts = 0; minimumSequence() < wrapPoint && !stopped; attempts ++ ) {
+					strategy.idle( attempts );
+				}
+				if ( stopped || !reader.read( ring[ ( int ) next & mask ] ) ) {
+					break;
+				}
+				published.lazySet( next ++ );
+				if ( strategy.signals() ) {
+					signalSubscribers();
+				}
+			}
+			return next;
+		} finally {
+			this.finished = true;
+			signalSubscribers();
+			reader.close();
+			for ( Subscriber subscriber : subscribers ) {
+				subscriber.join();
+			}
+			if ( LOG.isInfoEnabled() ) {
+				LOG.info( "Broadcast {} frames to {} consumers", next, subscribers.size() );
+			}
+		}
+	}
+
+	/**
+	 * Stop publishing, the consumers will exit after the frames already published.
+	 */
+	public void stop() {
+		this.stopped = true;
+		LockSupport.unpark( publisher );
+	}
+
+	/**
+	 * @return the consumers that stopped with an exception, keyed by consumer name
+	 */
+	public Map<String, Throwable> getFailures() {
+		Map<String, Throwable> failures = new LinkedHashMap<>( 4 );
+		for ( Subscriber subscriber : subscribers ) {
+			if ( subscriber.failure != null ) {
+				failures.put( subscriber.name, subscriber.failure );
+			}
+		}
+		return failures;
+	}
+
+	private long minimumSequence() {
+		long minimum = Long.MAX_VALUE;
+		for ( Subscriber subscriber : subscribers ) {
+			minimum = Math.min( minimum, subscriber.sequence.get() );
+		}
+		return minimum;
+	}
+
+	private void signalSubscribers() {
+		for ( Subscriber subscriber : subscribers ) {
+			LockSupport.unpark( subscriber.thread );
+		}
+	}
+
+	/**
+	 * A consumer with its own cursor and thread
+	 */
+	private final class Subscriber implements Runnable {
+
+		private final String name;
+		private final FrameConsumer consumer;
+		private final AtomicLong sequence = new AtomicLong( -1 );
+		private Thread thread;
+		private volatile Throwable failure;
+
+		private Subscriber( String name, FrameConsumer consumer ) {
+			this.name = name;
+			this.consumer = consumer;
+		}
+
+		private void start() {
+			this.thread = new Thread( this, "ffmpeg-frames-" + name );
+			this.thread.setDaemon( true );
+			this.thread.start();
+		}
+
+		private void join() {
+			try {
+				thread.join();
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void run() {
+			long next = 0;
+			try {
+				while ( true ) {
+					long available = published.get();
+					for ( int attempts = 0; available < next; attempts ++ ) {
+						if ( finished ) {
+							available = published.get();
+							if ( available < next ) {
+								return;
+							}
+							break;
+						}
+						strategy.idle( attempts );
+						available = published.get();
+					}
+					// Consume everything published so far as one batch
+					for ( ; next <= available; next ++ ) {
+						consumer.accept( ring[ ( int ) next & mask ] );
+						sequence.lazySet( next );
+					}
+					if ( strategy.signals() ) {
+						LockSupport.unpark( publisher );
+					}
+				}
+			} catch ( Throwable e ) {
+				this.failure = e;
+				if ( LOG.isErrorEnabled() ) {
+					LOG.error( "Frame consumer \"" + name + "\" stopped at frame #" + next, e );
+				}
+			} finally {
+				// Never hold the publisher back once this consumer is gone
+				sequence.set( Long.MAX_VALUE );
+				LockSupport.unpark( publisher );
+			}
+		}
+
+	}
+
+}
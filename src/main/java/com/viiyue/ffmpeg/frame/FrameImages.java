@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.viiyue.ffmpeg.FFmpeger;
+import com.viiyue.ffmpeg.enums.PixelFormat;
+import com.viiyue.ffmpeg.executor.FFmpegExecutor;
+import com.viiyue.ffmpeg.filter.Filters;
+import com.viiyue.ffmpeg.filter.video.Concat;
+import com.viiyue.ffmpeg.filter.video.Format;
+import com.viiyue.ffmpeg.filter.video.Scale;
+import com.viiyue.ffmpeg.filter.video.SetSar;
+import com.viiyue.ffmpeg.filter.video.Trim;
+import com.viiyue.ffmpeg.metadata.Stream;
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Turn raw frames into {@link BufferedImage}, and extract thumbnails without any intermediate image file.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class FrameImages {
+
+	private static final String OUTPUT = "out";
+
+	// Don't let anyone instantiate this class
+	private FrameImages() {}
+
+	/**
+	 * @param format the raw pixel format
+	 * @return whether the raw frames in this format can be turned into images
+	 */
+	public static boolean isSupported( PixelFormat format ) {
+		switch ( format ) {
+			case GRAY:
+			case RGB24:
+			case BGR24:
+			case RGBA:
+			case ABGR:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Copy the bytes of a raw frame into a new image, without any color conversion. {@link PixelFormat#BGR24},
+	 * {@link PixelFormat#ABGR} and {@link PixelFormat#GRAY} map to the standard image types and are the
+	 * fastest to draw, {@link PixelFormat#RGB24} and {@link PixelFormat#RGBA} use a custom interleaved
+	 * layout.
+	 *
+	 * @param frame the raw frame
+	 * @return the new image
+	 */
+	public static BufferedImage toImage( RawFrame frame ) {
+		int width = frame.getWidth();
+		int height = frame.getHeight();
+		byte [] data = frame.getData();
+		switch ( frame.getFormat() ) {
+			case GRAY:
+				return copy( new BufferedImage( width, height, BufferedImage.TYPE_BYTE_GRAY ), data );
+			case BGR24:
+				return copy( new BufferedImage( width, height, BufferedImage.TYPE_3BYTE_BGR ), data );
+			case ABGR:
+				return copy( new BufferedImage( width, height, BufferedImage.TYPE_4BYTE_ABGR ), data );
+			case RGB24:
+				return interleaved( width, height, data.clone(), false );
+			case RGBA:
+				return interleaved( width, height, data.clone(), true );
+			default:
+				throw new IllegalArgumentException( "Unsupported image pixel format: " + frame.getFormat().command() );
+		}
+	}
+
+	/**
+	 * Extract the frames at the given seconds as images of the given size with {@link PixelFormat#BGR24}.
+	 *
+	 * @param input   the input file path or url
+	 * @param width   the image width, zero or negative to derive it from the source
+	 * @param height  the image height, zero or negative to derive it from the source
+	 * @param seconds the timestamps to extract
+	 * @return the images in the order of the timestamps, {@code null} for a timestamp beyond the end of the
+	 *         input
+	 */
+	public static List<BufferedImage> read( String input, int width, int height, double ... seconds ) {
+		return read( FFmpegExecutor.build(), input, width, height, PixelFormat.BGR24, seconds );
+	}
+
+	/**
+	 * <p>
+	 * Extract the frames at the given seconds as images in one ffmpeg run. Each timestamp is opened as a fast
+	 * seeking input, and the first frame of every input is scaled and concatenated in the same filter graph:
+	 *
+	 * <pre>
+	 * ffmpeg -ss 1 -i input -ss 5 -i input -filter_complex
+	 *     [0:v]trim=end_frame=1,scale=320:180,setsar=1[v0];
+	 *     [1:v]trim=end_frame=1,scale=320:180,setsar=1[v1];
+	 *     [v0][v1]concat=n=2:v=1:a=0,format=bgr24[out]
+	 *     -map [out] -f rawvideo pipe:1
+	 * </pre>
+	 *
+	 * @param executor the executor used to run the command, may carry additional global options
+	 * @param input    the input file path or url
+	 * @param width    the image width, zero or negative to derive it from the source
+	 * @param height   the image height, zero or negative to derive it from the source
+	 * @param format   the raw pixel format, see {@link #isSupported(PixelFormat)}
+	 * @param seconds  the timestamps to extract
+	 * @return the images in the order of the timestamps, {@code null} for a timestamp beyond the end of the
+	 *         input
+	 */
+	public static List<BufferedImage> read( FFmpegExecutor executor, String input, int width, int height, PixelFormat format, double ... seconds ) {
+		Assert.notEmpty( input, "The input cannot be empty" );
+		Assert.isTrue( seconds != null && seconds.length > 0, "At least one timestamp is required" );
+		Assert.isTrue( isSupported( format ), "Unsupported image pixel format: " + format.command() );
+
+		if ( width <= 0 || height <= 0 ) {
+			Stream video = FFmpeger.readVideoInfo( input ).orElseThrow(
+					() -> new IllegalArgumentException( "Cannot read the video size of " + input ) );
+			if ( width <= 0 && height <= 0 ) {
+				width = video.getWidth();
+				height = video.getHeight();
+			} else if ( width <= 0 ) {
+				width = even( ( double ) height * video.getWidth() / video.getHeight() );
+			} else {
+				height = even( ( double ) width * video.getHeight() / video.getWidth() );
+			}
+		}
+
+		Filters filters = Filters.complex();
+		String [] segments = new String[ seconds.length ];
+		for ( int i = 0; i < seconds.length; i ++ ) {
+			executor.cmd( "ss", seconds[ i ], false ).cmd( "i", input, false );
+			segments[ i ] = "v" + i;
+			filters.stream( i + ":v" ).add( Trim.of().endFrame( 1 ), Scale.to( width, height ), SetSar.of().sar( 1 ) ).tag( segments[ i ] );
+		}
+		filters.stream( segments ).add( Concat.in( seconds.length, 1, 0 ), Format.of( format ) ).tag( OUTPUT );
+		executor.filters( filters ).cmd( "map", "[" + OUTPUT + "]", false );
+		executor.cmd( "frames:v", seconds.length, false );
+
+		List<BufferedImage> images = new ArrayList<>( seconds.length );
+		try ( FrameReader reader = FrameReader.open( executor, width, height, format ) ) {
+			RawFrame frame = reader.newFrame();
+			while ( reader.read( frame ) ) {
+				images.add( toImage( frame ) );
+			}
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( "Failed to read the thumbnails of " + input, e );
+		}
+		return align( images, seconds );
+	}
+
+	/**
+	 * An input opened beyond the end yields no frame and concat skips it. Seeking is monotonic, so when only
+	 * {@code k} frames come back they belong to the {@code k} earliest timestamps, in the requested order.
+	 *
+	 * @param images  the frames read, in the requested order
+	 * @param seconds the requested timestamps
+	 * @return one image per timestamp, {@code null} where the input has already ended
+	 */
+	private static List<BufferedImage> align( List<BufferedImage> images, double [] seconds ) {
+		if ( images.size() >= seconds.length ) {
+			return images;
+		}
+		double [] sorted = seconds.clone();
+		Arrays.sort( sorted );
+		double last = images.isEmpty() ? Double.NEGATIVE_INFINITY : sorted[ images.size() - 1 ];
+		List<BufferedImage> aligned = new ArrayList<>( seconds.length );
+		Iterator<BufferedImage> iterator = images.iterator();
+		for ( double second : seconds ) {
+			aligned.add( second <= last && iterator.hasNext() ? iterator.next() : null );
+		}
+		return aligned;
+	}
+
+	private static BufferedImage copy( BufferedImage image, byte [] data ) {
+		byte [] target = ( ( DataBufferByte ) image.getRaster().getDataBuffer() ).getData();
+		System.arraycopy( data, 0, target, 0, data.length );
+		return image;
+	}
+
+	private static BufferedImage interleaved( int width, int height, byte [] data, boolean alpha ) {
+		int bands = alpha ? 4 : 3;
+		int [] offsets = alpha ? new int [] { 0, 1, 2, 3 } : new int [] { 0, 1, 2 };
+		ComponentColorModel model = new ComponentColorModel( ColorSpace.getInstance( ColorSpace.CS_sRGB ), alpha, false,
+				alpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE, DataBuffer.TYPE_BYTE );
+		WritableRaster raster = Raster.createInterleavedRaster( new DataBufferByte( data, data.length ), width, height,
+				width * bands, bands, offsets, null );
+		return new BufferedImage( model, raster, false, null );
+	}
+
+	private static int even( double value ) {
+		return Math.max( 2, ( int ) Math.round( value / 2 ) * 2 );
+	}
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Plane kernels used by {@link FrameAnalyzer}, with a Vector API implementation like {@link YuvConverter}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+class FrameMath {
+
+	private static final String VECTOR_IMPL = "com.viiyue.ffmpeg.frame.VectorFrameMath";
+
+	private static class Holder {
+		private static final FrameMath SCALAR = new FrameMath();
+		private static final FrameMath BEST = load();
+	}
+
+	FrameMath() {}
+
+	static FrameMath get() {
+		return Holder.BEST;
+	}
+
+	static FrameMath scalar() {
+		return Holder.SCALAR;
+	}
+
+	String getName() {
+		return "scalar";
+	}
+
+	/**
+	 * @return the sum of the unsigned samples ({@code [0]}) and the sum of their squares ({@code [1]})
+	 */
+	long [] sums( byte [] data, int offset, int length ) {
+		long sum = 0, squares = 0;
+		for ( int i = offset, end = offset + length; i < end; i ++ ) {
+			int value = data[ i ] & 0xff;
+			sum += value;
+			squares += value * value;
+		}
+		return new long [] { sum, squares };
+	}
+
+	/**
+	 * @return the sum of absolute differences between two runs of unsigned samples
+	 */
+	long sad( byte [] a, int aOffset, byte [] b, int bOffset, int length ) {
+		long sum = 0;
+		for ( int i = 0; i < length; i ++ ) {
+			sum += Math.abs( ( a[ aOffset + i ] & 0xff ) - ( b[ bOffset + i ] & 0xff ) );
+		}
+		return sum;
+	}
+
+	/**
+	 * Count the unsigned samples {@code data[offset + i * step]} into a 256 bins histogram. Four partial
+	 * histograms are used to break the store-to-load dependency of repeated values.
+	 */
+	final void histogram( byte [] data, int offset, int count, int step, int [] bins ) {
+		int [] h0 = new int[ 256 ], h1 = new int[ 256 ], h2 = new int[ 256 ], h3 = new int[ 256 ];
+		int i = 0, p = offset;
+		for ( ; i + 4 <= count; i += 4, p += step * 4 ) {
+			h0[ data[ p ] & 0xff ] ++;
+			h1[ data[ p + step ] & 0xff ] ++;
+			h2[ data[ p + step * 2 ] & 0xff ] ++;
+			h3[ data[ p + step * 3 ] & 0xff ] ++;
+		}
+		for ( ; i < count; i ++, p += step ) {
+			h0[ data[ p ] & 0xff ] ++;
+		}
+		for ( int k = 0; k < 256; k ++ ) {
+			bins[ k ] = h0[ k ] + h1[ k ] + h2[ k ] + h3[ k ];
+		}
+	}
+
+	private static FrameMath load() {
+		try {
+			return ( FrameMath ) Class.forName( VECTOR_IMPL ).getDeclaredConstructor().newInstance();
+		} catch ( Throwable e ) {
+			LoggerFactory.getLogger( FrameMath.class ).debug( "Vector API is unavailable, use the scalar frame kernels" );
+			return Holder.SCALAR;
+		}
+	}
+
+}
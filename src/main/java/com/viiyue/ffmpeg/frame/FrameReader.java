@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.viiyue.ffmpeg.enums.PixelFormat;
+import com.viiyue.ffmpeg.executor.FFmpegExecutor;
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Raw video frame reader, let ffmpeg decode the input to {@code rawvideo} and read the frames from the
+ * standard output of the process. A failed decode is reported with the end of the ffmpeg log.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class FrameReader implements Closeable {
+
+	private static final long EXIT_TIMEOUT_SECONDS = 30;
+	private static final int LOG_TAIL_BYTES = 2048;
+	private static final int LOG_TAIL_LINES = 8;
+
+	private final Process process;
+	private final String log;
+	private final InputStream input;
+	private final int width;
+	private final int height;
+	private final PixelFormat format;
+	private final double rate;
+
+	private long count;
+
+	private FrameReader( Process process, String log, int width, int height, PixelFormat format, double rate ) {
+		this( process, log, process.getInputStream(), width, height, format, rate );
+	}
+
+	private FrameReader( Process process, String log, InputStream input, int width, int height, PixelFormat format, double rate ) {
+		this.process = process;
+		this.log = log;
+		this.input = input;
+		this.width = width;
+		this.height = height;
+		this.format = format;
+		this.rate = rate;
+	}
+
+	/**
+	 * Start decoding the inputs of the executor as raw video frames
+	 *
+	 * @param executor the executor that already has its inputs
+	 * @param width    the output frame width
+	 * @param height   the output frame height
+	 * @param format   the output pixel format
+	 * @return the {@link FrameReader} instance
+	 */
+	public static final FrameReader open( FFmpegExecutor executor, int width, int height, PixelFormat format ) {
+		return open( executor, width, height, format, 0 );
+	}
+
+	/**
+	 * Start decoding the inputs of the executor as raw video frames with a constant frame rate, the
+	 * timestamp of each frame is then derived from its index.
+	 *
+	 * @param executor the executor that already has its inputs
+	 * @param width    the output frame width
+	 * @param height   the output frame height
+	 * @param format   the output pixel format
+	 * @param rate     the output frame rate, zero or negative to keep the source timing
+	 * @return the {@link FrameReader} instance
+	 */
+	public static final FrameReader open( FFmpegExecutor executor, int width, int height, PixelFormat format, double rate ) {
+		Assert.notNull( executor, "The executor cannot be null" );
+		Assert.notNull( format, "The raw pixel format cannot be null" );
+		Assert.isTrue( width > 0 && height > 0, "The frame size must be greater than 0" );
+		RawFrame.sizeOf( format, width, height ); // fail fast on unsupported formats
+		executor.cmd( "f", "rawvideo", false ).cmd( "pix_fmt", format, false ).cmd( "s", width + "x" + height, false );
+		if ( rate > 0 ) {
+			executor.cmd( "r", rate, false );
+		}
+		Process process = executor.toPipe();
+		try {
+			// Nothing is ever written to ffmpeg, don't leave it an open pipe to wait on
+			process.getOutputStream().close();
+		} catch ( IOException e ) {
+			// Ignore it
+		}
+		return new FrameReader( process, executor.getSpawnedLog(), width, height, format, rate );
+	}
+
+	/**
+	 * Read raw video frames from a stream that is fed by ffmpeg in some other way, such as a named pipe.
+	 *
+	 * @param input  the raw video stream
+	 * @param width  the frame width
+	 * @param height the frame height
+	 * @param format the raw pixel format
+	 * @param rate   the constant frame rate of the stream, zero or negative if unknown
+	 * @return the {@link FrameReader} instance
+	 */
+	public static final FrameReader wrap( InputStream input, int width, int height, PixelFormat format, double rate ) {
+		Assert.notNull( input, "The input stream cannot be null" );
+		Assert.notNull( format, "The raw pixel format cannot be null" );
+		RawFrame.sizeOf( format, width, height );
+		return new FrameReader( null, null, input, width, height, format, rate );
+	}
+
+	/**
+	 * @return a new frame buffer matching the output of this reader
+	 */
+	public RawFrame newFrame() {
+		return new RawFrame( width, height, format );
+	}
+
+	/**
+	 * Read the next frame into the given buffer
+	 *
+	 * @param frame the frame buffer created by {@link #newFrame()}
+	 * @return {@code false} if the end of the stream has been reached and ffmpeg exited normally
+	 * @throws IOException if the pipe could not be read, the last frame was truncated or ffmpeg failed
+	 */
+	public boolean read( RawFrame frame ) throws IOException {
+		byte [] data = frame.getData();
+		Assert.isTrue( data.length == frameSize(), "The frame buffer does not match the reader output" );
+		int offset = 0;
+		while ( offset < data.length ) {
+			int read = input.read( data, offset, data.length - offset );
+			if ( read < 0 ) {
+				checkExit();
+				if ( offset == 0 ) {
+					return false;
+				}
+				throw new EOFException( "Truncated raw frame #" + count + ", " + offset + " of " + data.length + " bytes" );
+			}
+			offset += read;
+		}
+		frame.mark( count, rate > 0 ? count / rate : Double.NaN );
+		count ++;
+		return true;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public PixelFormat getFormat() {
+		return format;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public int frameSize() {
+		return RawFrame.sizeOf( format, width, height );
+	}
+
+	/**
+	 * @return the number of frames read so far
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Wait for ffmpeg once its output has ended, a non-zero exit code fails the read
+	 */
+	private void checkExit() throws IOException {
+		if ( process == null ) {
+			return;
+		}
+		try {
+			if ( !process.waitFor( EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS ) ) {
+				process.destroyForcibly();
+				throw new IOException( "ffmpeg closed its output but did not exit after " + count + " frames" );
+			}
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "Interrupted while waiting for ffmpeg to exit" );
+		}
+		int exitCode = process.exitValue();
+		if ( exitCode != 0 ) {
+			throw new IOException( "ffmpeg exited with code " + exitCode + " after " + count + " frames" + tailOf( log ) );
+		}
+	}
+
+	/**
+	 * @param log the log file of the process
+	 * @return the last lines of the log, with a leading line break, or an empty string
+	 */
+	private static String tailOf( String log ) {
+		if ( log == null ) {
+			return StringUtils.EMPTY;
+		}
+		try ( RandomAccessFile file = new RandomAccessFile( log, "r" ) ) {
+			long start = Math.max( 0, file.length() - LOG_TAIL_BYTES );
+			byte [] bytes = new byte[ ( int ) ( file.length() - start ) ];
+			file.seek( start );
+			file.readFully( bytes );
+			String [] lines = StringUtils.split( new String( bytes, StandardCharsets.UTF_8 ), "\r\n" );
+			int from = Math.max( start > 0 ? 1 : 0, lines.length - LOG_TAIL_LINES ); // The first line may be cut
+			StringBuilder tail = new StringBuilder( bytes.length + 16 );
+			for ( int i = from; i < lines.length; i ++ ) {
+				tail.append( System.lineSeparator() ).append( lines[ i ] );
+			}
+			return tail.toString();
+		} catch ( IOException e ) {
+			return ", see " + log;
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			input.close();
+		} catch ( IOException e ) {
+			// Ignore it
+		}
+		if ( process != null && process.isAlive() ) {
+			process.destroy();
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+/**
+ * Statistics of one frame produced by {@link FrameAnalyzer}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class FrameStats {
+
+	private final long index;
+	private final double timestamp;
+	private final double mean;
+	private final double variance;
+	private final double difference;
+	private final int [] lumaHistogram;
+	private final int [] cbHistogram;
+	private final int [] crHistogram;
+
+	FrameStats( long index, double timestamp, double mean, double variance, double difference, int [] lumaHistogram,
+			int [] cbHistogram, int [] crHistogram ) {
+		this.index = index;
+		this.timestamp = timestamp;
+		this.mean = mean;
+		this.variance = variance;
+		this.difference = difference;
+		this.lumaHistogram = lumaHistogram;
+		this.cbHistogram = cbHistogram;
+		this.crHistogram = crHistogram;
+	}
+
+	public long getIndex() {
+		return index;
+	}
+
+	public double getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return the mean luma value
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * @return the variance of the luma values
+	 */
+	public double getVariance() {
+		return variance;
+	}
+
+	/**
+	 * @return the mean absolute luma difference to the previous frame (0 - 255), {@code NaN} for the first
+	 *         frame
+	 */
+	public double getDifference() {
+		return difference;
+	}
+
+	/**
+	 * @return the 256 bins luma histogram, {@code null} if histograms are disabled
+	 */
+	public int [] getLumaHistogram() {
+		return lumaHistogram;
+	}
+
+	/**
+	 * @return the 256 bins Cb histogram, {@code null} if histograms are disabled or the frame has no chroma
+	 */
+	public int [] getCbHistogram() {
+		return cbHistogram;
+	}
+
+	/**
+	 * @return the 256 bins Cr histogram, {@code null} if histograms are disabled or the frame has no chroma
+	 */
+	public int [] getCrHistogram() {
+		return crHistogram;
+	}
+
+	@Override
+	public String toString() {
+		return "#" + index + "(mean=" + mean + ", variance=" + variance + ", difference=" + difference + ")";
+	}
+
+}
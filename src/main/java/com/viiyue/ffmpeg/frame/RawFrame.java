@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import com.viiyue.ffmpeg.enums.PixelFormat;
+
+/**
+ * A decoded raw video frame, preallocated and refilled for every frame
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class RawFrame {
+
+	private final int width;
+	private final int height;
+	private final PixelFormat format;
+	private final byte [] data;
+
+	private long index = -1;
+	private double timestamp = Double.NaN;
+
+	public RawFrame( int width, int height, PixelFormat format ) {
+		this.width = width;
+		this.height = height;
+		this.format = format;
+		this.data = new byte[ sizeOf( format, width, height ) ];
+	}
+
+	/**
+	 * Calculate the number of bytes of a packed frame in the given pixel format
+	 *
+	 * @param format the raw pixel format
+	 * @param width  the frame width
+	 * @param height the frame height
+	 * @return the frame size in bytes
+	 */
+	public static int sizeOf( PixelFormat format, int width, int height ) {
+		int pixels = width * height;
+		switch ( format ) {
+			case GRAY:
+				return pixels;
+			case YUV420P:
+			case YUVJ420P:
+			case NV12:
+			case NV21:
+				return pixels + 2 * ( ( width + 1 ) / 2 ) * ( ( height + 1 ) / 2 );
+			case YUV422P:
+			case YUVJ422P:
+				return pixels + 2 * ( ( width + 1 ) / 2 ) * height;
+			case YUYV422:
+			case UYVY422:
+				// Every two pixels share four bytes, the last one of an odd row included
+				return 4 * ( ( width + 1 ) / 2 ) * height;
+			case GRAY16LE:
+			case GRAY16BE:
+				return pixels * 2;
+			case YUV444P:
+			case YUVJ444P:
+			case RGB24:
+			case BGR24:
+				return pixels * 3;
+			case RGBA:
+			case BGRA:
+			case ARGB:
+			case ABGR:
+				return pixels * 4;
+			default:
+				throw new IllegalArgumentException( "Unsupported raw pixel format: " + format.command() );
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public PixelFormat getFormat() {
+		return format;
+	}
+
+	public byte [] getData() {
+		return data;
+	}
+
+	public int getSize() {
+		return data.length;
+	}
+
+	public long getIndex() {
+		return index;
+	}
+
+	public double getTimestamp() {
+		return timestamp;
+	}
+
+	void mark( long index, double timestamp ) {
+		this.index = index;
+		this.timestamp = timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return "#" + index + "(" + width + "x" + height + " " + format.command() + ", " + timestamp + "s)";
+	}
+
+}
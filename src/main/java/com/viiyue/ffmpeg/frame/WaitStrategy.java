@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits for the ring buffer of {@link FrameBroadcaster} to move on
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public enum WaitStrategy {
+
+	/** Spin on the sequence, lowest latency but burns a whole core per waiting thread */
+	BUSY_SPIN {
+		@Override
+		void idle( int attempts ) {}
+	},
+
+	/** Spin for a while and then yield the processor to other threads */
+	YIELDING {
+		@Override
+		void idle( int attempts ) {
+			if ( attempts > SPIN_TRIES ) {
+				Thread.yield();
+			}
+		}
+	},
+
+	/** Spin, yield and finally park for a short time, a good compromise for background analysis */
+	SLEEPING {
+		@Override
+		void idle( int attempts ) {
+			if ( attempts > SPIN_TRIES * 2 ) {
+				LockSupport.parkNanos( 100_000L );
+			} else if ( attempts > SPIN_TRIES ) {
+				Thread.yield();
+			}
+		}
+	},
+
+	/** Park until the other side signals progress, lowest CPU usage but highest latency */
+	BLOCKING {
+		@Override
+		void idle( int attempts ) {
+			LockSupport.parkNanos( 1_000_000L );
+		}
+
+		@Override
+		boolean signals() {
+			return true;
+		}
+	};
+
+	private static final int SPIN_TRIES = 100;
+
+	/**
+	 * Wait once before the sequence is checked again
+	 *
+	 * @param attempts the number of times the caller has already waited
+	 */
+	abstract void idle( int attempts );
+
+	/**
+	 * @return whether the waiting threads need to be unparked when the sequence moves on
+	 */
+	boolean signals() {
+		return false;
+	}
+
+}
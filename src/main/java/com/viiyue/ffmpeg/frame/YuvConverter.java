@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.frame;
+
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.enums.PixelFormat;
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Convert {@code yuv420p}, {@code nv12} and {@code nv21} raw frames to RGB with the BT.601 limited range
+ * coefficients of libswscale. {@link #get()} returns the Vector API implementation when it is available.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class YuvConverter {
+
+	private static final String VECTOR_IMPL = "com.viiyue.ffmpeg.frame.VectorYuvConverter";
+
+	private static class Holder {
+		private static final YuvConverter SCALAR = new YuvConverter();
+		private static final YuvConverter BEST = load();
+	}
+
+	YuvConverter() {}
+
+	/**
+	 * @return the fastest converter available in this JVM
+	 */
+	public static final YuvConverter get() {
+		return Holder.BEST;
+	}
+
+	/**
+	 * @return the portable scalar converter
+	 */
+	public static final YuvConverter scalar() {
+		return Holder.SCALAR;
+	}
+
+	/**
+	 * @param format the raw pixel format
+	 * @return whether frames in this format can be converted
+	 */
+	public static boolean isSupported( PixelFormat format ) {
+		return format == PixelFormat.YUV420P || format == PixelFormat.NV12 || format == PixelFormat.NV21;
+	}
+
+	/**
+	 * @return the implementation name, {@code scalar} or {@code vector}
+	 */
+	public String getName() {
+		return "scalar";
+	}
+
+	/**
+	 * Convert the frame to packed {@code 0xAARRGGBB} pixels, which can be set directly into a
+	 * {@code TYPE_INT_RGB} or {@code TYPE_INT_ARGB} image.
+	 *
+	 * @param frame the yuv frame
+	 * @param argb  the target pixels, at least {@code width * height} long
+	 */
+	public final void toArgb( RawFrame frame, int [] argb ) {
+		int width = frame.getWidth();
+		Assert.isTrue( argb.length >= width * frame.getHeight(), "The target pixels are too small" );
+		convert( frame, argb, null );
+	}
+
+	/**
+	 * Convert the frame to interleaved {@code rgb24} bytes
+	 *
+	 * @param frame the yuv frame
+	 * @param rgb   the target bytes, at least {@code width * height * 3} long
+	 */
+	public final void toRgb( RawFrame frame, byte [] rgb ) {
+		int width = frame.getWidth();
+		Assert.isTrue( rgb.length >= width * frame.getHeight() * 3, "The target bytes are too small" );
+		convert( frame, new int[ width ], rgb );
+	}
+
+	private void convert( RawFrame frame, int [] argb, byte [] rgb ) {
+		PixelFormat format = frame.getFormat();
+		Assert.isTrue( isSupported( format ), "Unsupported yuv pixel format: " + format.command() );
+
+		byte [] data = frame.getData();
+		int width = frame.getWidth();
+		int height = frame.getHeight();
+		int chromaWidth = ( width + 1 ) / 2;
+		int chromaHeight = ( height + 1 ) / 2;
+		int lumaSize = width * height;
+
+		// Offset of the first U and V sample, the distance between two samples and the stride of a chroma row
+		int uOffset, vOffset, step, stride;
+		if ( format == PixelFormat.YUV420P ) {
+			uOffset = lumaSize;
+			vOffset = lumaSize + chromaWidth * chromaHeight;
+			step = 1;
+			stride = chromaWidth;
+		} else {
+			uOffset = lumaSize + ( format == PixelFormat.NV12 ? 0 : 1 );
+			vOffset = lumaSize + ( format == PixelFormat.NV12 ? 1 : 0 );
+			step = 2;
+			stride = chromaWidth * 2;
+		}
+
+		for ( int row = 0; row < height; row ++ ) {
+			int chroma = ( row >> 1 ) * stride;
+			if ( rgb == null ) {
+				convertRow( data, row * width, uOffset + chroma, vOffset + chroma, step, width, argb, row * width );
+			} else {
+				convertRow( data, row * width, uOffset + chroma, vOffset + chroma, step, width, argb, 0 );
+				for ( int i = 0, o = row * width * 3; i < width; i ++ ) {
+					int pixel = argb[ i ];
+					rgb[ o ++ ] = ( byte ) ( pixel >> 16 );
+					rgb[ o ++ ] = ( byte ) ( pixel >> 8 );
+					rgb[ o ++ ] = ( byte ) pixel;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Convert one row of pixels, the chroma samples are shared by two neighbouring pixels.
+	 *
+	 * @param data    the frame bytes
+	 * @param yOffset the offset of the first luma sample of the row
+	 * @param uOffset the offset of the first U sample of the row
+	 * @param vOffset the offset of the first V sample of the row
+	 * @param step    the distance between two chroma samples of the same plane
+	 * @param width   the number of pixels in a row
+	 * @param argb    the target pixels
+	 * @param offset  the offset of the first target pixel
+	 */
+	void convertRow( byte [] data, int yOffset, int uOffset, int vOffset, int step, int width, int [] argb, int offset ) {
+		for ( int i = 0; i < width; i ++ ) {
+			int chroma = ( i >> 1 ) * step;
+			int c = ( ( data[ yOffset + i ] & 0xff ) - 16 ) * 298;
+			int d = ( data[ uOffset + chroma ] & 0xff ) - 128;
+			int e = ( data[ vOffset + chroma ] & 0xff ) - 128;
+			int r = clamp( ( c + 409 * e + 128 ) >> 8 );
+			int g = clamp( ( c - 100 * d - 208 * e + 128 ) >> 8 );
+			int b = clamp( ( c + 516 * d + 128 ) >> 8 );
+			argb[ offset + i ] = 0xff000000 | ( r << 16 ) | ( g << 8 ) | b;
+		}
+	}
+
+	private static int clamp( int value ) {
+		return value < 0 ? 0 : value > 255 ? 255 : value;
+	}
+
+	private static YuvConverter load() {
+		try {
+			return ( YuvConverter ) Class.forName( VECTOR_IMPL ).getDeclaredConstructor().newInstance();
+		} catch ( Throwable e ) {
+			// Not built with the vector profile, or jdk.incubator.vector is not enabled
+			LoggerFactory.getLogger( YuvConverter.class ).debug( "Vector API is unavailable, use the scalar yuv converter" );
+			return Holder.SCALAR;
+		}
+	}
+
+}
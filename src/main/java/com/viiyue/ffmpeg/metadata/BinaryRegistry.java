@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.metadata;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.enums.Library;
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Several ffmpeg builds registered under their own names, a job is routed to the one with the fewest components
+ * that still provides every filter, codec and pixel format the job requires. The binary bound to
+ * {@link Library#FFMPEG} takes part as the {@code default} binary, it is read from the library on every lookup
+ * and never copied into the registry.
+ *
+ * <pre>
+ * BinaryRegistry binaries = BinaryRegistry.of()
+ *     .register( "lean", "/opt/ffmpeg-lean/bin/ffmpeg" )
+ *     .register( "full", "/opt/ffmpeg-full/bin/ffmpeg" );
+ * FFmpegExecutor.build().route( binaries ).input( "in.mp4" ).filters( ... ).to( "out.mp4" );
+ * </pre>
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class BinaryRegistry {
+
+	private static final Logger LOG = LoggerFactory.getLogger( BinaryRegistry.class );
+
+	/**
+	 * The name of the binary bound to {@link Library#FFMPEG}
+	 */
+	public static final String DEFAULT = "default";
+
+	private final CapabilityRegistry capabilities;
+	private final Map<String, String> binaries = new ConcurrentHashMap<>( 4 );
+
+	private BinaryRegistry( CapabilityRegistry capabilities ) {
+		this.capabilities = capabilities;
+	}
+
+	/**
+	 * @return the {@link BinaryRegistry} instance, reading the capabilities from the shared registry
+	 */
+	public static final BinaryRegistry of() {
+		return of( CapabilityRegistry.getDefault() );
+	}
+
+	/**
+	 * @param capabilities the registry of the capabilities of the binaries
+	 * @return the {@link BinaryRegistry} instance
+	 */
+	public static final BinaryRegistry of( CapabilityRegistry capabilities ) {
+		Assert.notNull( capabilities, "The capability registry cannot be null" );
+		return new BinaryRegistry( capabilities );
+	}
+
+	/**
+	 * Register a binary, or replace the binary registered under the same name
+	 *
+	 * @param name       the name of the binary, such as {@code lean}
+	 * @param executable the path of the binary, or its name to be found in the {@code PATH}
+	 * @return the current instance
+	 * @throws IllegalArgumentException if the binary doesn't exist, or the name is {@link #DEFAULT}
+	 */
+	public BinaryRegistry register( String name, String executable ) {
+		Assert.notEmpty( name, "The binary name cannot be empty" );
+		Assert.isFalse( DEFAULT.equals( name ), "The default binary is the one bound to the ffmpeg library" );
+		Assert.isTrue( CapabilityRegistry.exists( executable ), "The " + executable + " library doesn't seem to exist" );
+		binaries.put( name, executable );
+		return this;
+	}
+
+	/**
+	 * @param name the name of the binary
+	 * @return the current instance
+	 */
+	public BinaryRegistry unregister( String name ) {
+		binaries.remove( name );
+		return this;
+	}
+
+	/**
+	 * @return the names of the registered binaries, with {@link #DEFAULT} if a binary is bound to the library
+	 */
+	public Set<String> getNames() {
+		return Collections.unmodifiableSet( binaries().keySet() );
+	}
+
+	/**
+	 * @param name the name of the binary
+	 * @return the path of the binary registered under the name, or {@code null}
+	 */
+	public String getExecutable( String name ) {
+		if ( DEFAULT.equals( name ) ) {
+			return Library.FFMPEG.isBound() ? Library.FFMPEG.getExecutable() : null;
+		}
+		return binaries.get( name );
+	}
+
+	/**
+	 * @param name the name of the binary
+	 * @return the capabilities of the binary registered under the name
+	 * @throws NullPointerException if no binary is registered under the name
+	 */
+	public Capabilities getCapabilities( String name ) {
+		String executable = getExecutable( name );
+		Assert.notNull( executable, "No binary is registered as " + name );
+		return capabilities.get( executable );
+	}
+
+	/**
+	 * Choose the leanest binary listing everything required. Among binaries of the same size the newest
+	 * version wins. When no binary lists everything the fullest one is chosen, so that the missing names are
+	 * reported, or replaced by their fallbacks, by the preflight of the executor.
+	 *
+	 * @param required the names required by the job, see {@link Capabilities#of(String, Set, Map)}
+	 * @return the path of the chosen binary
+	 * @throws NullPointerException if no binary is registered or bound
+	 */
+	public String route( Capabilities required ) {
+		Assert.notNull( required, "The required capabilities cannot be null" );
+		Map.Entry<String, String> leanest = null, fullest = null;
+		Capabilities lean = null, full = null;
+		for ( Map.Entry<String, String> entry : binaries().entrySet() ) {
+			Capabilities current = capabilities.get( entry.getValue() );
+			if ( full == null || compare( current, entry.getKey(), full, fullest.getKey() ) > 0 ) {
+				full = current;
+				fullest = entry;
+			}
+			if ( current.covers( required ) && ( lean == null || compare( current, entry.getKey(), lean, leanest.getKey() ) < 0 ) ) {
+				lean = current;
+				leanest = entry;
+			}
+		}
+		Assert.notNull( fullest, "No ffmpeg binary is registered or bound" );
+		if ( leanest == null ) {
+			if ( LOG.isDebugEnabled() ) {
+				LOG.debug( "No binary provides all of {}, routed to \"{}\"", required, fullest.getKey() );
+			}
+			return fullest.getValue();
+		}
+		if ( LOG.isDebugEnabled() ) {
+			LOG.debug( "Routed to \"{}\" {}", leanest.getKey(), lean );
+		}
+		return leanest.getValue();
+	}
+
+	/**
+	 * @return the registered binaries, then the bound one as it is bound right now
+	 */
+	private Map<String, String> binaries() {
+		Map<String, String> binaries = new LinkedHashMap<>( this.binaries );
+		if ( Library.FFMPEG.isBound() ) {
+			binaries.put( DEFAULT, Library.FFMPEG.getExecutable() );
+		}
+		return binaries;
+	}
+
+	/**
+	 * Order by size, then by version with the newest last, then by name to be stable
+	 */
+	private static int compare( Capabilities one, String oneName, Capabilities other, String otherName ) {
+		int result = Integer.compare( one.size(), other.size() );
+		if ( result == 0 ) {
+			result = -compareVersions( one.getVersion(), other.getVersion() );
+		}
+		return result == 0 ? oneName.compareTo( otherName ) : result;
+	}
+
+	/**
+	 * Compare the numbers of two versions such as {@code 6.1.1} and {@code n7.0-12-g1234567}, a version without
+	 * a number, such as a {@code N-112345-g1234567} snapshot, is older than any release
+	 *
+	 * @param one   the version
+	 * @param other the other version
+	 * @return a negative number, zero or a positive number if the first version is older, the same or newer
+	 */
+	static int compareVersions( String one, String other ) {
+		int [] a = numbersOf( one ), b = numbersOf( other );
+		for ( int i = 0, s = Math.max( a.length, b.length ); i < s; i ++ ) {
+			int result = Integer.compare( i < a.length ? a[ i ] : 0, i < b.length ? b[ i ] : 0 );
+			if ( result != 0 ) {
+				return result;
+			}
+		}
+		return 0;
+	}
+
+	private static int [] numbersOf( String version ) {
+		String digits = StringUtils.removeStart( StringUtils.defaultString( version ), "n" );
+		int end = 0;
+		while ( end < digits.length() && ( Character.isDigit( digits.charAt( end ) ) || digits.charAt( end ) == '.' ) ) {
+			end ++;
+		}
+		String [] parts = StringUtils.split( digits.substring( 0, end ), '.' );
+		int [] numbers = new int[ parts.length ];
+		for ( int i = 0; i < parts.length; i ++ ) {
+			numbers[ i ] = parts[ i ].length() > 9 ? Integer.MAX_VALUE : Integer.parseInt( parts[ i ] );
+		}
+		return numbers;
+	}
+
+}
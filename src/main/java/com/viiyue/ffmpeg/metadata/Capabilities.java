@@ -0,0 +1,277 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.metadata;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * The version, configure options and component names an ffmpeg binary was built with, collected by
+ * {@link CapabilityRegistry}.
+ *
+ * <pre>
+ * CapabilityRegistry.getDefault().get( Library.FFMPEG ).hasFilter( "lensfun" );
+ * </pre>
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class Capabilities {
+
+	private static final String ENABLE = "--enable-";
+
+	private final String version;
+	private final Set<String> configuration;
+	private final Map<Kind, Set<String>> names;
+
+	private Capabilities( String version, Set<String> configuration, Map<Kind, Set<String>> names ) {
+		this.version = version;
+		this.configuration = configuration;
+		this.names = names;
+	}
+
+	/**
+	 * @param version       the version, such as {@code 6.1.1} or {@code n6.1-3-g1234567}
+	 * @param configuration the configure options, such as {@code --enable-libx264}
+	 * @param names         the names listed for each kind, the missing kinds are empty
+	 * @return the {@link Capabilities} instance
+	 */
+	public static final Capabilities of( String version, Set<String> configuration, Map<Kind, Set<String>> names ) {
+		Assert.notNull( names, "The capability names cannot be null" );
+		Map<Kind, Set<String>> copy = new EnumMap<>( Kind.class );
+		for ( Kind kind : Kind.values() ) {
+			Set<String> values = names.get( kind );
+			copy.put( kind, values == null ? Collections.emptySet() : Collections.unmodifiableSet( new LinkedHashSet<>( values ) ) );
+		}
+		Set<String> options = configuration == null ? Collections.emptySet() : Collections.unmodifiableSet( new LinkedHashSet<>( configuration ) );
+		return new Capabilities( StringUtils.defaultString( version ), options, copy );
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the configure options the binary was built with
+	 */
+	public Set<String> getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * @param feature the name of the feature, such as {@code libass} or {@code gpl}
+	 * @return whether the binary was configured with {@code --enable-feature}
+	 */
+	public boolean isEnabled( String feature ) {
+		return configuration.contains( ENABLE + feature );
+	}
+
+	/**
+	 * @param kind the kind of names
+	 * @return the names of this kind, never {@code null}
+	 */
+	public Set<String> get( Kind kind ) {
+		return names.get( kind );
+	}
+
+	/**
+	 * @param kind the kind of names
+	 * @param name the name to look up
+	 * @return whether the binary lists the name
+	 */
+	public boolean has( Kind kind, String name ) {
+		return name != null && names.get( kind ).contains( name );
+	}
+
+	public boolean hasEncoder( String name ) {
+		return has( Kind.ENCODER, name );
+	}
+
+	public boolean hasDecoder( String name ) {
+		return has( Kind.DECODER, name );
+	}
+
+	public boolean hasFilter( String name ) {
+		return has( Kind.FILTER, name );
+	}
+
+	public boolean hasMuxer( String name ) {
+		return has( Kind.MUXER, name );
+	}
+
+	public boolean hasDemuxer( String name ) {
+		return has( Kind.DEMUXER, name );
+	}
+
+	public boolean hasPixelFormat( String name ) {
+		return has( Kind.PIXEL_FORMAT, name );
+	}
+
+	public boolean hasProtocol( String name ) {
+		return has( Kind.PROTOCOL, name );
+	}
+
+	/**
+	 * @param other the capabilities to compare with
+	 * @return whether this binary lists at least everything the other one lists
+	 */
+	public boolean covers( Capabilities other ) {
+		for ( Kind kind : Kind.values() ) {
+			if ( !names.get( kind ).containsAll( other.names.get( kind ) ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Count every listed name, the measure {@link BinaryRegistry} uses to pick the leanest binary. It is only a
+	 * crude proxy: a name says nothing about the size of the library behind it, and a build counts as lean
+	 * even if it lists few names that pull in heavy libraries.
+	 *
+	 * @return the total number of names
+	 */
+	public int size() {
+		int size = 0;
+		for ( Set<String> values : names.values() ) {
+			size += values.size();
+		}
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder( 128 ).append( "Capabilities(version=" ).append( version );
+		for ( Kind kind : Kind.values() ) {
+			builder.append( ", " ).append( kind.getName() ).append( '=' ).append( names.get( kind ).size() );
+		}
+		return builder.append( ')' ).toString();
+	}
+
+	/**
+	 * Parse the first line and the configuration of {@code -version}
+	 *
+	 * @param output the output of {@code -version}
+	 * @return the version, followed by the configure options
+	 */
+	static String [] parseVersion( String output ) {
+		String version = StringUtils.EMPTY, configuration = StringUtils.EMPTY;
+		for ( String line : StringUtils.split( output, "\r\n" ) ) {
+			line = line.trim();
+			if ( version.isEmpty() && line.contains( " version " ) ) {
+				version = StringUtils.substringBefore( StringUtils.substringAfter( line, " version " ).trim(), " " );
+			} else if ( line.startsWith( "configuration:" ) ) {
+				configuration = line.substring( "configuration:".length() ).trim();
+			}
+		}
+		return new String [] { version, configuration };
+	}
+
+	/**
+	 * The kinds of names listed by the binary, each one printed by its own command line option
+	 */
+	public enum Kind {
+
+		ENCODER( "-encoders" ),
+
+		DECODER( "-decoders" ),
+
+		/**
+		 * Listed as {@code " TSC name  A->A  description"}, without a separator line
+		 */
+		FILTER( "-filters" ),
+
+		MUXER( "-muxers" ),
+
+		DEMUXER( "-demuxers" ),
+
+		PIXEL_FORMAT( "-pix_fmts" ),
+
+		/**
+		 * Listed as one name per line under {@code Input:} and {@code Output:}
+		 */
+		PROTOCOL( "-protocols" );
+
+		private final String option;
+
+		private Kind( String option ) {
+			this.option = option;
+		}
+
+		/**
+		 * @return the command line option printing the names
+		 */
+		public String getOption() {
+			return option;
+		}
+
+		/**
+		 * @return the name used in the persisted files
+		 */
+		public String getName() {
+			return name().toLowerCase( Locale.ENGLISH );
+		}
+
+		/**
+		 * Parse the names printed by {@link #getOption()}
+		 *
+		 * @param output the output of the option
+		 * @return the names in the order they are listed
+		 */
+		Set<String> parse( String output ) {
+			Set<String> names = new LinkedHashSet<>( 512 );
+			boolean listing = false;
+			for ( String line : StringUtils.split( output, "\r\n" ) ) {
+				String trimmed = line.trim();
+				if ( this == PROTOCOL ) {
+					if ( trimmed.endsWith( ":" ) ) {
+						listing = trimmed.equals( "Input:" ) || trimmed.equals( "Output:" );
+					} else if ( listing && !trimmed.isEmpty() ) {
+						names.add( trimmed );
+					}
+					continue;
+				}
+				String [] tokens = StringUtils.split( trimmed );
+				if ( this == FILTER ) {
+					if ( tokens.length >= 3 && tokens[ 2 ].contains( "->" ) ) {
+						names.add( tokens[ 1 ] );
+					}
+					continue;
+				}
+				// The headers end with a line of dashes, then "flags name description"
+				if ( !listing ) {
+					listing = !trimmed.isEmpty() && StringUtils.containsOnly( trimmed, '-' );
+				} else if ( tokens.length >= 2 ) {
+					// Demuxers may share a line: "D  mov,mp4,m4a,3gp,3g2,mj2  QuickTime / MOV"
+					for ( String name : StringUtils.split( tokens[ 1 ], ',' ) ) {
+						names.add( name );
+					}
+				}
+			}
+			return names;
+		}
+
+	}
+
+}
@@ -0,0 +1,544 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.metadata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.nio.file.attribute.UserPrincipalNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.enums.Library;
+import com.viiyue.ffmpeg.metadata.Capabilities.Kind;
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Collect the {@link Capabilities} of each ffmpeg binary once and keep them on disk, a binary is identified by its
+ * real path, size and last modified time so replacing it is noticed by the next lookup.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class CapabilityRegistry {
+
+	private static final Logger LOG = LoggerFactory.getLogger( CapabilityRegistry.class );
+
+	private static final long PROBE_TIMEOUT_SECONDS = 30;
+	private static final String VERSION = "version";
+	private static final String CONFIGURATION = "configuration";
+	private static final String PATH = "path";
+	private static final String SIZE = "size";
+	private static final String MODIFIED = "modified";
+
+	// Where each executable name was found, shared by all the registries
+	private static final Map<String, Location> LOCATIONS = new ConcurrentHashMap<>( 8 );
+
+	private final Path directory;
+	private final Map<String, Entry<Capabilities>> entries = new ConcurrentHashMap<>( 4 );
+	private final Map<String, Entry<String>> listings = new ConcurrentHashMap<>( 4 );
+	private final Map<String, CompletableFuture<Void>> flights = new ConcurrentHashMap<>( 4 );
+
+	private static class Holder {
+		private static final CapabilityRegistry INSTANCE = new CapabilityRegistry( defaultDirectory() );
+	}
+
+	private CapabilityRegistry( Path directory ) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @param directory the directory of the persisted capabilities, or {@code null} to keep them in memory only
+	 * @return the {@link CapabilityRegistry} instance
+	 */
+	public static final CapabilityRegistry of( Path directory ) {
+		return new CapabilityRegistry( directory == null ? null : directory.toAbsolutePath() );
+	}
+
+	/**
+	 * @return the shared registry, persisted under {@code ~/.ffmpeg-helper/capabilities}
+	 */
+	public static final CapabilityRegistry getDefault() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * The capabilities decide what a job is allowed to run, so they are kept in the home directory of the user
+	 * rather than in the shared temporary directory, where anybody could plant them
+	 */
+	private static Path defaultDirectory() {
+		String home = System.getProperty( "user.home" );
+		return StringUtils.isEmpty( home ) ? null : Paths.get( home, ".ffmpeg-helper", "capabilities" ).toAbsolutePath();
+	}
+
+	/**
+	 * @param library the library whose bound executable is looked up
+	 * @return the capabilities of the bound executable
+	 */
+	public Capabilities get( Library library ) {
+		return get( library.getExecutable() );
+	}
+
+	/**
+	 * Get the capabilities of the binary, collecting them if the binary is new or has changed
+	 *
+	 * @param executable the path of the binary, or its name to be found in the {@code PATH}
+	 * @return the capabilities of the binary
+	 * @throws IllegalArgumentException if the binary doesn't exist
+	 * @throws UncheckedIOException     if the binary could not be run
+	 */
+	public Capabilities get( String executable ) {
+		Binary binary = locate( executable );
+		return once( entries, binary.path.toString(), binary.fingerprint, () -> {
+			Capabilities capabilities = load( binary.path, binary.fingerprint );
+			if ( capabilities == null ) {
+				capabilities = probe( binary.path );
+				store( binary.path, binary.fingerprint, capabilities );
+			}
+			return capabilities;
+		} );
+	}
+
+	/**
+	 * @param executable the path of the binary, or its name to be found in the {@code PATH}
+	 * @return the capabilities already collected for the binary, without running anything, or {@code null}
+	 */
+	public Capabilities peek( String executable ) {
+		Location location = LOCATIONS.get( StringUtils.defaultString( executable ) );
+		Path binary = location != null && location.isCurrent() ? location.path : resolve( executable );
+		if ( binary == null ) {
+			return null;
+		}
+		Entry<Capabilities> entry = entries.get( binary.toString() );
+		return entry != null && entry.fingerprint.equals( Fingerprint.read( binary ) ) ? entry.value : null;
+	}
+
+	/**
+	 * @param library the library whose bound executable is run
+	 * @param option  the listing option
+	 * @return the output of the option
+	 * @see #list(String, String)
+	 */
+	public String list( Library library, String option ) {
+		return list( library.getExecutable(), option );
+	}
+
+	/**
+	 * Get the output of a listing option of the binary, such as {@code -formats} or {@code -colors}, it is only
+	 * kept in memory and read again when the binary changes
+	 *
+	 * @param executable the path of the binary, or its name to be found in the {@code PATH}
+	 * @param option     the listing option
+	 * @return the output of the option
+	 * @throws IllegalArgumentException if the binary doesn't exist
+	 * @throws UncheckedIOException     if the binary could not be run
+	 */
+	public String list( String executable, String option ) {
+		Assert.notEmpty( option, "The listing option cannot be empty" );
+		Binary binary = locate( executable );
+		return once( listings, binary.path + " " + option, binary.fingerprint, () -> run( binary.path, option ) );
+	}
+
+	/**
+	 * Check that a binary exists without running it
+	 *
+	 * @param executable the path of the binary, or its name to be found in the {@code PATH}
+	 * @return whether the binary exists
+	 */
+	public static boolean exists( String executable ) {
+		return resolve( executable ) != null;
+	}
+
+	/**
+	 * @param executable the path of the binary, or its name to be found in the {@code PATH}
+	 * @return the real path of the binary, or {@code null} if it cannot be found
+	 */
+	static Path resolve( String executable ) {
+		Path candidate = find( executable );
+		return candidate == null ? null : realPathOf( candidate );
+	}
+
+	/**
+	 * @return the first candidate of the executable that exists, as it is written or found in the {@code PATH}
+	 */
+	private static Path find( String executable ) {
+		if ( StringUtils.isEmpty( executable ) ) {
+			return null;
+		}
+		List<Path> candidates = new ArrayList<>();
+		if ( executable.indexOf( '/' ) >= 0 || executable.indexOf( File.separatorChar ) >= 0 ) {
+			candidates.add( Paths.get( executable ) );
+		} else {
+			String path = System.getenv( "PATH" );
+			for ( String folder : StringUtils.split( StringUtils.defaultString( path ), File.pathSeparatorChar ) ) {
+				candidates.add( Paths.get( folder, executable ) );
+				if ( File.separatorChar == '\\' ) {
+					candidates.add( Paths.get( folder, executable + ".exe" ) );
+				}
+			}
+		}
+		for ( Path candidate : candidates ) {
+			if ( Files.isRegularFile( candidate ) ) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	private static Path realPathOf( Path candidate ) {
+		try {
+			return candidate.toRealPath();
+		} catch ( IOException e ) {
+			return candidate.toAbsolutePath().normalize();
+		}
+	}
+
+	/**
+	 * Find the binary through the real path kept for its name, the {@code PATH} is only scanned again when the
+	 * binary has been moved or deleted, or when the link found for the name has been changed since
+	 */
+	private static Binary locate( String executable ) {
+		Location location = LOCATIONS.get( StringUtils.defaultString( executable ) );
+		if ( location != null && location.isCurrent() ) {
+			Fingerprint fingerprint = Fingerprint.read( location.path );
+			if ( fingerprint != null ) {
+				return new Binary( location.path, fingerprint );
+			}
+		}
+		Path link = find( executable );
+		Path path = link == null ? null : realPathOf( link );
+		Fingerprint fingerprint = path == null ? null : Fingerprint.read( path );
+		Assert.notNull( fingerprint, "The " + executable + " library doesn't seem to exist" );
+		LOCATIONS.put( executable, new Location( link, path ) );
+		return new Binary( path, fingerprint );
+	}
+
+	/**
+	 * Collect the value of the key once for the fingerprint, out of any lock of the map, threads asking for the
+	 * same key meanwhile wait for the one collecting it
+	 */
+	private <T> T once( Map<String, Entry<T>> cache, String key, Fingerprint fingerprint, Supplier<T> collector ) {
+		while ( true ) {
+			Entry<T> entry = cache.get( key );
+			if ( entry != null && entry.fingerprint.equals( fingerprint ) ) {
+				return entry.value;
+			}
+			CompletableFuture<Void> flight = new CompletableFuture<>();
+			CompletableFuture<Void> running = flights.putIfAbsent( key, flight );
+			if ( running == null ) {
+				try {
+					entry = cache.get( key );
+					if ( entry == null || !entry.fingerprint.equals( fingerprint ) ) {
+						entry = new Entry<>( fingerprint, collector.get() );
+						cache.put( key, entry );
+					}
+					flight.complete( null );
+					return entry.value;
+				} catch ( RuntimeException e ) {
+					flight.completeExceptionally( e );
+					throw e;
+				} finally {
+					flights.remove( key, flight );
+				}
+			}
+			try {
+				running.join();
+			} catch ( CompletionException e ) {
+				throw e.getCause() instanceof RuntimeException ? ( RuntimeException ) e.getCause() : e;
+			}
+		}
+	}
+
+	private Capabilities probe( Path binary ) {
+		long start = System.currentTimeMillis();
+		String [] version = Capabilities.parseVersion( run( binary, "-version" ) );
+		Map<Kind, Set<String>> names = new EnumMap<>( Kind.class );
+		for ( Kind kind : Kind.values() ) {
+			names.put( kind, kind.parse( run( binary, kind.getOption() ) ) );
+		}
+		Capabilities capabilities = Capabilities.of( version[ 0 ], split( version[ 1 ] ), names );
+		if ( LOG.isInfoEnabled() ) {
+			LOG.info( "Collected {} of \"{}\" in {}ms", capabilities, binary, System.currentTimeMillis() - start );
+		}
+		return capabilities;
+	}
+
+	private static String run( Path binary, String option ) {
+		ProcessBuilder builder = new ProcessBuilder( binary.toString(), "-hide_banner", option );
+		builder.redirectErrorStream( true );
+		try {
+			Process process = builder.start();
+			process.getOutputStream().close();
+			ByteArrayOutputStream output = new ByteArrayOutputStream( 1 << 16 );
+			try ( InputStream input = process.getInputStream() ) {
+				byte [] buffer = new byte[ 8192 ];
+				for ( int read; ( read = input.read( buffer ) ) > 0; ) {
+					output.write( buffer, 0, read );
+				}
+			}
+			if ( !process.waitFor( PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS ) ) {
+				process.destroyForcibly();
+				throw new IOException( "timed out" );
+			}
+			return new String( output.toByteArray(), StandardCharsets.UTF_8 );
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( "Failed to run " + binary + " " + option, e );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedIOException( "Interrupted while running " + binary + " " + option, new IOException( e ) );
+		}
+	}
+
+	private Path fileOf( Path binary ) {
+		// The same name for the same real path, readable enough to find the file of a binary by hand
+		String name = binary.getFileName() + "-" + Integer.toHexString( binary.toString().hashCode() ) + ".properties";
+		return directory.resolve( name );
+	}
+
+	private Capabilities load( Path binary, Fingerprint fingerprint ) {
+		if ( directory == null ) {
+			return null;
+		}
+		Path file = fileOf( binary );
+		if ( !Files.isRegularFile( file ) ) {
+			return null;
+		}
+		Properties properties = new Properties();
+		try {
+			if ( !isPrivate( directory ) || !isPrivate( file ) ) {
+				LOG.warn( "Ignore the capabilities {}, they can be changed by another user", file );
+				return null;
+			}
+			try ( InputStream input = Files.newInputStream( file ) ) {
+				properties.load( input );
+			}
+		} catch ( IOException | IllegalArgumentException e ) {
+			LOG.warn( "Ignore the unreadable capabilities {}", file );
+			return null;
+		}
+		if ( !binary.toString().equals( properties.getProperty( PATH ) ) || !fingerprint.matches( properties ) ) {
+			return null; // The binary has been replaced since
+		}
+		Map<Kind, Set<String>> names = new EnumMap<>( Kind.class );
+		for ( Kind kind : Kind.values() ) {
+			String values = properties.getProperty( kind.getName() );
+			if ( values == null ) {
+				return null; // Written by an older version that didn't collect this kind
+			}
+			names.put( kind, split( values ) );
+		}
+		return Capabilities.of( properties.getProperty( VERSION ), split( properties.getProperty( CONFIGURATION ) ), names );
+	}
+
+	private void store( Path binary, Fingerprint fingerprint, Capabilities capabilities ) {
+		if ( directory == null ) {
+			return;
+		}
+		Properties properties = new Properties();
+		properties.setProperty( PATH, binary.toString() );
+		properties.setProperty( SIZE, String.valueOf( fingerprint.size ) );
+		properties.setProperty( MODIFIED, String.valueOf( fingerprint.modified ) );
+		properties.setProperty( VERSION, capabilities.getVersion() );
+		properties.setProperty( CONFIGURATION, String.join( " ", capabilities.getConfiguration() ) );
+		for ( Kind kind : Kind.values() ) {
+			properties.setProperty( kind.getName(), String.join( " ", capabilities.get( kind ) ) );
+		}
+		Path file = fileOf( binary );
+		try {
+			if ( Files.isDirectory( directory ) ) {
+				if ( !isPrivate( directory ) ) {
+					LOG.warn( "Don't persist the capabilities of {}, {} can be changed by another user", binary, directory );
+					return;
+				}
+			} else if ( isPosix( directory ) ) {
+				Files.createDirectories( directory, PosixFilePermissions.asFileAttribute( PosixFilePermissions.fromString( "rwx------" ) ) );
+			} else {
+				Files.createDirectories( directory );
+			}
+			Path temp = directory.resolve( file.getFileName() + "." + UUID.randomUUID() + ".tmp" );
+			if ( isPosix( directory ) ) {
+				Files.createFile( temp, PosixFilePermissions.asFileAttribute( PosixFilePermissions.fromString( "rw-------" ) ) );
+			}
+			try ( OutputStream output = Files.newOutputStream( temp ) ) {
+				properties.store( output, "Capabilities of " + binary );
+			}
+			try {
+				Files.move( temp, file, StandardCopyOption.ATOMIC_MOVE );
+			} catch ( AtomicMoveNotSupportedException e ) {
+				Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING );
+			}
+		} catch ( IOException e ) {
+			// Only the next process pays for it
+			LOG.warn( "Failed to persist the capabilities of {} to {}", binary, file );
+		}
+	}
+
+	private static boolean isPosix( Path path ) {
+		return path.getFileSystem().supportedFileAttributeViews().contains( "posix" );
+	}
+
+	/**
+	 * @return whether the path belongs to the current user and nobody else can write to it, always {@code true}
+	 *         without POSIX attributes
+	 */
+	private static boolean isPrivate( Path path ) throws IOException {
+		if ( !isPosix( path ) ) {
+			return true;
+		}
+		PosixFileAttributes attributes = Files.readAttributes( path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS );
+		Set<PosixFilePermission> permissions = attributes.permissions();
+		if ( permissions.contains( PosixFilePermission.GROUP_WRITE ) || permissions.contains( PosixFilePermission.OTHERS_WRITE ) ) {
+			return false;
+		}
+		try {
+			UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName( System.getProperty( "user.name" ) );
+			return user.equals( attributes.owner() );
+		} catch ( UserPrincipalNotFoundException e ) {
+			return false;
+		}
+	}
+
+	private static Set<String> split( String values ) {
+		return new LinkedHashSet<>( Arrays.asList( StringUtils.split( StringUtils.defaultString( values ) ) ) );
+	}
+
+	/**
+	 * The file found for an executable name and its real path, the link is checked on its own so pointing it at
+	 * another binary is noticed even though the old one is still there
+	 */
+	private static final class Location {
+
+		private final Path link;
+		private final Fingerprint linked;
+		private final Path path;
+
+		private Location( Path link, Path path ) {
+			this.link = link;
+			this.linked = link.equals( path ) ? null : Fingerprint.read( link, LinkOption.NOFOLLOW_LINKS );
+			this.path = path;
+		}
+
+		private boolean isCurrent() {
+			return link.equals( path ) || linked != null && linked.equals( Fingerprint.read( link, LinkOption.NOFOLLOW_LINKS ) );
+		}
+
+	}
+
+	private static final class Binary {
+
+		private final Path path;
+		private final Fingerprint fingerprint;
+
+		private Binary( Path path, Fingerprint fingerprint ) {
+			this.path = path;
+			this.fingerprint = fingerprint;
+		}
+
+	}
+
+	private static final class Entry<T> {
+
+		private final Fingerprint fingerprint;
+		private final T value;
+
+		private Entry( Fingerprint fingerprint, T value ) {
+			this.fingerprint = fingerprint;
+			this.value = value;
+		}
+
+	}
+
+	private static final class Fingerprint {
+
+		private final long size;
+		private final long modified;
+
+		private Fingerprint( long size, long modified ) {
+			this.size = size;
+			this.modified = modified;
+		}
+
+		/**
+		 * @return the fingerprint of the binary, or {@code null} if it doesn't exist
+		 */
+		private static Fingerprint read( Path binary, LinkOption ... options ) {
+			try {
+				BasicFileAttributes attributes = Files.readAttributes( binary, BasicFileAttributes.class, options );
+				return new Fingerprint( attributes.size(), attributes.lastModifiedTime().toMillis() );
+			} catch ( NoSuchFileException e ) {
+				return null;
+			} catch ( IOException e ) {
+				throw new UncheckedIOException( "Failed to read the attributes of " + binary, e );
+			}
+		}
+
+		private boolean matches( Properties properties ) {
+			return String.valueOf( size ).equals( properties.getProperty( SIZE ) ) && String.valueOf( modified ).equals( properties.getProperty( MODIFIED ) );
+		}
+
+		@Override
+		public boolean equals( Object obj ) {
+			if ( this == obj ) {
+				return true;
+			}
+			if ( !( obj instanceof Fingerprint ) ) {
+				return false;
+			}
+			Fingerprint other = ( Fingerprint ) obj;
+			return size == other.size && modified == other.modified;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash( size, modified );
+		}
+
+	}
+
+}
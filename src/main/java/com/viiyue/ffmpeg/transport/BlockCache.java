@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.transport;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Least recently used cache of fixed size blocks, shared by the sources of a {@link RangeServer}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class BlockCache {
+
+	private final int blockSize;
+	private final long capacity;
+	private final LinkedHashMap<Key, byte []> blocks = new LinkedHashMap<>( 64, 0.75f, true );
+	// The misses being read, so that a source evicted meanwhile doesn't get its blocks back
+	private final Map<Key, Object> pending = new HashMap<>();
+
+	private long bytes;
+	private long hits;
+	private long misses;
+
+	private BlockCache( int blockSize, long capacity ) {
+		this.blockSize = blockSize;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Create a block cache
+	 *
+	 * @param blockSize the block size in bytes, every source read is aligned to and as large as one block
+	 * @param capacity  the maximum number of cached bytes
+	 * @return the {@link BlockCache} instance
+	 */
+	public static final BlockCache of( int blockSize, long capacity ) {
+		Assert.rangeCheck( blockSize, 1 << 10, 1 << 26 );
+		Assert.isTrue( capacity >= 0, "The cache capacity cannot be negative" );
+		return new BlockCache( blockSize, capacity );
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of cached bytes
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of blocks served from the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of blocks read from a source
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Get a block from the cache or read it from the source, the last block of a source may be shorter.
+	 *
+	 * @param id     the identity of the source
+	 * @param source the source
+	 * @param size   the source size
+	 * @param index  the block index
+	 * @return the block bytes, must not be modified
+	 * @throws IOException if the block could not be read
+	 */
+	byte [] get( Object id, RangeSource source, long size, long index ) throws IOException {
+		Key key = new Key( id, index );
+		Object token = new Object();
+		synchronized ( this ) {
+			byte [] block = blocks.get( key );
+			if ( block != null ) {
+				hits ++;
+				return block;
+			}
+			misses ++;
+			pending.put( key, token );
+		}
+		// Read outside of the lock, a concurrent miss of the same block only costs one extra read
+		long position = index * blockSize;
+		byte [] block = new byte[ ( int ) Math.min( blockSize, size - position ) ];
+		try {
+			for ( int offset = 0; offset < block.length; ) {
+				int read = source.read( position + offset, block, offset, block.length - offset );
+				if ( read < 0 ) {
+					throw new IOException( "Unexpected end of source at " + ( position + offset ) + " of " + size );
+				}
+				if ( read == 0 ) {
+					throw new IOException( "The source read no bytes at " + ( position + offset ) + " of " + size );
+				}
+				offset += read;
+			}
+		} catch ( IOException | RuntimeException e ) {
+			synchronized ( this ) {
+				pending.remove( key, token );
+			}
+			throw e;
+		}
+		put( key, token, block );
+		return block;
+	}
+
+	/**
+	 * Drop all blocks of a source
+	 *
+	 * @param id the identity of the source
+	 */
+	synchronized void evict( Object id ) {
+		pending.keySet().removeIf( key -> key.id.equals( id ) );
+		for ( Iterator<Map.Entry<Key, byte []>> it = blocks.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<Key, byte []> entry = it.next();
+			if ( entry.getKey().id.equals( id ) ) {
+				bytes -= entry.getValue().length;
+				it.remove();
+			}
+		}
+	}
+
+	private synchronized void put( Key key, Object token, byte [] block ) {
+		// Dropped when the source was evicted or another miss of the block started since
+		if ( !pending.remove( key, token ) || block.length > capacity ) {
+			return;
+		}
+		byte [] previous = blocks.put( key, block );
+		bytes += block.length - ( previous == null ? 0 : previous.length );
+		for ( Iterator<byte []> it = blocks.values().iterator(); bytes > capacity && it.hasNext(); ) {
+			bytes -= it.next().length;
+			it.remove();
+		}
+	}
+
+	private static final class Key {
+
+		private final Object id;
+		private final long index;
+
+		private Key( Object id, long index ) {
+			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int hashCode() {
+			return id.hashCode() * 31 + Long.hashCode( index );
+		}
+
+		@Override
+		public boolean equals( Object obj ) {
+			if ( !( obj instanceof Key ) ) {
+				return false;
+			}
+			Key other = ( Key ) obj;
+			return index == other.index && id.equals( other.id );
+		}
+
+	}
+
+}
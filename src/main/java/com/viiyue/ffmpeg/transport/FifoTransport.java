@@ -0,0 +1,537 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.transport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.viiyue.ffmpeg.enums.PixelFormat;
+import com.viiyue.ffmpeg.executor.FFmpegExecutor;
+import com.viiyue.ffmpeg.frame.AudioChunk;
+import com.viiyue.ffmpeg.frame.AudioConsumer;
+import com.viiyue.ffmpeg.frame.AudioReader;
+import com.viiyue.ffmpeg.frame.FrameConsumer;
+import com.viiyue.ffmpeg.frame.FrameReader;
+import com.viiyue.ffmpeg.frame.RawFrame;
+import com.viiyue.ffmpeg.util.Assert;
+import com.viiyue.ffmpeg.util.Helper;
+
+/**
+ * Pipe transport for the extra inputs and outputs of one ffmpeg run, the first stream of each direction goes
+ * through {@code pipe:0} or {@code pipe:1} and every other one through its own named pipe.
+ *
+ * <pre>
+ * try ( FifoTransport transport = FifoTransport.create() ) {
+ *     transport.video( executor, 640, 360, PixelFormat.GRAY, 25, frame -&gt; ... )
+ *              .audio( executor, 16000, 1, chunk -&gt; ... )
+ *              .run( executor );
+ * }
+ * </pre>
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class FifoTransport implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger( FifoTransport.class );
+
+	/** Default number of samples per channel in an audio chunk */
+	public static final int AUDIO_CHUNK_SAMPLES = 1024;
+
+	/** Default size of the buffer of each stream pump */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+
+	private static final String STDIN = "pipe:0";
+	private static final String STDOUT = "pipe:1";
+
+	private final List<Pipe> pipes = new ArrayList<>( 4 );
+
+	private Path directory;
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+	private boolean stdin;
+	private boolean stdout;
+	private volatile Process process;
+	private volatile boolean cancelled;
+
+	private FifoTransport() {}
+
+	/**
+	 * Create a transport, its private temporary directory is created with the first named pipe.
+	 *
+	 * @return the {@link FifoTransport} instance
+	 */
+	public static final FifoTransport create() {
+		return new FifoTransport();
+	}
+
+	/**
+	 * Set the buffer size of each stream pump, default is {@value #DEFAULT_BUFFER_SIZE} bytes.
+	 *
+	 * @param bufferSize the buffer size in bytes
+	 * @return the {@link FifoTransport} instance
+	 */
+	public FifoTransport bufferSize( int bufferSize ) {
+		Assert.rangeCheck( bufferSize, 1 << 12, 1 << 26 );
+		this.bufferSize = bufferSize;
+		return this;
+	}
+
+	/**
+	 * Create a named pipe whose data will be passed to the handler, the returned path can be used anywhere
+	 * in the command as an output url.
+	 *
+	 * @param name    the pipe name, unique within this transport
+	 * @param handler the handler of the data written into the pipe
+	 * @return the absolute path of the pipe
+	 */
+	public String pipe( String name, StreamHandler handler ) {
+		Assert.notEmpty( name, "The pipe name cannot be empty" );
+		Assert.notNull( handler, "The stream handler cannot be null" );
+		Path fifo = mkfifo( name );
+		this.pipes.add( new Pipe( name, fifo, handler, null ) );
+		return fifo.toString();
+	}
+
+	/**
+	 * Use a stream as the next input of the executor, the stream is closed when it has been fully pumped.
+	 *
+	 * @param executor the executor
+	 * @param source   the input stream
+	 * @return the executor
+	 */
+	public FFmpegExecutor input( FFmpegExecutor executor, InputStream source ) {
+		return input( executor, null, source );
+	}
+
+	/**
+	 * Use a stream as the next input of the executor, the stream is closed when it has been fully pumped.
+	 *
+	 * @param executor the executor
+	 * @param format   the input format, {@code null} to let ffmpeg probe it
+	 * @param source   the input stream
+	 * @return the executor
+	 */
+	public FFmpegExecutor input( FFmpegExecutor executor, String format, InputStream source ) {
+		Assert.notNull( source, "The input stream cannot be null" );
+		String url;
+		String name = "input" + pipes.size();
+		if ( stdin ) {
+			Path fifo = mkfifo( name );
+			this.pipes.add( new Pipe( name, fifo, null, source ) );
+			url = fifo.toString();
+		} else {
+			this.stdin = true;
+			this.pipes.add( new Pipe( name, null, null, source ) );
+			url = STDIN;
+		}
+		if ( format != null ) {
+			executor.cmd( "f", format, false );
+		}
+		return executor.input( url );
+	}
+
+	/**
+	 * Write the next output of the executor into a stream, the stream is closed when ffmpeg has finished.
+	 *
+	 * @param executor the executor
+	 * @param format   the output format, a stream has no file extension to guess it from
+	 * @param target   the output stream
+	 * @return the {@link FifoTransport} instance
+	 */
+	public FifoTransport output( FFmpegExecutor executor, String format, OutputStream target ) {
+		Assert.notEmpty( format, "The output format cannot be empty" );
+		Assert.notNull( target, "The output stream cannot be null" );
+		StreamHandler handler = input -> {
+			try ( OutputStream output = target ) {
+				pump( input, output );
+			}
+		};
+		String url;
+		String name = "output" + pipes.size();
+		if ( stdout ) {
+			url = pipe( name, handler );
+		} else {
+			this.stdout = true;
+			this.pipes.add( new Pipe( name, null, handler, null ) );
+			url = STDOUT;
+		}
+		executor.cmd( "f", format, false ).addOutput( url );
+		return this;
+	}
+
+	/**
+	 * Map the first video stream to a raw video output
+	 *
+	 * @see #video(FFmpegExecutor, String, int, int, PixelFormat, double, FrameConsumer)
+	 */
+	public FifoTransport video( FFmpegExecutor executor, int width, int height, PixelFormat format, double rate, FrameConsumer consumer ) {
+		return video( executor, "0:v:0", width, height, format, rate, consumer );
+	}
+
+	/**
+	 * Map a video stream to a raw video output at a constant frame rate
+	 *
+	 * @param executor the executor that already has its inputs
+	 * @param map      the stream specifier or filter graph label to map
+	 * @param width    the output frame width
+	 * @param height   the output frame height
+	 * @param format   the output pixel format
+	 * @param rate     the output frame rate
+	 * @param consumer the frame consumer, the frame is reused for the next one
+	 * @return the {@link FifoTransport} instance
+	 */
+	public FifoTransport video( FFmpegExecutor executor, String map, int width, int height, PixelFormat format, double rate, FrameConsumer consumer ) {
+		Assert.notNull( consumer, "The frame consumer cannot be null" );
+		Assert.isTrue( rate > 0, "The frame rate must be greater than 0" );
+		RawFrame.sizeOf( format, width, height ); // fail fast on unsupported formats
+		String fifo = pipe( "video" + pipes.size(), input -> {
+			try ( FrameReader reader = FrameReader.wrap( input, width, height, format, rate ) ) {
+				RawFrame frame = reader.newFrame();
+				while ( reader.read( frame ) ) {
+					consumer.accept( frame );
+				}
+			}
+		} );
+		executor.cmd( "map", map, false ).cmd( "f", "rawvideo", false ).cmd( "pix_fmt", format, false );
+		executor.cmd( "s", width + "x" + height, false ).cmd( "r", rate, false ).addOutput( fifo );
+		return this;
+	}
+
+	/**
+	 * Map the first audio stream to a raw audio output
+	 *
+	 * @see #audio(FFmpegExecutor, String, int, int, int, AudioConsumer)
+	 */
+	public FifoTransport audio( FFmpegExecutor executor, int sampleRate, int channels, AudioConsumer consumer ) {
+		return audio( executor, "0:a:0", sampleRate, channels, AUDIO_CHUNK_SAMPLES, consumer );
+	}
+
+	/**
+	 * Map an audio stream to a raw {@code s16le} output, gaps in the source are filled with silence so that
+	 * the sample position stays in sync with the video timestamps.
+	 *
+	 * @param executor   the executor that already has its inputs
+	 * @param map        the stream specifier or filter graph label to map
+	 * @param sampleRate the output sample rate
+	 * @param channels   the output channel count
+	 * @param samples    the number of samples per channel in a chunk
+	 * @param consumer   the audio consumer, the chunk is reused for the next one
+	 * @return the {@link FifoTransport} instance
+	 */
+	public FifoTransport audio( FFmpegExecutor executor, String map, int sampleRate, int channels, int samples, AudioConsumer consumer ) {
+		Assert.notNull( consumer, "The audio consumer cannot be null" );
+		Assert.isTrue( sampleRate > 0 && channels > 0 && samples > 0, "The audio layout must be greater than 0" );
+		String fifo = pipe( "audio" + pipes.size(), input -> {
+			AudioReader reader = AudioReader.wrap( input, sampleRate, channels );
+			AudioChunk chunk = reader.newChunk( samples );
+			while ( reader.read( chunk ) ) {
+				consumer.accept( chunk );
+			}
+		} );
+		executor.cmd( "map", map, false ).cmd( "af", "aresample=async=1", false ).cmd( "f", "s16le", false );
+		executor.cmd( "ar", sampleRate, false ).cmd( "ac", channels, false ).addOutput( fifo );
+		return this;
+	}
+
+	/**
+	 * Receive the {@code -progress} reports of ffmpeg, each report is a map such as {@code frame},
+	 * {@code out_time_us}, {@code speed} and {@code progress} (either {@code continue} or {@code end}).
+	 *
+	 * @param executor the executor
+	 * @param listener the progress listener
+	 * @return the {@link FifoTransport} instance
+	 */
+	public FifoTransport progress( FFmpegExecutor executor, Consumer<Map<String, String>> listener ) {
+		Assert.notNull( listener, "The progress listener cannot be null" );
+		String fifo = pipe( "progress", input -> {
+			BufferedReader reader = new BufferedReader( new InputStreamReader( input, StandardCharsets.UTF_8 ) );
+			Map<String, String> report = new LinkedHashMap<>();
+			for ( String line; ( line = reader.readLine() ) != null; ) {
+				int index = line.indexOf( '=' );
+				if ( index > 0 ) {
+					String key = line.substring( 0, index ).trim();
+					report.put( key, line.substring( index + 1 ).trim() );
+					if ( "progress".equals( key ) ) {
+						listener.accept( report );
+						report = new LinkedHashMap<>();
+					}
+				}
+			}
+		} );
+		executor.progress( fifo );
+		return this;
+	}
+
+	/**
+	 * Run the command and pump all pipes concurrently until ffmpeg exits
+	 *
+	 * @param executor the executor whose outputs include the pipes of this transport
+	 */
+	public void run( FFmpegExecutor executor ) {
+		Assert.notEmpty( pipes, "At least one pipe must be added" );
+		Assert.isTrue( process == null, "The transport can only be run once" );
+		this.process = executor.start();
+		for ( Pipe pipe : pipes ) {
+			pipe.start();
+		}
+		int exitCode;
+		try {
+			exitCode = process.waitFor();
+		} catch ( InterruptedException e ) {
+			cancel();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( "ffmpeg command was interrupted", e );
+		} finally {
+			for ( Pipe pipe : pipes ) {
+				pipe.release();
+			}
+			for ( Pipe pipe : pipes ) {
+				pipe.join();
+			}
+		}
+		for ( Pipe pipe : pipes ) {
+			if ( pipe.failure != null ) {
+				throw new RuntimeException( "Failed to pump the pipe \"" + pipe.name + "\"", pipe.failure );
+			}
+		}
+		if ( cancelled ) {
+			throw new RuntimeException( "ffmpeg command was cancelled" );
+		}
+		if ( exitCode != 0 ) {
+			throw new RuntimeException( "ffmpeg command exited with code " + exitCode );
+		}
+	}
+
+	/**
+	 * Stop the running command, {@link #run(FFmpegExecutor)} will return with an exception.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+		Process running = process;
+		if ( running != null && running.isAlive() ) {
+			running.destroy();
+		}
+	}
+
+	/**
+	 * Remove all named pipes and the temporary directory, the command is cancelled if it's still running.
+	 */
+	@Override
+	public void close() {
+		Process running = process;
+		if ( running != null && running.isAlive() ) {
+			cancel();
+		}
+		for ( Pipe pipe : pipes ) {
+			if ( pipe.fifo != null ) {
+				delete( pipe.fifo );
+			}
+		}
+		if ( directory != null ) {
+			delete( directory );
+		}
+	}
+
+	private Path mkfifo( String name ) {
+		Assert.notEmpty( name, "The pipe name cannot be empty" );
+		Assert.isTrue( process == null, "Cannot add pipes after the transport has been started" );
+		if ( directory == null ) {
+			try {
+				this.directory = Files.createTempDirectory( "ffmpeg-fifo-",
+						PosixFilePermissions.asFileAttribute( PosixFilePermissions.fromString( "rwx------" ) ) );
+			} catch ( UnsupportedOperationException | IOException e ) {
+				throw new RuntimeException( "Named pipes are not supported on this platform", e );
+			}
+		}
+		Path fifo = directory.resolve( name + ".fifo" );
+		Assert.isTrue( !Files.exists( fifo ), "Duplicate pipe name: " + name );
+		if ( !Helper.cmdCheck( "mkfifo", "-m", "600", fifo.toString() ) ) {
+			throw new RuntimeException( "Failed to create the named pipe " + fifo );
+		}
+		return fifo;
+	}
+
+	/**
+	 * Copy the whole stream through a bounded buffer, a file is sent to a pipe by the kernel without passing
+	 * through the heap.
+	 */
+	private long pump( InputStream source, OutputStream target ) throws IOException {
+		if ( source instanceof FileInputStream && target instanceof FileOutputStream ) {
+			FileChannel in = ( ( FileInputStream ) source ).getChannel();
+			FileChannel out = ( ( FileOutputStream ) target ).getChannel();
+			long position = in.position(), size = in.size();
+			while ( position < size ) {
+				position += in.transferTo( position, Math.min( bufferSize, size - position ), out );
+			}
+			return size;
+		}
+		ReadableByteChannel in = Channels.newChannel( source );
+		WritableByteChannel out = Channels.newChannel( target );
+		ByteBuffer buffer = ByteBuffer.allocateDirect( bufferSize );
+		long total = 0;
+		while ( read( in, buffer ) >= 0 || buffer.position() > 0 ) {
+			buffer.flip();
+			total += out.write( buffer );
+			buffer.compact();
+		}
+		target.flush();
+		return total;
+	}
+
+	/**
+	 * Failures of the source are unchecked, so that they can be told apart from a pipe closed by ffmpeg
+	 */
+	private static int read( ReadableByteChannel in, ByteBuffer buffer ) {
+		try {
+			return in.read( buffer );
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( "Failed to read the source stream", e );
+		}
+	}
+
+	private static void delete( Path path ) {
+		try {
+			Files.deleteIfExists( path );
+		} catch ( IOException e ) {
+			LOG.warn( "Failed to delete {}", path );
+		}
+	}
+
+	/**
+	 * A pipe with its pumping thread, either a FIFO or the standard input/output of the process
+	 */
+	private final class Pipe implements Runnable {
+
+		private final String name;
+		private final Path fifo;
+		private final StreamHandler handler;
+		private final InputStream source;
+		private Thread thread;
+		private volatile boolean opened;
+		private volatile Throwable failure;
+
+		private Pipe( String name, Path fifo, StreamHandler handler, InputStream source ) {
+			this.name = name;
+			this.fifo = fifo;
+			this.handler = handler;
+			this.source = source;
+		}
+
+		private void start() {
+			this.thread = new Thread( this, "ffmpeg-fifo-" + name );
+			this.thread.setDaemon( true );
+			this.thread.start();
+		}
+
+		/**
+		 * Opening a FIFO blocks until the other side opens it, if ffmpeg has exited without ever opening this
+		 * pipe, open the other side once so that the pumping thread sees the end of the stream.
+		 */
+		private void release() {
+			if ( opened || fifo == null ) {
+				return;
+			}
+			try {
+				Closeable other = source == null ? new FileOutputStream( fifo.toFile() ) : new FileInputStream( fifo.toFile() );
+				other.close();
+			} catch ( IOException e ) {
+				LOG.debug( "Failed to release the named pipe {}", fifo );
+			}
+		}
+
+		private void join() {
+			try {
+				thread.join();
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				if ( source == null ) {
+					try ( InputStream input = fifo == null ? process.getInputStream()
+							: new BufferedInputStream( new FileInputStream( fifo.toFile() ), 1 << 16 ) ) {
+						this.opened = true;
+						handler.handle( input );
+					}
+				} else {
+					feed();
+				}
+			} catch ( Throwable e ) {
+				this.failure = e;
+				if ( LOG.isErrorEnabled() ) {
+					LOG.error( "Pipe \"" + name + "\" stopped", e );
+				}
+				// ffmpeg would block on a pipe that nobody pumps any more
+				cancel();
+			} finally {
+				this.opened = true;
+			}
+		}
+
+		private void feed() throws IOException {
+			try ( InputStream input = source ) {
+				OutputStream output;
+				try {
+					output = fifo == null ? process.getOutputStream() : new FileOutputStream( fifo.toFile() );
+				} finally {
+					this.opened = true;
+				}
+				try {
+					pump( input, output );
+					output.close();
+				} catch ( IOException e ) {
+					// A broken pipe only means ffmpeg has read all it needs, its exit code tells the rest
+					LOG.debug( "Pipe \"{}\" was closed by ffmpeg: {}", name, e.getMessage() );
+					try {
+						output.close();
+					} catch ( IOException ignored ) {
+						// Ignore it
+					}
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,268 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.viiyue.ffmpeg.util.Assert;
+
+/**
+ * Loopback HTTP server serving {@link RangeSource}s with {@code Range} support, so that ffmpeg can seek in
+ * them. Every url carries a random token and is only reachable from {@code 127.0.0.1}.
+ *
+ * <pre>
+ * try ( RangeServer server = RangeServer.start( BlockCache.of( 256 * 1024, 64 * 1024 * 1024 ) ) ) {
+ *     String url = server.register( "movie.mp4", storage.open( key ) );
+ *     FFmpegExecutor.build().searchAt( 3600, 1 ).input( url ).to( "frame.png" );
+ * }
+ * </pre>
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class RangeServer implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger( RangeServer.class );
+
+	private static final AtomicInteger THREADS = new AtomicInteger();
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final BlockCache cache;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private RangeServer( HttpServer server, ExecutorService executor, BlockCache cache ) {
+		this.server = server;
+		this.executor = executor;
+		this.cache = cache;
+	}
+
+	/**
+	 * Start a server on a free loopback port
+	 *
+	 * @param cache the block cache shared by all sources
+	 * @return the {@link RangeServer} instance
+	 */
+	public static final RangeServer start( BlockCache cache ) {
+		Assert.notNull( cache, "The block cache cannot be null" );
+		HttpServer server;
+		try {
+			server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+		} catch ( IOException e ) {
+			throw new RuntimeException( "Failed to start the range server", e );
+		}
+		ExecutorService executor = Executors.newCachedThreadPool( task -> {
+			Thread thread = new Thread( task, "ffmpeg-range-" + THREADS.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		} );
+		RangeServer rangeServer = new RangeServer( server, executor, cache );
+		server.createContext( "/", rangeServer::handle );
+		server.setExecutor( executor );
+		server.start();
+		if ( LOG.isInfoEnabled() ) {
+			LOG.info( "Range server listening on {}", server.getAddress() );
+		}
+		return rangeServer;
+	}
+
+	/**
+	 * Serve a source until it is unregistered
+	 *
+	 * @param name   the file name of the url, the extension helps ffmpeg to guess the format
+	 * @param source the source
+	 * @return the url to be used as an ffmpeg input
+	 */
+	public String register( String name, RangeSource source ) {
+		Assert.notEmpty( name, "The source name cannot be empty" );
+		Assert.notNull( source, "The range source cannot be null" );
+		long size;
+		try {
+			size = source.size();
+		} catch ( IOException e ) {
+			throw new RuntimeException( "Failed to read the size of " + name, e );
+		}
+		String path = "/" + token() + "/" + encode( name );
+		entries.put( path, new Entry( path, source, size ) );
+		InetSocketAddress address = server.getAddress();
+		return "http://" + address.getHostString() + ":" + address.getPort() + path;
+	}
+
+	/**
+	 * Stop serving a source and drop its cached blocks
+	 *
+	 * @param url the url returned by {@link #register(String, RangeSource)}
+	 */
+	public void unregister( String url ) {
+		int index = url.indexOf( '/', url.indexOf( "://" ) + 3 );
+		Entry entry = index < 0 ? null : entries.remove( url.substring( index ) );
+		if ( entry != null ) {
+			cache.evict( entry.path );
+		}
+	}
+
+	public BlockCache getCache() {
+		return cache;
+	}
+
+	@Override
+	public void close() {
+		server.stop( 0 );
+		executor.shutdownNow();
+		for ( String path : entries.keySet() ) {
+			cache.evict( path );
+		}
+		entries.clear();
+	}
+
+	private void handle( HttpExchange exchange ) throws IOException {
+		try {
+			Entry entry = entries.get( exchange.getRequestURI().getRawPath() );
+			String method = exchange.getRequestMethod();
+			if ( entry == null ) {
+				exchange.sendResponseHeaders( 404, -1 );
+				return;
+			}
+			if ( !"GET".equals( method ) && !"HEAD".equals( method ) ) {
+				exchange.sendResponseHeaders( 405, -1 );
+				return;
+			}
+			Headers headers = exchange.getResponseHeaders();
+			headers.set( "Accept-Ranges", "bytes" );
+			headers.set( "Content-Type", "application/octet-stream" );
+
+			long size = entry.size;
+			long start = 0, end = size - 1;
+			int status = 200;
+			String range = exchange.getRequestHeaders().getFirst( "Range" );
+			if ( range != null ) {
+				long [] bounds = parseRange( range, size );
+				if ( bounds == null ) {
+					headers.set( "Content-Range", "bytes */" + size );
+					exchange.sendResponseHeaders( 416, -1 );
+					return;
+				}
+				start = bounds[ 0 ];
+				end = bounds[ 1 ];
+				status = 206;
+				headers.set( "Content-Range", "bytes " + start + "-" + end + "/" + size );
+			}
+			long length = end - start + 1;
+			if ( "HEAD".equals( method ) ) {
+				headers.set( "Content-Length", String.valueOf( length ) );
+				exchange.sendResponseHeaders( status, -1 );
+				return;
+			}
+			// A zero length would mean chunked encoding to the http server
+			exchange.sendResponseHeaders( status, length == 0 ? -1 : length );
+			if ( length > 0 ) {
+				write( entry, start, end, exchange.getResponseBody() );
+			}
+		} catch ( IOException e ) {
+			// ffmpeg drops the connection whenever it seeks
+			LOG.debug( "Range request aborted: {}", e.getMessage() );
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void write( Entry entry, long start, long end, OutputStream output ) throws IOException {
+		int blockSize = cache.getBlockSize();
+		for ( long position = start; position <= end; ) {
+			long index = position / blockSize;
+			byte [] block = cache.get( entry.path, entry.source, entry.size, index );
+			int offset = ( int ) ( position - index * blockSize );
+			int length = ( int ) Math.min( block.length - offset, end - position + 1 );
+			output.write( block, offset, length );
+			position += length;
+		}
+		output.flush();
+	}
+
+	/**
+	 * Parse a single {@code bytes=start-end}, {@code bytes=start-} or {@code bytes=-suffix} range
+	 *
+	 * @return the inclusive bounds, or {@code null} if the range cannot be satisfied
+	 */
+	static long [] parseRange( String range, long size ) {
+		range = range.trim();
+		int dash = range.indexOf( '-' );
+		if ( !range.startsWith( "bytes=" ) || dash < 0 || range.indexOf( ',' ) >= 0 ) {
+			return null;
+		}
+		String first = range.substring( 6, dash ).trim();
+		String last = range.substring( dash + 1 ).trim();
+		try {
+			long start, end;
+			if ( first.isEmpty() ) {
+				long suffix = Long.parseLong( last );
+				start = Math.max( 0, size - suffix );
+				end = size - 1;
+			} else {
+				start = Long.parseLong( first );
+				end = last.isEmpty() ? size - 1 : Math.min( Long.parseLong( last ), size - 1 );
+			}
+			return start < 0 || start >= size || end < start ? null : new long [] { start, end };
+		} catch ( NumberFormatException e ) {
+			return null;
+		}
+	}
+
+	private static String token() {
+		return UUID.randomUUID().toString().replace( "-", "" );
+	}
+
+	private static String encode( String name ) {
+		try {
+			return URLEncoder.encode( name, StandardCharsets.UTF_8.name() ).replace( "+", "%20" );
+		} catch ( IOException e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	private static final class Entry {
+
+		private final String path;
+		private final RangeSource source;
+		private final long size;
+
+		private Entry( String path, RangeSource source, long size ) {
+			this.path = path;
+			this.source = source;
+			this.size = size;
+		}
+
+	}
+
+}
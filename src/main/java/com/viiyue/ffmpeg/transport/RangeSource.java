@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.transport;
+
+import java.io.IOException;
+
+/**
+ * Random access source of bytes, such as an object in a storage service that supports range reads
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public interface RangeSource {
+
+	/**
+	 * @return the total number of bytes
+	 * @throws IOException if the size could not be read
+	 */
+	long size() throws IOException;
+
+	/**
+	 * Read bytes starting at the given position, it may be called concurrently for different positions. At least
+	 * one byte must be read before the end of the source, reading none is an error.
+	 *
+	 * @param position the position of the first byte
+	 * @param buffer   the target buffer
+	 * @param offset   the offset in the target buffer
+	 * @param length   the maximum number of bytes to read
+	 * @return the number of bytes read, or {@code -1} at the end of the source
+	 * @throws IOException if the bytes could not be read
+	 */
+	int read( long position, byte [] buffer, int offset, int length ) throws IOException;
+
+}
@@ -46,6 +46,10 @@ public class EnumMapper {
 	}
 
 	public static final String getName( Class<? extends AbstractEnum> type, AbstractEnum ae ) {
+		if ( Metadata.isIndexed( type ) ) {
+			String alias = Metadata.getAlias( type, ae.name() );
+			return alias == null ? ae.getName( null ) : alias;
+		}
 		Field field = getField( type, ae.name() );
 		Alias annotation = field.getAnnotation( Alias.class );
 		return annotation == null ? ae.getName( null ) : annotation.value();
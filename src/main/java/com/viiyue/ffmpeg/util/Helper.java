@@ -20,9 +20,9 @@ import java.io.File;
 import java.lang.invoke.SerializedLambda;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.StringJoiner;
 import java.util.function.Function;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -39,8 +39,15 @@ import com.viiyue.ffmpeg.common.UsageLambda;
  */
 public final class Helper {
 
-	private final static String DECIMAL_TEMPLATE = "%.3f";
-	private final static Pattern PATTERN = Pattern.compile( "([:=\\[\\]\\\\])" );
+	private final static int MAX_DECIMAL_DIGITS = 17;
+	private final static double [] POWERS_OF_TEN = new double[ MAX_DECIMAL_DIGITS + 1 ];
+
+	static {
+		POWERS_OF_TEN[ 0 ] = 1;
+		for ( int i = 1; i < POWERS_OF_TEN.length; i ++ ) {
+			POWERS_OF_TEN[ i ] = POWERS_OF_TEN[ i - 1 ] * 10;
+		}
+	}
 
 	public static String nullKey( int index ) {
 		return Const.NULL + "_" + index;
@@ -63,8 +70,33 @@ public final class Helper {
 	}
 
 	public static String escape( String input, boolean quote ) {
-		String replacement = PATTERN.matcher( input ).replaceAll( "\\\\$0" );
-		return quote ? Const.QUOTE + replacement + Const.QUOTE : replacement;
+		int length = input.length(), index = 0;
+		while ( index < length && !isEscaped( input.charAt( index ) ) ) {
+			index ++;
+		}
+		if ( index == length ) {
+			return quote ? Const.QUOTE + input + Const.QUOTE : input;
+		}
+		StringBuilder builder = new StringBuilder( length + 8 );
+		if ( quote ) {
+			builder.append( Const.QUOTE );
+		}
+		builder.append( input, 0, index );
+		for ( ; index < length; index ++ ) {
+			char c = input.charAt( index );
+			if ( isEscaped( c ) ) {
+				builder.append( '\\' );
+			}
+			builder.append( c );
+		}
+		if ( quote ) {
+			builder.append( Const.QUOTE );
+		}
+		return builder.toString();
+	}
+
+	private static boolean isEscaped( char c ) {
+		return c == ':' || c == '=' || c == '[' || c == ']' || c == '\\';
 	}
 
 	public static String quotes( String input ) {
@@ -88,17 +120,89 @@ public final class Helper {
 		return Const.INPUT_TOKEN_START + content + Const.INPUT_TOKEN_END;
 	}
 
+	/**
+	 * @param number the decimal number
+	 * @return the number of decimal digits, at most 17 which is more than a double can hold
+	 */
 	public static int getDecimalDigits( double number ) {
-		if ( number == ( long ) number ) {
+		if ( !Double.isFinite( number ) || number == ( long ) number ) {
 			return 0;
 		}
-		int i = 0;
-		while ( true ) {
-			i ++;
-			if ( number * Math.pow( 10, i ) % 1 == 0 ) {
+		for ( int i = 1; i < MAX_DECIMAL_DIGITS; i ++ ) {
+			if ( isWhole( number * POWERS_OF_TEN[ i ] ) ) {
 				return i;
 			}
 		}
+		return MAX_DECIMAL_DIGITS;
+	}
+
+	/**
+	 * Format a decimal filter value, integers have no decimal part, and numbers with more than 3 decimal
+	 * digits are rounded half up to 3 digits.
+	 * 
+	 * @param number the decimal number
+	 * @return the formatted number
+	 * @since 1.0.1
+	 */
+	public static String toDecimal( double number ) {
+		if ( !Double.isFinite( number ) ) {
+			return String.valueOf( number );
+		}
+		if ( isInteger( number ) ) {
+			return String.valueOf( ( int ) number );
+		}
+		for ( int i = 1; i <= 3; i ++ ) {
+			if ( isWhole( number * POWERS_OF_TEN[ i ] ) ) {
+				return Double.toString( number );
+			}
+		}
+		double scaled = Math.abs( number ) * 1000;
+		long whole = ( long ) scaled;
+		double fraction = scaled - whole;
+		if ( scaled >= 1e12 || Math.abs( fraction - 0.5 ) < 1e-6 + 8 * Math.ulp( scaled ) ) {
+			// Large numbers and near ties are rounded like Formatter does, on the shortest decimal representation
+			return new BigDecimal( Double.toString( number ) ).setScale( 3, RoundingMode.HALF_UP ).toPlainString();
+		}
+		long rounded = fraction > 0.5 ? whole + 1 : whole;
+		StringBuilder builder = new StringBuilder( 24 );
+		if ( number < 0 ) {
+			builder.append( '-' );
+		}
+		long decimals = rounded % 1000;
+		builder.append( rounded / 1000 ).append( '.' );
+		if ( decimals < 100 ) {
+			builder.append( decimals < 10 ? "00" : "0" );
+		}
+		return builder.append( decimals ).toString();
+	}
+
+	private static boolean isWhole( double value ) {
+		// Same as value % 1 == 0, without the slow floating point remainder
+		return Math.rint( value ) == value;
+	}
+
+	/**
+	 * Join the values converted by {@link #toValue(Object)}, {@code null} values are skipped
+	 * 
+	 * @param delimiter the delimiter
+	 * @param values    the values
+	 * @return the joined string
+	 * @since 1.0.1
+	 */
+	public static String join( String delimiter, Object ... values ) {
+		StringBuilder builder = new StringBuilder( 16 * values.length );
+		boolean first = true;
+		for ( Object value : values ) {
+			Object realValue = toValue( value );
+			if ( realValue != null ) {
+				if ( !first ) {
+					builder.append( delimiter );
+				}
+				builder.append( realValue );
+				first = false;
+			}
+		}
+		return builder.toString();
 	}
 
 	public static StringJoiner expandAll( String delimiter, Object ... arrays ) {
@@ -150,15 +254,12 @@ public final class Helper {
 		if ( value == null ) {
 			return null;
 		}
-		if ( value instanceof Float || value instanceof Double ) {
-			Double dbValue = ( Double ) value;
-			if ( isInteger( dbValue ) ) {
-				return String.valueOf( dbValue.intValue() );
-			}
-			if ( Helper.getDecimalDigits( dbValue ) > 3 ) {
-				return String.format( DECIMAL_TEMPLATE, dbValue );
-			}
-			return dbValue.toString();
+		if ( value instanceof Float ) {
+			// Widen through the shortest decimal form, so 0.1f stays 0.1 instead of 0.10000000149011612
+			return toDecimal( Double.parseDouble( value.toString() ) );
+		}
+		if ( value instanceof Double ) {
+			return toDecimal( ( Double ) value );
 		}
 		if ( value instanceof BigDecimal ) {
 			return ( ( BigDecimal ) value ).setScale( 2, BigDecimal.ROUND_HALF_UP ).toPlainString();
@@ -228,10 +329,15 @@ public final class Helper {
 			if ( lambda instanceof NoArgUsage ) {
 				return methodName + "()";
 			}
-			String implMethodName = sl.getInstantiatedMethodType();
-			implMethodName = implMethodName.substring( 0, implMethodName.indexOf( ")" ) );
-			implMethodName = implMethodName.substring( implMethodName.lastIndexOf( "/" ) + 1, implMethodName.lastIndexOf( ";" ) );
-			return implMethodName + "(" + implMethodName + ")";
+			// (Ljava/lang/Integer;Ljava/lang/String;)Ljava/lang/Object; -> methodName(Integer, String)
+			String descriptor = sl.getInstantiatedMethodType();
+			StringJoiner types = new StringJoiner( ", ", methodName + "(", ")" );
+			for ( String type : descriptor.substring( 1, descriptor.indexOf( ')' ) ).split( ";" ) ) {
+				if ( !type.isEmpty() ) {
+					types.add( type.substring( Math.max( type.lastIndexOf( '/' ), type.lastIndexOf( '$' ) ) + 1 ) );
+				}
+			}
+			return types.toString();
 		} catch ( Exception e ) {
 			return lambda.getClass().getSimpleName();
 		}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The lookup tables generated at build time by
+ * {@link com.viiyue.ffmpeg.annotation.processor.MetadataProcessor MetadataProcessor}, a type missing from them
+ * returns {@code null} and the callers fall back to reflection.
+ *
+ * <p>
+ * The methods of the executor usages are not indexed, they only exist as method references in the source,
+ * which {@code javax.lang.model} cannot see. {@link Helper#getLambdaMethod(com.viiyue.ffmpeg.common.UsageLambda)}
+ * still reads them from the serialized lambda, which is only done when the usages are printed.
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public final class Metadata {
+
+	private static final Logger LOG = LoggerFactory.getLogger( Metadata.class );
+	private static final String INDEX_CLASS = "com.viiyue.ffmpeg.util.MetadataIndex";
+
+	private final Map<String, String> functions = new HashMap<>( 512 );
+	private final Set<String> enums = new HashSet<>( 256 );
+	private final Map<String, String> aliases = new HashMap<>( 256 );
+
+	private static class Holder {
+		private static final Metadata INSTANCE = new Metadata();
+	}
+
+	private Metadata() {
+		try {
+			Index index = Class.forName( INDEX_CLASS ).asSubclass( Index.class ).getConstructor().newInstance();
+			index.load( functions, enums, aliases );
+		} catch ( ClassNotFoundException e ) {
+			LOG.debug( "No generated metadata found, annotations are read by reflection" );
+		} catch ( ReflectiveOperationException | LinkageError e ) {
+			LOG.warn( "Failed to load the generated metadata, annotations are read by reflection", e );
+		}
+	}
+
+	/**
+	 * @param type the filter function type
+	 * @return the filter name declared or inherited by the type, or {@code null} if the type is not indexed
+	 */
+	public static String getFunction( Class<?> type ) {
+		return Holder.INSTANCE.functions.get( type.getName() );
+	}
+
+	/**
+	 * @param type the enumeration type
+	 * @return whether all the {@code @Alias} names of the enumeration are indexed
+	 */
+	public static boolean isIndexed( Class<?> type ) {
+		return Holder.INSTANCE.enums.contains( type.getName() );
+	}
+
+	/**
+	 * @param type     the enumeration type
+	 * @param constant the enumeration constant name
+	 * @return the {@code @Alias} name of the constant, or {@code null} if it doesn't have one
+	 */
+	public static String getAlias( Class<?> type, String constant ) {
+		return Holder.INSTANCE.aliases.get( type.getName() + '#' + constant );
+	}
+
+	/**
+	 * The contract of the generated index
+	 */
+	public interface Index {
+
+		/**
+		 * Fill the lookup tables
+		 *
+		 * @param functions the filter names by class name
+		 * @param enums     the names of the indexed enumerations
+		 * @param aliases   the aliases by enumeration name and constant, such as {@code type#CONSTANT}
+		 */
+		void load( Map<String, String> functions, Set<String> enums, Map<String, String> aliases );
+
+	}
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.annotation.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.viiyue.ffmpeg.util.Metadata;
+
+/**
+ * Run {@link MetadataProcessor} through the system compiler on a few sources and load the index it generates
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class MetadataProcessorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void indexesTheFunctionsAndTheAliases() throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assumeNotNull( compiler );
+
+		Path sources = folder.newFolder( "src" ).toPath();
+		Path classes = folder.newFolder( "classes" ).toPath();
+		File blur = write( sources, "demo/Blur.java", "package demo;\n"
+			+ "@com.viiyue.ffmpeg.annotation.Function( \"gblur\" )\n"
+			+ "public class Blur {\n"
+			+ "\tpublic enum Plane implements com.viiyue.ffmpeg.common.AbstractEnum {\n"
+			+ "\t\t@com.viiyue.ffmpeg.annotation.Alias( \"y\" ) LUMA, CHROMA\n"
+			+ "\t}\n"
+			+ "}\n" );
+		File sharp = write( sources, "demo/Sharp.java", "package demo;\npublic class Sharp extends Blur {}\n" );
+		File plain = write( sources, "demo/Plain.java", "package demo;\npublic class Plain {}\n" );
+
+		String classpath = new File( Metadata.class.getProtectionDomain().getCodeSource().getLocation().toURI() ).getPath();
+		try ( StandardJavaFileManager files = compiler.getStandardFileManager( null, null, StandardCharsets.UTF_8 ) ) {
+			Iterable<? extends JavaFileObject> units = files.getJavaFileObjects( blur, sharp, plain );
+			JavaCompiler.CompilationTask task = compiler.getTask( null, files, null,
+				Arrays.asList( "-classpath", classpath, "-d", classes.toString(), "-s", sources.toString() ), null, units );
+			task.setProcessors( Collections.singletonList( new MetadataProcessor() ) );
+			assertTrue( task.call() );
+		}
+
+		Map<String, String> functions = new HashMap<>();
+		Set<String> enums = new HashSet<>();
+		Map<String, String> aliases = new HashMap<>();
+		try ( URLClassLoader loader = new URLClassLoader( new URL[] { classes.toUri().toURL() }, getClass().getClassLoader() ) ) {
+			Class<?> index = loader.loadClass( "com.viiyue.ffmpeg.util.MetadataIndex" );
+			index.asSubclass( Metadata.Index.class ).getConstructor().newInstance().load( functions, enums, aliases );
+		}
+
+		Map<String, String> names = new HashMap<>();
+		names.put( "demo.Blur", "gblur" );
+		names.put( "demo.Sharp", "gblur" );
+		assertEquals( names, functions );
+		assertEquals( Collections.singleton( "demo.Blur$Plane" ), enums );
+		assertEquals( Collections.singletonMap( "demo.Blur$Plane#LUMA", "y" ), aliases );
+	}
+
+	private static File write( Path root, String name, String source ) throws IOException {
+		Path file = root.resolve( name );
+		Files.createDirectories( file.getParent() );
+		return Files.write( file, source.getBytes( StandardCharsets.UTF_8 ) ).toFile();
+	}
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.viiyue.ffmpeg.enums.Library;
+import com.viiyue.ffmpeg.filter.Filters;
+import com.viiyue.ffmpeg.filter.video.Scale;
+
+/**
+ * Templates compiled by {@link AbstractExecutor#compile()}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class CommandTemplateTest {
+
+	@Before
+	public void setUp() {
+		Library.FFMPEG.bind( "ffmpeg" );
+	}
+
+	@After
+	public void tearDown() {
+		Library.FFMPEG.bind( null );
+	}
+
+	@Test
+	public void fillsTheSlots() {
+		CommandTemplate template = FFmpegExecutor.build()
+				.cmd( "i", CommandTemplate.slot( "input" ), false )
+				.cmd( "-", CommandTemplate.slot( "output" ) )
+				.compile();
+
+		assertEquals( Arrays.asList( "input", "output" ), Arrays.asList( template.getNames().toArray() ) );
+		assertEquals( "in.mp4", template.render( map( "input", "in.mp4", "output", "out.mp4" ) ).get( 3 ) );
+	}
+
+	@Test
+	public void rejectsWhatTheExecutorRejects() {
+		Filters filters = Filters.complex();
+		filters.stream( "1:v" ).add( Scale.to( 640, 360 ) ).tag( "out" );
+		FFmpegExecutor executor = FFmpegExecutor.build()
+				.cmd( "i", CommandTemplate.slot( "input" ), false )
+				.filters( filters )
+				.cmd( "map", "[out]", false );
+
+		assertThrows( IllegalArgumentException.class, executor::compile );
+	}
+
+	private static Map<String, Object> map( String ... entries ) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		for ( int i = 0; i < entries.length; i += 2 ) {
+			map.put( entries[ i ], entries[ i + 1 ] );
+		}
+		return Collections.unmodifiableMap( map );
+	}
+
+}
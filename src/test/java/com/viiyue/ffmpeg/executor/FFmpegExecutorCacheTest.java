@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.viiyue.ffmpeg.cache.InputIdentity;
+import com.viiyue.ffmpeg.cache.ResultCache;
+import com.viiyue.ffmpeg.enums.Library;
+
+/**
+ * {@link FFmpegExecutor#to(String)} with a {@link ResultCache}, run by a fake ffmpeg that writes every
+ * {@code *.out} argument and counts its runs
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class FFmpegExecutorCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path runs;
+	private String input;
+	private ResultCache cache;
+
+	@Before
+	public void setUp() throws IOException {
+		assumeTrue( "A shell script is used as ffmpeg", File.separatorChar == '/' );
+		Path root = folder.getRoot().toPath();
+		this.runs = root.resolve( "runs" );
+		Path ffmpeg = root.resolve( "ffmpeg" );
+		Files.write( ffmpeg, ( "#!/bin/sh\n"
+				+ "echo run >> '" + runs + "'\n"
+				+ "for arg; do case \"$arg\" in *.out) echo encoded > \"$arg\";; esac; done\n" ).getBytes( StandardCharsets.UTF_8 ) );
+		assumeTrue( ffmpeg.toFile().setExecutable( true ) );
+		Library.FFMPEG.bind( ffmpeg.toString() );
+		Library.setLogLocation( root.resolve( "logs" ) + "/" );
+
+		Path source = root.resolve( "input.mp4" );
+		Files.write( source, "input".getBytes( StandardCharsets.UTF_8 ) );
+		this.input = source.toString();
+		this.cache = ResultCache.of( root.resolve( "cache" ), 1 << 20 );
+	}
+
+	@After
+	public void tearDown() {
+		Library.FFMPEG.bind( null );
+	}
+
+	@Test
+	public void reusesTheResultOfTheSameCommand() throws IOException {
+		String first = path( "first.out" ), second = path( "second.out" );
+		FFmpegExecutor.build().cache( cache ).input( input ).to( first );
+		FFmpegExecutor.build().cache( cache ).input( input ).to( second );
+
+		assertEquals( 1, runs() );
+		assertTrue( new File( second ).exists() );
+	}
+
+	@Test
+	public void reusesTheResultOfARenamedInput() throws IOException {
+		cache.identity( InputIdentity.SAMPLED );
+		FFmpegExecutor.build().cache( cache ).input( input ).to( path( "first.out" ) );
+		Path renamed = Files.move( Paths.get( input ), Paths.get( path( "renamed.mp4" ) ) );
+		FFmpegExecutor.build().cache( cache ).input( renamed.toString() ).to( path( "second.out" ) );
+
+		assertEquals( 1, runs() );
+	}
+
+	@Test
+	public void keepsTheOutputsApartFromTheCache() throws IOException {
+		Path first = Paths.get( path( "first.out" ) );
+		FFmpegExecutor.build().cache( cache ).input( input ).to( first.toString() );
+		assertTrue( Files.isWritable( first ) );
+		Files.write( first, "changed".getBytes( StandardCharsets.UTF_8 ) );
+
+		Path second = Paths.get( path( "second.out" ) );
+		FFmpegExecutor.build().cache( cache ).input( input ).to( second.toString() );
+		assertEquals( 1, runs() );
+		assertEquals( "encoded", new String( Files.readAllBytes( second ), StandardCharsets.UTF_8 ).trim() );
+	}
+
+	@Test
+	public void runsCommandsWithOtherOutputs() throws IOException {
+		FFmpegExecutor.build().cache( cache ).input( input ).to( path( "cached.out" ) );
+		String primary = path( "primary.out" ), extra = path( "extra.out" );
+		FFmpegExecutor.build().cache( cache ).input( input ).addOutput( extra ).to( primary );
+
+		assertEquals( 2, runs() );
+		assertTrue( new File( extra ).exists() );
+		assertTrue( new File( primary ).exists() );
+	}
+
+	private String path( String name ) {
+		return new File( folder.getRoot(), name ).getPath();
+	}
+
+	private int runs() throws IOException {
+		return Files.exists( runs ) ? Files.readAllLines( runs ).size() : 0;
+	}
+
+}
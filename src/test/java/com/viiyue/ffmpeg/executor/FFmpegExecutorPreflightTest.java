@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.viiyue.ffmpeg.enums.Library;
+import com.viiyue.ffmpeg.filter.Filters;
+import com.viiyue.ffmpeg.metadata.CapabilityRegistry;
+
+/**
+ * {@link FFmpegExecutor#preflight(CapabilityRegistry)} against a fake ffmpeg built without {@code lensfun}, with
+ * the {@code h264} decoder and the {@code libx264} encoder only
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class FFmpegExecutorPreflightTest {
+
+	private static final String GRAPH = "lensfun=make=Canon,scale=640:360";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path root;
+	private Path commands;
+
+	@Before
+	public void setUp() throws IOException {
+		assumeTrue( "A shell script is used as ffmpeg", File.separatorChar == '/' );
+		this.root = folder.getRoot().toPath();
+		this.commands = root.resolve( "commands" );
+		Library.setLogLocation( root.resolve( "logs" ) + "/" );
+
+		Path ffmpeg = root.resolve( "ffmpeg" );
+		Files.write( ffmpeg, ( "#!/bin/sh\n"
+				+ "[ $# -eq 2 ] && [ \"$1\" = -hide_banner ] || { echo \"$*\" >> '" + commands + "'; exit 0; }\n"
+				+ "case \"$2\" in\n"
+				+ "-version) printf 'ffmpeg version 6.1.1 Copyright\\n';;\n"
+				+ "-filters) printf ' ... null   V->V  Pass\\n ... scale  V->V  Scale\\n';;\n"
+				+ "-decoders) printf ' ------\\n V....D h264  H.264\\n';;\n"
+				+ "-encoders) printf ' ------\\n V....D libx264  H.264\\n';;\n"
+				+ "esac\n" ).getBytes( StandardCharsets.UTF_8 ) );
+		assumeTrue( ffmpeg.toFile().setExecutable( true ) );
+		Library.FFMPEG.bind( ffmpeg.toString() );
+	}
+
+	@After
+	public void tearDown() {
+		Library.FFMPEG.bind( null );
+	}
+
+	@Test
+	public void appliesTheFallbackOnEveryRun() throws IOException {
+		FFmpegExecutor executor = FFmpegExecutor.build()
+				.input( "in.mp4" )
+				.filters( Filters.simple().add( GRAPH ).over() )
+				.fallback( "lensfun", "null" )
+				.preflight( CapabilityRegistry.of( null ) );
+		executor.to( root.resolve( "a.mp4" ).toString() );
+		executor.to( root.resolve( "b.mp4" ).toString() );
+
+		List<String> runs = jobs();
+		assertEquals( 2, runs.size() );
+		for ( String run : runs ) {
+			assertTrue( run, run.contains( " null,scale=640:360 " ) );
+		}
+		assertTrue( executor.toString(), executor.toString().contains( GRAPH ) );
+	}
+
+	@Test
+	public void rejectsAMissingFilterWithoutFallback() throws IOException {
+		FFmpegExecutor executor = FFmpegExecutor.build()
+				.input( "in.mp4" )
+				.filters( Filters.simple().add( GRAPH ).over() )
+				.preflight( CapabilityRegistry.of( null ) );
+
+		IllegalArgumentException e = assertThrows( IllegalArgumentException.class, () -> executor.to( root.resolve( "a.mp4" ).toString() ) );
+		assertTrue( e.getMessage(), e.getMessage().endsWith( "6.1.1 executable has no filter lensfun" ) );
+		assertTrue( jobs().isEmpty() );
+	}
+
+	@Test
+	public void classifiesTheCodecsByTheirInputOrOutput() {
+		// The first output is described before the second input, its encoder is still an encoder
+		FFmpegExecutor executor = FFmpegExecutor.build()
+				.cmd( "i", "a.mp4", false )
+				.cmd( "c:v", "libx264", false )
+				.addOutput( "a.mkv" )
+				.cmd( "c:v", "h264", false )
+				.cmd( "i", "b.mp4", false )
+				.addOutput( "b.mkv" )
+				.preflight( CapabilityRegistry.of( null ) );
+		executor.compile();
+
+		FFmpegExecutor swapped = FFmpegExecutor.build()
+				.cmd( "c:v", "libx264", false )
+				.cmd( "i", "a.mp4", false )
+				.cmd( "c:v", "h264", false )
+				.addOutput( "a.mkv" )
+				.preflight( CapabilityRegistry.of( null ) );
+		IllegalArgumentException e = assertThrows( IllegalArgumentException.class, swapped::compile );
+		assertTrue( e.getMessage(), e.getMessage().endsWith( "executable has no decoder libx264, encoder h264" ) );
+	}
+
+	private List<String> jobs() throws IOException {
+		return Files.exists( commands ) ? Files.readAllLines( commands, StandardCharsets.UTF_8 ) : new ArrayList<>( 0 );
+	}
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.viiyue.ffmpeg.enums.Library;
+import com.viiyue.ffmpeg.filter.Filters;
+import com.viiyue.ffmpeg.filter.video.Scale;
+
+/**
+ * The filter scripts of {@link FilterScripts}, shared by the jobs running the same graph
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class FilterScriptsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@After
+	public void tearDown() {
+		Library.FFMPEG.bind( null );
+	}
+
+	@Test
+	public void keepsTheScriptUntilTheLastJobEnds() {
+		Path script = FilterScripts.acquire( "scale=1:1" );
+		assertEquals( script, FilterScripts.acquire( "scale=1:1" ) );
+
+		FilterScripts.release( script );
+		assertTrue( Files.isRegularFile( script ) );
+		FilterScripts.release( script );
+		assertFalse( Files.exists( script ) );
+	}
+
+	@Test
+	public void rewritesAScriptThatWasChanged() throws IOException {
+		Path script = FilterScripts.acquire( "scale=2:2" );
+		try {
+			Files.write( script, "scale=3:3".getBytes( StandardCharsets.UTF_8 ) );
+			assertEquals( script, FilterScripts.acquire( "scale=2:2" ) );
+			assertEquals( "scale=2:2", new String( Files.readAllBytes( script ), StandardCharsets.UTF_8 ) );
+			FilterScripts.release( script );
+		} finally {
+			FilterScripts.release( script );
+		}
+	}
+
+	@Test
+	public void writesTheScriptsToAPrivateDirectory() throws IOException {
+		assumeTrue( "POSIX permissions", File.separatorChar == '/' );
+		Path script = FilterScripts.acquire( "scale=4:4" );
+		try {
+			assertEquals( "rwx------", PosixFilePermissions.toString( Files.getPosixFilePermissions( script.getParent() ) ) );
+		} finally {
+			FilterScripts.release( script );
+		}
+	}
+
+	@Test
+	public void deletesTheScriptWhenTheJobEnds() throws IOException {
+		assumeTrue( "A shell script is used as ffmpeg", File.separatorChar == '/' );
+		Path root = folder.getRoot().toPath();
+		Path seen = root.resolve( "seen" );
+		Path ffmpeg = root.resolve( "ffmpeg" );
+		Files.write( ffmpeg, ( "#!/bin/sh\n"
+				+ "while [ $# -gt 0 ]; do\n"
+				+ "  case \"$1\" in -filter_script:v) echo \"$2\" > '" + seen + "'; cat \"$2\" >> '" + seen + "';; esac\n"
+				+ "  shift\n"
+				+ "done\n" ).getBytes( StandardCharsets.UTF_8 ) );
+		assumeTrue( ffmpeg.toFile().setExecutable( true ) );
+		Library.FFMPEG.bind( ffmpeg.toString() );
+		Library.setLogLocation( root.resolve( "logs" ) + "/" );
+
+		Filters filters = Filters.simple().add( Scale.to( 640, 360 ) ).over();
+		FFmpegExecutor.build().input( "input.mp4" ).filterScript( 0 ).filters( filters ).to( root.resolve( "out.mp4" ).toString() );
+
+		String [] lines = new String( Files.readAllBytes( seen ), StandardCharsets.UTF_8 ).split( "\n" );
+		assertEquals( filters.toString(), lines[ 1 ] );
+		assertFalse( Files.exists( root.resolve( lines[ 0 ] ) ) );
+	}
+
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * The tee output specifications rendered by {@link TeeOutput}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class TeeOutputTest {
+
+	@Test
+	public void rendersTheUrlAlone() {
+		assertEquals( "out.mp4", TeeOutput.to( "out.mp4" ).toString() );
+	}
+
+	@Test
+	public void escapesTheOptionsTwice() {
+		// "a:b" -> "a\:b" for the options, then the backslash again for the outputs
+		assertEquals( "[f=mp4:x=a\\\\:b]out.mp4", TeeOutput.to( "out.mp4" ).format( "mp4" ).option( "x", "a:b" ).toString() );
+	}
+
+	@Test
+	public void escapesTheEndOfTheOptions() {
+		assertEquals( "[x=a\\\\\\]b]out.mp4", TeeOutput.to( "out.mp4" ).option( "x", "a]b" ).toString() );
+	}
+
+	@Test
+	public void escapesTheOutputSeparatorOnce() {
+		assertEquals( "out\\|1.mp4", TeeOutput.to( "out|1.mp4" ).toString() );
+	}
+
+}
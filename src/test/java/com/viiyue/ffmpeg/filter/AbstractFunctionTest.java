@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.viiyue.ffmpeg.filter.video.Scale;
+import com.viiyue.ffmpeg.filter.video.Stereo3d;
+
+/**
+ * Rendering and freezing of {@link AbstractFunction}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class AbstractFunctionTest {
+
+	@Test
+	public void rendersWithoutSideEffects() {
+		Scale scale = Scale.to( 1280, 720 ).flags( "bicubic" );
+		assertEquals( "scale=w=1280:h=720:flags=bicubic", scale.toString() );
+		assertEquals( "scale=w=1280:h=720:flags=bicubic", scale.toString() );
+		assertEquals( "stereo3d", Stereo3d.of().toString() );
+	}
+
+	@Test
+	public void cachesTheFrozenRendering() {
+		Scale scale = Scale.to( 1280, 720 );
+		assertFalse( scale.isFrozen() );
+		assertSame( scale, scale.freeze() );
+		assertTrue( scale.isFrozen() );
+		assertEquals( "scale=1280:720", scale.toString() );
+		assertSame( scale.toString(), scale.toString() );
+		assertSame( scale.toString(), scale.freeze().toString() );
+	}
+
+	@Test
+	public void ignoresTheSubclassValuesOnceFrozen() {
+		Stereo3d stereo = Stereo3d.of().in( Stereo3d.InputFormat.SBSL ).freeze();
+		stereo.out( Stereo3d.OutputFormat.SBSR );
+		assertEquals( "stereo3d=sbsl", stereo.toString() );
+	}
+
+	@Test
+	public void rejectsChangesOnceFrozen() {
+		Scale scale = Scale.to( 1280, 720 ).freeze();
+		IllegalArgumentException e = assertThrows( IllegalArgumentException.class, () -> scale.flags( "bicubic" ) );
+		assertEquals( "The frozen filter cannot be changed", e.getMessage() );
+		assertEquals( "scale=1280:720", scale.toString() );
+	}
+
+}
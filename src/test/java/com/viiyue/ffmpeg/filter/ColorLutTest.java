@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.viiyue.ffmpeg.enums.Library;
+import com.viiyue.ffmpeg.filter.ColorLut.Collapse;
+
+/**
+ * {@link ColorLut} checking its lookups on the frames rendered by a fake ffmpeg, which writes every byte of the
+ * frames of the filters as {@code 0x10} and those of the lookup as the byte given to {@link #ffmpeg(String)}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class ColorLutTest {
+
+	private static final String CHAIN = "eq=contrast=1.2,hue=h=30";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path root;
+	private Path commands;
+
+	@Before
+	public void setUp() {
+		assumeTrue( "A shell script is used as ffmpeg", File.separatorChar == '/' );
+		this.root = folder.getRoot().toPath();
+		this.commands = root.resolve( "commands" );
+		Library.setLogLocation( root.resolve( "logs" ) + "/" );
+	}
+
+	@After
+	public void tearDown() {
+		Library.FFMPEG.bind( null );
+	}
+
+	@Test
+	public void collapsesTheFiltersWhenFfmpegRendersTheSame() throws IOException {
+		ffmpeg( "\\021" );
+		Filters filters = Filters.simple().add( CHAIN, "scale=640:360" ).over();
+		List<Collapse> collapses = lut().collapse( filters );
+
+		assertEquals( 1, collapses.size() );
+		assertEquals( CHAIN, collapses.get( 0 ).getChain() );
+		assertEquals( 1, collapses.get( 0 ).getError(), 0 );
+		assertTrue( Files.isRegularFile( collapses.get( 0 ).getCube() ) );
+		assertTrue( filters.toString().startsWith( "lut3d=file=" ) );
+		assertTrue( filters.toString().endsWith( ".cube:interp=trilinear,scale=640:360" ) );
+
+		List<String> lines = Files.readAllLines( commands, StandardCharsets.UTF_8 );
+		assertEquals( 2, lines.size() );
+		assertTrue( lines.get( 0 ), lines.get( 0 ).contains( "-i input.mp4 -vf format=rgb24," + CHAIN + " -frames:v 2" ) );
+		assertTrue( lines.get( 1 ), lines.get( 1 ).contains( "-vf format=rgb24,lut3d=file=" ) );
+	}
+
+	@Test
+	public void keepsTheFiltersWhenTheLookupDiffers() throws IOException {
+		ffmpeg( "\\023" );
+		Filters filters = Filters.simple().add( CHAIN ).over();
+
+		assertTrue( lut().collapse( filters ).isEmpty() );
+		assertEquals( CHAIN, filters.toString() );
+		assertEquals( 0, root.resolve( "luts" ).toFile().list().length );
+	}
+
+	private ColorLut lut() {
+		return ColorLut.of( 9 ).directory( root.resolve( "luts" ) ).sample( "input.mp4", 4, 4, 2 );
+	}
+
+	/**
+	 * @param lookup the octal escape of the bytes written for the lookup
+	 */
+	private void ffmpeg( String lookup ) throws IOException {
+		Path ffmpeg = root.resolve( "ffmpeg" );
+		Files.write( ffmpeg, ( "#!/bin/sh\n"
+				+ "echo \"$*\" >> '" + commands + "'\n"
+				+ "byte='\\020'\n"
+				+ "for arg; do case \"$arg\" in *lut3d*) byte='" + lookup + "';; esac; done\n"
+				+ "i=0; while [ $i -lt 96 ]; do printf \"$byte\"; i=$((i+1)); done\n" ).getBytes( StandardCharsets.UTF_8 ) );
+		assumeTrue( ffmpeg.toFile().setExecutable( true ) );
+		Library.FFMPEG.bind( ffmpeg.toString() );
+	}
+
+}
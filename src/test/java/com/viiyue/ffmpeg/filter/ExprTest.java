@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * The folding, the rendering and the register stores of {@link Expr}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class ExprTest {
+
+	private static final Expr IW = Expr.var( "iw" );
+	private static final Expr IH = Expr.var( "ih" );
+
+	@Test
+	public void foldsTheConstants() {
+		assertEquals( "20", Expr.of( 2 ).plus( 3 ).times( 4 ).toString() );
+		assertEquals( "3", Expr.clip( Expr.of( 5 ), Expr.of( 0 ), Expr.of( 3 ) ).toString() );
+		assertEquals( "iw", Expr.when( Expr.gt( Expr.of( 2 ), Expr.of( 1 ) ), IW, IH ).toString() );
+		assertEquals( "iw", IW.times( 1 ).plus( 0 ).toString() );
+		assertEquals( "t+3", Expr.var( "t" ).plus( Expr.of( 1 ).plus( 2 ) ).toString() );
+		assertTrue( Expr.parse( "10/4" ).isConstant() );
+		assertEquals( 2.5, Expr.parse( "10/4" ).getValue(), 0 );
+	}
+
+	@Test
+	public void keepsWhatOnlyFfmpegKnows() {
+		// iw may be NaN or infinite, and random has a state
+		assertEquals( "iw*0", IW.times( 0 ).toString() );
+		assertEquals( "random(0)*2+random(0)*2", Expr.parse( "random(0)*2+random(0)*2" ).toString() );
+	}
+
+	@Test
+	public void parsesWithThePrecedenceOfFfmpeg() {
+		assertEquals( 7, Expr.parse( "1+2*3" ).getValue(), 0 );
+		// The power is left associative and binds tighter than the sign
+		assertEquals( 64, Expr.parse( "2^3^2" ).getValue(), 0 );
+		assertEquals( -4, Expr.parse( "-2^2" ).getValue(), 0 );
+		assertEquals( 1000, Expr.parse( "1k" ).getValue(), 0 );
+		assertEquals( 1024, Expr.parse( "1Ki" ).getValue(), 0 );
+	}
+
+	@Test
+	public void rendersOnlyTheParenthesesNeeded() {
+		assertEquals( "(iw+ih)*2", IW.plus( IH ).times( 2 ).toString() );
+		assertEquals( "iw-(ih-1)", IW.minus( IH.minus( 1 ) ).toString() );
+		assertEquals( "iw-ih-1", IW.minus( IH ).minus( 1 ).toString() );
+		assertEquals( "iw/(ih*2)", IW.div( IH.times( 2 ) ).toString() );
+		assertEquals( "-iw^2", IW.pow( 2 ).negate().toString() );
+		assertEquals( "(-iw)^2", IW.negate().pow( 2 ).toString() );
+		assertEquals( ".5", Expr.of( 0.5 ).toString() );
+		assertEquals( "-3*iw", Expr.of( -3 ).times( IW ).toString() );
+	}
+
+	@Test
+	public void rendersTheOptionValueForItsFilter() {
+		assertEquals( "iw/2", IW.div( 2 ).render( ExprScope.SCALE ) );
+		assertEquals( "'max(iw,ih)'", Expr.max( IW, IH ).render( ExprScope.SCALE ) );
+		assertThrows( IllegalArgumentException.class, () -> Expr.var( "X" ).render( ExprScope.SCALE ) );
+		assertThrows( IllegalArgumentException.class, () -> Expr.call( "p", IW, IH ).render( ExprScope.SCALE ) );
+	}
+
+	@Test
+	public void storesTheRepeatedSubExpressions() {
+		Expr distance = Expr.call( "hypot", Expr.var( "X" ).minus( Expr.var( "W" ).div( 2 ) ), Expr.var( "Y" ).minus( Expr.var( "H" ).div( 2 ) ) );
+		Expr expr = Expr.clip( distance.times( 255 ).div( Expr.var( "W" ) ), Expr.of( 0 ), Expr.of( 255 ) ).plus( distance.div( 4 ) ).plus( distance );
+
+		assertEquals( "st(0,hypot(X-W/2,Y-H/2));clip(ld(0)*255/W,0,255)+ld(0)/4+ld(0)", expr.toString() );
+		assertEquals( "'" + expr + "'", expr.render( ExprScope.GEQ ) );
+	}
+
+	@Test
+	public void keepsTheExpressionWhenAStoreIsNotShorter() {
+		Expr sine = Expr.call( "sin", Expr.var( "t" ).times( 3.14159 ) );
+
+		assertEquals( "sin(t*3.14159)*sin(t*3.14159)+sin(t*3.14159)*2", sine.times( sine ).plus( sine.times( 2 ) ).toString() );
+	}
+
+	@Test
+	public void evaluatesLikeFfmpeg() {
+		Map<String, Number> variables = new HashMap<>();
+		variables.put( "iw", 1920 );
+		variables.put( "ih", 1080 );
+
+		assertEquals( 1500, IW.plus( IH ).div( 2 ).evaluate( variables ), 0 );
+		assertEquals( 1, Expr.gt( IW, IH ).evaluate( variables ), 0 );
+		assertThrows( IllegalArgumentException.class, () -> Expr.var( "t" ).evaluate( variables ) );
+	}
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * The media derived by {@link FilterGraph} for the labels it splits and the filters it replaces
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class FilterGraphTest {
+
+	@Test
+	public void rendersTheGraphAsWrittenByDefault() {
+		Filters filters = fanOut( Filters.complex(), "0:v", "hflip" );
+
+		assertEquals( "[0:v]hflip[x];[x]scale=1:1[a];[x]scale=2:2[b]", filters.toString() );
+		IllegalArgumentException e = assertThrows( IllegalArgumentException.class, () -> filters.graph().validate( 1, Arrays.asList( "a", "b" ) ) );
+		assertEquals( "Filter label [x] is consumed more than once, split it or turn on Filters#autoSplit()", e.getMessage() );
+	}
+
+	@Test
+	public void splitsVideoFromTheSpecifier() {
+		Filters filters = fanOut( Filters.complex().autoSplit(), "0:v", "hflip" );
+
+		assertEquals( "[0:v]hflip[x];[x]split=2[x_0][x_1];[x_0]scale=1:1[a];[x_1]scale=2:2[b]", filters.toString() );
+		filters.graph().validate( 1, Arrays.asList( "a", "b" ) );
+	}
+
+	@Test
+	public void splitsAudioFromTheSpecifierWhateverTheFilter() {
+		Filters filters = Filters.complex().autoSplit();
+		filters.stream( "0:a" ).add( "acompressor" ).tag( "x" );
+		filters.stream( "x" ).add( "volume=1" ).tag( "a" );
+		filters.stream( "x" ).add( "volume=2" ).tag( "b" );
+
+		assertEquals( "[0:a]acompressor[x];[x]asplit=2[x_0][x_1];[x_0]volume=1[a];[x_1]volume=2[b]", filters.toString() );
+	}
+
+	@Test
+	public void splitsTheVideoOfAVisualization() {
+		Filters filters = fanOut( Filters.complex().autoSplit(), "0:a", "showwaves" );
+
+		assertEquals( "[0:a]showwaves[x];[x]split=2[x_0][x_1];[x_0]scale=1:1[a];[x_1]scale=2:2[b]", filters.toString() );
+	}
+
+	@Test
+	public void rejectsALabelOfUnknownMedia() {
+		Filters filters = fanOut( Filters.complex().autoSplit(), "0", "hflip" );
+
+		assertThrows( IllegalArgumentException.class, () -> filters.graph().validate( 1, Arrays.asList( "a", "b" ) ) );
+	}
+
+	@Test
+	public void passesTheStreamThroughForItsMedia() {
+		Filters filters = Filters.complex();
+		filters.stream( "0:a" ).add( "acompressor", "loudnorm" ).tag( "a" );
+		filters.stream( "0:v" ).add( "hflip", "loudnorm" ).tag( "v" );
+
+		assertEquals( "[0:a]acompressor,anull[a];[0:v]hflip,null[v]", filters.graph().replace( "loudnorm", null ).toString() );
+	}
+
+	@Test
+	public void keepsTheMediaChangeOfAReplacedVisualization() {
+		Filters filters = Filters.complex();
+		filters.stream( "0:a" ).add( "showwaves" ).tag( "v" );
+
+		assertThrows( IllegalArgumentException.class, () -> filters.graph().replace( "showwaves", null ) );
+	}
+
+	private static Filters fanOut( Filters filters, String input, String filter ) {
+		filters.stream( input ).add( filter ).tag( "x" );
+		filters.stream( "x" ).add( "scale=1:1" ).tag( "a" );
+		filters.stream( "x" ).add( "scale=2:2" ).tag( "b" );
+		return filters;
+	}
+
+}
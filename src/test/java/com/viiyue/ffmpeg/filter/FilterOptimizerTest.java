@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.viiyue.ffmpeg.filter.FilterOptimizer.Rewrite;
+import com.viiyue.ffmpeg.filter.FilterOptimizer.Rule;
+
+/**
+ * The chains rewritten by {@link FilterOptimizer}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class FilterOptimizerTest {
+
+	private static final FilterOptimizer OPTIMIZER = FilterOptimizer.of( 1920, 1080, 30, 60 );
+
+	@Test
+	public void dropsTheNoops() {
+		assertEquals( "scale=640:360", optimize( OPTIMIZER, "null", "scale=640:360" ) );
+	}
+
+	@Test
+	public void mergesConsecutiveFormatsAndScales() {
+		assertEquals( "format=nv12", optimize( OPTIMIZER, "format=yuv420p", "format=nv12" ) );
+		assertEquals( "scale=640:360", optimize( OPTIMIZER, "scale=1280:720", "scale=640:360" ) );
+		assertEquals( "scale=640:360,scale=1280:720", optimize( OPTIMIZER, "scale=640:360", "scale=1280:720" ) );
+	}
+
+	@Test
+	public void pushesADownscaleAheadOfAPixelWiseFilter() {
+		assertEquals( "scale=640:360,eq=contrast=1.2", optimize( OPTIMIZER, "eq=contrast=1.2", "scale=640:360" ) );
+		assertEquals( "eq=contrast=1.2,scale=3840:2160", optimize( OPTIMIZER, "eq=contrast=1.2", "scale=3840:2160" ) );
+		assertEquals( "geq=lum=X*W,scale=640:360", optimize( OPTIMIZER, "geq=lum=X*W", "scale=640:360" ) );
+	}
+
+	@Test
+	public void movesFrameReducersAhead() {
+		assertEquals( "fps=10,hflip", optimize( OPTIMIZER, "hflip", "fps=10" ) );
+		assertEquals( "trim=end=10,hflip", optimize( OPTIMIZER, "hflip", "trim=end=10" ) );
+		assertEquals( "eq=brightness=sin(t)/10,trim=end=10", optimize( OPTIMIZER, "eq=brightness=sin(t)/10", "trim=end=10" ) );
+	}
+
+	@Test
+	public void shortensTheDurationAfterATrim() {
+		Filters filters = Filters.simple();
+		filters.add( "hflip", "trim=start=00:00:20:duration=10" );
+		List<Rewrite> rewrites = OPTIMIZER.optimize( filters );
+
+		assertEquals( 1, rewrites.size() );
+		assertEquals( Rule.MOVE_EARLY, rewrites.get( 0 ).getRule() );
+		// 60 seconds of hflip, then 10
+		assertEquals( 1920 * 1080 * 30 * 50d, rewrites.get( 0 ).getSaving(), 0 );
+	}
+
+	@Test
+	public void assumesTheSourceLastsUntilTheTrimEnds() {
+		Filters filters = Filters.simple();
+		filters.add( "hflip", "trim=30:40" );
+		List<Rewrite> rewrites = FilterOptimizer.of( 1920, 1080, 30 ).optimize( filters );
+
+		assertEquals( 1920 * 1080 * 30 * 30d, rewrites.get( 0 ).getSaving(), 0 );
+	}
+
+	@Test
+	public void rendersTheRewriteWhateverTheLocale() {
+		Locale locale = Locale.getDefault();
+		try {
+			Locale.setDefault( new Locale( "ar", "EG" ) );
+			Filters filters = Filters.simple();
+			filters.add( "hflip", "trim=end=10" );
+			List<Rewrite> rewrites = OPTIMIZER.optimize( filters );
+
+			assertEquals( "MOVE_EARLY trim=end=10: hflip,trim=end=10 -> trim=end=10,hflip (3110400000 px)", rewrites.get( 0 ).toString() );
+		} finally {
+			Locale.setDefault( locale );
+		}
+	}
+
+	@Test
+	public void keepsThePadLabelsOfARewrittenChain() {
+		Filters filters = Filters.complex();
+		filters.stream( "0:v" ).add( "eq=contrast=1.2", "scale=640:360" ).tag( "v" );
+
+		assertEquals( 1, OPTIMIZER.optimize( filters ).size() );
+		assertEquals( "[0:v]scale=640:360,eq=contrast=1.2[v]", filters.toString() );
+	}
+
+	private static String optimize( FilterOptimizer optimizer, String ... chain ) {
+		Filters filters = Filters.simple();
+		filters.add( chain );
+		optimizer.optimize( filters );
+		return filters.toString();
+	}
+
+}
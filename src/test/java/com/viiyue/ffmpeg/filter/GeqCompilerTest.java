@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.viiyue.ffmpeg.filter.GeqCompiler.Compilation;
+
+/**
+ * The {@code geq} filters rewritten into {@code lutyuv} and {@code lutrgb} by {@link GeqCompiler}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class GeqCompilerTest {
+
+	@Test
+	public void compilesTheLumaIntoLutyuv() {
+		Filters filters = Filters.simple().add( "geq=lum='p(X,Y)*0.5+64':cb=128:cr=128", "scale=640:360" ).over();
+		List<Compilation> compilations = GeqCompiler.of().compile( filters );
+
+		assertEquals( 1, compilations.size() );
+		assertEquals( "geq=lum='p(X,Y)*0.5+64':cb=128:cr=128", compilations.get( 0 ).getFilter() );
+		assertEquals( "lutyuv=y='val*.5+64':u='128':v='128':a=maxval", compilations.get( 0 ).getLut() );
+		assertEquals( "lutyuv=y='val*.5+64':u='128':v='128':a=maxval,scale=640:360", filters.toString() );
+	}
+
+	@Test
+	public void compilesTheColoursIntoLutrgb() {
+		assertEquals( "lutrgb=r='255-val':g='val':b='val':a=maxval", compile( "geq=r='255-r(X,Y)':g='g(X,Y)':b='b(X,Y)'" ) );
+		assertEquals( "lutrgb=r='val/2':a=maxval", compile( "geq=r=r(X\\,Y)/2" ) );
+	}
+
+	@Test
+	public void keepsTheFiltersReadingOtherPixels() {
+		assertKept( "geq=lum='p(X+1,Y)'" );
+		assertKept( "geq=lum='X'" );
+		assertKept( "geq=lum='p(X,Y)+T'" );
+	}
+
+	@Test
+	public void keepsTheFiltersTheLookupWouldClipDifferently() {
+		// Limited range luma, twice the sample leaves 16-235
+		assertKept( "geq=lum='p(X,Y)*2'" );
+		assertKept( "geq=lum=lum(X\\,Y):cb=cb(X\\,Y)" );
+	}
+
+	private static String compile( String geq ) {
+		Filters filters = Filters.simple().add( geq ).over();
+		GeqCompiler.of().compile( filters );
+		return filters.toString();
+	}
+
+	private static void assertKept( String geq ) {
+		Filters filters = Filters.simple().add( geq ).over();
+		assertTrue( GeqCompiler.of().compile( filters ).isEmpty() );
+		assertEquals( geq, filters.toString() );
+	}
+
+}
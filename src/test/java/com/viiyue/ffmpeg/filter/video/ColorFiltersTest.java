@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.filter.video;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * The names and the options rendered by the colour filters
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class ColorFiltersTest {
+
+	@Test
+	public void rendersLut3d() {
+		assertEquals( "lut3d=file=a.cube", Lut3d.file( "a.cube" ).toString() );
+	}
+
+	@Test
+	public void setsTheExposure() {
+		assertEquals( "exposure=exposure=1.5", Exposure.of( 1.5 ).toString() );
+	}
+
+	@Test
+	public void setsTheBlueLuma() {
+		assertEquals( "vibrance=blum=2", Vibrance.of().bLuma( 2 ).toString() );
+	}
+
+}
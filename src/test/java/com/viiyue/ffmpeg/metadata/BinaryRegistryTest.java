@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.viiyue.ffmpeg.enums.Library;
+import com.viiyue.ffmpeg.metadata.Capabilities.Kind;
+
+/**
+ * {@link BinaryRegistry} routing between fake ffmpeg builds, which only differ in their filters and version
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class BinaryRegistryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path root;
+	private BinaryRegistry binaries;
+
+	@Before
+	public void setUp() {
+		assumeTrue( "Shell scripts are used as ffmpeg", File.separatorChar == '/' );
+		this.root = folder.getRoot().toPath();
+		this.binaries = BinaryRegistry.of( CapabilityRegistry.of( null ) );
+	}
+
+	@After
+	public void tearDown() {
+		Library.FFMPEG.bind( null );
+	}
+
+	@Test
+	public void routesToTheLeanestCoveringBinary() throws IOException {
+		String lean = ffmpeg( "lean", "6.1.1", "scale" );
+		String full = ffmpeg( "full", "6.1.1", "scale", "overlay", "lensfun" );
+		binaries.register( "full", full ).register( "lean", lean );
+
+		assertEquals( lean, binaries.route( filters( "scale" ) ) );
+		assertEquals( full, binaries.route( filters( "scale", "overlay" ) ) );
+		assertEquals( lean, binaries.route( filters() ) );
+	}
+
+	@Test
+	public void routesToTheFullestBinaryWhenNoneCovers() throws IOException {
+		binaries.register( "lean", ffmpeg( "lean", "6.1.1", "scale" ) );
+		String full = ffmpeg( "full", "6.1.1", "scale", "overlay" );
+		binaries.register( "full", full );
+		assertEquals( full, binaries.route( filters( "scale", "lensfun" ) ) );
+	}
+
+	@Test
+	public void prefersTheNewerVersionThenTheName() throws IOException {
+		binaries.register( "b", ffmpeg( "b", "6.1.1", "scale" ) );
+		String newer = ffmpeg( "c", "n7.0-12-g1234567", "scale" );
+		binaries.register( "c", newer );
+		assertEquals( newer, binaries.route( filters( "scale" ) ) );
+
+		String same = ffmpeg( "a", "7.0", "scale" );
+		binaries.register( "a", same );
+		assertEquals( same, binaries.route( filters( "scale" ) ) );
+	}
+
+	@Test
+	public void readsTheBoundBinaryAsTheDefault() throws IOException {
+		String lean = ffmpeg( "lean", "6.1.1", "scale" );
+		binaries.register( "full", ffmpeg( "full", "6.1.1", "scale", "overlay" ) );
+		assertEquals( Collections.singleton( "full" ), binaries.getNames() );
+
+		Library.FFMPEG.bind( lean );
+		assertEquals( new LinkedHashSet<>( Arrays.asList( "full", BinaryRegistry.DEFAULT ) ), binaries.getNames() );
+		assertEquals( lean, binaries.getExecutable( BinaryRegistry.DEFAULT ) );
+		assertEquals( lean, binaries.route( filters( "scale" ) ) );
+
+		Library.FFMPEG.bind( null );
+		assertEquals( Collections.singleton( "full" ), binaries.getNames() );
+	}
+
+	@Test
+	public void rejectsTheDefaultNameAndAnEmptyRegistry() throws IOException {
+		String lean = ffmpeg( "lean", "6.1.1", "scale" );
+		assertThrows( IllegalArgumentException.class, () -> binaries.register( BinaryRegistry.DEFAULT, lean ) );
+		assertThrows( NullPointerException.class, () -> binaries.route( filters( "scale" ) ) );
+	}
+
+	@Test
+	public void comparesVersionNumbers() {
+		assertEquals( 0, BinaryRegistry.compareVersions( "6.1.1", "6.1.1" ) );
+		assertEquals( 0, BinaryRegistry.compareVersions( "6.1", "6.1.0" ) );
+		assertEquals( 0, BinaryRegistry.compareVersions( "n7.0-12-g1234567", "7.0" ) );
+		assertEquals( 0, BinaryRegistry.compareVersions( "7.0.2-static", "7.0.2" ) );
+		assertTrue( BinaryRegistry.compareVersions( "6.1.1", "6.1.2" ) < 0 );
+		assertTrue( BinaryRegistry.compareVersions( "6.10", "6.9" ) > 0 );
+		assertTrue( BinaryRegistry.compareVersions( "7.0", "6.1.1" ) > 0 );
+		assertTrue( BinaryRegistry.compareVersions( "N-112345-g1234567", "4.4" ) < 0 );
+		assertTrue( BinaryRegistry.compareVersions( null, "4.4" ) < 0 );
+		assertTrue( BinaryRegistry.compareVersions( "99999999999.1", "6.1" ) > 0 );
+	}
+
+	private static Capabilities filters( String ... names ) {
+		Map<Kind, Set<String>> required = new EnumMap<>( Kind.class );
+		required.put( Kind.FILTER, new LinkedHashSet<>( Arrays.asList( names ) ) );
+		return Capabilities.of( null, null, required );
+	}
+
+	private String ffmpeg( String name, String version, String ... filters ) throws IOException {
+		StringBuilder listing = new StringBuilder();
+		for ( String filter : filters ) {
+			listing.append( " TSC " ).append( filter ).append( "  V->V  The " ).append( filter ).append( " filter\\n" );
+		}
+		Path ffmpeg = root.resolve( name );
+		Files.write( ffmpeg, ( "#!/bin/sh\n"
+				+ "case \"$2\" in\n"
+				+ "-version) printf 'ffmpeg version " + version + " Copyright\\n';;\n"
+				+ "-filters) printf '" + listing + "';;\n"
+				+ "esac\n" ).getBytes( StandardCharsets.UTF_8 ) );
+		assumeTrue( ffmpeg.toFile().setExecutable( true ) );
+		return ffmpeg.toString();
+	}
+
+}
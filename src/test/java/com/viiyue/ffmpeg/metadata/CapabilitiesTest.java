@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.metadata;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.viiyue.ffmpeg.metadata.Capabilities.Kind;
+
+/**
+ * The parsing of the listings printed by ffmpeg into {@link Capabilities}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class CapabilitiesTest {
+
+	@Test
+	public void parsesTheVersionAndTheConfiguration() {
+		String output = "ffmpeg version 6.1.1 Copyright (c) 2000-2023 the FFmpeg developers\n"
+				+ "built with gcc 13.2.0 (GCC)\n"
+				+ "configuration: --prefix=/usr --enable-gpl --enable-libx264\n"
+				+ "libavutil      58. 29.100 / 58. 29.100\n";
+		assertArrayEquals( new String [] { "6.1.1", "--prefix=/usr --enable-gpl --enable-libx264" }, Capabilities.parseVersion( output ) );
+		assertArrayEquals( new String [] { "n7.0-12-gabcdef", "" }, Capabilities.parseVersion( "ffmpeg version n7.0-12-gabcdef Copyright\r\n" ) );
+		assertArrayEquals( new String [] { "", "" }, Capabilities.parseVersion( "sh: ffmpeg: not found\n" ) );
+	}
+
+	@Test
+	public void parsesTheCodecsAfterTheSeparator() {
+		String output = "Encoders:\n"
+				+ " V..... = Video\n"
+				+ " A..... = Audio\n"
+				+ " ------\n"
+				+ " V....D libx264              libx264 H.264 / AVC / MPEG-4 AVC\n"
+				+ " A....D aac                  AAC (Advanced Audio Coding)\n";
+		assertEquals( Arrays.asList( "libx264", "aac" ), Arrays.asList( Kind.ENCODER.parse( output ).toArray() ) );
+	}
+
+	@Test
+	public void splitsTheDemuxersSharingALine() {
+		String output = "File formats:\n"
+				+ " D. = Demuxing supported\n"
+				+ " .E = Muxing supported\n"
+				+ " --\n"
+				+ " D  mov,mp4,m4a,3gp,3g2,mj2 QuickTime / MOV\n"
+				+ " D  matroska,webm        Matroska / WebM\n";
+		assertEquals( Arrays.asList( "mov", "mp4", "m4a", "3gp", "3g2", "mj2", "matroska", "webm" ), Arrays.asList( Kind.DEMUXER.parse( output ).toArray() ) );
+	}
+
+	@Test
+	public void parsesTheFiltersByTheirPads() {
+		String output = "Filters:\n"
+				+ "  T.. = Timeline support\n"
+				+ "  | = Source or sink filter\n"
+				+ " ... abench            A->A       Benchmark part of a filtergraph.\n"
+				+ " TSC scale             V->V       Scale the input video size.\n"
+				+ " ... nullsrc           |->V       Null video source.\n";
+		assertEquals( Arrays.asList( "abench", "scale", "nullsrc" ), Arrays.asList( Kind.FILTER.parse( output ).toArray() ) );
+	}
+
+	@Test
+	public void mergesTheInputAndOutputProtocols() {
+		String output = "Supported file protocols:\n"
+				+ "Input:\n"
+				+ "  file\n"
+				+ "  http\n"
+				+ "Output:\n"
+				+ "  file\n"
+				+ "  rtmp\n";
+		assertEquals( Arrays.asList( "file", "http", "rtmp" ), Arrays.asList( Kind.PROTOCOL.parse( output ).toArray() ) );
+	}
+
+}
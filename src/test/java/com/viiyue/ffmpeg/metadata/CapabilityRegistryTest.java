@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link CapabilityRegistry} probing a fake ffmpeg, which records every call in a file
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class CapabilityRegistryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path root;
+	private Path commands;
+	private Path store;
+
+	@Before
+	public void setUp() {
+		assumeTrue( "A shell script is used as ffmpeg", File.separatorChar == '/' );
+		this.root = folder.getRoot().toPath();
+		this.commands = root.resolve( "commands" );
+		this.store = root.resolve( "store" );
+	}
+
+	@Test
+	public void collectsOnceAndPersists() throws IOException {
+		String ffmpeg = ffmpeg( "ffmpeg", "6.1.1" ).toString();
+		CapabilityRegistry registry = CapabilityRegistry.of( store );
+		assertNull( registry.peek( ffmpeg ) );
+
+		Capabilities capabilities = registry.get( ffmpeg );
+		assertEquals( "6.1.1", capabilities.getVersion() );
+		assertTrue( capabilities.isEnabled( "gpl" ) );
+		assertTrue( capabilities.hasFilter( "scale" ) );
+		assertTrue( capabilities.hasEncoder( "libx264" ) );
+		assertSame( capabilities, registry.get( ffmpeg ) );
+		assertSame( capabilities, registry.peek( ffmpeg ) );
+		assertEquals( 8, calls() );
+
+		assertEquals( "6.1.1", CapabilityRegistry.of( store ).get( ffmpeg ).getVersion() );
+		assertEquals( 8, calls() );
+		assertEquals( "rwx------", PosixFilePermissions.toString( Files.getPosixFilePermissions( store ) ) );
+	}
+
+	@Test
+	public void ignoresTheFilesOthersCanWrite() throws IOException {
+		String ffmpeg = ffmpeg( "ffmpeg", "6.1.1" ).toString();
+		CapabilityRegistry.of( store ).get( ffmpeg );
+		File [] files = store.toFile().listFiles();
+		assertEquals( 1, files.length );
+		assertEquals( "rw-------", PosixFilePermissions.toString( Files.getPosixFilePermissions( files[ 0 ].toPath() ) ) );
+
+		Files.setPosixFilePermissions( files[ 0 ].toPath(), PosixFilePermissions.fromString( "rw-rw-rw-" ) );
+		CapabilityRegistry.of( store ).get( ffmpeg );
+		assertEquals( 16, calls() );
+	}
+
+	@Test
+	public void probesAgainWhenTheBinaryChanges() throws IOException {
+		String ffmpeg = ffmpeg( "ffmpeg", "6.1.1" ).toString();
+		CapabilityRegistry registry = CapabilityRegistry.of( null );
+		assertEquals( "6.1.1", registry.get( ffmpeg ).getVersion() );
+
+		ffmpeg( "ffmpeg", "7.0.2-static" );
+		assertEquals( "7.0.2-static", registry.get( ffmpeg ).getVersion() );
+		assertEquals( 16, calls() );
+	}
+
+	@Test
+	public void followsTheLinkToAnotherBinary() throws IOException {
+		ffmpeg( "ffmpeg-6", "6.1.1" );
+		ffmpeg( "ffmpeg-7.0", "7.0.2" );
+		Path link = Files.createSymbolicLink( root.resolve( "ffmpeg" ), root.resolve( "ffmpeg-6" ) );
+		CapabilityRegistry registry = CapabilityRegistry.of( null );
+		assertEquals( "6.1.1", registry.get( link.toString() ).getVersion() );
+
+		Files.delete( link );
+		Files.createSymbolicLink( link, root.resolve( "ffmpeg-7.0" ) );
+		assertEquals( "7.0.2", registry.get( link.toString() ).getVersion() );
+	}
+
+	@Test
+	public void probesOnceForConcurrentLookups() throws Exception {
+		String ffmpeg = ffmpeg( "ffmpeg", "6.1.1" ).toString();
+		CapabilityRegistry registry = CapabilityRegistry.of( null );
+		ExecutorService executor = Executors.newFixedThreadPool( 8 );
+		try {
+			List<Future<Capabilities>> lookups = new ArrayList<>( 8 );
+			for ( int i = 0; i < 8; i ++ ) {
+				lookups.add( executor.submit( () -> registry.get( ffmpeg ) ) );
+			}
+			for ( Future<Capabilities> lookup : lookups ) {
+				assertSame( lookups.get( 0 ).get(), lookup.get() );
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals( 8, calls() );
+	}
+
+	@Test
+	public void listsOncePerBinary() throws IOException {
+		String ffmpeg = ffmpeg( "ffmpeg", "6.1.1" ).toString();
+		CapabilityRegistry registry = CapabilityRegistry.of( null );
+		String formats = registry.list( ffmpeg, "-formats" );
+		assertTrue( formats, formats.contains( "QuickTime / MOV" ) );
+		assertSame( formats, registry.list( ffmpeg, "-formats" ) );
+		assertEquals( 1, calls() );
+	}
+
+	private int calls() throws IOException {
+		return Files.readAllLines( commands, StandardCharsets.UTF_8 ).size();
+	}
+
+	private Path ffmpeg( String name, String version ) throws IOException {
+		Path ffmpeg = root.resolve( name );
+		Files.write( ffmpeg, ( "#!/bin/sh\n"
+				+ "echo \"$*\" >> '" + commands + "'\n"
+				+ "case \"$2\" in\n"
+				+ "-version) printf 'ffmpeg version " + version + " Copyright\\nconfiguration: --enable-gpl\\n';;\n"
+				+ "-filters) printf ' TSC scale  V->V  Scale the input video size\\n';;\n"
+				+ "-encoders) printf ' ------\\n V....D libx264  H.264\\n';;\n"
+				+ "-formats) printf ' --\\n D  mov  QuickTime / MOV\\n';;\n"
+				+ "esac\n" ).getBytes( StandardCharsets.UTF_8 ) );
+		assumeTrue( ffmpeg.toFile().setExecutable( true ) );
+		return ffmpeg;
+	}
+
+}
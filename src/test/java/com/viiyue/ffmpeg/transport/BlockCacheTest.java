@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * {@link BlockCache} with sources that are evicted while they are read or that read nothing
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class BlockCacheTest {
+
+	private static final int BLOCK = 1 << 10;
+
+	@Test
+	public void cachesTheBlocksRead() throws IOException {
+		BlockCache cache = BlockCache.of( BLOCK, 4 * BLOCK );
+		RangeSource source = source( 3 * BLOCK, null );
+		cache.get( "a", source, 3 * BLOCK, 0 );
+		cache.get( "a", source, 3 * BLOCK, 0 );
+
+		assertEquals( 1, cache.getHits() );
+		assertEquals( BLOCK, cache.getBytes() );
+	}
+
+	@Test
+	public void dropsBlocksOfSourcesEvictedWhileReading() throws IOException {
+		BlockCache cache = BlockCache.of( BLOCK, 4 * BLOCK );
+		cache.get( "a", source( 2 * BLOCK, () -> cache.evict( "a" ) ), 2 * BLOCK, 1 );
+
+		assertEquals( 0, cache.getBytes() );
+		cache.get( "a", source( 2 * BLOCK, null ), 2 * BLOCK, 1 );
+		assertEquals( 0, cache.getHits() );
+	}
+
+	@Test
+	public void failsOnSourcesReadingNothing() {
+		BlockCache cache = BlockCache.of( BLOCK, 4 * BLOCK );
+		RangeSource empty = new RangeSource() {
+			@Override
+			public long size() {
+				return BLOCK;
+			}
+
+			@Override
+			public int read( long position, byte [] buffer, int offset, int length ) {
+				return 0;
+			}
+		};
+
+		assertThrows( IOException.class, () -> cache.get( "a", empty, BLOCK, 0 ) );
+		assertEquals( 0, cache.getBytes() );
+	}
+
+	private static RangeSource source( long size, Runnable whileReading ) {
+		return new RangeSource() {
+			@Override
+			public long size() {
+				return size;
+			}
+
+			@Override
+			public int read( long position, byte [] buffer, int offset, int length ) {
+				if ( whileReading != null ) {
+					whileReading.run();
+				}
+				return length;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2022-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.viiyue.ffmpeg.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.viiyue.ffmpeg.common.NoArgUsage;
+import com.viiyue.ffmpeg.common.OneArgUsage;
+import com.viiyue.ffmpeg.common.TwoArgUsage;
+
+/**
+ * {@link Helper#toDecimal(double)} against the {@code String.format} it replaced, and the usage methods
+ * printed by {@link Helper#getLambdaMethod(com.viiyue.ffmpeg.common.UsageLambda)}
+ *
+ * @author tangxbai
+ * @since 1.0.1
+ */
+public class HelperTest {
+
+	@Test
+	public void keepsShortDecimals() {
+		assertEquals( "2", Helper.toDecimal( 2.0 ) );
+		assertEquals( "0.25", Helper.toDecimal( 0.25 ) );
+		assertEquals( "-1.5", Helper.toDecimal( -1.5 ) );
+	}
+
+	@Test
+	public void roundsTiesHalfUp() {
+		assertEquals( "0.001", Helper.toDecimal( 0.0005 ) );
+		assertEquals( "1.236", Helper.toDecimal( 1.2355 ) );
+		assertEquals( "-2.001", Helper.toDecimal( -2.0005 ) );
+		assertEquals( "123456789012.346", Helper.toDecimal( 123456789012.3455 ) );
+	}
+
+	@Test
+	public void matchesTheFormatter() {
+		Random random = new Random( 42 );
+		for ( int i = 0; i < 100000; i ++ ) {
+			double number = i % 2 == 0 ? ( random.nextInt( 2000000 ) - 1000000 ) / 1000.0 + 0.0005 : random.nextDouble() * 3840;
+			assertEquals( String.format( Locale.ROOT, "%.3f", number ), Helper.toDecimal( number ) );
+		}
+	}
+
+	@Test
+	public void describesTheUsageMethods() {
+		assertEquals( "overwrite()", Helper.getLambdaMethod( ( NoArgUsage ) this::overwrite ) );
+		assertEquals( "threads(Integer)", Helper.getLambdaMethod( ( OneArgUsage<Integer> ) this::threads ) );
+		assertEquals( "metadata(String, String)", Helper.getLambdaMethod( ( TwoArgUsage<String, String> ) this::metadata ) );
+	}
+
+	private Object overwrite() {
+		return this;
+	}
+
+	private Object threads( Integer count ) {
+		return count;
+	}
+
+	private Object metadata( String key, String value ) {
+		return key + value;
+	}
+
+}